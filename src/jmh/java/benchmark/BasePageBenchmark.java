@@ -0,0 +1,110 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import page.BasePage;
+import page.CompiledLocator;
+import page.ElementCache;
+import page.LocatorCompiler;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the {@link BasePage} helpers against the in-process fake server, once per {@link BasePage.ByLocator}
+ * kind. Every kind locates the same email field of the login screen, so differences between kinds are the cost
+ * of the locator strategy and of the framework's handling of it. Each kind is measured with and without the
+ * {@link ElementCache}; with it, repeated lookups of the same field are cache hits and no longer depend on the kind.
+ * Clicks drop the cache, so {@link BasePage#waitAndThenClick} is measured by {@link ClickBenchmark} instead.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BasePageBenchmark {
+
+    /** The locator kind under test. */
+    @Param({"ID", "XPATH", "UISELECTOR"})
+    public BasePage.ByLocator kind;
+
+    /** Whether element handles are reused between invocations. */
+    @Param({"false", "true"})
+    public boolean elementCache;
+
+    /** Locator of the login screen's email field in the chosen kind. */
+    private String locator;
+
+    /**
+     * Picks the email field locator for the chosen kind and turns the element cache on or off.
+     */
+    @Setup
+    public void chooseLocator() {
+        ElementCache.setEnabled(elementCache);
+        locator = emailLocator(kind);
+    }
+
+    /**
+     * @param kind The locator kind.
+     * @return Locator of the login screen's email field in the given kind.
+     */
+    static String emailLocator(BasePage.ByLocator kind) {
+        switch (kind) {
+            case ID:
+                return "com.loginmodule.learning:id/textInputEditTextEmail";
+            case XPATH:
+                return "//android.widget.EditText[@resource-id='com.loginmodule.learning:id/textInputEditTextEmail']";
+            default:
+                return "new UiSelector().resourceId(\"com.loginmodule.learning:id/textInputEditTextEmail\")";
+        }
+    }
+
+    /**
+     * @return The compiled locator; measures the cost of a compile cache hit.
+     */
+    @Benchmark
+    public CompiledLocator compileLocator() {
+        return LocatorCompiler.compile(kind, locator);
+    }
+
+    /**
+     * Measures {@link BasePage#waitAndThenEnterData}.
+     *
+     * @param device The fake device.
+     */
+    @Benchmark
+    public void waitAndThenEnterData(FakeDevice device) {
+        BasePage.waitAndThenEnterData(device.driver, kind, locator, "bench@example.com");
+    }
+
+    /**
+     * Measures {@link BasePage#waitAndThenGetText}.
+     *
+     * @param device The fake device.
+     * @return The field's text.
+     */
+    @Benchmark
+    public String waitAndThenGetText(FakeDevice device) {
+        return BasePage.waitAndThenGetText(device.driver, kind, locator);
+    }
+
+    /**
+     * Measures {@link BasePage#validateElementPresent}.
+     *
+     * @param device The fake device.
+     * @return Whether the field is displayed.
+     */
+    @Benchmark
+    public boolean validateElementPresent(FakeDevice device) {
+        return BasePage.validateElementPresent(device.driver, kind, locator);
+    }
+}
@@ -0,0 +1,58 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import page.BasePage;
+import page.ElementCache;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link BasePage#waitAndThenClick} against the in-process fake server, once per
+ * {@link BasePage.ByLocator} kind. A click may change the screen, so it drops the session's {@link ElementCache}
+ * and every click looks the element up again; the cache is therefore turned off rather than measured both ways as
+ * in {@link BasePageBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClickBenchmark {
+
+    /** The locator kind under test. */
+    @Param({"ID", "XPATH", "UISELECTOR"})
+    public BasePage.ByLocator kind;
+
+    /** Locator of the login screen's email field in the chosen kind. */
+    private String locator;
+
+    /**
+     * Picks the email field locator for the chosen kind and turns the element cache off.
+     */
+    @Setup
+    public void chooseLocator() {
+        ElementCache.setEnabled(false);
+        locator = BasePageBenchmark.emailLocator(kind);
+    }
+
+    /**
+     * Measures {@link BasePage#waitAndThenClick}.
+     *
+     * @param device The fake device.
+     */
+    @Benchmark
+    public void waitAndThenClick(FakeDevice device) {
+        BasePage.waitAndThenClick(device.driver, kind, locator);
+    }
+}
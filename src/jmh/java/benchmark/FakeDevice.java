@@ -0,0 +1,66 @@
+package benchmark;
+
+import io.appium.java_client.android.AndroidDriver;
+import io.appium.java_client.android.AndroidElement;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openqa.selenium.remote.DesiredCapabilities;
+import setup.FakeAppiumServer;
+import setup.FakeLoginApp;
+
+import java.io.IOException;
+
+/**
+ * An in-process {@link FakeAppiumServer} and a driver session on it, shared by all benchmark threads of a trial.
+ * The fake server answers without latency, so the benchmarks measure the framework's own overhead plus a
+ * loopback HTTP round trip, and need no device.
+ */
+@State(Scope.Benchmark)
+public class FakeDevice {
+
+    /** The fake app behind the server. */
+    FakeLoginApp app;
+
+    /** The fake Appium server. */
+    FakeAppiumServer server;
+
+    /** A session on the fake server. */
+    AndroidDriver<AndroidElement> driver;
+
+    /**
+     * Starts the fake server and opens a session on the login screen.
+     *
+     * @throws IOException If the server cannot bind a port.
+     */
+    @Setup(Level.Trial)
+    public void start() throws IOException {
+        app = new FakeLoginApp().addAccount("bench@example.com", "secret123", "Bench");
+        server = new FakeAppiumServer(app, 0).start();
+        driver = new AndroidDriver<AndroidElement>(server.getUrl(), capabilities());
+    }
+
+    /**
+     * Quits the session and stops the server.
+     */
+    @TearDown(Level.Trial)
+    public void stop() {
+        driver.quit();
+        server.stop();
+    }
+
+    /**
+     * @return The capabilities a benchmark session is created with.
+     */
+    static DesiredCapabilities capabilities() {
+        DesiredCapabilities caps = new DesiredCapabilities();
+        caps.setCapability("deviceName", "benchmark");
+        caps.setCapability("platformName", "Android");
+        caps.setCapability("appPackage", FakeLoginApp.PACKAGE);
+        caps.setCapability("appActivity", FakeLoginApp.Screen.LOGIN.getActivity());
+        caps.setCapability("noReset", "true");
+        return caps;
+    }
+}
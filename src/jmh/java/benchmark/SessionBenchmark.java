@@ -0,0 +1,101 @@
+package benchmark;
+
+import io.appium.java_client.MobileElement;
+import io.appium.java_client.android.AndroidDriver;
+import io.github.cdimascio.dotenv.Dotenv;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import setup.CommandTransport;
+import setup.FakeLoginApp;
+import setup.SessionPool;
+import setup.TestSetup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures test setup against the in-process fake server: creating a fresh session with its own HTTP client or
+ * through a shared {@link CommandTransport}, taking a warm one from a {@link SessionPool}, and generating random
+ * registration data.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SessionBenchmark {
+
+    /** A pool of sessions on the fake device, as each test worker uses it. */
+    private SessionPool pool;
+
+    /** The transport shared by every session, as the suite uses it. */
+    private final CommandTransport transport = new CommandTransport(Dotenv.configure().ignoreIfMissing().load());
+
+    /**
+     * Creates the session pool.
+     *
+     * @param device The fake device.
+     */
+    @Setup(Level.Trial)
+    public void createPool(FakeDevice device) {
+        pool = new SessionPool(() -> newSession(device), FakeLoginApp.PACKAGE, true, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Quits the pooled sessions.
+     */
+    @TearDown(Level.Trial)
+    public void shutdownPool() {
+        pool.shutdown();
+    }
+
+    /**
+     * Measures creating and quitting a session, which is what every test paid before sessions were pooled.
+     *
+     * @param device The fake device.
+     */
+    @Benchmark
+    public void freshSession(FakeDevice device) {
+        newSession(device).quit();
+    }
+
+    /**
+     * Measures creating and quitting a session whose commands reuse the shared transport's connections.
+     *
+     * @param device The fake device.
+     */
+    @Benchmark
+    public void freshSessionSharedTransport(FakeDevice device) {
+        new AndroidDriver<MobileElement>(device.server.getUrl(), transport, FakeDevice.capabilities()).quit();
+    }
+
+    /**
+     * Measures taking a warm session from the pool and handing it back, including the app restart between tests.
+     */
+    @Benchmark
+    public void pooledSession() {
+        pool.release(pool.acquire());
+    }
+
+    /**
+     * @return A random string as used for unique registration emails.
+     */
+    @Benchmark
+    public String generateRandomString() {
+        return TestSetup.generateRandomString(3);
+    }
+
+    private static AndroidDriver<MobileElement> newSession(FakeDevice device) {
+        return new AndroidDriver<MobileElement>(device.server.getUrl(), FakeDevice.capabilities());
+    }
+}
@@ -0,0 +1,73 @@
+package load;
+
+import io.appium.java_client.android.AndroidDriver;
+import page.LoginPage;
+import page.RegisterPage;
+import setup.Identity;
+
+/**
+ * The user flows the load mode replays, each as it is exercised by {@code RunnerTests}.
+ * A flow run succeeds when the app shows the result the flow expects.
+ */
+public enum Flow {
+
+    /** Logs in with the known account and expects the account screen. */
+    VALID_LOGIN {
+        @Override
+        public boolean run(AndroidDriver driver, FlowData data) {
+            LOGIN.login(driver, data.getValidEmail(), data.getValidPassword());
+            return LOGIN.getLoginResult(driver) == LoginPage.LoginResult.ACCOUNT;
+        }
+    },
+
+    /** Logs in with an unknown email and expects the login error. */
+    INVALID_LOGIN {
+        @Override
+        public boolean run(AndroidDriver driver, FlowData data) {
+            LOGIN.login(driver, data.getIncorrectEmail(), data.getValidPassword());
+            return LOGIN.getLoginResult(driver) == LoginPage.LoginResult.LOGIN_ERROR;
+        }
+    },
+
+    /** Registers a new, unique account, expects the success message and adds the account to the identity ledger. */
+    VALID_REGISTRATION {
+        @Override
+        public boolean run(AndroidDriver driver, FlowData data) {
+            Identity identity = data.nextIdentity();
+            REGISTER.clickRegister(driver);
+            REGISTER.fillRegistration(driver, identity.getName(), identity.getEmail(),
+                    identity.getPassword(), identity.getPassword(), true);
+            if (REGISTER.getRegisterResult(driver) != RegisterPage.RegisterResult.SUCCESS) {
+                return false;
+            }
+            data.recordRegistration(identity);
+            return true;
+        }
+    },
+
+    /** Registers the known account again and expects the duplicate email message. */
+    DUPLICATE_REGISTRATION {
+        @Override
+        public boolean run(AndroidDriver driver, FlowData data) {
+            REGISTER.clickRegister(driver);
+            REGISTER.fillRegistration(driver, data.getName(), data.getValidEmail(),
+                    data.getValidPassword(), data.getValidPassword(), true);
+            return REGISTER.getRegisterResult(driver) == RegisterPage.RegisterResult.EMAIL_EXISTS;
+        }
+    };
+
+    /** Login page object; stateless, so shared by all workers. */
+    private static final LoginPage LOGIN = new LoginPage();
+
+    /** Registration page object; stateless, so shared by all workers. */
+    private static final RegisterPage REGISTER = new RegisterPage();
+
+    /**
+     * Runs the flow from the app's start screen.
+     *
+     * @param driver The {@link AndroidDriver} instance used to interact with the app.
+     * @param data   The accounts and identities to use.
+     * @return {@code true} if the app showed the expected result.
+     */
+    public abstract boolean run(AndroidDriver driver, FlowData data);
+}
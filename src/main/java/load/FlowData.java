@@ -0,0 +1,62 @@
+package load;
+
+import io.github.cdimascio.dotenv.Dotenv;
+import setup.Identity;
+import setup.TestSetup;
+
+/**
+ * The accounts the load flows use, read from the .env file, and the run's source of unique registration
+ * identities, {@link TestSetup#dataFactory()}.
+ */
+public class FlowData {
+
+    private final String validEmail;
+    private final String validPassword;
+    private final String incorrectEmail;
+    private final String name;
+
+    /**
+     * Reads the accounts from the environment.
+     *
+     * @param dotenv The environment holding VALID_EMAIL, VALID_PASSWORD, INCORRECT_EMAIL and NAME.
+     */
+    public FlowData(Dotenv dotenv) {
+        this.validEmail = dotenv.get("VALID_EMAIL");
+        this.validPassword = dotenv.get("VALID_PASSWORD");
+        this.incorrectEmail = dotenv.get("INCORRECT_EMAIL");
+        this.name = dotenv.get("NAME");
+    }
+
+    public String getValidEmail() {
+        return validEmail;
+    }
+
+    public String getValidPassword() {
+        return validPassword;
+    }
+
+    public String getIncorrectEmail() {
+        return incorrectEmail;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return An identity no other worker or earlier run has registered.
+     */
+    public Identity nextIdentity() {
+        return TestSetup.dataFactory().next(TestSetup.workerIndex());
+    }
+
+    /**
+     * Adds an identity that was just registered on the current thread's device to the ledger, so that no later run
+     * hands it out again.
+     *
+     * @param identity The registered identity.
+     */
+    public void recordRegistration(Identity identity) {
+        TestSetup.recordRegistration(identity);
+    }
+}
@@ -0,0 +1,107 @@
+package load;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Outcome counts and response times of one flow during a load run. Response times are measured from the moment
+ * a run was scheduled to start, so time spent waiting for a free session counts against the flow. They are kept
+ * in a histogram with one bucket per power of two milliseconds, so a soak run of any length uses constant memory.
+ */
+public class FlowStats {
+
+    /** Enough buckets for response times up to 2^31 ms; longer ones land in the last bucket. */
+    private static final int BUCKETS = 32;
+
+    private long succeeded;
+    private long failed;
+    private long dropped;
+
+    /** Response time counts, bucket {@code i} holding times from 2^i to 2^(i+1) - 1 ms (and 0 ms in bucket 0). */
+    private final long[] buckets = new long[BUCKETS];
+    private long maxMillis;
+
+    /**
+     * Records a finished run.
+     *
+     * @param responseMillis Time from scheduled start to end.
+     * @param success        Whether the app showed the expected result.
+     */
+    public synchronized void record(long responseMillis, boolean success) {
+        long millis = Math.max(1, responseMillis);
+        buckets[Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(millis))]++;
+        maxMillis = Math.max(maxMillis, responseMillis);
+        if (success) {
+            succeeded++;
+        } else {
+            failed++;
+        }
+    }
+
+    /**
+     * Records a run that was never started because too many runs were already waiting for a session.
+     */
+    public synchronized void drop() {
+        dropped++;
+    }
+
+    /**
+     * @return The number of runs that were scheduled, including dropped ones.
+     */
+    public synchronized long attempts() {
+        return succeeded + failed + dropped;
+    }
+
+    /**
+     * @return The number of runs that failed or were dropped.
+     */
+    public synchronized long errors() {
+        return failed + dropped;
+    }
+
+    /**
+     * @return The share of scheduled runs that failed or were dropped, between 0 and 1.
+     */
+    public synchronized double errorRate() {
+        long attempts = attempts();
+        return attempts == 0 ? 0 : (double) errors() / attempts;
+    }
+
+    /**
+     * Summarizes the flow.
+     *
+     * @param elapsedSeconds Length of the run, for throughput.
+     * @return Counts, throughput, error rate and p50/p90/p99/max response times in milliseconds. Percentiles are
+     *         the upper bound of the histogram bucket holding them, capped at the maximum.
+     */
+    public synchronized Map<String, Object> summary(double elapsedSeconds) {
+        long n = succeeded + failed;
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("succeeded", succeeded);
+        summary.put("failed", failed);
+        summary.put("dropped", dropped);
+        summary.put("throughputPerSec", elapsedSeconds <= 0 ? 0.0 : Math.round(n / elapsedSeconds * 100) / 100.0);
+        summary.put("errorRate", Math.round(errorRate() * 10000) / 10000.0);
+        summary.put("p50Ms", percentile(0.50));
+        summary.put("p90Ms", percentile(0.90));
+        summary.put("p99Ms", percentile(0.99));
+        summary.put("maxMs", maxMillis);
+        return summary;
+    }
+
+    /**
+     * Returns the upper bound of the bucket holding the given percentile, capped at the maximum seen. The last
+     * bucket is open-ended, so it reports the maximum.
+     */
+    private long percentile(double percentile) {
+        long rank = (long) Math.ceil((succeeded + failed) * percentile);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets[i];
+            if (seen >= rank) {
+                return i == BUCKETS - 1 ? maxMillis : Math.min(maxMillis, (2L << i) - 1);
+            }
+        }
+        return maxMillis;
+    }
+}
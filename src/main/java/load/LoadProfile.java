@@ -0,0 +1,134 @@
+package load;
+
+import io.github.cdimascio.dotenv.Dotenv;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * How hard and how long a load run drives the app: a target arrival rate reached by a linear ramp-up, a total
+ * duration, and the weighted mix of flows. Arrivals follow an open model, so the schedule does not slow down
+ * when the app does; runs that cannot get a session are queued up to a backlog limit and dropped beyond it.
+ */
+public class LoadProfile {
+
+    private final double ratePerSecond;
+    private final double rampUpSeconds;
+    private final double durationSeconds;
+    private final int maxBacklog;
+    private final Map<Flow, Integer> mix;
+    private final int totalWeight;
+
+    /**
+     * Creates a profile.
+     *
+     * @param ratePerSecond   Flow runs started per second once ramped up.
+     * @param rampUpSeconds   Time to ramp linearly from zero to the target rate.
+     * @param durationSeconds Total time arrivals are scheduled for, including the ramp-up.
+     * @param maxBacklog      How many runs may wait for a session before further arrivals are dropped.
+     * @param mix             Relative weight of each flow; flows with weight 0 or missing are not run.
+     */
+    public LoadProfile(double ratePerSecond, double rampUpSeconds, double durationSeconds, int maxBacklog,
+                       Map<Flow, Integer> mix) {
+        if (ratePerSecond <= 0 || durationSeconds <= 0 || rampUpSeconds < 0) {
+            throw new IllegalArgumentException("Rate and duration must be positive and ramp-up not negative");
+        }
+        this.ratePerSecond = ratePerSecond;
+        this.rampUpSeconds = Math.min(rampUpSeconds, durationSeconds);
+        this.durationSeconds = durationSeconds;
+        this.maxBacklog = maxBacklog;
+        this.mix = new EnumMap<>(mix);
+        int total = 0;
+        for (int weight : mix.values()) {
+            total += Math.max(0, weight);
+        }
+        if (total == 0) {
+            throw new IllegalArgumentException("The flow mix must give at least one flow a positive weight");
+        }
+        this.totalWeight = total;
+    }
+
+    /**
+     * Reads the profile from LOAD_RATE_PER_SEC (1), LOAD_RAMP_UP_SEC (30), LOAD_DURATION_SEC (300),
+     * LOAD_MAX_BACKLOG (100) and LOAD_MIX, a list such as {@code VALID_LOGIN=4,INVALID_LOGIN=1}
+     * (every flow equally by default).
+     *
+     * @param dotenv The environment to read.
+     * @return The profile.
+     */
+    public static LoadProfile fromEnv(Dotenv dotenv) {
+        Map<Flow, Integer> mix = new EnumMap<>(Flow.class);
+        String spec = dotenv.get("LOAD_MIX", "");
+        if (spec.trim().isEmpty()) {
+            for (Flow flow : Flow.values()) {
+                mix.put(flow, 1);
+            }
+        } else {
+            for (String entry : spec.split(",")) {
+                String[] parts = entry.trim().split("=");
+                mix.put(Flow.valueOf(parts[0].trim()), parts.length > 1 ? Integer.parseInt(parts[1].trim()) : 1);
+            }
+        }
+        return new LoadProfile(
+                Double.parseDouble(dotenv.get("LOAD_RATE_PER_SEC", "1")),
+                Double.parseDouble(dotenv.get("LOAD_RAMP_UP_SEC", "30")),
+                Double.parseDouble(dotenv.get("LOAD_DURATION_SEC", "300")),
+                Integer.parseInt(dotenv.get("LOAD_MAX_BACKLOG", "100")),
+                mix);
+    }
+
+    /**
+     * Returns when the given arrival is due, by inverting the number of arrivals expected by time t:
+     * {@code rate * t^2 / (2 * rampUp)} during the ramp-up and linear afterwards.
+     *
+     * @param index The zero-based arrival number.
+     * @return Seconds from the start of the run, or a value past {@link #getDurationSeconds()} if it falls outside.
+     */
+    public double arrivalTime(long index) {
+        double rampArrivals = ratePerSecond * rampUpSeconds / 2;
+        if (index < rampArrivals) {
+            return Math.sqrt(2 * index * rampUpSeconds / ratePerSecond);
+        }
+        return rampUpSeconds + (index - rampArrivals) / ratePerSecond;
+    }
+
+    /**
+     * Picks a flow according to the mix.
+     *
+     * @param random The random source; seeded by the caller so a run's sequence of flows can be reproduced.
+     * @return The flow to run.
+     */
+    public Flow pick(Random random) {
+        int ticket = random.nextInt(totalWeight);
+        for (Map.Entry<Flow, Integer> entry : mix.entrySet()) {
+            ticket -= Math.max(0, entry.getValue());
+            if (ticket < 0) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException("Unreachable: ticket beyond total weight");
+    }
+
+    public double getRatePerSecond() {
+        return ratePerSecond;
+    }
+
+    public double getRampUpSeconds() {
+        return rampUpSeconds;
+    }
+
+    public double getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    public int getMaxBacklog() {
+        return maxBacklog;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%.2f/s after %.0fs ramp-up for %.0fs, mix %s", ratePerSecond, rampUpSeconds,
+                durationSeconds, mix);
+    }
+}
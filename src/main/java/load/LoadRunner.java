@@ -0,0 +1,222 @@
+package load;
+
+import io.github.cdimascio.dotenv.Dotenv;
+import org.openqa.selenium.json.Json;
+import setup.TestSetup;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays the login and registration flows at a target arrival rate across every available session, for load and
+ * soak testing the backend behind the app. One worker per registered device takes scheduled runs off a queue and
+ * drives them through the same device leasing and session pooling the test suite uses.
+ * Results per flow are printed and written as JSON to LOAD_REPORT_FILE (build/load-report.json by default).
+ */
+public class LoadRunner extends TestSetup {
+
+    private final LoadProfile profile;
+    private final FlowData data;
+
+    /** Seeds the flow mix so a run's sequence of flows can be reproduced. */
+    private final long seed;
+
+    /** Outcomes per flow. */
+    private final Map<Flow, FlowStats> stats = new EnumMap<>(Flow.class);
+
+    /**
+     * Creates a runner.
+     *
+     * @param profile The arrival rate, ramp-up, duration and flow mix.
+     * @param data    The accounts and identities to use.
+     * @param seed    Seed for the flow mix.
+     */
+    public LoadRunner(LoadProfile profile, FlowData data, long seed) {
+        this.profile = profile;
+        this.data = data;
+        this.seed = seed;
+        for (Flow flow : Flow.values()) {
+            stats.put(flow, new FlowStats());
+        }
+    }
+
+    /**
+     * Creates a runner configured from the .env file; LOAD_SEED fixes the flow sequence.
+     *
+     * @return The runner.
+     */
+    public static LoadRunner fromEnv() {
+        Dotenv env = Dotenv.configure().load();
+        return new LoadRunner(LoadProfile.fromEnv(env), new FlowData(env),
+                Long.parseLong(env.get("LOAD_SEED", Long.toString(System.nanoTime()))));
+    }
+
+    /**
+     * Runs the load profile to the end, then waits for the runs still queued.
+     *
+     * @return Outcomes per flow.
+     */
+    public Map<Flow, FlowStats> run() {
+        BlockingQueue<Arrival> queue = new LinkedBlockingQueue<>(Math.max(1, profile.getMaxBacklog()));
+        int workers = Math.max(1, deviceRegistry().size());
+        long start = System.nanoTime();
+        long end = start + (long) (profile.getDurationSeconds() * 1e9);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < workers; i++) {
+            Thread thread = new Thread(() -> work(queue, end), "load-worker-" + i);
+            thread.start();
+            threads.add(thread);
+        }
+
+        Random random = new Random(seed);
+        for (long i = 0; ; i++) {
+            long due = start + (long) (profile.arrivalTime(i) * 1e9);
+            if (due >= end) {
+                break;
+            }
+            sleepUntil(due);
+            Flow flow = profile.pick(random);
+            if (!queue.offer(new Arrival(flow, due))) {
+                stats.get(flow).drop();
+            }
+        }
+
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for load workers", e);
+            }
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        System.out.println(report(elapsed));
+        writeReport(elapsed);
+        return stats;
+    }
+
+    /**
+     * Takes scheduled runs off the queue until the schedule has ended and the queue is empty.
+     */
+    private void work(BlockingQueue<Arrival> queue, long end) {
+        while (true) {
+            Arrival arrival;
+            try {
+                arrival = queue.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (arrival == null) {
+                if (System.nanoTime() >= end) {
+                    return;
+                }
+                continue;
+            }
+            boolean success = false;
+            try {
+                setup();
+                success = arrival.flow.run(driver(), data);
+            } catch (Exception e) {
+                e.printStackTrace();
+            } finally {
+                tearDown();
+            }
+            stats.get(arrival.flow).record((System.nanoTime() - arrival.dueNanos) / 1_000_000, success);
+        }
+    }
+
+    /**
+     * Summarizes each flow that was scheduled at least once.
+     *
+     * @param elapsedSeconds Length of the run.
+     * @return A multi-line, human-readable report.
+     */
+    public String report(double elapsedSeconds) {
+        StringBuilder sb = new StringBuilder(String.format("Load run: %s, seed %d, %.0fs elapsed", profile, seed,
+                elapsedSeconds));
+        for (Map.Entry<Flow, FlowStats> entry : stats.entrySet()) {
+            if (entry.getValue().attempts() > 0) {
+                sb.append(String.format("%n  %-22s %s", entry.getKey(), entry.getValue().summary(elapsedSeconds)));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return The share of all scheduled runs that failed or were dropped, between 0 and 1.
+     */
+    public double errorRate() {
+        long attempts = 0;
+        long errors = 0;
+        for (FlowStats flowStats : stats.values()) {
+            attempts += flowStats.attempts();
+            errors += flowStats.errors();
+        }
+        return attempts == 0 ? 0 : (double) errors / attempts;
+    }
+
+    private void writeReport(double elapsedSeconds) {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("profile", profile.toString());
+        report.put("seed", seed);
+        report.put("elapsedSec", Math.round(elapsedSeconds * 10) / 10.0);
+        Map<String, Object> flows = new LinkedHashMap<>();
+        for (Map.Entry<Flow, FlowStats> entry : stats.entrySet()) {
+            if (entry.getValue().attempts() > 0) {
+                flows.put(entry.getKey().name(), entry.getValue().summary(elapsedSeconds));
+            }
+        }
+        report.put("flows", flows);
+        Path file = Paths.get(dotenv.get("LOAD_REPORT_FILE", "build/load-report.json"));
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                out.write(new Json().toJson(report));
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static void sleepUntil(long dueNanos) {
+        long wait = dueNanos - System.nanoTime();
+        if (wait > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while pacing load arrivals", e);
+            }
+        }
+    }
+
+    /**
+     * A flow run scheduled for a point in time.
+     */
+    private static final class Arrival {
+        private final Flow flow;
+        private final long dueNanos;
+
+        private Arrival(Flow flow, long dueNanos) {
+            this.flow = flow;
+            this.dueNanos = dueNanos;
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package page;
+
+import io.appium.java_client.android.AndroidDriver;
+import io.appium.java_client.android.AndroidElement;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * A non-blocking view of one driver session: every {@link BasePage} helper returns a {@link CompletableFuture}
+ * instead of blocking the calling thread for the Appium round trip.
+ * <p>
+ * Commands are ordered like a read/write lock. An action ({@link #act}) runs only after every command submitted
+ * before it has finished, so the sequences the page objects produce reach the device in the same order as in the
+ * blocking API. Reads ({@link #read}) run as soon as the last action before them has finished and may overlap each
+ * other, so several texts or presence checks for different assertions are gathered concurrently.
+ * <p>
+ * Commands run on virtual threads when the JVM has them (Java 21 and later), otherwise on a shared pool of daemon
+ * threads, so one JVM can drive many sessions without dedicating a platform thread to each.
+ */
+public class AsyncSession {
+
+    /** Executor shared by all sessions. */
+    private static final ExecutorService EXECUTOR = createExecutor();
+
+    /** The session commands are sent to. */
+    private final AndroidDriver<AndroidElement> driver;
+
+    /** The test the session's commands are timed under in {@link CommandMetrics}. */
+    private final String test;
+
+    /** The journal of that test, so that asynchronous steps are journaled and recovered like blocking ones. */
+    private final StepJournal journal;
+
+    /** The last action submitted. */
+    private CompletableFuture<?> lastAction = CompletableFuture.completedFuture(null);
+
+    /** Reads submitted since the last action. */
+    private final List<CompletableFuture<?>> pendingReads = new ArrayList<>();
+
+    /**
+     * Wraps a driver session. Commands are timed and journaled under the test running on the creating thread.
+     *
+     * @param driver The AndroidDriver instance to interact with the app.
+     */
+    public AsyncSession(AndroidDriver<AndroidElement> driver) {
+        this.driver = driver;
+        this.test = CommandMetrics.currentTest();
+        this.journal = StepJournal.current();
+    }
+
+    /**
+     * @return The wrapped driver.
+     */
+    public AndroidDriver<AndroidElement> getDriver() {
+        return driver;
+    }
+
+    /**
+     * Submits a command that may change the screen. It runs after every command submitted before it.
+     *
+     * @param command The command to run against the driver.
+     * @param <T>     The result type.
+     * @return The command's result.
+     */
+    public synchronized <T> CompletableFuture<T> act(Function<AndroidDriver<AndroidElement>, T> command) {
+        List<CompletableFuture<?>> before = new ArrayList<>(pendingReads);
+        before.add(lastAction);
+        CompletableFuture<T> action = CompletableFuture.allOf(before.toArray(new CompletableFuture<?>[0]))
+                .handle((ignored, error) -> null)
+                .thenApplyAsync(ignored -> run(command), EXECUTOR);
+        lastAction = action;
+        pendingReads.clear();
+        return action;
+    }
+
+    /**
+     * Submits a command that only observes the screen. It runs after the last action submitted before it and
+     * may overlap with other reads.
+     *
+     * @param command The command to run against the driver.
+     * @param <T>     The result type.
+     * @return The command's result.
+     */
+    public synchronized <T> CompletableFuture<T> read(Function<AndroidDriver<AndroidElement>, T> command) {
+        CompletableFuture<T> read = lastAction
+                .handle((ignored, error) -> null)
+                .thenApplyAsync(ignored -> run(command), EXECUTOR);
+        pendingReads.add(read);
+        return read;
+    }
+
+    /**
+     * @return A future that completes when every command submitted so far has finished.
+     */
+    public synchronized CompletableFuture<Void> drain() {
+        List<CompletableFuture<?>> all = new ArrayList<>(pendingReads);
+        all.add(lastAction);
+        return CompletableFuture.allOf(all.toArray(new CompletableFuture<?>[0])).handle((ignored, error) -> null);
+    }
+
+    /**
+     * Asynchronous {@link BasePage#waitAndThenEnterData}.
+     *
+     * @param loc      The locator type to use (e.g., XPATH, ID, UISELECTOR).
+     * @param locator  The locator value to find the element.
+     * @param keywords The text to send to the element.
+     * @return A future that completes once the text has been entered.
+     */
+    public CompletableFuture<Void> enterData(BasePage.ByLocator loc, String locator, String keywords) {
+        return act(d -> {
+            BasePage.waitAndThenEnterData(d, loc, locator, keywords);
+            return null;
+        });
+    }
+
+    /**
+     * Asynchronous {@link BasePage#waitAndThenClick}.
+     *
+     * @param loc     The locator type to use (e.g., XPATH, ID, UISELECTOR).
+     * @param locator The locator value to find the element.
+     * @return A future that completes once the element has been clicked.
+     */
+    public CompletableFuture<Void> click(BasePage.ByLocator loc, String locator) {
+        return act(d -> {
+            BasePage.waitAndThenClick(d, loc, locator);
+            return null;
+        });
+    }
+
+    /**
+     * Asynchronous {@link BasePage#waitAndThenGetText}.
+     *
+     * @param loc     The locator type to use (e.g., XPATH, ID, UISELECTOR).
+     * @param locator The locator value to find the element.
+     * @return The text of the element, or an empty string if the element is not found.
+     */
+    public CompletableFuture<String> getText(BasePage.ByLocator loc, String locator) {
+        return read(d -> BasePage.waitAndThenGetText(d, loc, locator));
+    }
+
+    /**
+     * Asynchronous {@link BasePage#validateElementPresent}.
+     *
+     * @param loc     The locator type to use (e.g., XPATH, ID, UISELECTOR).
+     * @param locator The locator value to find the element.
+     * @return {@code true} if the element is displayed; {@code false} otherwise.
+     */
+    public CompletableFuture<Boolean> isPresent(BasePage.ByLocator loc, String locator) {
+        return read(d -> BasePage.validateElementPresent(d, loc, locator));
+    }
+
+    /**
+     * Asynchronous {@link BasePage#waitForFirstOutcome}.
+     *
+     * @param type     The outcome enum; every constant with a locator takes part in the race.
+     * @param fallback The value to return when no outcome appears within the default timeout.
+     * @param <T>      The outcome enum type.
+     * @return The outcome whose element became visible first, or {@code fallback}.
+     */
+    public <T extends Enum<T> & BasePage.Outcome> CompletableFuture<T> firstOutcome(Class<T> type, T fallback) {
+        return read(d -> BasePage.waitForFirstOutcome(d, type, fallback));
+    }
+
+    /**
+     * Submits a form fill as an action followed by a race for its outcome, which is checked once the form has been
+     * submitted. The outcome fails with the fill's error if the form could not be filled and submitted, instead of
+     * completing with {@code fallback}.
+     *
+     * @param fill     Fills and submits the form, e.g. through {@link BasePage#fillForm}.
+     * @param type     The outcome enum; every constant with a locator takes part in the race.
+     * @param fallback The value to return when no outcome appears in time.
+     * @param <T>      The outcome enum type.
+     * @return The outcome whose element became visible first, or {@code fallback}.
+     */
+    public synchronized <T extends Enum<T> & BasePage.Outcome> CompletableFuture<T> submitForm(
+            Function<AndroidDriver<AndroidElement>, FormFillReport> fill, Class<T> type, T fallback) {
+        CompletableFuture<FormFillReport> filled = act(fill);
+        return filled.thenCombine(firstOutcome(type, fallback), (report, outcome) -> {
+            if (report.getFailure() != null) {
+                throw report.getFailure();
+            }
+            return outcome;
+        });
+    }
+
+    /**
+     * Loads the current screen's page source in the background so that following checks in snapshot mode
+     * are answered without waiting for it. Does nothing unless {@link SnapshotEngine} is enabled.
+     *
+     * @return A future that completes once the snapshot is loaded.
+     */
+    public CompletableFuture<Void> prefetch() {
+        return read(d -> {
+            if (SnapshotEngine.isEnabled()) {
+                SnapshotEngine.current(d);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Runs a command with the session's test tag and journal so its timings are attributed correctly and its
+     * steps can be recovered.
+     */
+    private <T> T run(Function<AndroidDriver<AndroidElement>, T> command) {
+        String previous = CommandMetrics.currentTest();
+        StepJournal previousJournal = StepJournal.current();
+        if (test != null) {
+            CommandMetrics.startTest(test);
+        }
+        StepJournal.attach(journal);
+        try {
+            return command.apply(driver);
+        } finally {
+            StepJournal.attach(previousJournal);
+            if (previous != null) {
+                CommandMetrics.startTest(previous);
+            } else {
+                CommandMetrics.endTest();
+            }
+        }
+    }
+
+    /**
+     * Uses a virtual-thread-per-task executor when the JVM has one, otherwise a cached pool of daemon threads.
+     */
+    private static ExecutorService createExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger count = new AtomicInteger();
+            return Executors.newCachedThreadPool(r -> {
+                Thread thread = new Thread(r, "async-session-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}
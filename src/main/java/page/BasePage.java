@@ -1,18 +1,36 @@
 package page;
 
-import io.appium.java_client.MobileBy;
 import io.appium.java_client.android.AndroidDriver;
 import io.appium.java_client.android.AndroidElement;
-import org.openqa.selenium.By;
-import org.openqa.selenium.support.ui.ExpectedConditions;
-import org.openqa.selenium.support.ui.WebDriverWait;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.TimeoutException;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
 
 /**
  * Provides common methods for interacting with Android elements using Appium.
  * This class includes methods for entering data, retrieving text, validating element presence,
  * and clicking elements, all with wait conditions to ensure elements are visible before performing actions.
+ * Locators are compiled once by {@link LocatorCompiler}, which rewrites slow XPath and UiSelector lookups
+ * into native id or accessibility id lookups where possible, and waits are driven by {@link WaitEngine}.
+ * Screen classes generated from a locator catalog by {@link PageGenerator} pass their prebuilt locators to the
+ * {@link CompiledLocator} overloads directly.
+ * In snapshot mode ({@link SnapshotEngine}) checks are answered from one page source per screen.
+ * Element handles are reused through {@link ElementCache} until they go stale or the screen changes.
+ * Screen transitions are confirmed with one check of the whole view hierarchy, identified by {@link ScreenCatalog}.
+ * Completed steps are journaled in {@link StepJournal}, and a step whose session broke is retried once the session
+ * has been recovered.
+ * Every wait and action is timed by {@link CommandMetrics}, and a failed step has the device state captured
+ * by {@link FailureArtifacts}.
  */
 public class BasePage {
 
@@ -23,6 +41,31 @@ public class BasePage {
         XPATH, ID, UISELECTOR
     }
 
+    /**
+     * A possible result of an action, recognized by an element that only appears for that result.
+     * Implemented by the result enums of the page objects.
+     */
+    public interface Outcome {
+
+        /**
+         * @return The locator type of the element signalling this outcome, or {@code null} for the "no outcome" value.
+         */
+        ByLocator getLocatorType();
+
+        /**
+         * @return The locator value of the element signalling this outcome, or {@code null} for the "no outcome" value.
+         */
+        String getLocator();
+
+        /**
+         * @return The compiled locator of the element signalling this outcome, or {@code null} for the "no outcome"
+         *         value.
+         */
+        default CompiledLocator getCompiledLocator() {
+            return getLocatorType() == null ? null : LocatorCompiler.compile(getLocatorType(), getLocator());
+        }
+    }
+
     /**
      * Waits for an element to be visible and then sends the specified data to it.
      *
@@ -32,26 +75,30 @@ public class BasePage {
      * @param keywords The text to send to the element.
      */
     public static void waitAndThenEnterData(AndroidDriver<AndroidElement> driver, ByLocator loc, String locator, String keywords) {
+        waitAndThenEnterData(driver, LocatorCompiler.compile(loc, locator), keywords);
+    }
+
+    /**
+     * Waits for an element to be visible and then sends the specified data to it.
+     *
+     * @param driver   The AndroidDriver instance to interact with the app.
+     * @param compiled The compiled locator of the element.
+     * @param keywords The text to send to the element.
+     */
+    public static void waitAndThenEnterData(AndroidDriver<AndroidElement> driver, CompiledLocator compiled, String keywords) {
+        CommandMetrics.enterPageCall();
         try {
-            switch (loc) {
-                case XPATH:
-                    AndroidElement elementXpath = (AndroidElement) new WebDriverWait(driver, 10)
-                            .until(ExpectedConditions.visibilityOfElementLocated(By.xpath(locator)));
-                    elementXpath.sendKeys(keywords);
-                    break;
-                case ID:
-                    AndroidElement elementId = (AndroidElement) new WebDriverWait(driver, 10)
-                            .until(ExpectedConditions.visibilityOfElementLocated(By.id(locator)));
-                    elementId.sendKeys(keywords);
-                    break;
-                case UISELECTOR:
-                    AndroidElement elementUiAutomator = (AndroidElement) new WebDriverWait(driver, 10)
-                            .until(ExpectedConditions.visibilityOfElementLocated(MobileBy.AndroidUIAutomator(locator)));
-                    elementUiAutomator.sendKeys(keywords);
-                    break;
-            }
+            recoverable(driver, () -> {
+                enter(driver, compiled, keywords);
+                return null;
+            });
+            StepJournal.record(StepJournal.Step.enter(compiled.getSource(), compiled.getLocator(), keywords));
         } catch (Exception e) {
             e.printStackTrace();
+            FailureArtifacts.capture(driver, "waitAndThenEnterData " + compiled.getLocator(), e);
+        } finally {
+            SnapshotEngine.invalidate(driver);
+            CommandMetrics.exitPageCall();
         }
     }
 
@@ -64,31 +111,39 @@ public class BasePage {
      * @return The text of the element, or an empty string if the element is not found.
      */
     public static String waitAndThenGetText(AndroidDriver<AndroidElement> driver, ByLocator loc, String locator) {
+        return waitAndThenGetText(driver, LocatorCompiler.compile(loc, locator));
+    }
+
+    /**
+     * Waits for an element to be visible and then retrieves its text.
+     *
+     * @param driver   The AndroidDriver instance to interact with the app.
+     * @param compiled The compiled locator of the element.
+     * @return The text of the element, or an empty string if the element is not found.
+     */
+    public static String waitAndThenGetText(AndroidDriver<AndroidElement> driver, CompiledLocator compiled) {
+        CommandMetrics.enterPageCall();
         try {
-            switch (loc) {
-                case XPATH:
-                    AndroidElement elementXpath = (AndroidElement) new WebDriverWait(driver, 10)
-                            .until(ExpectedConditions.visibilityOfElementLocated(By.xpath(locator)));
-                    return elementXpath.getText();
-                case ID:
-                    AndroidElement elementId = (AndroidElement) new WebDriverWait(driver, 10)
-                            .until(ExpectedConditions.visibilityOfElementLocated(By.id(locator)));
-                    return elementId.getText();
-                case UISELECTOR:
-                    AndroidElement elementUiAutomator = (AndroidElement) new WebDriverWait(driver, 10)
-                            .until(ExpectedConditions.visibilityOfElementLocated(MobileBy.AndroidUIAutomator(locator)));
-                    return elementUiAutomator.getText();
-                default:
-                    return "";
+            if (SnapshotEngine.canAnswer(compiled)) {
+                PageSnapshot.Node node = SnapshotEngine.awaitVisible(driver, compiled, WaitEngine.timeoutFor(compiled));
+                return node == null ? "" : node.getText();
             }
+            return recoverable(driver, () -> withElement(driver, compiled,
+                    element -> CommandMetrics.time(CommandMetrics.Phase.GET_TEXT, compiled.getStrategy(), element::getText)));
         } catch (Exception e) {
             e.printStackTrace();
+            FailureArtifacts.capture(driver, "waitAndThenGetText " + compiled.getLocator(), e);
             return "";
+        } finally {
+            CommandMetrics.exitPageCall();
         }
     }
 
     /**
      * Waits for an element to be visible and checks if it is displayed.
+     * The check waits up to the locator's full timeout, so a slow device does not turn an element that appears into
+     * a failed assertion; use {@link #validateElementAbsent} to check quickly that an element is not shown. A cached
+     * handle that is still displayed answers the check with a single round trip.
      *
      * @param driver   The AndroidDriver instance to interact with the app.
      * @param loc      The locator type to use (e.g., XPATH, ID, UISELECTOR).
@@ -96,26 +151,336 @@ public class BasePage {
      * @return {@code true} if the element is displayed; {@code false} otherwise.
      */
     public static boolean validateElementPresent(AndroidDriver<AndroidElement> driver, ByLocator loc, String locator) {
+        return validateElementPresent(driver, LocatorCompiler.compile(loc, locator));
+    }
+
+    /**
+     * Waits up to the locator's timeout for an element to be visible and checks if it is displayed.
+     *
+     * @param driver   The AndroidDriver instance to interact with the app.
+     * @param compiled The compiled locator of the element.
+     * @return {@code true} if the element is displayed; {@code false} otherwise.
+     */
+    public static boolean validateElementPresent(AndroidDriver<AndroidElement> driver, CompiledLocator compiled) {
+        CommandMetrics.enterPageCall();
+        try {
+            if (SnapshotEngine.canAnswer(compiled)) {
+                return SnapshotEngine.awaitVisible(driver, compiled, WaitEngine.timeoutFor(compiled)) != null;
+            }
+            return recoverable(driver, () -> {
+                if (cachedDisplayed(driver, compiled)) {
+                    return true;
+                }
+                AndroidElement element = lookUp(driver, compiled, WaitEngine.timeoutFor(compiled));
+                ElementCache.put(driver, compiled, element);
+                return element != null;
+            });
+        } catch (Exception e) {
+            e.printStackTrace();
+            FailureArtifacts.capture(driver, "validateElementPresent " + compiled.getLocator(), e);
+            return false;
+        } finally {
+            CommandMetrics.exitPageCall();
+        }
+    }
+
+    /**
+     * Checks that an element is not displayed, returning as soon as it is found to be absent.
+     * If the element is displayed, waits briefly for it to go away.
+     *
+     * @param driver   The AndroidDriver instance to interact with the app.
+     * @param loc      The locator type to use (e.g., XPATH, ID, UISELECTOR).
+     * @param locator  The locator value to find the element.
+     * @return {@code true} if the element is absent; {@code false} if it stayed displayed.
+     */
+    public static boolean validateElementAbsent(AndroidDriver<AndroidElement> driver, ByLocator loc, String locator) {
+        return validateElementAbsent(driver, LocatorCompiler.compile(loc, locator));
+    }
+
+    /**
+     * Checks that an element is not displayed, returning as soon as it is found to be absent. A displayed element
+     * is given the budget {@link WaitEngine} has learned for the locator to go away.
+     *
+     * @param driver   The AndroidDriver instance to interact with the app.
+     * @param compiled The compiled locator of the element.
+     * @return {@code true} if the element is absent; {@code false} if it stayed displayed.
+     */
+    public static boolean validateElementAbsent(AndroidDriver<AndroidElement> driver, CompiledLocator compiled) {
+        CommandMetrics.enterPageCall();
         try {
-            switch (loc) {
-                case XPATH:
-                    AndroidElement elementXpath = (AndroidElement) new WebDriverWait(driver, 10)
-                            .until(ExpectedConditions.visibilityOfElementLocated(By.xpath(locator)));
-                    return elementXpath.isDisplayed();
-                case ID:
-                    AndroidElement elementId = (AndroidElement) new WebDriverWait(driver, 10)
-                            .until(ExpectedConditions.visibilityOfElementLocated(By.id(locator)));
-                    return elementId.isDisplayed();
-                case UISELECTOR:
-                    AndroidElement elementUiAutomator = (AndroidElement) new WebDriverWait(driver, 10)
-                            .until(ExpectedConditions.visibilityOfElementLocated(MobileBy.AndroidUIAutomator(locator)));
-                    return elementUiAutomator.isDisplayed();
-                default:
-                    return false;
+            if (SnapshotEngine.canAnswer(compiled)) {
+                return SnapshotEngine.awaitAbsent(driver, compiled, WaitEngine.budgetFor(compiled));
             }
+            return recoverable(driver, () -> WaitEngine.awaitAbsent(driver, compiled, WaitEngine.budgetFor(compiled)));
         } catch (Exception e) {
             e.printStackTrace();
+            FailureArtifacts.capture(driver, "validateElementAbsent " + compiled.getLocator(), e);
             return false;
+        } finally {
+            CommandMetrics.exitPageCall();
+        }
+    }
+
+    /**
+     * Identifies the screen the app shows from the structural fingerprint of its view hierarchy.
+     *
+     * @param driver The AndroidDriver instance to interact with the app.
+     * @return The screen name, or {@code null} if the screen is not known or could not be read.
+     * @see ScreenCatalog
+     */
+    public static String currentScreen(AndroidDriver<AndroidElement> driver) {
+        CommandMetrics.enterPageCall();
+        try {
+            return ScreenCatalog.identify(SnapshotEngine.current(driver));
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        } finally {
+            CommandMetrics.exitPageCall();
+        }
+    }
+
+    /**
+     * Waits for the app to show a screen, checking the whole view hierarchy once per poll instead of waiting for
+     * one of the screen's elements.
+     *
+     * @param driver    The AndroidDriver instance to interact with the app.
+     * @param screen    The screen name.
+     * @param timeoutMs How long to wait, in milliseconds.
+     * @return {@code true} if the screen was shown in time; {@code false} otherwise.
+     */
+    public static boolean awaitScreen(AndroidDriver<AndroidElement> driver, String screen, long timeoutMs) {
+        return awaitScreenWhere(driver, screen::equals, timeoutMs) != null;
+    }
+
+    /**
+     * Waits for the app to leave a screen for any known screen, e.g. after a click whose destination depends on
+     * the input.
+     *
+     * @param driver    The AndroidDriver instance to interact with the app.
+     * @param from      The screen name the app showed before.
+     * @param timeoutMs How long to wait, in milliseconds.
+     * @return The screen name the app shows now, or {@code null} if it did not change in time.
+     */
+    public static String awaitScreenChange(AndroidDriver<AndroidElement> driver, String from, long timeoutMs) {
+        return awaitScreenWhere(driver, screen -> !screen.equals(from), timeoutMs);
+    }
+
+    /**
+     * Polls the session's view hierarchy until it shows a known screen accepted by a condition. The first poll may
+     * use the session's current snapshot; later ones fetch a new one. Cached element handles are dropped once the
+     * screen is reached, since they belong to the screen that was left, and the hierarchy is offered to
+     * {@link ScreenCatalog#learn} so that a screen identified by similarity is recognized at once next time.
+     *
+     * @param driver    The AndroidDriver instance to interact with the app.
+     * @param accept    Accepts the screen names waited for.
+     * @param timeoutMs How long to wait, in milliseconds.
+     * @return The accepted screen name, or {@code null} if none was shown in time.
+     */
+    private static String awaitScreenWhere(AndroidDriver<AndroidElement> driver, Predicate<String> accept, long timeoutMs) {
+        long start = System.nanoTime();
+        int[] polls = {0};
+        String reached = null;
+        CommandMetrics.enterPageCall();
+        try {
+            reached = WaitEngine.poll(() -> {
+                if (polls[0]++ > 0) {
+                    SnapshotEngine.invalidate(driver);
+                }
+                String screen = ScreenCatalog.identify(SnapshotEngine.current(driver));
+                return screen != null && accept.test(screen) ? screen : null;
+            }, timeoutMs);
+            if (reached != null) {
+                ElementCache.invalidate(driver);
+                ScreenCatalog.learn(reached, SnapshotEngine.current(driver));
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            ScreenCatalog.recordTransition(polls[0], reached != null);
+            CommandMetrics.record(CommandMetrics.Phase.WAIT, null, System.nanoTime() - start);
+            CommandMetrics.exitPageCall();
+        }
+        return reached;
+    }
+
+    /**
+     * Fills a form in as few server calls as possible: one lookup locates every field (and the submit button) at
+     * once, each value is set with a single set-value command instead of per-character key events, and the submit
+     * button is clicked from the same lookup. The elements found are matched to the fields by their resource id, so
+     * their order on screen does not matter. Falls back to the per-field path if the lookup does not find every field
+     * within {@link WaitEngine#batchTimeoutFor}, e.g. because one is hidden behind the soft keyboard. Once the first
+     * value has been set there is no fallback, since it would fill the form and submit it a second time: a failure is
+     * only retried after {@link StepJournal} has recovered a broken session. Either path stops at the first step that
+     * still fails, so a half-filled form is never submitted, and returns the error with its report.
+     *
+     * @param driver   The AndroidDriver instance to interact with the app.
+     * @param fields   Resource ids of the input fields mapped to the values to set, in the order to fill them.
+     * @param submitId Resource id of the button to click afterwards, or {@code null}.
+     * @return How many round trips the fill made and how much time it saved.
+     */
+    public static FormFillReport fillForm(AndroidDriver<AndroidElement> driver, LinkedHashMap<String, String> fields, String submitId) {
+        CommandMetrics.enterPageCall();
+        try {
+            return fill(driver, fields, submitId);
+        } finally {
+            CommandMetrics.exitPageCall();
+        }
+    }
+
+    /**
+     * Implements {@link #fillForm}.
+     */
+    private static FormFillReport fill(AndroidDriver<AndroidElement> driver, LinkedHashMap<String, String> fields, String submitId) {
+        long start = System.nanoTime();
+        List<String> ids = new ArrayList<>(fields.keySet());
+        if (submitId != null) {
+            ids.add(submitId);
+        }
+        List<String> quoted = new ArrayList<>();
+        for (String id : ids) {
+            quoted.add(Pattern.quote(id).replace("\\", "\\\\"));
+        }
+        CompiledLocator group = LocatorCompiler.compile(ByLocator.UISELECTOR,
+                "new UiSelector().resourceIdMatches(\"^(" + String.join("|", quoted) + ")$\")");
+        int[] polls = {0};
+        Map<String, AndroidElement> located = null;
+        try {
+            located = locate(driver, group, ids, polls);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+
+        if (located == null) {
+            SnapshotEngine.invalidate(driver);
+            RuntimeException failure = null;
+            try {
+                for (Map.Entry<String, String> field : fields.entrySet()) {
+                    CompiledLocator compiled = LocatorCompiler.compile(ByLocator.ID, field.getKey());
+                    recoverable(driver, () -> {
+                        enter(driver, compiled, field.getValue());
+                        return null;
+                    });
+                    StepJournal.record(StepJournal.Step.enter(ByLocator.ID, field.getKey(), field.getValue()));
+                }
+                if (submitId != null) {
+                    recoverable(driver, () -> {
+                        click(driver, LocatorCompiler.compile(ByLocator.ID, submitId));
+                        return null;
+                    });
+                    StepJournal.record(StepJournal.Step.submit(ByLocator.ID, submitId));
+                }
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+                FailureArtifacts.capture(driver, "fillForm " + ids, e);
+                failure = e;
+            } finally {
+                SnapshotEngine.invalidate(driver);
+                ElementCache.invalidate(driver);
+            }
+            return new FormFillReport(ids.size(), polls[0] + ids.size() * 3, System.nanoTime() - start, false, failure);
+        }
+
+        Map<String, AndroidElement> first = located;
+        boolean[] retry = {false};
+        RuntimeException failure = null;
+        try {
+            recoverable(driver, () -> {
+                // A retry runs on a recovered session, whose elements have to be looked up again.
+                Map<String, AndroidElement> byId = retry[0] ? locate(driver, group, ids, polls) : first;
+                retry[0] = true;
+                if (byId == null) {
+                    throw new TimeoutException("Form fields not visible after recovery: " + ids);
+                }
+                for (Map.Entry<String, String> field : fields.entrySet()) {
+                    AndroidElement element = byId.get(field.getKey());
+                    CommandMetrics.time(CommandMetrics.Phase.SEND_KEYS, group.getStrategy(),
+                            () -> element.replaceValue(field.getValue()));
+                }
+                if (submitId != null) {
+                    CommandMetrics.time(CommandMetrics.Phase.CLICK, group.getStrategy(), byId.get(submitId)::click);
+                }
+                return null;
+            });
+            for (Map.Entry<String, String> field : fields.entrySet()) {
+                StepJournal.record(StepJournal.Step.enter(ByLocator.ID, field.getKey(), field.getValue()));
+            }
+            if (submitId != null) {
+                StepJournal.record(StepJournal.Step.submit(ByLocator.ID, submitId));
+            }
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            FailureArtifacts.capture(driver, "fillForm " + ids, e);
+            failure = e;
+        } finally {
+            SnapshotEngine.invalidate(driver);
+            if (submitId != null) {
+                ElementCache.invalidate(driver);
+            }
+        }
+        return new FormFillReport(ids.size(), polls[0] + 2 * ids.size(), System.nanoTime() - start, true, failure);
+    }
+
+    /**
+     * Locates a form's fields and submit button with one batched lookup.
+     *
+     * @param driver The AndroidDriver instance to interact with the app.
+     * @param group  The locator matching every element of the form.
+     * @param ids    Resource ids of the elements.
+     * @param polls  Receives the number of lookups made in its first element.
+     * @return The elements keyed by resource id, or {@code null} if not all of them were found in time.
+     */
+    private static Map<String, AndroidElement> locate(AndroidDriver<AndroidElement> driver, CompiledLocator group,
+                                                      List<String> ids, int[] polls) {
+        List<AndroidElement> elements = WaitEngine.awaitAll(driver, group, ids.size(),
+                WaitEngine.batchTimeoutFor(group), polls);
+        if (elements == null) {
+            return null;
+        }
+        Map<String, AndroidElement> byId = new HashMap<>();
+        for (AndroidElement element : elements) {
+            byId.putIfAbsent(CommandMetrics.time(CommandMetrics.Phase.FIND, group.getStrategy(),
+                    () -> element.getAttribute("resource-id")), element);
+        }
+        return byId.keySet().containsAll(ids) ? byId : null;
+    }
+
+    /**
+     * Waits for whichever of several outcomes appears first, checking all of them in the same polling loop.
+     *
+     * @param driver   The AndroidDriver instance to interact with the app.
+     * @param type     The outcome enum; every constant with a locator takes part in the race.
+     * @param fallback The value to return when no outcome appears within {@link WaitEngine#raceTimeoutFor} the
+     *                 outcomes' locators.
+     * @param <T>      The outcome enum type.
+     * @return The outcome whose element became visible first, or {@code fallback}.
+     */
+    public static <T extends Enum<T> & Outcome> T waitForFirstOutcome(AndroidDriver<AndroidElement> driver, Class<T> type, T fallback) {
+        List<T> candidates = new ArrayList<>();
+        List<CompiledLocator> compiled = new ArrayList<>();
+        boolean local = true;
+        for (T outcome : type.getEnumConstants()) {
+            CompiledLocator candidate = outcome.getCompiledLocator();
+            if (candidate != null) {
+                candidates.add(outcome);
+                compiled.add(candidate);
+                local &= SnapshotEngine.canAnswer(candidate);
+            }
+        }
+        CommandMetrics.enterPageCall();
+        try {
+            boolean fromSnapshot = local;
+            long timeoutMs = WaitEngine.raceTimeoutFor(compiled);
+            int winner = recoverable(driver, () -> fromSnapshot
+                    ? SnapshotEngine.awaitFirstVisible(driver, compiled, timeoutMs)
+                    : WaitEngine.awaitFirstVisible(driver, compiled, timeoutMs));
+            return winner < 0 ? fallback : candidates.get(winner);
+        } catch (Exception e) {
+            e.printStackTrace();
+            FailureArtifacts.capture(driver, "waitForFirstOutcome " + type.getSimpleName(), e);
+            return fallback;
+        } finally {
+            CommandMetrics.exitPageCall();
         }
     }
 
@@ -135,26 +500,194 @@ public class BasePage {
      * @param locator  The locator value to find the element.
      */
     public static void waitAndThenClick(AndroidDriver<AndroidElement> driver, ByLocator loc, String locator) {
+        waitAndThenClick(driver, LocatorCompiler.compile(loc, locator));
+    }
+
+    /**
+     * Waits for an element to be visible and then clicks it.
+     *
+     * @param driver   The AndroidDriver instance to interact with the app.
+     * @param compiled The compiled locator of the element.
+     */
+    public static void waitAndThenClick(AndroidDriver<AndroidElement> driver, CompiledLocator compiled) {
+        clickAndJournal(driver, compiled, StepJournal.Step.click(compiled.getSource(), compiled.getLocator()));
+    }
+
+    /**
+     * Waits for a button to be visible and then clicks it to submit a form. Unlike {@link #waitAndThenClick}, the
+     * click is never replayed when the session is recovered, since the app may already have acted on it.
+     *
+     * @param driver   The AndroidDriver instance to interact with the app.
+     * @param loc      The locator type to use (e.g., XPATH, ID, UISELECTOR).
+     * @param locator  The locator value to find the button.
+     */
+    public static void waitAndThenSubmit(AndroidDriver<AndroidElement> driver, ByLocator loc, String locator) {
+        waitAndThenSubmit(driver, LocatorCompiler.compile(loc, locator));
+    }
+
+    /**
+     * Waits for a button to be visible and then clicks it to submit a form, without ever replaying the click.
+     *
+     * @param driver   The AndroidDriver instance to interact with the app.
+     * @param compiled The compiled locator of the button.
+     */
+    public static void waitAndThenSubmit(AndroidDriver<AndroidElement> driver, CompiledLocator compiled) {
+        clickAndJournal(driver, compiled, StepJournal.Step.submit(compiled.getSource(), compiled.getLocator()));
+    }
+
+    /**
+     * Implements {@link #waitAndThenClick} and {@link #waitAndThenSubmit}, journaling the click as the given step.
+     */
+    private static void clickAndJournal(AndroidDriver<AndroidElement> driver, CompiledLocator compiled,
+                                        StepJournal.Step step) {
+        CommandMetrics.enterPageCall();
         try {
-            switch (loc) {
-                case XPATH:
-                    AndroidElement elementXpath = (AndroidElement) new WebDriverWait(driver, 10)
-                            .until(ExpectedConditions.visibilityOfElementLocated(By.xpath(locator)));
-                    elementXpath.click();
-                    break;
-                case ID:
-                    AndroidElement elementId = (AndroidElement) new WebDriverWait(driver, 10)
-                            .until(ExpectedConditions.visibilityOfElementLocated(By.id(locator)));
-                    elementId.click();
-                    break;
-                case UISELECTOR:
-                    AndroidElement elementUiAutomator = (AndroidElement) new WebDriverWait(driver, 10)
-                            .until(ExpectedConditions.visibilityOfElementLocated(MobileBy.AndroidUIAutomator(locator)));
-                    elementUiAutomator.click();
-                    break;
-            }
+            recoverable(driver, () -> {
+                click(driver, compiled);
+                return null;
+            });
+            StepJournal.record(step);
         } catch (Exception e) {
             e.printStackTrace();
+            FailureArtifacts.capture(driver, (step.isSubmit() ? "waitAndThenSubmit " : "waitAndThenClick ")
+                    + compiled.getLocator(), e);
+        } finally {
+            SnapshotEngine.invalidate(driver);
+            ElementCache.invalidate(driver);
+            CommandMetrics.exitPageCall();
+        }
+    }
+
+    /**
+     * Waits for an element to be visible and sends text to it, throwing if that fails.
+     *
+     * @param driver   The AndroidDriver instance to interact with the app.
+     * @param compiled The compiled locator of the element.
+     * @param keywords The text to send to the element.
+     */
+    static void enter(AndroidDriver<AndroidElement> driver, CompiledLocator compiled, String keywords) {
+        withElement(driver, compiled, element -> {
+            CommandMetrics.time(CommandMetrics.Phase.SEND_KEYS, compiled.getStrategy(), () -> element.sendKeys(keywords));
+            return null;
+        });
+    }
+
+    /**
+     * Waits for an element to be visible and clicks it, throwing if that fails.
+     *
+     * @param driver   The AndroidDriver instance to interact with the app.
+     * @param compiled The compiled locator of the element.
+     */
+    static void click(AndroidDriver<AndroidElement> driver, CompiledLocator compiled) {
+        withElement(driver, compiled, element -> {
+            CommandMetrics.time(CommandMetrics.Phase.CLICK, compiled.getStrategy(), element::click);
+            return null;
+        });
+    }
+
+    /**
+     * Runs a step and, if it fails because the session broke, retries it once {@link StepJournal} has had the
+     * session recovered.
+     *
+     * @param driver The AndroidDriver instance to interact with the app.
+     * @param step   The step.
+     * @param <T>    The step's result type.
+     * @return The step's result.
+     */
+    private static <T> T recoverable(AndroidDriver<AndroidElement> driver, Supplier<T> step) {
+        try {
+            return step.get();
+        } catch (RuntimeException e) {
+            if (!StepJournal.recover(driver, e)) {
+                throw e;
+            }
+            return step.get();
+        }
+    }
+
+    /**
+     * Runs an action on the element matched by a compiled locator, using the session's cached handle when there is
+     * one. If the cached handle has gone stale it is dropped and the element is waited for again, so the action
+     * still runs once on the current element.
+     *
+     * @param driver   The AndroidDriver instance to interact with the app.
+     * @param compiled The compiled locator of the element.
+     * @param action   The action to run on the element.
+     * @param <T>      The action's result type.
+     * @return The action's result.
+     * @throws TimeoutException If the element had to be looked up and did not become visible in time.
+     */
+    private static <T> T withElement(AndroidDriver<AndroidElement> driver, CompiledLocator compiled,
+                                     Function<AndroidElement, T> action) {
+        AndroidElement cached = ElementCache.get(driver, compiled);
+        if (cached != null) {
+            try {
+                return action.apply(cached);
+            } catch (StaleElementReferenceException e) {
+                ElementCache.evict(driver, compiled);
+            }
+        }
+        AndroidElement element = waitForVisible(driver, compiled);
+        ElementCache.put(driver, compiled, element);
+        return action.apply(element);
+    }
+
+    /**
+     * Checks whether the session's cached handle for a locator is still displayed, dropping it if not.
+     *
+     * @param driver   The AndroidDriver instance to interact with the app.
+     * @param compiled The compiled locator of the element.
+     * @return {@code true} if a cached handle exists and is displayed.
+     */
+    private static boolean cachedDisplayed(AndroidDriver<AndroidElement> driver, CompiledLocator compiled) {
+        AndroidElement cached = ElementCache.get(driver, compiled);
+        if (cached == null) {
+            return false;
+        }
+        try {
+            if (CommandMetrics.time(CommandMetrics.Phase.FIND, compiled.getStrategy(), cached::isDisplayed)) {
+                return true;
+            }
+        } catch (StaleElementReferenceException e) {
+            // Replaced by the app; look it up again.
+        }
+        ElementCache.evict(driver, compiled);
+        return false;
+    }
+
+    /**
+     * Waits up to the locator's timeout for the element matched by a compiled locator to be visible.
+     *
+     * @param driver   The AndroidDriver instance to interact with the app.
+     * @param compiled The compiled locator of the element.
+     * @return The visible element.
+     * @throws TimeoutException If the element did not become visible in time.
+     */
+    private static AndroidElement waitForVisible(AndroidDriver<AndroidElement> driver, CompiledLocator compiled) {
+        AndroidElement element = lookUp(driver, compiled, WaitEngine.timeoutFor(compiled));
+        if (element == null) {
+            throw new TimeoutException("Element not visible after " + WaitEngine.timeoutFor(compiled) + " ms: " + compiled);
+        }
+        return element;
+    }
+
+    /**
+     * Waits for the element matched by a compiled locator to be visible and records how long the lookup
+     * took for its strategy, both in the compiler's per-strategy totals and as a {@link CommandMetrics} wait.
+     *
+     * @param driver    The AndroidDriver instance to interact with the app.
+     * @param compiled  The compiled locator of the element.
+     * @param timeoutMs How long to wait, in milliseconds.
+     * @return The visible element, or {@code null} if it did not appear in time.
+     */
+    private static AndroidElement lookUp(AndroidDriver<AndroidElement> driver, CompiledLocator compiled, long timeoutMs) {
+        long start = System.nanoTime();
+        try {
+            return WaitEngine.awaitVisible(driver, compiled, timeoutMs);
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            LocatorCompiler.recordLookup(compiled, elapsed);
+            CommandMetrics.record(CommandMetrics.Phase.WAIT, compiled.getStrategy(), elapsed);
         }
     }
 }
@@ -0,0 +1,501 @@
+package page;
+
+import io.github.cdimascio.dotenv.Dotenv;
+import org.openqa.selenium.json.Json;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+/**
+ * Records the latency of every driver command the framework makes, so it is visible where suite time goes.
+ * Each measurement is tagged with its {@link Phase}, the test method running on the thread, the page-object
+ * method that issued it and the locator strategy, and lands in a log-scaled latency histogram for that tag.
+ * The slowest individual steps are kept as well. At the end of the run {@link #writeReport()} writes a JSON
+ * report to PERF_REPORT_FILE (build/perf-report.json by default) that later runs can be compared against.
+ * Reporters that need every step as it happens register a {@link StepListener}.
+ */
+public final class CommandMetrics {
+
+    /**
+     * What a measured step was doing.
+     */
+    public enum Phase {
+        SESSION_START, WAIT, FIND, SEND_KEYS, CLICK, GET_TEXT
+    }
+
+    /**
+     * Receives every measurement as it is recorded, on the thread that made it.
+     */
+    public interface StepListener {
+
+        /**
+         * Called after a step has been measured.
+         *
+         * @param phase      What the step did.
+         * @param test       The test method it was made for, or {@code "-"}.
+         * @param pageMethod The page-object method that issued it, e.g. {@code LoginPage.login}, or {@code "-"}.
+         * @param strategy   The locator strategy it used, or {@code "-"}.
+         * @param nanos      How long it took, in nanoseconds.
+         */
+        void onStep(Phase phase, String test, String pageMethod, String strategy, long nanos);
+    }
+
+    /** Environment holding the report settings; the .env file is optional here. */
+    private static final Dotenv ENV = Dotenv.configure().ignoreIfMissing().load();
+
+    /** File the JSON report is written to. */
+    private static final Path REPORT_FILE = Paths.get(ENV.get("PERF_REPORT_FILE", "build/perf-report.json"));
+
+    /** How many of the slowest steps the report lists. */
+    private static final int SLOWEST_STEPS = Integer.parseInt(ENV.get("PERF_SLOWEST_STEPS", "20"));
+
+    /** Tag used when a step has no test, page-object method or strategy. */
+    private static final String NONE = "-";
+
+    /** The test method running on the current thread. */
+    private static final ThreadLocal<String> CURRENT_TEST = new ThreadLocal<>();
+
+    /** The page-object call the current thread is in, if any. */
+    private static final ThreadLocal<PageCall> PAGE_CALL = new ThreadLocal<>();
+
+    /** Page classes that issued commands, keyed by test name. */
+    private static final Map<String, Set<String>> TOUCHED = new ConcurrentHashMap<>();
+
+    /** Histograms keyed by phase, test, page-object method and strategy. */
+    private static final Map<String, Histogram> HISTOGRAMS = new ConcurrentHashMap<>();
+
+    /** Listeners notified of every measurement. */
+    private static final List<StepListener> LISTENERS = new CopyOnWriteArrayList<>();
+
+    /** The slowest steps seen so far, with the fastest of them at the head. */
+    private static final PriorityQueue<Step> SLOWEST = new PriorityQueue<>(Comparator.comparingLong(s -> s.nanos));
+
+    private CommandMetrics() {
+    }
+
+    /**
+     * Names a test invocation by its method and, for data-driven tests, its parameters, e.g.
+     * {@code login(a@example.com, secret)}, so that the measurements and artifacts of one row of a data table are
+     * kept apart from the other rows'.
+     *
+     * @param method     The test method name.
+     * @param parameters The invocation's parameters, or {@code null}.
+     * @return The test name measurements are tagged with.
+     */
+    public static String testName(String method, Object[] parameters) {
+        if (parameters == null || parameters.length == 0) {
+            return method;
+        }
+        String args = Arrays.deepToString(parameters);
+        return method + "(" + args.substring(1, args.length() - 1) + ")";
+    }
+
+    /**
+     * Tags every following measurement on the current thread with a test.
+     *
+     * @param testName The name of the test about to run, see {@link #testName(String, Object[])}.
+     */
+    public static void startTest(String testName) {
+        CURRENT_TEST.set(testName);
+    }
+
+    /**
+     * Stops tagging measurements on the current thread with a test method.
+     */
+    public static void endTest() {
+        CURRENT_TEST.remove();
+    }
+
+    /**
+     * @return The test method the current thread's measurements are tagged with, or {@code null}.
+     */
+    public static String currentTest() {
+        return CURRENT_TEST.get();
+    }
+
+    /**
+     * Notifies a listener of every following measurement.
+     *
+     * @param listener The listener.
+     */
+    public static void addListener(StepListener listener) {
+        LISTENERS.add(listener);
+    }
+
+    /**
+     * Stops notifying a listener.
+     *
+     * @param listener The listener.
+     */
+    public static void removeListener(StepListener listener) {
+        LISTENERS.remove(listener);
+    }
+
+    /**
+     * Returns the page classes whose methods issued commands while a test ran.
+     *
+     * @param testName The test name.
+     * @return Fully qualified class names, e.g. {@code page.LoginPage}; empty if the test issued no commands.
+     */
+    public static Set<String> touchedClasses(String testName) {
+        Set<String> touched = TOUCHED.get(testName);
+        return touched == null ? Collections.<String>emptySet() : new TreeSet<>(touched);
+    }
+
+    /**
+     * Returns and forgets the page classes whose methods issued commands while a finished test ran, once its result
+     * has been cached.
+     *
+     * @param testName The test name.
+     * @return Fully qualified class names, e.g. {@code page.LoginPage}; empty if the test issued no commands.
+     */
+    public static Set<String> drainTouchedClasses(String testName) {
+        Set<String> touched = TOUCHED.remove(testName);
+        return touched == null ? Collections.<String>emptySet() : new TreeSet<>(touched);
+    }
+
+    /**
+     * Drops a finished test's histograms once a reporter has streamed its steps. They are folded into the untagged
+     * histograms of the same phase, page-object method and strategy, so the report still covers every step while
+     * memory use does not grow with the size of the suite. The test's touched page classes are left for
+     * {@link #drainTouchedClasses(String)}, since listeners may see the test end in any order.
+     *
+     * @param testName The test name.
+     */
+    public static void drainTest(String testName) {
+        for (Map.Entry<String, Histogram> entry : HISTOGRAMS.entrySet()) {
+            Histogram histogram = entry.getValue();
+            if (histogram.tag.test.equals(testName) && HISTOGRAMS.remove(entry.getKey(), histogram)) {
+                Step tag = new Step(histogram.tag.phase, NONE, histogram.tag.pageMethod, histogram.tag.strategy, 0);
+                HISTOGRAMS.computeIfAbsent(tag.key(), k -> new Histogram(tag)).addAll(histogram);
+            }
+        }
+    }
+
+    /**
+     * Marks the start of a {@link BasePage} call on the current thread. The page-object method that made the call is
+     * looked up once here and tags every step measured until the matching {@link #exitPageCall()}; calls nested in
+     * it keep the outer tag.
+     */
+    static void enterPageCall() {
+        PageCall call = PAGE_CALL.get();
+        if (call == null) {
+            PAGE_CALL.set(new PageCall(pageMethod()));
+        } else {
+            call.depth++;
+        }
+    }
+
+    /**
+     * Marks the end of the {@link BasePage} call started by the matching {@link #enterPageCall()}.
+     */
+    static void exitPageCall() {
+        PageCall call = PAGE_CALL.get();
+        if (call != null && --call.depth == 0) {
+            PAGE_CALL.remove();
+        }
+    }
+
+    /**
+     * Measures a step that returns a value.
+     *
+     * @param phase    What the step does.
+     * @param strategy The locator strategy it uses, or {@code null}.
+     * @param step     The step to run.
+     * @param <T>      The result type.
+     * @return The step's result.
+     */
+    public static <T> T time(Phase phase, CompiledLocator.Strategy strategy, Supplier<T> step) {
+        long start = System.nanoTime();
+        try {
+            return step.get();
+        } finally {
+            record(phase, strategy, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Measures a step that returns nothing.
+     *
+     * @param phase    What the step does.
+     * @param strategy The locator strategy it uses, or {@code null}.
+     * @param step     The step to run.
+     */
+    public static void time(Phase phase, CompiledLocator.Strategy strategy, Runnable step) {
+        long start = System.nanoTime();
+        try {
+            step.run();
+        } finally {
+            record(phase, strategy, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Records a measurement taken by the caller.
+     *
+     * @param phase    What the step did.
+     * @param strategy The locator strategy it used, or {@code null}.
+     * @param nanos    How long it took, in nanoseconds.
+     */
+    public static void record(Phase phase, CompiledLocator.Strategy strategy, long nanos) {
+        String test = CURRENT_TEST.get();
+        PageCall call = PAGE_CALL.get();
+        String pageMethod = call != null ? call.method : pageMethod();
+        if (test != null && !NONE.equals(pageMethod)) {
+            TOUCHED.computeIfAbsent(test, t -> ConcurrentHashMap.newKeySet())
+                    .add("page." + pageMethod.substring(0, pageMethod.indexOf('.')));
+        }
+        Step step = new Step(phase, test == null ? NONE : test, pageMethod,
+                strategy == null ? NONE : strategy.name(), nanos);
+        HISTOGRAMS.computeIfAbsent(step.key(), k -> new Histogram(step)).add(nanos);
+        for (StepListener listener : LISTENERS) {
+            listener.onStep(phase, step.test, pageMethod, step.strategy, nanos);
+        }
+        synchronized (SLOWEST) {
+            if (SLOWEST.size() < SLOWEST_STEPS) {
+                SLOWEST.add(step);
+            } else if (SLOWEST_STEPS > 0 && SLOWEST.peek().nanos < nanos) {
+                SLOWEST.poll();
+                SLOWEST.add(step);
+            }
+        }
+    }
+
+    /**
+     * Summarizes the slowest steps, slowest first.
+     *
+     * @return A multi-line, human-readable report.
+     */
+    public static String slowestStepsReport() {
+        StringBuilder sb = new StringBuilder("Slowest steps:");
+        for (Step step : slowestSteps()) {
+            sb.append(String.format("%n  %8.1f ms  %-13s %s %s [%s]",
+                    step.nanos / 1e6, step.phase, step.test, step.pageMethod, step.strategy));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Writes the JSON report to PERF_REPORT_FILE: per-tag histograms with count, total, mean, p50, p95, p99 and
+     * max, per-phase totals, and the slowest steps.
+     */
+    public static void writeReport() {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("generatedAt", System.currentTimeMillis());
+
+        Map<String, long[]> perPhase = new TreeMap<>();
+        List<Map<String, Object>> histograms = new ArrayList<>();
+        for (Histogram histogram : HISTOGRAMS.values()) {
+            histograms.add(histogram.toMap());
+            long[] totals = perPhase.computeIfAbsent(histogram.tag.phase.name(), k -> new long[2]);
+            totals[0] += histogram.count.get();
+            totals[1] += histogram.totalNanos.get();
+        }
+        histograms.sort(Comparator.comparing((Map<String, Object> h) -> (Double) h.get("totalMs")).reversed());
+
+        Map<String, Object> phases = new LinkedHashMap<>();
+        for (Map.Entry<String, long[]> entry : perPhase.entrySet()) {
+            Map<String, Object> totals = new LinkedHashMap<>();
+            totals.put("count", entry.getValue()[0]);
+            totals.put("totalMs", millis(entry.getValue()[1]));
+            phases.put(entry.getKey(), totals);
+        }
+        report.put("phases", phases);
+        report.put("histograms", histograms);
+
+        List<Map<String, Object>> slowest = new ArrayList<>();
+        for (Step step : slowestSteps()) {
+            Map<String, Object> entry = step.tags();
+            entry.put("ms", millis(step.nanos));
+            slowest.add(entry);
+        }
+        report.put("slowestSteps", slowest);
+
+        try {
+            if (REPORT_FILE.getParent() != null) {
+                Files.createDirectories(REPORT_FILE.getParent());
+            }
+            try (Writer out = Files.newBufferedWriter(REPORT_FILE, StandardCharsets.UTF_8)) {
+                out.write(new Json().toJson(report));
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Forgets everything recorded so far.
+     */
+    public static void reset() {
+        HISTOGRAMS.clear();
+        TOUCHED.clear();
+        synchronized (SLOWEST) {
+            SLOWEST.clear();
+        }
+    }
+
+    private static List<Step> slowestSteps() {
+        List<Step> steps;
+        synchronized (SLOWEST) {
+            steps = new ArrayList<>(SLOWEST);
+        }
+        steps.sort(Comparator.comparingLong((Step s) -> s.nanos).reversed());
+        return steps;
+    }
+
+    /**
+     * Finds the page-object method that issued the current command: the innermost caller in the {@code page}
+     * package that is not part of the framework itself. This walks the stack, so it is done once per
+     * {@link BasePage} call and only for steps measured outside of one, such as session starts.
+     */
+    private static String pageMethod() {
+        StackTraceElement[] stack = Thread.currentThread().getStackTrace();
+        String basePage = null;
+        for (StackTraceElement frame : stack) {
+            String className = frame.getClassName();
+            if (!className.startsWith("page.") || className.indexOf('$') >= 0) {
+                continue;
+            }
+            String simpleName = className.substring("page.".length());
+            if (simpleName.equals("BasePage")) {
+                if (basePage == null) {
+                    basePage = simpleName + "." + frame.getMethodName();
+                }
+            } else if (!simpleName.equals("CommandMetrics") && !simpleName.equals("WaitEngine")
+                    && !simpleName.equals("SnapshotEngine")) {
+                return simpleName + "." + frame.getMethodName();
+            }
+        }
+        return basePage != null ? basePage : NONE;
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / 1e4) / 100.0;
+    }
+
+    /**
+     * A page-object call in progress on one thread.
+     */
+    private static final class PageCall {
+        private final String method;
+        private int depth = 1;
+
+        private PageCall(String method) {
+            this.method = method;
+        }
+    }
+
+    /**
+     * One measured step and its tags.
+     */
+    private static final class Step {
+        private final Phase phase;
+        private final String test;
+        private final String pageMethod;
+        private final String strategy;
+        private final long nanos;
+
+        private Step(Phase phase, String test, String pageMethod, String strategy, long nanos) {
+            this.phase = phase;
+            this.test = test;
+            this.pageMethod = pageMethod;
+            this.strategy = strategy;
+            this.nanos = nanos;
+        }
+
+        private String key() {
+            return phase + "\u0000" + test + "\u0000" + pageMethod + "\u0000" + strategy;
+        }
+
+        private Map<String, Object> tags() {
+            Map<String, Object> tags = new LinkedHashMap<>();
+            tags.put("phase", phase.name());
+            tags.put("test", test);
+            tags.put("pageMethod", pageMethod);
+            tags.put("strategy", strategy);
+            return tags;
+        }
+    }
+
+    /**
+     * A lock-free latency histogram with one bucket per power of two microseconds.
+     */
+    private static final class Histogram {
+        private static final int BUCKETS = 40;
+
+        private final Step tag;
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        private Histogram(Step tag) {
+            this.tag = tag;
+        }
+
+        private void add(long nanos) {
+            long micros = Math.max(1, nanos / 1000);
+            buckets.incrementAndGet(Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(micros)));
+            count.incrementAndGet();
+            totalNanos.addAndGet(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        private void addAll(Histogram other) {
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets.addAndGet(i, other.buckets.get(i));
+            }
+            count.addAndGet(other.count.get());
+            totalNanos.addAndGet(other.totalNanos.get());
+            maxNanos.accumulateAndGet(other.maxNanos.get(), Math::max);
+        }
+
+        /**
+         * Returns the upper bound of the bucket holding the given percentile, capped at the maximum seen.
+         */
+        private long percentileNanos(double percentile) {
+            long rank = (long) Math.ceil(count.get() * percentile);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) {
+                    return Math.min(maxNanos.get(), (2L << i) * 1000);
+                }
+            }
+            return maxNanos.get();
+        }
+
+        private Map<String, Object> toMap() {
+            Map<String, Object> map = tag.tags();
+            long n = count.get();
+            map.put("count", n);
+            map.put("totalMs", millis(totalNanos.get()));
+            map.put("meanMs", n == 0 ? 0.0 : millis(totalNanos.get() / n));
+            map.put("p50Ms", millis(percentileNanos(0.50)));
+            map.put("p95Ms", millis(percentileNanos(0.95)));
+            map.put("p99Ms", millis(percentileNanos(0.99)));
+            map.put("maxMs", millis(maxNanos.get()));
+            return map;
+        }
+    }
+}
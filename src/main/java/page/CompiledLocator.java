@@ -0,0 +1,142 @@
+package page;
+
+import io.appium.java_client.MobileBy;
+import org.openqa.selenium.By;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A locator that has been parsed and rewritten once by {@link LocatorCompiler}, or built ahead of time by a screen
+ * class generated by {@link PageGenerator}.
+ * Holds the {@link By} to send to the server, the strategy it uses and, when the original locator was simple
+ * enough to understand, the attribute predicates an element has to satisfy. A locator from a catalog may also
+ * declare how long to wait for its element.
+ */
+public final class CompiledLocator {
+
+    /**
+     * Lookup strategies, roughly from fastest to slowest on UiAutomator2.
+     */
+    public enum Strategy {
+        ID, ACCESSIBILITY_ID, CLASS_NAME, UIAUTOMATOR, XPATH
+    }
+
+    private final BasePage.ByLocator source;
+    private final String locator;
+    private final Strategy strategy;
+    private final String query;
+    private final By by;
+    private final Map<String, String> predicates;
+    private final long timeoutMs;
+
+    /**
+     * Creates a compiled locator.
+     *
+     * @param source     The locator type the page object asked for.
+     * @param locator    The locator value the page object asked for.
+     * @param strategy   The strategy actually used.
+     * @param query      The value actually sent to the server with the strategy.
+     * @param predicates Attribute predicates keyed by UiAutomator2 attribute name ({@code resource-id}, {@code text},
+     *                   {@code class}, {@code content-desc}; a trailing {@code ~} means "contains"), or {@code null}
+     *                   if the locator could not be understood.
+     */
+    CompiledLocator(BasePage.ByLocator source, String locator, Strategy strategy, String query,
+                    Map<String, String> predicates) {
+        this(source, locator, strategy, query, predicates, 0);
+    }
+
+    /**
+     * Creates a compiled locator with its own wait budget.
+     *
+     * @param source     The locator type the page object asked for.
+     * @param locator    The locator value the page object asked for.
+     * @param strategy   The strategy actually used.
+     * @param query      The value actually sent to the server with the strategy.
+     * @param predicates Attribute predicates as for {@link #CompiledLocator(BasePage.ByLocator, String, Strategy,
+     *                   String, Map)}.
+     * @param timeoutMs  How long to wait for the element, in milliseconds, or 0 for the default timeout.
+     */
+    CompiledLocator(BasePage.ByLocator source, String locator, Strategy strategy, String query,
+                    Map<String, String> predicates, long timeoutMs) {
+        this.source = source;
+        this.locator = locator;
+        this.strategy = strategy;
+        this.query = query;
+        this.by = by(strategy, query);
+        this.predicates = predicates == null ? null : Collections.unmodifiableMap(predicates);
+        this.timeoutMs = timeoutMs;
+    }
+
+    /**
+     * Builds a predicate map from alternating attribute names and values, for generated screen classes.
+     *
+     * @param namesAndValues Attribute names, each followed by its value.
+     * @return The predicates, in the given order.
+     */
+    static Map<String, String> predicates(String... namesAndValues) {
+        Map<String, String> predicates = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < namesAndValues.length; i += 2) {
+            predicates.put(namesAndValues[i], namesAndValues[i + 1]);
+        }
+        return predicates;
+    }
+
+    private static By by(Strategy strategy, String query) {
+        switch (strategy) {
+            case ID:
+                return By.id(query);
+            case ACCESSIBILITY_ID:
+                return MobileBy.AccessibilityId(query);
+            case CLASS_NAME:
+                return By.className(query);
+            case UIAUTOMATOR:
+                return MobileBy.AndroidUIAutomator(query);
+            default:
+                return By.xpath(query);
+        }
+    }
+
+    public BasePage.ByLocator getSource() {
+        return source;
+    }
+
+    public String getLocator() {
+        return locator;
+    }
+
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * @return The value sent to the server with the strategy, e.g. the resource id for {@link Strategy#ID}.
+     */
+    public String getQuery() {
+        return query;
+    }
+
+    public By getBy() {
+        return by;
+    }
+
+    /**
+     * @return How long to wait for the element, in milliseconds, or 0 for the default timeout.
+     */
+    public long getTimeoutMs() {
+        return timeoutMs;
+    }
+
+    /**
+     * @return The attribute predicates of this locator, or {@code null} if it could not be understood.
+     */
+    public Map<String, String> getPredicates() {
+        return predicates;
+    }
+
+    @Override
+    public String toString() {
+        return strategy + ":" + by;
+    }
+}
@@ -0,0 +1,142 @@
+package page;
+
+import io.appium.java_client.android.AndroidDriver;
+import io.appium.java_client.android.AndroidElement;
+import io.github.cdimascio.dotenv.Dotenv;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the element handles each session has looked up, so that acting on the same element again costs no wait and
+ * no find round trip. Handles are keyed by compiled locator, which {@link LocatorCompiler} hands out once per
+ * locator.
+ * <p>
+ * A cached handle may refer to an element the app has since replaced. {@link BasePage} then gets a
+ * {@link org.openqa.selenium.StaleElementReferenceException}, drops the handle with {@link #evict} and looks the
+ * element up again, so callers never see the stale handle. A session's handles are dropped altogether with
+ * {@link #invalidate} whenever its screen may have changed, i.e. after every click, on navigation and on relaunch.
+ * Screens share resource ids (the login and registration forms both have an email and a password field), so a
+ * handle from the previous screen would otherwise still match.
+ * Disable it with ELEMENT_CACHE=false in the .env file or {@link #setEnabled(boolean)}.
+ */
+public final class ElementCache {
+
+    /** Whether element handles are reused. */
+    private static volatile boolean enabled = Boolean.parseBoolean(
+            Dotenv.configure().ignoreIfMissing().load().get("ELEMENT_CACHE", "true"));
+
+    /** Cached handles of each session, keyed by driver and then by compiled locator. */
+    private static final Map<AndroidDriver<?>, Map<CompiledLocator, AndroidElement>> HANDLES =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
+    private static final LongAdder HITS = new LongAdder();
+    private static final LongAdder MISSES = new LongAdder();
+    private static final LongAdder STALE = new LongAdder();
+
+    private ElementCache() {
+    }
+
+    /**
+     * @return Whether element handles are reused.
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Turns the cache on or off for the whole run.
+     *
+     * @param on {@code true} to reuse element handles.
+     */
+    public static void setEnabled(boolean on) {
+        enabled = on;
+        HANDLES.clear();
+    }
+
+    /**
+     * Returns the session's cached handle for a locator, counting a hit or a miss.
+     *
+     * @param driver   The AndroidDriver instance to interact with the app.
+     * @param compiled The locator of the element.
+     * @return The cached handle, or {@code null} if there is none or the cache is disabled.
+     */
+    public static AndroidElement get(AndroidDriver<?> driver, CompiledLocator compiled) {
+        if (!enabled) {
+            return null;
+        }
+        Map<CompiledLocator, AndroidElement> handles = HANDLES.get(driver);
+        AndroidElement element = handles == null ? null : handles.get(compiled);
+        (element == null ? MISSES : HITS).increment();
+        return element;
+    }
+
+    /**
+     * Remembers a handle that was just looked up.
+     *
+     * @param driver   The AndroidDriver instance to interact with the app.
+     * @param compiled The locator the element was found with.
+     * @param element  The element found.
+     */
+    public static void put(AndroidDriver<?> driver, CompiledLocator compiled, AndroidElement element) {
+        if (enabled && element != null) {
+            HANDLES.computeIfAbsent(driver, d -> new ConcurrentHashMap<>()).put(compiled, element);
+        }
+    }
+
+    /**
+     * Drops one handle because it turned out to be stale or no longer displayed.
+     *
+     * @param driver   The AndroidDriver instance to interact with the app.
+     * @param compiled The locator of the element.
+     */
+    public static void evict(AndroidDriver<?> driver, CompiledLocator compiled) {
+        Map<CompiledLocator, AndroidElement> handles = HANDLES.get(driver);
+        if (handles != null && handles.remove(compiled) != null) {
+            STALE.increment();
+        }
+    }
+
+    /**
+     * Drops all of a session's handles, because its screen changed.
+     *
+     * @param driver The AndroidDriver instance whose screen changed.
+     */
+    public static void invalidate(AndroidDriver<?> driver) {
+        HANDLES.remove(driver);
+    }
+
+    /**
+     * @return How many lookups were answered with a cached handle.
+     */
+    public static long hits() {
+        return HITS.sum();
+    }
+
+    /**
+     * @return How many lookups found no cached handle and went to the device.
+     */
+    public static long misses() {
+        return MISSES.sum();
+    }
+
+    /**
+     * @return How many cached handles turned out to be stale and were looked up again.
+     */
+    public static long stale() {
+        return STALE.sum();
+    }
+
+    /**
+     * Summarizes how many lookups were saved by reusing handles.
+     *
+     * @return A one-line, human-readable report.
+     */
+    public static String report() {
+        return String.format("Element cache: %d hits, %d misses, %d stale handles re-resolved (%d lookups saved)",
+                hits(), misses(), stale(), hits() - stale());
+    }
+}
@@ -0,0 +1,260 @@
+package page;
+
+import io.appium.java_client.android.AndroidDriver;
+import io.github.cdimascio.dotenv.Dotenv;
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.logging.LogEntry;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Captures a screenshot, the page source and recent logcat when a step fails, for diagnosing the failure later.
+ * <p>
+ * The test thread only grabs the raw bytes from the device. Compressing and writing them is done by a background
+ * writer fed through a bounded queue, so a failing test is not slowed down by disk I/O; when the queue is full the
+ * capture is dropped rather than blocking the test. Each capture is written as one zip under
+ * ARTIFACT_DIR/&lt;run&gt;/&lt;test&gt;/, at most ARTIFACT_MAX_PER_TEST captures per test and ARTIFACT_MAX_MB per run.
+ */
+public final class FailureArtifacts {
+
+    /** Environment holding the artifact settings; the .env file is optional here. */
+    private static final Dotenv ENV = Dotenv.configure().ignoreIfMissing().load();
+
+    /** Whether failures are captured at all. */
+    private static final boolean ENABLED = Boolean.parseBoolean(ENV.get("ARTIFACTS", "true"));
+
+    /** Directory of this run's artifacts. */
+    private static final Path RUN_DIR = Paths.get(ENV.get("ARTIFACT_DIR", "build/artifacts"))
+            .resolve(new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()));
+
+    /** Most bytes written per run. */
+    private static final long MAX_BYTES = Long.parseLong(ENV.get("ARTIFACT_MAX_MB", "100")) * 1024 * 1024;
+
+    /** Most captures per test. */
+    private static final int MAX_PER_TEST = Integer.parseInt(ENV.get("ARTIFACT_MAX_PER_TEST", "3"));
+
+    /** How many of the latest logcat lines a capture keeps. */
+    private static final int LOGCAT_LINES = Integer.parseInt(ENV.get("ARTIFACT_LOGCAT_LINES", "200"));
+
+    /** Captures waiting to be written. */
+    private static final BlockingQueue<Capture> QUEUE =
+            new ArrayBlockingQueue<>(Integer.parseInt(ENV.get("ARTIFACT_QUEUE_SIZE", "16")));
+
+    /** Artifact files per test name, in capture order. */
+    private static final Map<String, List<Path>> BY_TEST = new ConcurrentHashMap<>();
+
+    private static final AtomicLong BYTES_WRITTEN = new AtomicLong();
+    private static final AtomicInteger PENDING = new AtomicInteger();
+    private static final AtomicInteger WRITTEN = new AtomicInteger();
+    private static final AtomicInteger DROPPED = new AtomicInteger();
+    private static final AtomicInteger OVER_LIMIT = new AtomicInteger();
+
+    static {
+        Thread writer = new Thread(FailureArtifacts::writeLoop, "failure-artifact-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    private FailureArtifacts() {
+    }
+
+    /**
+     * Grabs the device state after a failed step and queues it to be written.
+     * Each part is grabbed independently, so a capture from a session that is partly broken still keeps what
+     * could be read.
+     *
+     * @param driver The driver whose session failed.
+     * @param step   What was being done, used in the file name.
+     * @param error  The failure, or {@code null}.
+     * @return The file the capture will be written to, or {@code null} if it was skipped or dropped.
+     */
+    public static Path capture(AndroidDriver<?> driver, String step, Throwable error) {
+        if (!ENABLED || driver == null) {
+            return null;
+        }
+        String test = CommandMetrics.currentTest() == null ? "unknown" : CommandMetrics.currentTest();
+        List<Path> files = BY_TEST.computeIfAbsent(test, t -> new CopyOnWriteArrayList<>());
+        if (BYTES_WRITTEN.get() >= MAX_BYTES || files.size() >= MAX_PER_TEST) {
+            OVER_LIMIT.incrementAndGet();
+            return null;
+        }
+
+        Capture capture = new Capture(RUN_DIR.resolve(sanitize(test))
+                .resolve(String.format("%02d-%s.zip", files.size() + 1, sanitize(step))));
+        if (error != null) {
+            StringWriter trace = new StringWriter();
+            error.printStackTrace(new PrintWriter(trace));
+            capture.error = trace.toString();
+        }
+        try {
+            capture.screenshot = driver.getScreenshotAs(OutputType.BYTES);
+        } catch (Exception e) {
+            capture.error += "\nScreenshot unavailable: " + e;
+        }
+        try {
+            capture.pageSource = driver.getPageSource();
+        } catch (Exception e) {
+            capture.error += "\nPage source unavailable: " + e;
+        }
+        try {
+            List<LogEntry> entries = driver.manage().logs().get("logcat").getAll();
+            StringBuilder logcat = new StringBuilder();
+            for (LogEntry entry : entries.subList(Math.max(0, entries.size() - LOGCAT_LINES), entries.size())) {
+                logcat.append(entry.getTimestamp()).append(' ').append(entry.getLevel()).append(' ')
+                        .append(entry.getMessage()).append('\n');
+            }
+            capture.logcat = logcat.toString();
+        } catch (Exception e) {
+            capture.error += "\nLogcat unavailable: " + e;
+        }
+
+        PENDING.incrementAndGet();
+        if (!QUEUE.offer(capture)) {
+            PENDING.decrementAndGet();
+            DROPPED.incrementAndGet();
+            return null;
+        }
+        files.add(capture.file);
+        return capture.file;
+    }
+
+    /**
+     * @param test The test name, see {@link CommandMetrics#testName(String, Object[])}.
+     * @return The artifact files captured while the test ran, in capture order.
+     */
+    public static List<Path> artifactsFor(String test) {
+        List<Path> files = BY_TEST.get(test);
+        return files == null ? Collections.<Path>emptyList() : new ArrayList<>(files);
+    }
+
+    /**
+     * Forgets the artifacts of a finished test once they have been reported, so the index does not grow with the
+     * size of the suite and a later invocation under the same name starts afresh.
+     *
+     * @param test The test name.
+     * @return The artifact files captured while the test ran, in capture order.
+     */
+    public static List<Path> drain(String test) {
+        List<Path> files = BY_TEST.remove(test);
+        return files == null ? Collections.<Path>emptyList() : new ArrayList<>(files);
+    }
+
+    /**
+     * Waits for queued captures to be written, e.g. at the end of the run.
+     *
+     * @param timeoutMs How long to wait at most, in milliseconds.
+     */
+    public static void flush(long timeoutMs) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        while (PENDING.get() > 0 && System.nanoTime() < deadline) {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Summarizes how many captures were written, dropped and skipped.
+     *
+     * @return A one-line, human-readable report.
+     */
+    public static String report() {
+        return String.format("Failure artifacts: %d written (%d KB) to %s, %d dropped (queue full), %d over limits",
+                WRITTEN.get(), BYTES_WRITTEN.get() / 1024, RUN_DIR, DROPPED.get(), OVER_LIMIT.get());
+    }
+
+    /**
+     * Writes queued captures one after another, compressing each into a zip.
+     */
+    private static void writeLoop() {
+        while (true) {
+            Capture capture;
+            try {
+                capture = QUEUE.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                if (BYTES_WRITTEN.get() < MAX_BYTES) {
+                    write(capture);
+                    BYTES_WRITTEN.addAndGet(Files.size(capture.file));
+                    WRITTEN.incrementAndGet();
+                } else {
+                    OVER_LIMIT.incrementAndGet();
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            } finally {
+                PENDING.decrementAndGet();
+            }
+        }
+    }
+
+    private static void write(Capture capture) throws IOException {
+        Files.createDirectories(capture.file.getParent());
+        try (OutputStream out = Files.newOutputStream(capture.file);
+             ZipOutputStream zip = new ZipOutputStream(out)) {
+            entry(zip, "error.txt", capture.error.getBytes(StandardCharsets.UTF_8));
+            if (capture.screenshot != null) {
+                entry(zip, "screenshot.png", capture.screenshot);
+            }
+            if (capture.pageSource != null) {
+                entry(zip, "page-source.xml", capture.pageSource.getBytes(StandardCharsets.UTF_8));
+            }
+            if (capture.logcat != null) {
+                entry(zip, "logcat.txt", capture.logcat.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    private static void entry(ZipOutputStream zip, String name, byte[] content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(content);
+        zip.closeEntry();
+    }
+
+    private static String sanitize(String name) {
+        String safe = name.replaceAll("[^A-Za-z0-9._-]+", "_");
+        return safe.length() > 80 ? safe.substring(0, 80) : safe;
+    }
+
+    /**
+     * The raw device state grabbed for one failure.
+     */
+    private static final class Capture {
+        private final Path file;
+        private String error = "";
+        private byte[] screenshot;
+        private String pageSource;
+        private String logcat;
+
+        private Capture(Path file) {
+            this.file = file;
+        }
+    }
+}
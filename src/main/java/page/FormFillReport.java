@@ -0,0 +1,94 @@
+package page;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Describes what a batched form fill cost compared with filling the same form field by field.
+ * The per-field path needs, for every field, at least one lookup, one visibility check and one sendKeys,
+ * plus the same for the submit button; its time is estimated from the average round trip of the batch.
+ * Totals across all fills of the run are available from {@link #totals()}.
+ */
+public final class FormFillReport {
+
+    /** Round trips every field costs on the per-field path: lookup, visibility check, action. */
+    private static final int PER_FIELD_ROUND_TRIPS = 3;
+
+    private static final LongAdder TOTAL_ROUND_TRIPS = new LongAdder();
+    private static final LongAdder TOTAL_BASELINE_ROUND_TRIPS = new LongAdder();
+    private static final LongAdder TOTAL_NANOS = new LongAdder();
+    private static final LongAdder TOTAL_BASELINE_NANOS = new LongAdder();
+
+    private final int roundTrips;
+    private final int baselineRoundTrips;
+    private final long nanos;
+    private final long baselineNanos;
+    private final boolean batched;
+    private final RuntimeException failure;
+
+    /**
+     * Creates a report and adds it to the run totals.
+     *
+     * @param fields     Number of fields filled, counting the submit button if it was clicked.
+     * @param roundTrips Server calls the fill actually made.
+     * @param nanos      Time the fill actually took.
+     * @param batched    {@code false} if the fill had to fall back to the per-field path.
+     * @param failure    The error that kept the form from being filled and submitted, or {@code null}.
+     */
+    FormFillReport(int fields, int roundTrips, long nanos, boolean batched, RuntimeException failure) {
+        this.roundTrips = roundTrips;
+        this.baselineRoundTrips = fields * PER_FIELD_ROUND_TRIPS;
+        this.nanos = nanos;
+        this.baselineNanos = roundTrips == 0 ? nanos : nanos / roundTrips * baselineRoundTrips;
+        this.batched = batched;
+        this.failure = failure;
+        TOTAL_ROUND_TRIPS.add(roundTrips);
+        TOTAL_BASELINE_ROUND_TRIPS.add(baselineRoundTrips);
+        TOTAL_NANOS.add(nanos);
+        TOTAL_BASELINE_NANOS.add(batched ? baselineNanos : nanos);
+    }
+
+    public int getRoundTrips() {
+        return roundTrips;
+    }
+
+    public int getBaselineRoundTrips() {
+        return baselineRoundTrips;
+    }
+
+    public boolean isBatched() {
+        return batched;
+    }
+
+    /**
+     * @return The error that kept the form from being filled and submitted, or {@code null} if every field was set
+     *         and the form submitted.
+     */
+    public RuntimeException getFailure() {
+        return failure;
+    }
+
+    /**
+     * @return The estimated time saved compared with the per-field path, in milliseconds.
+     */
+    public long getSavedMillis() {
+        return batched ? (baselineNanos - nanos) / 1_000_000 : 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Form fill: %d round trips (per-field ~%d), %d ms (~%d ms saved)%s",
+                roundTrips, baselineRoundTrips, nanos / 1_000_000, getSavedMillis(), batched ? "" : ", fell back to per-field")
+                + (failure == null ? "" : ", failed: " + failure);
+    }
+
+    /**
+     * Summarizes all form fills of the run.
+     *
+     * @return A one-line, human-readable report.
+     */
+    public static String totals() {
+        return String.format("Form fills: %d round trips instead of ~%d, ~%d ms saved",
+                TOTAL_ROUND_TRIPS.sum(), TOTAL_BASELINE_ROUND_TRIPS.sum(),
+                (TOTAL_BASELINE_NANOS.sum() - TOTAL_NANOS.sum()) / 1_000_000);
+    }
+}
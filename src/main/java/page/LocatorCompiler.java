@@ -0,0 +1,300 @@
+package page;
+
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Turns a {@link BasePage.ByLocator} and locator string into a {@link CompiledLocator} once and caches the result.
+ * On UiAutomator2 every XPath lookup makes the device dump its whole view hierarchy, so simple XPath and UiSelector
+ * expressions are rewritten into the fastest equivalent strategy:
+ * <ul>
+ *     <li>{@code //Class[@resource-id='x']} and {@code resourceId("x")} become {@code By.id("x")}</li>
+ *     <li>{@code //Class[@content-desc='x']} and {@code description("x")} become accessibility id lookups</li>
+ *     <li>{@code //Class[@text='x']} becomes {@code new UiSelector().className("Class").text("x")}</li>
+ *     <li>{@code //Class} becomes {@code By.className("Class")}</li>
+ * </ul>
+ * Resource ids are unique within a screen of this app, so the class filter of a resource-id XPath is dropped.
+ * Anything not understood is passed through unchanged. Lookup latency is recorded per strategy so the effect of a
+ * rewrite can be measured.
+ */
+public final class LocatorCompiler {
+
+    /** {@code //Class[predicates]} with an optional {@code /hierarchy} prefix. */
+    private static final Pattern XPATH = Pattern.compile("^(?:/hierarchy)?//([\\w.]+|\\*)(?:\\[(.+)])?$");
+
+    /** {@code @attr='value'} or {@code contains(@attr, 'value')}. */
+    private static final Pattern XPATH_PREDICATE =
+            Pattern.compile("^(?:@([\\w-]+)\\s*=\\s*'([^']*)'|@([\\w-]+)\\s*=\\s*\"([^\"]*)\"|contains\\(\\s*@([\\w-]+)\\s*,\\s*['\"]([^'\"]*)['\"]\\s*\\))$");
+
+    /** {@code .method("value")} within a UiSelector chain. */
+    private static final Pattern UISELECTOR_CALL = Pattern.compile("\\.(\\w+)\\(\\s*\"((?:[^\"\\\\]|\\\\.)*)\"\\s*\\)");
+
+    /** A UiSelector made only of {@code .method("value")} calls, optionally starting with {@code new UiSelector()}. */
+    private static final Pattern UISELECTOR =
+            Pattern.compile("^\\s*(?:new\\s+UiSelector\\(\\))?(\\s*\\.\\w+\\(\\s*\"(?:[^\"\\\\]|\\\\.)*\"\\s*\\))+\\s*;?\\s*$");
+
+    /** UiSelector methods and the UiAutomator2 attributes they test. */
+    private static final Map<String, String> UISELECTOR_ATTRIBUTES = new LinkedHashMap<>();
+
+    static {
+        UISELECTOR_ATTRIBUTES.put("resourceId", "resource-id");
+        UISELECTOR_ATTRIBUTES.put("className", "class");
+        UISELECTOR_ATTRIBUTES.put("text", "text");
+        UISELECTOR_ATTRIBUTES.put("textContains", "text~");
+        UISELECTOR_ATTRIBUTES.put("description", "content-desc");
+        UISELECTOR_ATTRIBUTES.put("descriptionContains", "content-desc~");
+    }
+
+    /** Android resource ids: {@code package:id/name}. */
+    private static final Pattern RESOURCE_ID = Pattern.compile("^[A-Za-z][\\w.]*:id/\\w+$");
+
+    /** UiSelector methods that take one string argument. */
+    private static final Set<String> UISELECTOR_METHODS = new HashSet<>(Arrays.asList(
+            "text", "textContains", "textStartsWith", "textMatches", "className", "classNameMatches",
+            "description", "descriptionContains", "descriptionStartsWith", "descriptionMatches",
+            "resourceId", "resourceIdMatches", "packageName", "packageNameMatches"));
+
+    /** Compiled locators keyed by locator type and value. */
+    private static final Map<String, CompiledLocator> CACHE = new ConcurrentHashMap<>();
+
+    /** Number of lookups per strategy. */
+    private static final Map<CompiledLocator.Strategy, LongAdder> LOOKUPS = new EnumMap<>(CompiledLocator.Strategy.class);
+
+    /** Total lookup time per strategy, in nanoseconds. */
+    private static final Map<CompiledLocator.Strategy, LongAdder> LOOKUP_NANOS = new EnumMap<>(CompiledLocator.Strategy.class);
+
+    static {
+        for (CompiledLocator.Strategy strategy : CompiledLocator.Strategy.values()) {
+            LOOKUPS.put(strategy, new LongAdder());
+            LOOKUP_NANOS.put(strategy, new LongAdder());
+        }
+    }
+
+    private LocatorCompiler() {
+    }
+
+    /**
+     * Returns the compiled form of a locator, compiling it on first use.
+     *
+     * @param loc     The locator type (e.g., XPATH, ID, UISELECTOR).
+     * @param locator The locator value.
+     * @return The compiled locator.
+     */
+    public static CompiledLocator compile(BasePage.ByLocator loc, String locator) {
+        return CACHE.computeIfAbsent(loc + "\u0000" + locator, key -> doCompile(loc, locator));
+    }
+
+    /**
+     * Makes a locator built ahead of time the compiled form of its locator type and value, so that lookups of the
+     * same locator through {@link #compile} share it and its wait budget. Called by generated screen classes.
+     * A locator is handed out once: if another screen class registered it already, that instance is returned, so
+     * that e.g. the email field of the login and the register screen is the same constant. The generator makes sure
+     * catalogs declaring the same locator give it the same wait budget. Only a locator compiled from a string before
+     * any screen class registered it is replaced, so that it gets its catalog's wait budget.
+     *
+     * @param compiled The prebuilt locator.
+     * @return The locator to use: the one already registered for the same locator, or the given one.
+     */
+    static CompiledLocator register(CompiledLocator compiled) {
+        String key = compiled.getSource() + "\u0000" + compiled.getLocator();
+        CompiledLocator existing = CACHE.putIfAbsent(key, compiled);
+        if (existing == null || existing.getTimeoutMs() != 0 || compiled.getTimeoutMs() == 0) {
+            return existing == null ? compiled : existing;
+        }
+        CACHE.replace(key, existing, compiled);
+        return CACHE.get(key);
+    }
+
+    /**
+     * Checks that a locator is well-formed without sending it to a device: resource ids must have the form
+     * {@code package:id/name}, XPath expressions must parse, and UiSelector expressions must be chains of
+     * string-argument UiSelector methods.
+     *
+     * @param loc     The locator type.
+     * @param locator The locator value.
+     * @return A description of what is wrong, or {@code null} if the locator is valid.
+     */
+    static String validate(BasePage.ByLocator loc, String locator) {
+        if (loc == null) {
+            return "no locator type";
+        }
+        if (locator == null || locator.trim().isEmpty()) {
+            return "empty " + loc + " locator";
+        }
+        switch (loc) {
+            case ID:
+                return RESOURCE_ID.matcher(locator).matches() ? null
+                        : "'" + locator + "' is not a resource id of the form package:id/name";
+            case XPATH:
+                try {
+                    XPathFactory.newInstance().newXPath().compile(locator);
+                    return null;
+                } catch (XPathExpressionException e) {
+                    return "'" + locator + "' is not a valid XPath expression";
+                }
+            default:
+                if (!UISELECTOR.matcher(locator).matches()) {
+                    return "'" + locator + "' is not a chain of UiSelector calls";
+                }
+                Matcher call = UISELECTOR_CALL.matcher(locator);
+                while (call.find()) {
+                    if (!UISELECTOR_METHODS.contains(call.group(1))) {
+                        return "'" + locator + "' calls unknown UiSelector method " + call.group(1);
+                    }
+                }
+                return null;
+        }
+    }
+
+    /**
+     * Records how long a lookup with a compiled locator took.
+     *
+     * @param locator The locator that was looked up.
+     * @param nanos   The lookup time in nanoseconds.
+     */
+    public static void recordLookup(CompiledLocator locator, long nanos) {
+        LOOKUPS.get(locator.getStrategy()).increment();
+        LOOKUP_NANOS.get(locator.getStrategy()).add(nanos);
+    }
+
+    /**
+     * Summarizes lookup counts and average latency per strategy.
+     *
+     * @return A one-line, human-readable report.
+     */
+    public static String lookupReport() {
+        StringBuilder sb = new StringBuilder("Locator lookups:");
+        for (CompiledLocator.Strategy strategy : CompiledLocator.Strategy.values()) {
+            long count = LOOKUPS.get(strategy).sum();
+            if (count > 0) {
+                sb.append(String.format(" %s=%d (avg %.1f ms)", strategy, count,
+                        LOOKUP_NANOS.get(strategy).sum() / 1e6 / count));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static CompiledLocator doCompile(BasePage.ByLocator loc, String locator) {
+        switch (loc) {
+            case ID:
+                Map<String, String> id = new LinkedHashMap<>();
+                id.put("resource-id", locator);
+                return new CompiledLocator(loc, locator, CompiledLocator.Strategy.ID, locator, id);
+            case XPATH:
+                return fromPredicates(loc, locator, parseXPath(locator),
+                        new CompiledLocator(loc, locator, CompiledLocator.Strategy.XPATH, locator, null));
+            case UISELECTOR:
+                return fromPredicates(loc, locator, parseUiSelector(locator),
+                        new CompiledLocator(loc, locator, CompiledLocator.Strategy.UIAUTOMATOR, locator, null));
+            default:
+                throw new IllegalArgumentException("Unsupported locator type " + loc);
+        }
+    }
+
+    /**
+     * Picks the fastest strategy able to express the given predicates.
+     *
+     * @param fallback The locator to use unchanged if the predicates are {@code null}.
+     */
+    private static CompiledLocator fromPredicates(BasePage.ByLocator loc, String locator,
+                                                  Map<String, String> predicates, CompiledLocator fallback) {
+        if (predicates == null || predicates.isEmpty()) {
+            return fallback;
+        }
+        String resourceId = predicates.get("resource-id");
+        if (resourceId != null && !predicates.containsKey("text") && !predicates.containsKey("text~")
+                && !predicates.containsKey("content-desc") && !predicates.containsKey("content-desc~")) {
+            Map<String, String> idOnly = new LinkedHashMap<>();
+            idOnly.put("resource-id", resourceId);
+            return new CompiledLocator(loc, locator, CompiledLocator.Strategy.ID, resourceId, idOnly);
+        }
+        if (predicates.size() == 1 && predicates.containsKey("content-desc")) {
+            String desc = predicates.get("content-desc");
+            return new CompiledLocator(loc, locator, CompiledLocator.Strategy.ACCESSIBILITY_ID, desc, predicates);
+        }
+        if (predicates.size() == 1 && predicates.containsKey("class")) {
+            return new CompiledLocator(loc, locator, CompiledLocator.Strategy.CLASS_NAME, predicates.get("class"),
+                    predicates);
+        }
+        StringBuilder selector = new StringBuilder("new UiSelector()");
+        for (Map.Entry<String, String> method : UISELECTOR_ATTRIBUTES.entrySet()) {
+            String value = predicates.get(method.getValue());
+            if (value != null) {
+                selector.append('.').append(method.getKey()).append("(\"")
+                        .append(value.replace("\\", "\\\\").replace("\"", "\\\"")).append("\")");
+            }
+        }
+        return new CompiledLocator(loc, locator, CompiledLocator.Strategy.UIAUTOMATOR, selector.toString(),
+                predicates);
+    }
+
+    /**
+     * Parses a simple XPath into attribute predicates.
+     *
+     * @param xpath The XPath expression.
+     * @return The predicates, or {@code null} if the expression is not of the form {@code //Class[@a='x' and ...]}.
+     */
+    static Map<String, String> parseXPath(String xpath) {
+        Matcher m = XPATH.matcher(xpath.trim());
+        if (!m.matches()) {
+            return null;
+        }
+        Map<String, String> predicates = new LinkedHashMap<>();
+        if (!"*".equals(m.group(1))) {
+            predicates.put("class", m.group(1));
+        }
+        if (m.group(2) != null) {
+            for (String term : m.group(2).split("\\s+and\\s+")) {
+                Matcher p = XPATH_PREDICATE.matcher(term.trim());
+                if (!p.matches()) {
+                    return null;
+                }
+                if (p.group(1) != null) {
+                    predicates.put(p.group(1), p.group(2));
+                } else if (p.group(3) != null) {
+                    predicates.put(p.group(3), p.group(4));
+                } else {
+                    predicates.put(p.group(5) + "~", p.group(6));
+                }
+            }
+        }
+        for (String attribute : predicates.keySet()) {
+            if (!UISELECTOR_ATTRIBUTES.containsValue(attribute)) {
+                return null;
+            }
+        }
+        return predicates;
+    }
+
+    /**
+     * Parses a UiSelector chain into attribute predicates.
+     *
+     * @param selector The UiSelector expression, with or without the leading {@code new UiSelector()}.
+     * @return The predicates, or {@code null} if the chain uses methods other than those of {@link #UISELECTOR_ATTRIBUTES}.
+     */
+    static Map<String, String> parseUiSelector(String selector) {
+        if (!UISELECTOR.matcher(selector).matches()) {
+            return null;
+        }
+        Map<String, String> predicates = new LinkedHashMap<>();
+        Matcher call = UISELECTOR_CALL.matcher(selector);
+        while (call.find()) {
+            String attribute = UISELECTOR_ATTRIBUTES.get(call.group(1));
+            if (attribute == null) {
+                return null;
+            }
+            predicates.put(attribute, call.group(2).replace("\\\"", "\"").replace("\\\\", "\\"));
+        }
+        return predicates;
+    }
+}
@@ -2,14 +2,53 @@ package page;
 
 import io.appium.java_client.android.AndroidDriver;
 
+import java.util.LinkedHashMap;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Represents the login page of the application and provides methods to interact with login-related UI elements.
- * This class extends from {@link BasePage} and includes methods to perform actions on the login page, such as
- * entering email and password, clicking the login button, and verifying error messages.
+ * This class extends {@link LoginScreen}, generated from the login locator catalog, and includes methods to perform
+ * actions on the login page, such as entering email and password, clicking the login button, and verifying error
+ * messages.
  *
  * @author Kent Van Lim
  */
-public class LoginPage extends BasePage {
+public class LoginPage extends LoginScreen {
+
+    /**
+     * The screens the app can show after the login button is clicked.
+     */
+    public enum LoginResult implements Outcome {
+        /** The account screen of the logged-in user. */
+        ACCOUNT(LoginScreen.ACCOUNT_EMAIL),
+        /** The snackbar shown for unknown credentials. */
+        LOGIN_ERROR(LoginScreen.ERROR_SNACKBAR),
+        /** The validation message for a malformed email. */
+        INVALID_EMAIL(LoginScreen.INVALID_EMAIL_MESSAGE),
+        /** None of the above appeared in time. */
+        NONE(null);
+
+        private final CompiledLocator compiled;
+
+        LoginResult(CompiledLocator compiled) {
+            this.compiled = compiled;
+        }
+
+        @Override
+        public ByLocator getLocatorType() {
+            return compiled == null ? null : compiled.getSource();
+        }
+
+        @Override
+        public String getLocator() {
+            return compiled == null ? null : compiled.getLocator();
+        }
+
+        @Override
+        public CompiledLocator getCompiledLocator() {
+            return compiled;
+        }
+    }
 
     /**
      * Enters the given email address into the email input field on the login page.
@@ -18,8 +57,7 @@ public class LoginPage extends BasePage {
      * @param keywords The email address to be entered.
      */
     public void sendEmailToLogin(AndroidDriver driver, String keywords) {
-        waitAndThenEnterData(driver, BasePage.ByLocator.ID,
-                "com.loginmodule.learning:id/textInputEditTextEmail", keywords);
+        enterEmail(driver, keywords);
     }
 
     /**
@@ -29,8 +67,36 @@ public class LoginPage extends BasePage {
      * @param keywords The password to be entered.
      */
     public void sendPasswordToLogin(AndroidDriver driver, String keywords) {
-        waitAndThenEnterData(driver, BasePage.ByLocator.ID,
-                "com.loginmodule.learning:id/textInputEditTextPassword", keywords);
+        enterPassword(driver, keywords);
+    }
+
+    /**
+     * Enters the email and password and clicks the login button in a single batched form fill.
+     *
+     * @param driver   The {@link AndroidDriver} instance used to interact with the app.
+     * @param email    The email address to be entered.
+     * @param password The password to be entered.
+     * @return How many round trips the fill made and how much time it saved.
+     */
+    public FormFillReport login(AndroidDriver driver, String email, String password) {
+        LinkedHashMap<String, String> fields = new LinkedHashMap<>();
+        fields.put(EMAIL.getQuery(), email);
+        fields.put(PASSWORD.getQuery(), password);
+        return fillForm(driver, fields, LOGIN_BUTTON.getQuery());
+    }
+
+    /**
+     * Asynchronous {@link #login} followed by {@link #getLoginResult}. The fill is ordered after every command
+     * already submitted to the session, and the result check after the fill.
+     *
+     * @param session  The session to send the commands to.
+     * @param email    The email address to be entered.
+     * @param password The password to be entered.
+     * @return The result that appeared first, or {@link LoginResult#NONE} if none appeared in time; fails if the
+     *         form could not be filled and submitted.
+     */
+    public CompletableFuture<LoginResult> loginAsync(AsyncSession session, String email, String password) {
+        return session.submitForm(d -> login(d, email, password), LoginResult.class, LoginResult.NONE);
     }
 
     /**
@@ -39,8 +105,7 @@ public class LoginPage extends BasePage {
      * @param driver The {@link AndroidDriver} instance used to interact with the app.
      */
     public void buttonLogin(AndroidDriver driver) {
-        waitAndThenClick(driver, BasePage.ByLocator.ID,
-                "com.loginmodule.learning:id/appCompatButtonLogin");
+        clickLoginButton(driver);
     }
 
     /**
@@ -50,8 +115,7 @@ public class LoginPage extends BasePage {
      * @return {@code true} if the error message is present, {@code false} otherwise.
      */
     public Boolean getErrorMessageLogin(AndroidDriver driver) {
-        return validateElementPresent(driver, BasePage.ByLocator.ID,
-                "com.loginmodule.learning:id/snackbar_text");
+        return isErrorSnackbarShown(driver);
     }
 
     /**
@@ -61,8 +125,7 @@ public class LoginPage extends BasePage {
      * @return {@code true} if the invalid email format error message is present, {@code false} otherwise.
      */
     public Boolean getErrorMessageInvalidEmailFormat(AndroidDriver driver) {
-        return validateElementPresent(driver, BasePage.ByLocator.XPATH,
-                "//android.widget.TextView[@text='Enter Valid Email']");
+        return isInvalidEmailMessageShown(driver);
     }
 
     /**
@@ -72,7 +135,20 @@ public class LoginPage extends BasePage {
      * @return {@code true} if the account details are visible, {@code false} otherwise.
      */
     public Boolean verifyAccountAfterLogin(AndroidDriver driver) {
-        return validateElementPresent(driver, BasePage.ByLocator.ID,
-                "com.loginmodule.learning:id/textViewEmail");
+        return isAccountEmailShown(driver);
+    }
+
+    /**
+     * Waits for the first result screen to appear after clicking the login button.
+     *
+     * @param driver The {@link AndroidDriver} instance used to interact with the app.
+     * @return The result that appeared first, or {@link LoginResult#NONE} if none appeared in time.
+     */
+    public LoginResult getLoginResult(AndroidDriver driver) {
+        LoginResult result = waitForFirstOutcome(driver, LoginResult.class, LoginResult.NONE);
+        if (result == LoginResult.ACCOUNT) {
+            StepJournal.checkpoint("ACCOUNT");
+        }
+        return result;
     }
-}
\ No newline at end of file
+}
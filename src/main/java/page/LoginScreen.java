@@ -0,0 +1,105 @@
+package page;
+
+import io.appium.java_client.android.AndroidDriver;
+
+/**
+ * Elements of the LOGIN screen, generated by {@link PageGenerator} from login.json.
+ * Do not edit: change the catalog and run the generator again.
+ */
+public class LoginScreen extends BasePage {
+
+    /** Input {@code email}, found by ID. */
+    public static final CompiledLocator EMAIL = LocatorCompiler.register(new CompiledLocator(
+            BasePage.ByLocator.ID, "com.loginmodule.learning:id/textInputEditTextEmail",
+            CompiledLocator.Strategy.ID, "com.loginmodule.learning:id/textInputEditTextEmail",
+            CompiledLocator.predicates("resource-id", "com.loginmodule.learning:id/textInputEditTextEmail"), 0L));
+
+    /** Input {@code password}, found by ID. */
+    public static final CompiledLocator PASSWORD = LocatorCompiler.register(new CompiledLocator(
+            BasePage.ByLocator.ID, "com.loginmodule.learning:id/textInputEditTextPassword",
+            CompiledLocator.Strategy.ID, "com.loginmodule.learning:id/textInputEditTextPassword",
+            CompiledLocator.predicates("resource-id", "com.loginmodule.learning:id/textInputEditTextPassword"), 0L));
+
+    /** Submit button {@code loginButton}, found by ID. */
+    public static final CompiledLocator LOGIN_BUTTON = LocatorCompiler.register(new CompiledLocator(
+            BasePage.ByLocator.ID, "com.loginmodule.learning:id/appCompatButtonLogin",
+            CompiledLocator.Strategy.ID, "com.loginmodule.learning:id/appCompatButtonLogin",
+            CompiledLocator.predicates("resource-id", "com.loginmodule.learning:id/appCompatButtonLogin"), 0L));
+
+    /** Label {@code accountEmail}, found by ID. */
+    public static final CompiledLocator ACCOUNT_EMAIL = LocatorCompiler.register(new CompiledLocator(
+            BasePage.ByLocator.ID, "com.loginmodule.learning:id/textViewEmail",
+            CompiledLocator.Strategy.ID, "com.loginmodule.learning:id/textViewEmail",
+            CompiledLocator.predicates("resource-id", "com.loginmodule.learning:id/textViewEmail"), 0L));
+
+    /** Label {@code errorSnackbar}, found by ID. */
+    public static final CompiledLocator ERROR_SNACKBAR = LocatorCompiler.register(new CompiledLocator(
+            BasePage.ByLocator.ID, "com.loginmodule.learning:id/snackbar_text",
+            CompiledLocator.Strategy.ID, "com.loginmodule.learning:id/snackbar_text",
+            CompiledLocator.predicates("resource-id", "com.loginmodule.learning:id/snackbar_text"), 0L));
+
+    /** Label {@code invalidEmailMessage}, found by UIAUTOMATOR. */
+    public static final CompiledLocator INVALID_EMAIL_MESSAGE = LocatorCompiler.register(new CompiledLocator(
+            BasePage.ByLocator.XPATH, "//android.widget.TextView[@text='Enter Valid Email']",
+            CompiledLocator.Strategy.UIAUTOMATOR, "new UiSelector().className(\"android.widget.TextView\").text(\"Enter Valid Email\")",
+            CompiledLocator.predicates("class", "android.widget.TextView", "text", "Enter Valid Email"), 0L));
+
+    /**
+     * Enters text into the email input.
+     *
+     * @param driver   The {@link AndroidDriver} instance used to interact with the app.
+     * @param keywords The text to be entered.
+     */
+    public void enterEmail(AndroidDriver driver, String keywords) {
+        waitAndThenEnterData(driver, EMAIL, keywords);
+    }
+
+    /**
+     * Enters text into the password input.
+     *
+     * @param driver   The {@link AndroidDriver} instance used to interact with the app.
+     * @param keywords The text to be entered.
+     */
+    public void enterPassword(AndroidDriver driver, String keywords) {
+        waitAndThenEnterData(driver, PASSWORD, keywords);
+    }
+
+    /**
+     * Clicks the loginButton button to submit the form.
+     *
+     * @param driver The {@link AndroidDriver} instance used to interact with the app.
+     */
+    public void clickLoginButton(AndroidDriver driver) {
+        waitAndThenSubmit(driver, LOGIN_BUTTON);
+    }
+
+    /**
+     * Checks if the accountEmail label is present on the screen.
+     *
+     * @param driver The {@link AndroidDriver} instance used to interact with the app.
+     * @return {@code true} if the label is displayed, {@code false} otherwise.
+     */
+    public boolean isAccountEmailShown(AndroidDriver driver) {
+        return validateElementPresent(driver, ACCOUNT_EMAIL);
+    }
+
+    /**
+     * Checks if the errorSnackbar label is present on the screen.
+     *
+     * @param driver The {@link AndroidDriver} instance used to interact with the app.
+     * @return {@code true} if the label is displayed, {@code false} otherwise.
+     */
+    public boolean isErrorSnackbarShown(AndroidDriver driver) {
+        return validateElementPresent(driver, ERROR_SNACKBAR);
+    }
+
+    /**
+     * Checks if the invalidEmailMessage label is present on the screen.
+     *
+     * @param driver The {@link AndroidDriver} instance used to interact with the app.
+     * @return {@code true} if the label is displayed, {@code false} otherwise.
+     */
+    public boolean isInvalidEmailMessageShown(AndroidDriver driver) {
+        return validateElementPresent(driver, INVALID_EMAIL_MESSAGE);
+    }
+}
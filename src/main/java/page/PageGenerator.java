@@ -0,0 +1,367 @@
+package page;
+
+import org.openqa.selenium.json.Json;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * Generates a screen class for every locator catalog, so that page objects use locators that were checked and
+ * compiled at build time instead of string literals compiled on first use.
+ * <p>
+ * A catalog is a JSON file describing the elements one page object works with:
+ * <pre>
+ * {
+ *   "screen": "LOGIN",
+ *   "class": "LoginScreen",
+ *   "elements": [
+ *     {"name": "email", "kind": "input", "id": "com.loginmodule.learning:id/textInputEditTextEmail"},
+ *     {"name": "invalidEmailMessage", "kind": "label", "xpath": "//android.widget.TextView[@text='Enter Valid Email']",
+ *      "timeoutMs": 3000}
+ *   ]
+ * }
+ * </pre>
+ * Each element has exactly one of {@code id}, {@code xpath} and {@code uiselector}, a kind ({@code input},
+ * {@code button}, {@code submit} for a button that submits a form, or {@code label}) and optionally its own wait
+ * budget. The generated class in package {@code page}
+ * extends {@link BasePage} and holds one prebuilt {@link CompiledLocator} constant per element, with the strategy
+ * {@link LocatorCompiler} picks for it already decided, plus a typed method per element: {@code enterX} for
+ * inputs, {@code clickX} for buttons and submit buttons and {@code isXShown} for labels. A submit button's click is
+ * never replayed when {@link StepJournal} recovers a test. Hand-written page objects extend the generated
+ * class and add the behavior a catalog cannot describe.
+ * <p>
+ * Every catalog is checked before anything is written. Malformed locators, unknown kinds, duplicate names and a
+ * locator declared with different wait budgets in two catalogs fail the generator with a non-zero exit status, so they stop the build instead of timing out on a device. Run
+ * {@code PageGenerator <catalog dir> <source dir>} to regenerate, or add {@code --check} to fail if the generated
+ * sources are out of date.
+ */
+public final class PageGenerator {
+
+    /** Java identifiers usable as element and class names. */
+    private static final Pattern IDENTIFIER = Pattern.compile("^[A-Za-z][A-Za-z0-9]*$");
+
+    private final Json json = new Json();
+    private final List<String> errors = new ArrayList<>();
+
+    /** Where each locator was first declared and with which wait budget, keyed by locator type and value. */
+    private final Map<String, String> declared = new HashMap<>();
+    private final Map<String, Long> budgets = new HashMap<>();
+
+    private PageGenerator() {
+    }
+
+    /**
+     * Generates or checks the screen classes.
+     *
+     * @param args The catalog directory, the source root to write {@code page/<class>.java} under and, optionally,
+     *             {@code --check}.
+     * @throws IOException If a catalog cannot be read or a class cannot be written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: PageGenerator <catalog dir> <source dir> [--check]");
+            System.exit(2);
+        }
+        List<String> errors = run(Paths.get(args[0]), Paths.get(args[1]), args.length > 2 && "--check".equals(args[2]));
+        if (!errors.isEmpty()) {
+            for (String error : errors) {
+                System.err.println("error: " + error);
+            }
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Generates or checks the screen classes of every catalog in a directory. Nothing is written unless every
+     * catalog is valid.
+     *
+     * @param catalogs  The directory holding the {@code .json} catalogs.
+     * @param sourceDir The source root to write {@code page/<class>.java} under.
+     * @param check     {@code true} to only report generated sources that are out of date.
+     * @return The errors found; empty if the catalogs are valid and, when checking, the sources are up to date.
+     * @throws IOException If a catalog cannot be read or a class cannot be written.
+     */
+    static List<String> run(Path catalogs, Path sourceDir, boolean check) throws IOException {
+        PageGenerator generator = new PageGenerator();
+        Map<Path, String> sources = generator.generate(catalogs, sourceDir.resolve("page"));
+        for (Map.Entry<Path, String> source : sources.entrySet()) {
+            Path file = source.getKey();
+            boolean current = Files.exists(file)
+                    && new String(Files.readAllBytes(file), StandardCharsets.UTF_8).equals(source.getValue());
+            if (check && !current) {
+                generator.errors.add(file + " is out of date; run PageGenerator");
+            } else if (!check && !current) {
+                Files.createDirectories(file.getParent());
+                Files.write(file, source.getValue().getBytes(StandardCharsets.UTF_8));
+                System.out.println("Generated " + file);
+            }
+        }
+        return generator.errors;
+    }
+
+    /**
+     * Reads and checks every catalog in a directory and generates the source of its screen class.
+     *
+     * @param catalogs  The directory holding the {@code .json} catalogs.
+     * @param outputDir The directory of package {@code page}.
+     * @return The generated sources keyed by the file they belong in; empty if any catalog is invalid.
+     * @throws IOException If a catalog cannot be read.
+     */
+    Map<Path, String> generate(Path catalogs, Path outputDir) throws IOException {
+        Map<Path, String> sources = new TreeMap<>();
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> dir = Files.newDirectoryStream(catalogs, "*.json")) {
+            for (Path file : dir) {
+                files.add(file);
+            }
+        }
+        files.sort(null);
+        Set<String> classes = new HashSet<>();
+        for (Path file : files) {
+            Map<String, Object> catalog;
+            try {
+                catalog = json.toType(new String(Files.readAllBytes(file), StandardCharsets.UTF_8), Json.MAP_TYPE);
+            } catch (RuntimeException e) {
+                errors.add(file.getFileName() + ": not valid JSON: " + e.getMessage());
+                continue;
+            }
+            String source = generate(file.getFileName().toString(), catalog);
+            if (source != null) {
+                String name = (String) catalog.get("class");
+                if (!classes.add(name)) {
+                    errors.add(file.getFileName() + ": class " + name + " is generated by another catalog too");
+                }
+                sources.put(outputDir.resolve(name + ".java"), source);
+            }
+        }
+        if (files.isEmpty()) {
+            errors.add("no catalogs in " + catalogs);
+        }
+        return errors.isEmpty() ? sources : new TreeMap<>();
+    }
+
+    /**
+     * Checks one catalog and generates its screen class.
+     *
+     * @return The source, or {@code null} if the catalog is invalid.
+     */
+    private String generate(String file, Map<String, Object> catalog) {
+        int errorsBefore = errors.size();
+        Object className = catalog.get("class");
+        Object screen = catalog.get("screen");
+        Object elements = catalog.get("elements");
+        if (!(className instanceof String) || !IDENTIFIER.matcher((String) className).matches()) {
+            errors.add(file + ": \"class\" must be a Java class name");
+        }
+        if (!(screen instanceof String)) {
+            errors.add(file + ": \"screen\" must name the screen the elements are on");
+        }
+        if (!(elements instanceof List) || ((List<?>) elements).isEmpty()) {
+            errors.add(file + ": \"elements\" must be a non-empty list");
+            return null;
+        }
+
+        StringBuilder constants = new StringBuilder();
+        StringBuilder methods = new StringBuilder();
+        Set<String> names = new HashSet<>();
+        for (Object item : (List<?>) elements) {
+            if (!(item instanceof Map)) {
+                errors.add(file + ": every element must be an object");
+                continue;
+            }
+            element(file, (Map<?, ?>) item, names, constants, methods);
+        }
+        if (errors.size() > errorsBefore) {
+            return null;
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("package page;\n\n");
+        sb.append("import io.appium.java_client.android.AndroidDriver;\n\n");
+        sb.append("/**\n");
+        sb.append(" * Elements of the ").append(screen).append(" screen, generated by {@link PageGenerator} from ")
+                .append(file).append(".\n");
+        sb.append(" * Do not edit: change the catalog and run the generator again.\n");
+        sb.append(" */\n");
+        sb.append("public class ").append(className).append(" extends BasePage {\n");
+        sb.append(constants);
+        sb.append(methods);
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    /**
+     * Checks one element and appends its constant and typed method.
+     */
+    private void element(String file, Map<?, ?> element, Set<String> names, StringBuilder constants,
+                         StringBuilder methods) {
+        Object name = element.get("name");
+        if (!(name instanceof String) || !IDENTIFIER.matcher((String) name).matches()) {
+            errors.add(file + ": element name " + name + " is not a Java identifier");
+            return;
+        }
+        String where = file + ": " + name;
+        if (!names.add((String) name)) {
+            errors.add(where + " is defined twice");
+            return;
+        }
+        BasePage.ByLocator loc = null;
+        String locator = null;
+        for (BasePage.ByLocator type : BasePage.ByLocator.values()) {
+            Object value = element.get(type.name().toLowerCase(Locale.ROOT));
+            if (value == null) {
+                continue;
+            }
+            if (loc != null) {
+                errors.add(where + " has more than one locator");
+                return;
+            }
+            loc = type;
+            locator = String.valueOf(value);
+        }
+        if (loc == null) {
+            errors.add(where + " has no id, xpath or uiselector");
+            return;
+        }
+        String invalid = LocatorCompiler.validate(loc, locator);
+        if (invalid != null) {
+            errors.add(where + ": " + invalid);
+            return;
+        }
+        long timeoutMs = 0;
+        Object timeout = element.get("timeoutMs");
+        if (timeout != null) {
+            if (!(timeout instanceof Number) || ((Number) timeout).longValue() <= 0) {
+                errors.add(where + ": timeoutMs must be a positive number of milliseconds");
+                return;
+            }
+            timeoutMs = ((Number) timeout).longValue();
+        }
+        String kind = String.valueOf(element.get("kind"));
+        if (!"input".equals(kind) && !"button".equals(kind) && !"submit".equals(kind) && !"label".equals(kind)) {
+            errors.add(where + ": kind must be input, button, submit or label, not " + kind);
+            return;
+        }
+        // Screen classes share one constant per locator, so every catalog must agree on its wait budget.
+        String key = loc + "\u0000" + locator;
+        Long budget = budgets.putIfAbsent(key, timeoutMs);
+        if (budget == null) {
+            declared.put(key, where);
+        } else if (budget != timeoutMs) {
+            errors.add(where + ": timeoutMs " + timeoutMs + " differs from " + budget + " declared for the same "
+                    + "locator by " + declared.get(key));
+            return;
+        }
+
+        CompiledLocator compiled = LocatorCompiler.compile(loc, locator);
+        if (compiled.getStrategy() == CompiledLocator.Strategy.XPATH) {
+            System.out.println("warning: " + where + " is looked up by XPath, which dumps the whole view hierarchy");
+        }
+        String constant = constant((String) name);
+        constants.append("\n");
+        constants.append("    /** ").append("submit".equals(kind) ? "Submit button" : capitalize(kind)).append(" {@code ").append(name).append("}, found by ")
+                .append(compiled.getStrategy()).append(timeoutMs > 0 ? " within " + timeoutMs + " ms" : "")
+                .append(". */\n");
+        constants.append("    public static final CompiledLocator ").append(constant)
+                .append(" = LocatorCompiler.register(new CompiledLocator(\n");
+        constants.append("            BasePage.ByLocator.").append(loc).append(", ").append(literal(locator)).append(",\n");
+        constants.append("            CompiledLocator.Strategy.").append(compiled.getStrategy()).append(", ")
+                .append(literal(compiled.getQuery())).append(",\n");
+        constants.append("            ").append(predicates(compiled.getPredicates())).append(", ")
+                .append(timeoutMs).append("L));\n");
+
+        String method = capitalize((String) name);
+        methods.append("\n");
+        switch (kind) {
+            case "input":
+                methods.append("    /**\n");
+                methods.append("     * Enters text into the ").append(name).append(" input.\n");
+                methods.append("     *\n");
+                methods.append("     * @param driver   The {@link AndroidDriver} instance used to interact with the app.\n");
+                methods.append("     * @param keywords The text to be entered.\n");
+                methods.append("     */\n");
+                methods.append("    public void enter").append(method).append("(AndroidDriver driver, String keywords) {\n");
+                methods.append("        waitAndThenEnterData(driver, ").append(constant).append(", keywords);\n");
+                methods.append("    }\n");
+                break;
+            case "button":
+            case "submit":
+                boolean submit = "submit".equals(kind);
+                methods.append("    /**\n");
+                methods.append("     * Clicks the ").append(name).append(submit ? " button to submit the form.\n" : " button.\n");
+                methods.append("     *\n");
+                methods.append("     * @param driver The {@link AndroidDriver} instance used to interact with the app.\n");
+                methods.append("     */\n");
+                methods.append("    public void click").append(method).append("(AndroidDriver driver) {\n");
+                methods.append("        ").append(submit ? "waitAndThenSubmit" : "waitAndThenClick").append("(driver, ")
+                        .append(constant).append(");\n");
+                methods.append("    }\n");
+                break;
+            default:
+                methods.append("    /**\n");
+                methods.append("     * Checks if the ").append(name).append(" label is present on the screen.\n");
+                methods.append("     *\n");
+                methods.append("     * @param driver The {@link AndroidDriver} instance used to interact with the app.\n");
+                methods.append("     * @return {@code true} if the label is displayed, {@code false} otherwise.\n");
+                methods.append("     */\n");
+                methods.append("    public boolean is").append(method).append("Shown(AndroidDriver driver) {\n");
+                methods.append("        return validateElementPresent(driver, ").append(constant).append(");\n");
+                methods.append("    }\n");
+        }
+    }
+
+    private static String predicates(Map<String, String> predicates) {
+        if (predicates == null) {
+            return "null";
+        }
+        StringBuilder sb = new StringBuilder("CompiledLocator.predicates(");
+        boolean first = true;
+        for (Map.Entry<String, String> predicate : predicates.entrySet()) {
+            sb.append(first ? "" : ", ").append(literal(predicate.getKey())).append(", ")
+                    .append(literal(predicate.getValue()));
+            first = false;
+        }
+        return sb.append(")").toString();
+    }
+
+    /**
+     * Turns {@code invalidEmailMessage} into {@code INVALID_EMAIL_MESSAGE}.
+     */
+    private static String constant(String name) {
+        return name.replaceAll("([a-z0-9])([A-Z])", "$1_$2").toUpperCase(Locale.ROOT);
+    }
+
+    private static String capitalize(String name) {
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    /**
+     * Writes a string as a Java string literal.
+     */
+    private static String literal(String value) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20 || c > 0x7e) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
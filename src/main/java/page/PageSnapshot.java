@@ -0,0 +1,211 @@
+package page;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable, compact copy of a screen's view hierarchy, parsed from UiAutomator2's page source.
+ * Nodes are kept in document order with indexes by resource id and text, so locators whose predicates
+ * {@link LocatorCompiler} understood can be evaluated locally without another round trip to the device.
+ */
+public final class PageSnapshot {
+
+    /** Nodes in document order. */
+    private final List<Node> nodes;
+
+    /** Nodes keyed by resource id. */
+    private final Map<String, List<Node>> byId = new HashMap<>();
+
+    /** Nodes keyed by text. */
+    private final Map<String, List<Node>> byText = new HashMap<>();
+
+    private PageSnapshot(List<Node> nodes) {
+        this.nodes = nodes;
+        for (Node node : nodes) {
+            if (!node.resourceId.isEmpty()) {
+                byId.computeIfAbsent(node.resourceId, k -> new ArrayList<>(1)).add(node);
+            }
+            if (!node.text.isEmpty()) {
+                byText.computeIfAbsent(node.text, k -> new ArrayList<>(1)).add(node);
+            }
+        }
+    }
+
+    /**
+     * Parses a UiAutomator2 page source.
+     *
+     * @param pageSource The XML returned by {@code getPageSource()}.
+     * @return The snapshot.
+     * @throws IllegalArgumentException If the page source is not well-formed XML.
+     */
+    public static PageSnapshot parse(String pageSource) {
+        List<Node> nodes = new ArrayList<>();
+        try {
+            SAXParser parser = SAXParserFactory.newInstance().newSAXParser();
+            parser.parse(new InputSource(new StringReader(pageSource)), new DefaultHandler() {
+                private int depth;
+
+                @Override
+                public void startElement(String uri, String localName, String qName, Attributes attributes) {
+                    if (!"hierarchy".equals(qName)) {
+                        String className = attributes.getValue("class");
+                        nodes.add(new Node(depth,
+                                className != null ? className : qName,
+                                valueOf(attributes, "resource-id"),
+                                valueOf(attributes, "text"),
+                                valueOf(attributes, "content-desc"),
+                                !"false".equals(attributes.getValue("displayed"))));
+                    }
+                    depth++;
+                }
+
+                @Override
+                public void endElement(String uri, String localName, String qName) {
+                    depth--;
+                }
+            });
+        } catch (ParserConfigurationException | SAXException | IOException e) {
+            throw new IllegalArgumentException("Unreadable page source", e);
+        }
+        return new PageSnapshot(Collections.unmodifiableList(nodes));
+    }
+
+    /**
+     * @return All nodes in document order.
+     */
+    public List<Node> nodes() {
+        return nodes;
+    }
+
+    /**
+     * Evaluates a compiled locator against this snapshot.
+     *
+     * @param compiled The locator to evaluate.
+     * @return The displayed matching nodes in document order, or {@code null} if the locator's predicates are
+     *         unknown and it can only be evaluated on the device.
+     */
+    public List<Node> find(CompiledLocator compiled) {
+        Map<String, String> predicates = compiled.getPredicates();
+        if (predicates == null) {
+            return null;
+        }
+        List<Node> candidates = nodes;
+        String id = predicates.get("resource-id");
+        String text = predicates.get("text");
+        if (id != null && id.contains(":id/")) {
+            candidates = byId.getOrDefault(id, Collections.<Node>emptyList());
+        } else if (text != null) {
+            candidates = byText.getOrDefault(text, Collections.<Node>emptyList());
+        }
+        List<Node> found = new ArrayList<>();
+        for (Node node : candidates) {
+            if (node.displayed && node.matches(predicates)) {
+                found.add(node);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * A single view of the snapshot.
+     */
+    public static final class Node {
+        private final int depth;
+        private final String className;
+        private final String resourceId;
+        private final String text;
+        private final String contentDesc;
+        private final boolean displayed;
+
+        private Node(int depth, String className, String resourceId, String text, String contentDesc, boolean displayed) {
+            this.depth = depth;
+            this.className = className;
+            this.resourceId = resourceId;
+            this.text = text;
+            this.contentDesc = contentDesc;
+            this.displayed = displayed;
+        }
+
+        public int getDepth() {
+            return depth;
+        }
+
+        public String getClassName() {
+            return className;
+        }
+
+        public String getResourceId() {
+            return resourceId;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public String getContentDesc() {
+            return contentDesc;
+        }
+
+        public boolean isDisplayed() {
+            return displayed;
+        }
+
+        /**
+         * Checks the node against attribute predicates; keys ending in {@code ~} are contains-matches.
+         * A resource id without a package matches any package, as Appium's id lookup does.
+         */
+        private boolean matches(Map<String, String> predicates) {
+            for (Map.Entry<String, String> p : predicates.entrySet()) {
+                String key = p.getKey();
+                boolean contains = key.endsWith("~");
+                String actual = attribute(contains ? key.substring(0, key.length() - 1) : key);
+                String expected = p.getValue();
+                boolean ok;
+                if (contains) {
+                    ok = actual.contains(expected);
+                } else if ("resource-id".equals(key) && !expected.contains(":id/")) {
+                    ok = actual.endsWith(":id/" + expected);
+                } else {
+                    ok = actual.equals(expected);
+                }
+                if (!ok) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private String attribute(String name) {
+            switch (name) {
+                case "resource-id":
+                    return resourceId;
+                case "text":
+                    return text;
+                case "class":
+                    return className;
+                case "content-desc":
+                    return contentDesc;
+                default:
+                    return "";
+            }
+        }
+    }
+
+    private static String valueOf(Attributes attributes, String name) {
+        String value = attributes.getValue(name);
+        return value == null ? "" : value;
+    }
+}
@@ -2,14 +2,57 @@ package page;
 
 import io.appium.java_client.android.AndroidDriver;
 
+import java.util.LinkedHashMap;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Represents the registration page of the application and provides methods to interact with registration-related UI elements.
- * This class extends from {@link BasePage} and includes methods to perform actions on the registration page, such as
- * entering personal details, clicking buttons, and validating error messages.
+ * This class extends {@link RegisterScreen}, generated from the registration locator catalog, and includes methods to
+ * perform actions on the registration page, such as entering personal details, clicking buttons, and validating
+ * error messages.
  *
  * @author Kent Van Lim
  */
-public class RegisterPage extends BasePage {
+public class RegisterPage extends RegisterScreen {
+
+    /**
+     * The messages the app can show after the register button is clicked.
+     */
+    public enum RegisterResult implements Outcome {
+        /** The account was created. */
+        SUCCESS(RegisterScreen.SUCCESS_MESSAGE),
+        /** An account with the email already exists. */
+        EMAIL_EXISTS(RegisterScreen.EMAIL_EXISTS_MESSAGE),
+        /** The confirmation password differs from the password. */
+        PASSWORD_MISMATCH(RegisterScreen.PASSWORD_MISMATCH_MESSAGE),
+        /** The email is malformed. */
+        INVALID_EMAIL(RegisterScreen.INVALID_EMAIL_MESSAGE),
+        /** The name field was left blank. */
+        BLANK_NAME(RegisterScreen.BLANK_NAME_MESSAGE),
+        /** None of the above appeared in time. */
+        NONE(null);
+
+        private final CompiledLocator compiled;
+
+        RegisterResult(CompiledLocator compiled) {
+            this.compiled = compiled;
+        }
+
+        @Override
+        public ByLocator getLocatorType() {
+            return compiled == null ? null : compiled.getSource();
+        }
+
+        @Override
+        public String getLocator() {
+            return compiled == null ? null : compiled.getLocator();
+        }
+
+        @Override
+        public CompiledLocator getCompiledLocator() {
+            return compiled;
+        }
+    }
 
     /**
      * Clicks the register link on the registration page.
@@ -17,8 +60,19 @@ public class RegisterPage extends BasePage {
      * @param driver The {@link AndroidDriver} instance used to interact with the app.
      */
     public void clickRegister(AndroidDriver driver) {
-        waitAndThenClick(driver, BasePage.ByLocator.ID,
-                "com.loginmodule.learning:id/textViewLinkRegister");
+        clickRegisterLink(driver);
+        StepJournal.checkpoint("REGISTER");
+    }
+
+    /**
+     * Clicks the login link on the registration page to return to the login page.
+     *
+     * @param driver The {@link AndroidDriver} instance used to interact with the app.
+     */
+    @Override
+    public void clickLoginLink(AndroidDriver driver) {
+        super.clickLoginLink(driver);
+        StepJournal.checkpoint("LOGIN");
     }
 
     /**
@@ -28,8 +82,7 @@ public class RegisterPage extends BasePage {
      * @param name   The name to be entered.
      */
     public void inputName(AndroidDriver driver, String name) {
-        waitAndThenEnterData(driver, BasePage.ByLocator.ID,
-                "com.loginmodule.learning:id/textInputEditTextName", name);
+        enterName(driver, name);
     }
 
     /**
@@ -39,8 +92,7 @@ public class RegisterPage extends BasePage {
      * @param email  The email address to be entered.
      */
     public void inputEmail(AndroidDriver driver, String email) {
-        waitAndThenEnterData(driver, BasePage.ByLocator.ID,
-                "com.loginmodule.learning:id/textInputEditTextEmail", email);
+        enterEmail(driver, email);
     }
 
     /**
@@ -62,8 +114,7 @@ public class RegisterPage extends BasePage {
      * @return {@code true} if the login button is present, {@code false} otherwise.
      */
     public Boolean validateLoginButtonAfterRegister(AndroidDriver driver) {
-        return validateElementPresent(driver, BasePage.ByLocator.ID,
-                "com.loginmodule.learning:id/appCompatButtonLogin");
+        return isLoginButtonShown(driver);
     }
 
     /**
@@ -73,8 +124,7 @@ public class RegisterPage extends BasePage {
      * @param password The password to be entered.
      */
     public void inputPassword(AndroidDriver driver, String password) {
-        waitAndThenEnterData(driver, BasePage.ByLocator.ID,
-                "com.loginmodule.learning:id/textInputEditTextPassword", password);
+        enterPassword(driver, password);
     }
 
     /**
@@ -84,8 +134,51 @@ public class RegisterPage extends BasePage {
      * @param reinputPassword   The password to be confirmed.
      */
     public void reinputPassword(AndroidDriver driver, String reinputPassword) {
-        waitAndThenEnterData(driver, BasePage.ByLocator.ID,
-                "com.loginmodule.learning:id/textInputEditTextConfirmPassword", reinputPassword);
+        enterConfirmPassword(driver, reinputPassword);
+    }
+
+    /**
+     * Fills the whole registration form in a single batched form fill and optionally clicks the register button.
+     *
+     * @param driver          The {@link AndroidDriver} instance used to interact with the app.
+     * @param name            The name to be entered.
+     * @param email           The email address to be entered.
+     * @param password        The password to be entered.
+     * @param reinputPassword The password to be confirmed.
+     * @param submit          Whether to click the register button afterwards.
+     * @return How many round trips the fill made and how much time it saved.
+     */
+    public FormFillReport fillRegistration(AndroidDriver driver, String name, String email, String password,
+                                           String reinputPassword, boolean submit) {
+        LinkedHashMap<String, String> fields = new LinkedHashMap<>();
+        fields.put(NAME.getQuery(), name);
+        fields.put(EMAIL.getQuery(), email);
+        fields.put(PASSWORD.getQuery(), password);
+        fields.put(CONFIRM_PASSWORD.getQuery(), reinputPassword);
+        return fillForm(driver, fields, submit ? REGISTER_BUTTON.getQuery() : null);
+    }
+
+    /**
+     * Asynchronous registration: opens the registration page, fills and submits the form, then waits for the result.
+     * Each step is ordered after the one before it and after every command already submitted to the session.
+     *
+     * @param session         The session to send the commands to.
+     * @param name            The name to be entered.
+     * @param email           The email address to be entered.
+     * @param password        The password to be entered.
+     * @param reinputPassword The password to be confirmed.
+     * @return The result that appeared first, or {@link RegisterResult#NONE} if none appeared in time; fails if the
+     *         registration page could not be opened or the form could not be filled and submitted.
+     */
+    public CompletableFuture<RegisterResult> registerAsync(AsyncSession session, String name, String email,
+                                                           String password, String reinputPassword) {
+        CompletableFuture<Void> opened = session.act(d -> {
+            clickRegister(d);
+            return null;
+        });
+        return opened.thenCombine(session.submitForm(
+                d -> fillRegistration(d, name, email, password, reinputPassword, true),
+                RegisterResult.class, RegisterResult.NONE), (ignored, result) -> result);
     }
 
     /**
@@ -94,8 +187,7 @@ public class RegisterPage extends BasePage {
      * @param driver The {@link AndroidDriver} instance used to interact with the app.
      */
     public void clickButtonRegister(AndroidDriver driver) {
-        waitAndThenClick(driver, BasePage.ByLocator.XPATH,
-                "//android.widget.Button[@resource-id='com.loginmodule.learning:id/appCompatButtonRegister']");
+        clickRegisterButton(driver);
     }
 
     /**
@@ -105,7 +197,16 @@ public class RegisterPage extends BasePage {
      * @return {@code true} if the invalid email error message is present, {@code false} otherwise.
      */
     public Boolean validateErrorInvalidEmail(AndroidDriver driver) {
-        return validateElementPresent(driver, BasePage.ByLocator.UISELECTOR,
-                ".text(\"Enter Valid Email\")");
+        return isInvalidEmailMessageShown(driver);
+    }
+
+    /**
+     * Waits for the first result message to appear after clicking the register button.
+     *
+     * @param driver The {@link AndroidDriver} instance used to interact with the app.
+     * @return The result that appeared first, or {@link RegisterResult#NONE} if none appeared in time.
+     */
+    public RegisterResult getRegisterResult(AndroidDriver driver) {
+        return waitForFirstOutcome(driver, RegisterResult.class, RegisterResult.NONE);
     }
 }
@@ -0,0 +1,215 @@
+package page;
+
+import io.appium.java_client.android.AndroidDriver;
+
+/**
+ * Elements of the REGISTER screen, generated by {@link PageGenerator} from register.json.
+ * Do not edit: change the catalog and run the generator again.
+ */
+public class RegisterScreen extends BasePage {
+
+    /** Button {@code registerLink}, found by ID. */
+    public static final CompiledLocator REGISTER_LINK = LocatorCompiler.register(new CompiledLocator(
+            BasePage.ByLocator.ID, "com.loginmodule.learning:id/textViewLinkRegister",
+            CompiledLocator.Strategy.ID, "com.loginmodule.learning:id/textViewLinkRegister",
+            CompiledLocator.predicates("resource-id", "com.loginmodule.learning:id/textViewLinkRegister"), 0L));
+
+    /** Input {@code name}, found by ID. */
+    public static final CompiledLocator NAME = LocatorCompiler.register(new CompiledLocator(
+            BasePage.ByLocator.ID, "com.loginmodule.learning:id/textInputEditTextName",
+            CompiledLocator.Strategy.ID, "com.loginmodule.learning:id/textInputEditTextName",
+            CompiledLocator.predicates("resource-id", "com.loginmodule.learning:id/textInputEditTextName"), 0L));
+
+    /** Input {@code email}, found by ID. */
+    public static final CompiledLocator EMAIL = LocatorCompiler.register(new CompiledLocator(
+            BasePage.ByLocator.ID, "com.loginmodule.learning:id/textInputEditTextEmail",
+            CompiledLocator.Strategy.ID, "com.loginmodule.learning:id/textInputEditTextEmail",
+            CompiledLocator.predicates("resource-id", "com.loginmodule.learning:id/textInputEditTextEmail"), 0L));
+
+    /** Input {@code password}, found by ID. */
+    public static final CompiledLocator PASSWORD = LocatorCompiler.register(new CompiledLocator(
+            BasePage.ByLocator.ID, "com.loginmodule.learning:id/textInputEditTextPassword",
+            CompiledLocator.Strategy.ID, "com.loginmodule.learning:id/textInputEditTextPassword",
+            CompiledLocator.predicates("resource-id", "com.loginmodule.learning:id/textInputEditTextPassword"), 0L));
+
+    /** Input {@code confirmPassword}, found by ID. */
+    public static final CompiledLocator CONFIRM_PASSWORD = LocatorCompiler.register(new CompiledLocator(
+            BasePage.ByLocator.ID, "com.loginmodule.learning:id/textInputEditTextConfirmPassword",
+            CompiledLocator.Strategy.ID, "com.loginmodule.learning:id/textInputEditTextConfirmPassword",
+            CompiledLocator.predicates("resource-id", "com.loginmodule.learning:id/textInputEditTextConfirmPassword"), 0L));
+
+    /** Submit button {@code registerButton}, found by ID. */
+    public static final CompiledLocator REGISTER_BUTTON = LocatorCompiler.register(new CompiledLocator(
+            BasePage.ByLocator.XPATH, "//android.widget.Button[@resource-id='com.loginmodule.learning:id/appCompatButtonRegister']",
+            CompiledLocator.Strategy.ID, "com.loginmodule.learning:id/appCompatButtonRegister",
+            CompiledLocator.predicates("resource-id", "com.loginmodule.learning:id/appCompatButtonRegister"), 0L));
+
+    /** Button {@code loginLink}, found by ID. */
+    public static final CompiledLocator LOGIN_LINK = LocatorCompiler.register(new CompiledLocator(
+            BasePage.ByLocator.ID, "com.loginmodule.learning:id/appCompatTextViewLoginLink",
+            CompiledLocator.Strategy.ID, "com.loginmodule.learning:id/appCompatTextViewLoginLink",
+            CompiledLocator.predicates("resource-id", "com.loginmodule.learning:id/appCompatTextViewLoginLink"), 0L));
+
+    /** Label {@code loginButton}, found by ID. */
+    public static final CompiledLocator LOGIN_BUTTON = LocatorCompiler.register(new CompiledLocator(
+            BasePage.ByLocator.ID, "com.loginmodule.learning:id/appCompatButtonLogin",
+            CompiledLocator.Strategy.ID, "com.loginmodule.learning:id/appCompatButtonLogin",
+            CompiledLocator.predicates("resource-id", "com.loginmodule.learning:id/appCompatButtonLogin"), 0L));
+
+    /** Label {@code successMessage}, found by UIAUTOMATOR. */
+    public static final CompiledLocator SUCCESS_MESSAGE = LocatorCompiler.register(new CompiledLocator(
+            BasePage.ByLocator.XPATH, "//android.widget.TextView[@text='Registration Successful']",
+            CompiledLocator.Strategy.UIAUTOMATOR, "new UiSelector().className(\"android.widget.TextView\").text(\"Registration Successful\")",
+            CompiledLocator.predicates("class", "android.widget.TextView", "text", "Registration Successful"), 0L));
+
+    /** Label {@code emailExistsMessage}, found by UIAUTOMATOR. */
+    public static final CompiledLocator EMAIL_EXISTS_MESSAGE = LocatorCompiler.register(new CompiledLocator(
+            BasePage.ByLocator.XPATH, "//android.widget.TextView[@text='Email Already Exists']",
+            CompiledLocator.Strategy.UIAUTOMATOR, "new UiSelector().className(\"android.widget.TextView\").text(\"Email Already Exists\")",
+            CompiledLocator.predicates("class", "android.widget.TextView", "text", "Email Already Exists"), 0L));
+
+    /** Label {@code passwordMismatchMessage}, found by UIAUTOMATOR. */
+    public static final CompiledLocator PASSWORD_MISMATCH_MESSAGE = LocatorCompiler.register(new CompiledLocator(
+            BasePage.ByLocator.XPATH, "//android.widget.TextView[@text='Password Does Not Matches']",
+            CompiledLocator.Strategy.UIAUTOMATOR, "new UiSelector().className(\"android.widget.TextView\").text(\"Password Does Not Matches\")",
+            CompiledLocator.predicates("class", "android.widget.TextView", "text", "Password Does Not Matches"), 0L));
+
+    /** Label {@code invalidEmailMessage}, found by UIAUTOMATOR. */
+    public static final CompiledLocator INVALID_EMAIL_MESSAGE = LocatorCompiler.register(new CompiledLocator(
+            BasePage.ByLocator.UISELECTOR, ".text(\"Enter Valid Email\")",
+            CompiledLocator.Strategy.UIAUTOMATOR, "new UiSelector().text(\"Enter Valid Email\")",
+            CompiledLocator.predicates("text", "Enter Valid Email"), 0L));
+
+    /** Label {@code blankNameMessage}, found by UIAUTOMATOR. */
+    public static final CompiledLocator BLANK_NAME_MESSAGE = LocatorCompiler.register(new CompiledLocator(
+            BasePage.ByLocator.XPATH, "//android.widget.TextView[@text='Enter Full Name']",
+            CompiledLocator.Strategy.UIAUTOMATOR, "new UiSelector().className(\"android.widget.TextView\").text(\"Enter Full Name\")",
+            CompiledLocator.predicates("class", "android.widget.TextView", "text", "Enter Full Name"), 0L));
+
+    /**
+     * Clicks the registerLink button.
+     *
+     * @param driver The {@link AndroidDriver} instance used to interact with the app.
+     */
+    public void clickRegisterLink(AndroidDriver driver) {
+        waitAndThenClick(driver, REGISTER_LINK);
+    }
+
+    /**
+     * Enters text into the name input.
+     *
+     * @param driver   The {@link AndroidDriver} instance used to interact with the app.
+     * @param keywords The text to be entered.
+     */
+    public void enterName(AndroidDriver driver, String keywords) {
+        waitAndThenEnterData(driver, NAME, keywords);
+    }
+
+    /**
+     * Enters text into the email input.
+     *
+     * @param driver   The {@link AndroidDriver} instance used to interact with the app.
+     * @param keywords The text to be entered.
+     */
+    public void enterEmail(AndroidDriver driver, String keywords) {
+        waitAndThenEnterData(driver, EMAIL, keywords);
+    }
+
+    /**
+     * Enters text into the password input.
+     *
+     * @param driver   The {@link AndroidDriver} instance used to interact with the app.
+     * @param keywords The text to be entered.
+     */
+    public void enterPassword(AndroidDriver driver, String keywords) {
+        waitAndThenEnterData(driver, PASSWORD, keywords);
+    }
+
+    /**
+     * Enters text into the confirmPassword input.
+     *
+     * @param driver   The {@link AndroidDriver} instance used to interact with the app.
+     * @param keywords The text to be entered.
+     */
+    public void enterConfirmPassword(AndroidDriver driver, String keywords) {
+        waitAndThenEnterData(driver, CONFIRM_PASSWORD, keywords);
+    }
+
+    /**
+     * Clicks the registerButton button to submit the form.
+     *
+     * @param driver The {@link AndroidDriver} instance used to interact with the app.
+     */
+    public void clickRegisterButton(AndroidDriver driver) {
+        waitAndThenSubmit(driver, REGISTER_BUTTON);
+    }
+
+    /**
+     * Clicks the loginLink button.
+     *
+     * @param driver The {@link AndroidDriver} instance used to interact with the app.
+     */
+    public void clickLoginLink(AndroidDriver driver) {
+        waitAndThenClick(driver, LOGIN_LINK);
+    }
+
+    /**
+     * Checks if the loginButton label is present on the screen.
+     *
+     * @param driver The {@link AndroidDriver} instance used to interact with the app.
+     * @return {@code true} if the label is displayed, {@code false} otherwise.
+     */
+    public boolean isLoginButtonShown(AndroidDriver driver) {
+        return validateElementPresent(driver, LOGIN_BUTTON);
+    }
+
+    /**
+     * Checks if the successMessage label is present on the screen.
+     *
+     * @param driver The {@link AndroidDriver} instance used to interact with the app.
+     * @return {@code true} if the label is displayed, {@code false} otherwise.
+     */
+    public boolean isSuccessMessageShown(AndroidDriver driver) {
+        return validateElementPresent(driver, SUCCESS_MESSAGE);
+    }
+
+    /**
+     * Checks if the emailExistsMessage label is present on the screen.
+     *
+     * @param driver The {@link AndroidDriver} instance used to interact with the app.
+     * @return {@code true} if the label is displayed, {@code false} otherwise.
+     */
+    public boolean isEmailExistsMessageShown(AndroidDriver driver) {
+        return validateElementPresent(driver, EMAIL_EXISTS_MESSAGE);
+    }
+
+    /**
+     * Checks if the passwordMismatchMessage label is present on the screen.
+     *
+     * @param driver The {@link AndroidDriver} instance used to interact with the app.
+     * @return {@code true} if the label is displayed, {@code false} otherwise.
+     */
+    public boolean isPasswordMismatchMessageShown(AndroidDriver driver) {
+        return validateElementPresent(driver, PASSWORD_MISMATCH_MESSAGE);
+    }
+
+    /**
+     * Checks if the invalidEmailMessage label is present on the screen.
+     *
+     * @param driver The {@link AndroidDriver} instance used to interact with the app.
+     * @return {@code true} if the label is displayed, {@code false} otherwise.
+     */
+    public boolean isInvalidEmailMessageShown(AndroidDriver driver) {
+        return validateElementPresent(driver, INVALID_EMAIL_MESSAGE);
+    }
+
+    /**
+     * Checks if the blankNameMessage label is present on the screen.
+     *
+     * @param driver The {@link AndroidDriver} instance used to interact with the app.
+     * @return {@code true} if the label is displayed, {@code false} otherwise.
+     */
+    public boolean isBlankNameMessageShown(AndroidDriver driver) {
+        return validateElementPresent(driver, BLANK_NAME_MESSAGE);
+    }
+}
@@ -0,0 +1,340 @@
+package page;
+
+import io.github.cdimascio.dotenv.Dotenv;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tells which screen the app shows from a cheap structural fingerprint of its view hierarchy, so that a screen
+ * transition can be confirmed with one check instead of waiting for a particular element.
+ * <p>
+ * A screen's fingerprint is a 64-bit hash of the resource ids of its displayed views. Texts are left out, so a
+ * screen keeps its fingerprint whatever was typed into it. The catalog maps fingerprints to screen names, i.e. the
+ * names of the {@code setup.AppScreen} constants. A hierarchy is identified in three ways, tried in order:
+ * <ol>
+ *     <li>its fingerprint is in the catalog;</li>
+ *     <li>it shows the marker element of exactly one screen;</li>
+ *     <li>its resource ids are at least SCREEN_MATCH_THRESHOLD similar (Jaccard) to a fingerprint in the catalog,
+ *     e.g. the same screen with a message shown.</li>
+ * </ol>
+ * A hierarchy identified by a marker is added to the catalog as another variant of its screen, so the next run
+ * identifies it from the fingerprint alone. A similarity match is not added by {@link #identify}, so that a wrong guess
+ * does not become an exact match for good; once a wait has accepted it, {@link #learn} adds it if the screen's marker
+ * is in the hierarchy, e.g. hidden behind the soft keyboard. The catalog keeps at most SCREEN_MAX_VARIANTS variants
+ * per screen and is kept in SCREEN_CATALOG_FILE between runs. Set SCREEN_CATALOG=false to turn identification off.
+ */
+public final class ScreenCatalog {
+
+    /** Environment holding the catalog settings; the .env file is optional here. */
+    private static final Dotenv ENV = Dotenv.configure().ignoreIfMissing().load();
+
+    /** Whether screens are identified at all. */
+    private static final boolean ENABLED = Boolean.parseBoolean(ENV.get("SCREEN_CATALOG", "true"));
+
+    /** Lowest similarity at which a hierarchy counts as a variant of a known screen. */
+    private static final double THRESHOLD = Double.parseDouble(ENV.get("SCREEN_MATCH_THRESHOLD", "0.7"));
+
+    /** Most fingerprints kept per screen. */
+    private static final int MAX_VARIANTS = Integer.parseInt(ENV.get("SCREEN_MAX_VARIANTS", "8"));
+
+    /** File the catalog is kept in. */
+    private static final Path CATALOG_FILE = Paths.get(ENV.get("SCREEN_CATALOG_FILE", "build/screen-catalog.properties"));
+
+    /** Known variants keyed by fingerprint. */
+    private static final Map<Long, Variant> CATALOG = loadCatalog();
+
+    /** Screen names keyed by the resource id of an element only that screen shows. */
+    private static final Map<String, String> MARKERS = new ConcurrentHashMap<>();
+
+    private static final LongAdder EXACT = new LongAdder();
+    private static final LongAdder BY_MARKER = new LongAdder();
+    private static final LongAdder SIMILAR = new LongAdder();
+    private static final LongAdder UNKNOWN = new LongAdder();
+    private static final LongAdder TRANSITIONS = new LongAdder();
+    private static final LongAdder TRANSITION_POLLS = new LongAdder();
+    private static final LongAdder TIMEOUTS = new LongAdder();
+
+    /**
+     * One known look of a screen.
+     */
+    private static final class Variant {
+        private final String screen;
+        private final Set<String> ids;
+        private volatile long lastSeen;
+
+        private Variant(String screen, Set<String> ids, long lastSeen) {
+            this.screen = screen;
+            this.ids = ids;
+            this.lastSeen = lastSeen;
+        }
+    }
+
+    private ScreenCatalog() {
+    }
+
+    /**
+     * @return Whether screens are identified at all.
+     */
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * Registers the marker element of a screen, used to identify hierarchies the catalog does not know yet.
+     *
+     * @param screen     The screen name.
+     * @param resourceId The resource id of an element only that screen shows.
+     */
+    public static void addMarker(String screen, String resourceId) {
+        MARKERS.put(resourceId, screen);
+    }
+
+    /**
+     * @param screen The screen name.
+     * @return {@code true} if the screen can be identified, by a marker or a fingerprint.
+     */
+    public static boolean knows(String screen) {
+        if (MARKERS.containsValue(screen)) {
+            return true;
+        }
+        for (Variant variant : CATALOG.values()) {
+            if (variant.screen.equals(screen)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Identifies the screen a snapshot shows, adding its fingerprint to the catalog if it was identified otherwise.
+     *
+     * @param snapshot The snapshot of the screen.
+     * @return The screen name, or {@code null} if the screen is not known.
+     */
+    public static String identify(PageSnapshot snapshot) {
+        Set<String> ids = ids(snapshot);
+        long fingerprint = fingerprint(ids);
+        Variant known = CATALOG.get(fingerprint);
+        if (known != null) {
+            known.lastSeen = System.currentTimeMillis();
+            EXACT.increment();
+            return known.screen;
+        }
+        String screen = null;
+        for (String id : ids) {
+            String marked = MARKERS.get(id);
+            if (marked != null && screen != null && !screen.equals(marked)) {
+                screen = null;
+                break;
+            }
+            screen = marked != null ? marked : screen;
+        }
+        if (screen != null) {
+            BY_MARKER.increment();
+            remember(screen, fingerprint, ids);
+            return screen;
+        }
+        double best = THRESHOLD;
+        for (Variant variant : CATALOG.values()) {
+            double similarity = similarity(ids, variant.ids);
+            if (similarity >= best) {
+                best = similarity;
+                screen = variant.screen;
+            }
+        }
+        if (screen == null) {
+            UNKNOWN.increment();
+            return null;
+        }
+        SIMILAR.increment();
+        return screen;
+    }
+
+    /**
+     * Adds a snapshot a wait has accepted as a screen to the catalog as a variant of that screen, once the screen's
+     * marker element is verified to be in it, displayed or not. A snapshot the catalog already knows only counts as
+     * seen again.
+     *
+     * @param screen   The screen name.
+     * @param snapshot The snapshot of the screen.
+     * @return {@code true} if the snapshot is now a known variant of the screen.
+     */
+    public static boolean learn(String screen, PageSnapshot snapshot) {
+        Set<String> ids = ids(snapshot);
+        long fingerprint = fingerprint(ids);
+        Variant known = CATALOG.get(fingerprint);
+        if (known != null) {
+            known.lastSeen = System.currentTimeMillis();
+            return known.screen.equals(screen);
+        }
+        for (PageSnapshot.Node node : snapshot.nodes()) {
+            if (screen.equals(MARKERS.get(node.getResourceId()))) {
+                remember(screen, fingerprint, ids);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Computes the fingerprint of a snapshot.
+     *
+     * @param snapshot The snapshot.
+     * @return The 64-bit fingerprint.
+     */
+    public static long fingerprint(PageSnapshot snapshot) {
+        return fingerprint(ids(snapshot));
+    }
+
+    /**
+     * Counts a screen transition that was waited for.
+     *
+     * @param polls   How many hierarchies were checked.
+     * @param reached Whether the transition happened in time.
+     */
+    static void recordTransition(int polls, boolean reached) {
+        TRANSITIONS.increment();
+        TRANSITION_POLLS.add(polls);
+        if (!reached) {
+            TIMEOUTS.increment();
+        }
+    }
+
+    /**
+     * Summarizes how screens were identified and what transitions cost.
+     *
+     * @return A one-line, human-readable report.
+     */
+    public static String report() {
+        return String.format("Screens: %d variants known, %d identified by fingerprint, %d by marker, %d by similarity, "
+                        + "%d unknown; %d transitions awaited with %d checks, %d timed out",
+                CATALOG.size(), EXACT.sum(), BY_MARKER.sum(), SIMILAR.sum(), UNKNOWN.sum(), TRANSITIONS.sum(),
+                TRANSITION_POLLS.sum(), TIMEOUTS.sum());
+    }
+
+    /**
+     * Writes the catalog to SCREEN_CATALOG_FILE.
+     */
+    public static void save() {
+        Properties props = new Properties();
+        for (Map.Entry<Long, Variant> entry : CATALOG.entrySet()) {
+            Variant variant = entry.getValue();
+            props.setProperty(Long.toHexString(entry.getKey()),
+                    variant.screen + "|" + variant.lastSeen + "|" + String.join(",", variant.ids));
+        }
+        try {
+            if (CATALOG_FILE.getParent() != null) {
+                Files.createDirectories(CATALOG_FILE.getParent());
+            }
+            try (OutputStream out = Files.newOutputStream(CATALOG_FILE)) {
+                props.store(out, "Screen fingerprints: screen|last seen|resource ids");
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Adds a variant, dropping the screen's least recently seen variant if it has too many.
+     */
+    private static synchronized void remember(String screen, long fingerprint, Set<String> ids) {
+        Variant existing = CATALOG.get(fingerprint);
+        if (existing != null && existing.screen.equals(screen)) {
+            existing.lastSeen = System.currentTimeMillis();
+            return;
+        }
+        List<Map.Entry<Long, Variant>> variants = new ArrayList<>();
+        for (Map.Entry<Long, Variant> entry : CATALOG.entrySet()) {
+            if (entry.getValue().screen.equals(screen)) {
+                variants.add(entry);
+            }
+        }
+        if (variants.size() >= MAX_VARIANTS) {
+            variants.sort((a, b) -> Long.compare(a.getValue().lastSeen, b.getValue().lastSeen));
+            CATALOG.remove(variants.get(0).getKey());
+        }
+        CATALOG.put(fingerprint, new Variant(screen, ids, System.currentTimeMillis()));
+    }
+
+    /**
+     * Returns the sorted resource ids of the displayed views, or their class names for a hierarchy without ids.
+     */
+    private static Set<String> ids(PageSnapshot snapshot) {
+        Set<String> ids = new TreeSet<>();
+        for (PageSnapshot.Node node : snapshot.nodes()) {
+            if (node.isDisplayed() && !node.getResourceId().isEmpty()) {
+                ids.add(node.getResourceId());
+            }
+        }
+        if (ids.isEmpty()) {
+            for (PageSnapshot.Node node : snapshot.nodes()) {
+                if (node.isDisplayed()) {
+                    ids.add(node.getClassName());
+                }
+            }
+        }
+        return Collections.unmodifiableSet(ids);
+    }
+
+    /**
+     * FNV-1a over the sorted ids.
+     */
+    private static long fingerprint(Set<String> ids) {
+        long hash = 0xcbf29ce484222325L;
+        for (String id : ids) {
+            for (byte b : id.getBytes(StandardCharsets.UTF_8)) {
+                hash = (hash ^ (b & 0xff)) * 0x100000001b3L;
+            }
+            hash = (hash ^ ',') * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static double similarity(Set<String> a, Set<String> b) {
+        if (a.isEmpty() && b.isEmpty()) {
+            return 1;
+        }
+        int common = 0;
+        for (String id : a) {
+            if (b.contains(id)) {
+                common++;
+            }
+        }
+        return (double) common / (a.size() + b.size() - common);
+    }
+
+    private static Map<Long, Variant> loadCatalog() {
+        Map<Long, Variant> catalog = new ConcurrentHashMap<>();
+        if (Files.exists(CATALOG_FILE)) {
+            Properties props = new Properties();
+            try (InputStream in = Files.newInputStream(CATALOG_FILE)) {
+                props.load(in);
+                for (String key : props.stringPropertyNames()) {
+                    String[] parts = props.getProperty(key).split("\\|", 3);
+                    Set<String> ids = new TreeSet<>(Arrays.asList(parts[2].split(",")));
+                    catalog.put(Long.parseUnsignedLong(key, 16),
+                            new Variant(parts[0], Collections.unmodifiableSet(ids), Long.parseLong(parts[1])));
+                }
+            } catch (IOException | RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+        return catalog;
+    }
+}
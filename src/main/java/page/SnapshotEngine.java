@@ -0,0 +1,163 @@
+package page;
+
+import io.appium.java_client.android.AndroidDriver;
+import io.appium.java_client.android.AndroidElement;
+import io.github.cdimascio.dotenv.Dotenv;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Answers element checks from a {@link PageSnapshot} instead of one remote lookup per check.
+ * In snapshot mode the page source of a screen is fetched once and every check is evaluated against it locally;
+ * the snapshot is thrown away when an action (typing, clicking) may have changed the screen, or when a check
+ * does not find its element and has to poll the device for a fresh copy.
+ * Enable it with SNAPSHOT_MODE=true in the .env file or {@link #setEnabled(boolean)}.
+ */
+public final class SnapshotEngine {
+
+    /** Whether checks are answered from snapshots. */
+    private static volatile boolean enabled = Boolean.parseBoolean(
+            Dotenv.configure().ignoreIfMissing().load().get("SNAPSHOT_MODE", "false"));
+
+    /** The current snapshot of each session's screen, keyed by driver. */
+    private static final Map<AndroidDriver<?>, PageSnapshot> CURRENT = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private static final LongAdder FETCHES = new LongAdder();
+    private static final LongAdder LOCAL_QUERIES = new LongAdder();
+
+    private SnapshotEngine() {
+    }
+
+    /**
+     * @return Whether checks are answered from snapshots.
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Turns snapshot mode on or off for the whole run.
+     *
+     * @param on {@code true} to answer checks from snapshots.
+     */
+    public static void setEnabled(boolean on) {
+        enabled = on;
+        CURRENT.clear();
+    }
+
+    /**
+     * Returns the snapshot of the session's current screen, fetching it if there is none.
+     *
+     * @param driver The AndroidDriver instance to interact with the app.
+     * @return The snapshot.
+     */
+    public static PageSnapshot current(AndroidDriver<AndroidElement> driver) {
+        PageSnapshot snapshot = CURRENT.get(driver);
+        if (snapshot == null) {
+            snapshot = PageSnapshot.parse(CommandMetrics.time(CommandMetrics.Phase.FIND, null, driver::getPageSource));
+            FETCHES.increment();
+            CURRENT.put(driver, snapshot);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Throws the session's snapshot away, because an action may have changed the screen.
+     *
+     * @param driver The AndroidDriver instance whose screen may have changed.
+     */
+    public static void invalidate(AndroidDriver<?> driver) {
+        CURRENT.remove(driver);
+    }
+
+    /**
+     * Checks whether a locator can be answered from snapshots at all.
+     *
+     * @param compiled The locator to check.
+     * @return {@code true} if snapshot mode is on and the locator's predicates are known.
+     */
+    public static boolean canAnswer(CompiledLocator compiled) {
+        return enabled && compiled.getPredicates() != null;
+    }
+
+    /**
+     * Waits for a displayed node matching the locator. The current snapshot is tried first; if it has no match,
+     * fresh snapshots are polled with the usual backoff.
+     *
+     * @param driver    The AndroidDriver instance to interact with the app.
+     * @param compiled  The locator of the element; must satisfy {@link #canAnswer(CompiledLocator)}.
+     * @param timeoutMs How long to wait, in milliseconds.
+     * @return The first matching node, or {@code null} if none appeared in time.
+     */
+    public static PageSnapshot.Node awaitVisible(AndroidDriver<AndroidElement> driver, CompiledLocator compiled, long timeoutMs) {
+        int winner = awaitFirstVisible(driver, Collections.singletonList(compiled), timeoutMs);
+        return winner < 0 ? null : current(driver).find(compiled).get(0);
+    }
+
+    /**
+     * Waits until one of several locators matches a displayed node, evaluating all of them against the same
+     * snapshot on every poll.
+     *
+     * @param driver    The AndroidDriver instance to interact with the app.
+     * @param compiled  The locators to race; each must satisfy {@link #canAnswer(CompiledLocator)}.
+     * @param timeoutMs How long to wait, in milliseconds.
+     * @return The index of the first locator that matched, or -1 if none did in time.
+     */
+    public static int awaitFirstVisible(AndroidDriver<AndroidElement> driver, List<CompiledLocator> compiled, long timeoutMs) {
+        long start = System.nanoTime();
+        boolean[] first = {true};
+        Integer winner = WaitEngine.poll(() -> {
+            if (!first[0]) {
+                invalidate(driver);
+            }
+            first[0] = false;
+            PageSnapshot snapshot = current(driver);
+            for (int i = 0; i < compiled.size(); i++) {
+                LOCAL_QUERIES.increment();
+                if (!snapshot.find(compiled.get(i)).isEmpty()) {
+                    return i;
+                }
+            }
+            return null;
+        }, timeoutMs);
+        if (winner == null) {
+            return -1;
+        }
+        WaitEngine.learn(compiled.get(winner), (System.nanoTime() - start) / 1_000_000);
+        return winner;
+    }
+
+    /**
+     * Waits until no displayed node matches the locator. The current snapshot is trusted when it shows the
+     * element absent; otherwise fresh snapshots are polled until it goes away.
+     *
+     * @param driver    The AndroidDriver instance to interact with the app.
+     * @param compiled  The locator of the element; must satisfy {@link #canAnswer(CompiledLocator)}.
+     * @param timeoutMs How long to wait for the element to go away, in milliseconds.
+     * @return {@code true} if the element is absent, {@code false} if it was still displayed when time ran out.
+     */
+    public static boolean awaitAbsent(AndroidDriver<AndroidElement> driver, CompiledLocator compiled, long timeoutMs) {
+        return WaitEngine.poll(() -> {
+            LOCAL_QUERIES.increment();
+            if (current(driver).find(compiled).isEmpty()) {
+                return Boolean.TRUE;
+            }
+            invalidate(driver);
+            return null;
+        }, timeoutMs) != null;
+    }
+
+    /**
+     * Summarizes how many page sources were fetched and how many checks were answered from them.
+     *
+     * @return A one-line, human-readable report.
+     */
+    public static String report() {
+        return String.format("Snapshots: %d page sources fetched, %d queries evaluated locally",
+                FETCHES.sum(), LOCAL_QUERIES.sum());
+    }
+}
@@ -0,0 +1,313 @@
+package page;
+
+import io.appium.java_client.android.AndroidDriver;
+import io.appium.java_client.android.AndroidElement;
+import io.github.cdimascio.dotenv.Dotenv;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Records the steps the test on the current thread has completed, so that a test whose session dies halfway can be
+ * brought back to where it was instead of being lost.
+ * <p>
+ * Every text entry and click made through {@link BasePage} is journaled. A checkpoint marks the screen the test has
+ * reached, named after the {@code setup.AppScreen} constant; the test's start screen is the first checkpoint, and
+ * page objects add one whenever they know a step has moved the app to another screen. When a step fails,
+ * {@link BasePage} asks the registered {@link Recovery} to repair the session. The recovery brings the session back to
+ * the last checkpoint and calls {@link #replay} with the steps made since, after which the failed step is retried.
+ * Only repairs count towards the limit of RECOVERY_MAX_PER_TEST per test (2 by default): a step that failed on a
+ * healthy session, e.g. because an element is missing, costs one health check and leaves the budget untouched.
+ * <p>
+ * A click that submits a form is journaled as a submit step, which is never replayed: the app may already have
+ * acted on it, e.g. stored a registered account, so submitting again would change the test's outcome. A test that
+ * has submitted since its last checkpoint cannot be recovered.
+ */
+public final class StepJournal {
+
+    /** Most recoveries per test. */
+    private static final int MAX_RECOVERIES = Integer.parseInt(
+            Dotenv.configure().ignoreIfMissing().load().get("RECOVERY_MAX_PER_TEST", "2"));
+
+    /** The journal of the test running on each thread. */
+    private static final ThreadLocal<StepJournal> CURRENT = new ThreadLocal<>();
+
+    /** Repairs broken sessions; registered by the test setup. */
+    private static volatile Recovery recovery;
+
+    /**
+     * Repairs the session of a failed step and brings it back to the journal's last checkpoint.
+     */
+    public interface Recovery {
+
+        /**
+         * Checks whether a step failed because the session or the app broke and, if so, repairs it.
+         *
+         * @param driver The AndroidDriver instance whose step failed.
+         * @param cause  The failure.
+         * @return {@code true} if something was repaired; {@code false} if the session was healthy or could not be
+         *         repaired.
+         */
+        boolean repair(AndroidDriver<AndroidElement> driver, Throwable cause);
+
+        /**
+         * Brings a repaired session back to the journal's last checkpoint and replays the steps made since.
+         *
+         * @param driver  The AndroidDriver instance that was repaired.
+         * @param journal The journal of the test that failed.
+         * @param cause   The failure.
+         * @return {@code true} if the session is back at the failed step, so that it can be retried.
+         */
+        boolean restore(AndroidDriver<AndroidElement> driver, StepJournal journal, Throwable cause);
+    }
+
+    /**
+     * A completed step that changed the app: text entered into an element, a click or a submit click.
+     */
+    public static final class Step {
+        private final BasePage.ByLocator loc;
+        private final String locator;
+        private final String keywords;
+        private final boolean submit;
+
+        private Step(BasePage.ByLocator loc, String locator, String keywords, boolean submit) {
+            this.loc = loc;
+            this.locator = locator;
+            this.keywords = keywords;
+            this.submit = submit;
+        }
+
+        /**
+         * @param loc      The locator type of the element.
+         * @param locator  The locator value of the element.
+         * @param keywords The text entered.
+         * @return A text entry step.
+         */
+        public static Step enter(BasePage.ByLocator loc, String locator, String keywords) {
+            return new Step(loc, locator, keywords, false);
+        }
+
+        /**
+         * @param loc     The locator type of the element.
+         * @param locator The locator value of the element.
+         * @return A click step.
+         */
+        public static Step click(BasePage.ByLocator loc, String locator) {
+            return new Step(loc, locator, null, false);
+        }
+
+        /**
+         * @param loc     The locator type of the button.
+         * @param locator The locator value of the button.
+         * @return A click that submits a form, which is not replayed.
+         */
+        public static Step submit(BasePage.ByLocator loc, String locator) {
+            return new Step(loc, locator, null, true);
+        }
+
+        /**
+         * @return Whether the step submitted a form, so that replaying it could submit the form twice.
+         */
+        public boolean isSubmit() {
+            return submit;
+        }
+
+        /**
+         * Runs the step again, throwing if it fails.
+         */
+        private void run(AndroidDriver<AndroidElement> driver) {
+            CompiledLocator compiled = LocatorCompiler.compile(loc, locator);
+            if (keywords != null) {
+                BasePage.enter(driver, compiled, keywords);
+            } else {
+                BasePage.click(driver, compiled);
+            }
+            SnapshotEngine.invalidate(driver);
+        }
+
+        @Override
+        public String toString() {
+            return (keywords != null ? "enter " : submit ? "submit " : "click ") + loc + ":" + locator;
+        }
+    }
+
+    private final String test;
+    private final String startScreen;
+    private final List<Step> steps = new ArrayList<>();
+    private String checkpoint;
+    private int checkpointIndex;
+    private int recoveries;
+    private boolean recovering;
+
+    private StepJournal(String test, String startScreen) {
+        this.test = test;
+        this.startScreen = startScreen;
+        this.checkpoint = startScreen;
+    }
+
+    /**
+     * Registers the recovery used for every test.
+     *
+     * @param recovery The recovery, or {@code null} to let failed steps fail.
+     */
+    public static void setRecovery(Recovery recovery) {
+        StepJournal.recovery = recovery;
+    }
+
+    /**
+     * Starts an empty journal for the test about to run on the current thread.
+     *
+     * @param startScreen The screen the test starts on, its first checkpoint.
+     */
+    public static void begin(String startScreen) {
+        CURRENT.set(new StepJournal(CommandMetrics.currentTest(), startScreen));
+    }
+
+    /**
+     * Discards the current thread's journal once its test has finished.
+     */
+    public static void end() {
+        CURRENT.remove();
+    }
+
+    /**
+     * @return The journal of the test running on the current thread, or {@code null}.
+     */
+    public static StepJournal current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Makes a journal the current thread's, e.g. on a thread that runs commands on behalf of a test.
+     *
+     * @param journal The journal, or {@code null} to leave the thread without one.
+     */
+    static void attach(StepJournal journal) {
+        if (journal != null) {
+            CURRENT.set(journal);
+        } else {
+            CURRENT.remove();
+        }
+    }
+
+    /**
+     * Marks that the test on the current thread has reached a screen. Steps journaled before are only replayed
+     * if the screen cannot be reached by in-app navigation.
+     *
+     * @param screen The name of the {@code setup.AppScreen} reached.
+     */
+    public static void checkpoint(String screen) {
+        StepJournal journal = CURRENT.get();
+        if (journal != null) {
+            synchronized (journal) {
+                if (!journal.recovering) {
+                    journal.checkpoint = screen;
+                    journal.checkpointIndex = journal.steps.size();
+                }
+            }
+        }
+    }
+
+    /**
+     * Journals a completed step of the test on the current thread.
+     *
+     * @param step The step.
+     */
+    static void record(Step step) {
+        StepJournal journal = CURRENT.get();
+        if (journal != null) {
+            synchronized (journal) {
+                if (!journal.recovering) {
+                    journal.steps.add(step);
+                }
+            }
+        }
+    }
+
+    /**
+     * Asks the registered recovery to repair the session after a failed step. Only an actual repair counts as a
+     * recovery. Steps made while recovering are not journaled, and a failure during recovery is not recovered again.
+     * The journal is locked while recovering, since an {@link AsyncSession} may fail steps on several threads.
+     *
+     * @param driver The AndroidDriver instance whose step failed.
+     * @param cause  The failure.
+     * @return {@code true} if the failed step should be retried.
+     */
+    static boolean recover(AndroidDriver<AndroidElement> driver, Throwable cause) {
+        StepJournal journal = CURRENT.get();
+        Recovery current = recovery;
+        if (journal == null || current == null) {
+            return false;
+        }
+        synchronized (journal) {
+            if (journal.recovering || journal.recoveries >= MAX_RECOVERIES) {
+                return false;
+            }
+            journal.recovering = true;
+            try {
+                if (!current.repair(driver, cause)) {
+                    return false;
+                }
+                journal.recoveries++;
+                return current.restore(driver, journal, cause);
+            } finally {
+                journal.recovering = false;
+            }
+        }
+    }
+
+    /**
+     * Runs steps again on a repaired session, stopping at the first that fails.
+     *
+     * @param driver The AndroidDriver instance to replay on.
+     * @param replay The steps to replay, usually {@link #sinceCheckpoint()} or {@link #all()}.
+     */
+    public void replay(AndroidDriver<AndroidElement> driver, List<Step> replay) {
+        for (Step step : replay) {
+            step.run(driver);
+        }
+    }
+
+    /**
+     * @return The test the journal belongs to.
+     */
+    public String getTest() {
+        return test;
+    }
+
+    /**
+     * @return The name of the screen the test started on.
+     */
+    public String getStartScreen() {
+        return startScreen;
+    }
+
+    /**
+     * @return The name of the last screen the test reached.
+     */
+    public String getCheckpoint() {
+        return checkpoint;
+    }
+
+    /**
+     * @return The steps made since the last checkpoint.
+     */
+    public List<Step> sinceCheckpoint() {
+        return Collections.unmodifiableList(new ArrayList<>(steps.subList(checkpointIndex, steps.size())));
+    }
+
+    /**
+     * @return Every step made since the test started.
+     */
+    public List<Step> all() {
+        return Collections.unmodifiableList(new ArrayList<>(steps));
+    }
+
+    /**
+     * @return How often the test's session has been repaired.
+     */
+    public int getRecoveries() {
+        return recoveries;
+    }
+}
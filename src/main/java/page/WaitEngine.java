@@ -0,0 +1,321 @@
+package page;
+
+import io.appium.java_client.android.AndroidDriver;
+import io.appium.java_client.android.AndroidElement;
+import io.github.cdimascio.dotenv.Dotenv;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.StaleElementReferenceException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Polls for elements with exponential backoff and learns per-locator timeout budgets from earlier runs.
+ * Actions and presence checks wait up to the full WAIT_TIMEOUT_MS for their element, or the budget its locator
+ * catalog declares, so a slow device only makes them slower, never wrong. Checks whose answer may well be negative
+ * use the learned budget instead: once every locator of an outcome race has been seen to appear often enough, the
+ * race gives up on all of them after the slowest appearance ever seen (times a safety factor, and never less than
+ * WAIT_MIN_BUDGET_MS), so a screen showing none of the outcomes is reported quickly. Absence checks return as soon as
+ * the element is gone and give a displayed element the same budget to go away.
+ * Settings are read from the .env file; the learned appearance times are kept in WAIT_HISTORY_FILE.
+ */
+public final class WaitEngine {
+
+    /** Environment holding the wait settings; the .env file is optional here. */
+    private static final Dotenv ENV = Dotenv.configure().ignoreIfMissing().load();
+
+    /** Longest time to wait for any element, in milliseconds. */
+    private static final long DEFAULT_TIMEOUT = Long.parseLong(ENV.get("WAIT_TIMEOUT_MS", "10000"));
+
+    /** First polling interval, in milliseconds. */
+    private static final long INITIAL_POLL = Long.parseLong(ENV.get("WAIT_POLL_MS", "50"));
+
+    /** Polling interval the backoff grows to, in milliseconds. */
+    private static final long MAX_POLL = Long.parseLong(ENV.get("WAIT_MAX_POLL_MS", "500"));
+
+    /** Longest time a batched lookup of several elements waits before its caller falls back, in milliseconds. */
+    private static final long BATCH_TIMEOUT = Long.parseLong(ENV.get("WAIT_BATCH_TIMEOUT_MS", "1500"));
+
+    /** Shortest learned budget, in milliseconds. */
+    private static final long MIN_BUDGET = Long.parseLong(ENV.get("WAIT_MIN_BUDGET_MS", "500"));
+
+    /** How many appearances must be observed before a locator's budget is trusted. */
+    private static final int MIN_OBSERVATIONS = 3;
+
+    /** How much longer than the slowest observed appearance a learned budget lasts. */
+    private static final double SAFETY_FACTOR = 3.0;
+
+    /** File the learned appearance times are kept in. */
+    private static final Path HISTORY_FILE = Paths.get(ENV.get("WAIT_HISTORY_FILE", "build/wait-history.properties"));
+
+    /** Learned appearance times keyed by locator type and value; each value is {observations, slowest millis}. */
+    private static final Map<String, long[]> HISTORY = loadHistory();
+
+    private WaitEngine() {
+    }
+
+    /**
+     * @return The longest time to wait for any element, in milliseconds.
+     */
+    public static long defaultTimeout() {
+        return DEFAULT_TIMEOUT;
+    }
+
+    /**
+     * Returns how long a batched lookup should wait for a whole group of elements before its caller falls back to
+     * looking them up one by one: the learned budget of the group's locator, but never more than
+     * WAIT_BATCH_TIMEOUT_MS, since a group that is not complete by then usually has an element off-screen.
+     *
+     * @param compiled The locator matching the group.
+     * @return The timeout in milliseconds.
+     */
+    public static long batchTimeoutFor(CompiledLocator compiled) {
+        return Math.min(BATCH_TIMEOUT, budgetFor(compiled));
+    }
+
+    /**
+     * Returns how long an action should wait for a locator's element: the budget declared for it in a locator
+     * catalog, otherwise the default timeout.
+     *
+     * @param compiled The locator to wait for.
+     * @return The timeout in milliseconds.
+     */
+    public static long timeoutFor(CompiledLocator compiled) {
+        return compiled.getTimeoutMs() > 0 ? compiled.getTimeoutMs() : DEFAULT_TIMEOUT;
+    }
+
+    /**
+     * Returns the learned budget of a locator: how long its element may take to appear, judging by earlier runs,
+     * once it has been seen {@link #MIN_OBSERVATIONS} times, otherwise {@link #timeoutFor} the locator.
+     *
+     * @param compiled The locator to check.
+     * @return The timeout in milliseconds.
+     */
+    public static long budgetFor(CompiledLocator compiled) {
+        long timeout = timeoutFor(compiled);
+        long[] seen = HISTORY.get(key(compiled));
+        if (seen == null || seen[0] < MIN_OBSERVATIONS) {
+            return timeout;
+        }
+        return Math.min(timeout, Math.max(MIN_BUDGET, (long) (seen[1] * SAFETY_FACTOR)));
+    }
+
+    /**
+     * Returns how long a race between several outcomes should wait before concluding that none of them is shown:
+     * the longest learned budget of the racing locators, so the race only gives up early once every outcome has
+     * been seen often enough.
+     *
+     * @param compiled The locators to race.
+     * @return The timeout in milliseconds.
+     */
+    public static long raceTimeoutFor(List<CompiledLocator> compiled) {
+        long timeout = 0;
+        for (CompiledLocator candidate : compiled) {
+            timeout = Math.max(timeout, budgetFor(candidate));
+        }
+        return timeout;
+    }
+
+    /**
+     * Polls until an element matched by the locator is displayed, backing off between polls.
+     * The time the element took to appear is learned for later budgets.
+     *
+     * @param driver    The AndroidDriver instance to interact with the app.
+     * @param compiled  The locator of the element.
+     * @param timeoutMs How long to wait, in milliseconds.
+     * @return The displayed element, or {@code null} if none appeared in time.
+     */
+    public static AndroidElement awaitVisible(AndroidDriver<AndroidElement> driver, CompiledLocator compiled, long timeoutMs) {
+        long start = System.nanoTime();
+        AndroidElement element = poll(() -> firstDisplayed(driver, compiled), timeoutMs);
+        if (element != null) {
+            learn(compiled, (System.nanoTime() - start) / 1_000_000);
+        }
+        return element;
+    }
+
+    /**
+     * Polls a locator that matches several elements until at least the expected number of them are found,
+     * so that one lookup per poll locates a whole group of elements.
+     *
+     * @param driver    The AndroidDriver instance to interact with the app.
+     * @param compiled  The locator matching the group.
+     * @param count     How many elements the group must contain.
+     * @param timeoutMs How long to wait, in milliseconds.
+     * @param polls     Receives the number of lookups made in its first element.
+     * @return The matched elements in document order, or {@code null} if fewer than {@code count} appeared in time.
+     */
+    public static List<AndroidElement> awaitAll(AndroidDriver<AndroidElement> driver, CompiledLocator compiled,
+                                                int count, long timeoutMs, int[] polls) {
+        long start = System.nanoTime();
+        List<AndroidElement> elements = poll(() -> {
+            polls[0]++;
+            List<AndroidElement> found = find(driver, compiled);
+            return found.size() >= count ? found : null;
+        }, timeoutMs);
+        if (elements != null) {
+            learn(compiled, (System.nanoTime() - start) / 1_000_000);
+        }
+        return elements;
+    }
+
+    /**
+     * Polls for several locators at once until one of them matches a displayed element.
+     * Every poll checks all locators in order, so whichever outcome appears first wins.
+     *
+     * @param driver    The AndroidDriver instance to interact with the app.
+     * @param compiled  The locators to race.
+     * @param timeoutMs How long to wait, in milliseconds.
+     * @return The index of the first locator that matched, or -1 if none did in time.
+     */
+    public static int awaitFirstVisible(AndroidDriver<AndroidElement> driver, List<CompiledLocator> compiled, long timeoutMs) {
+        long start = System.nanoTime();
+        Integer winner = poll(() -> {
+            for (int i = 0; i < compiled.size(); i++) {
+                if (firstDisplayed(driver, compiled.get(i)) != null) {
+                    return i;
+                }
+            }
+            return null;
+        }, timeoutMs);
+        if (winner == null) {
+            return -1;
+        }
+        learn(compiled.get(winner), (System.nanoTime() - start) / 1_000_000);
+        return winner;
+    }
+
+    /**
+     * Polls until no element matched by the locator is displayed. Returns immediately when the element
+     * is already absent, which is the common case for negative checks.
+     *
+     * @param driver    The AndroidDriver instance to interact with the app.
+     * @param compiled  The locator of the element.
+     * @param timeoutMs How long to wait for the element to go away, in milliseconds.
+     * @return {@code true} if the element is absent, {@code false} if it was still displayed when time ran out.
+     */
+    public static boolean awaitAbsent(AndroidDriver<AndroidElement> driver, CompiledLocator compiled, long timeoutMs) {
+        return poll(() -> firstDisplayed(driver, compiled) == null ? Boolean.TRUE : null, timeoutMs) != null;
+    }
+
+    /**
+     * Calls a probe with exponential backoff between calls until it returns a non-null result or time runs out.
+     * The probe is always called at least once.
+     *
+     * @param probe     Returns the awaited result, or {@code null} to keep polling.
+     * @param timeoutMs How long to keep polling, in milliseconds.
+     * @param <T>       The result type.
+     * @return The first non-null result, or {@code null} if time ran out.
+     */
+    public static <T> T poll(Supplier<T> probe, long timeoutMs) {
+        long deadline = System.nanoTime() + timeoutMs * 1_000_000;
+        long interval = INITIAL_POLL;
+        while (true) {
+            T result = probe.get();
+            if (result != null) {
+                return result;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return null;
+            }
+            sleep(Math.min(interval, remaining / 1_000_000 + 1));
+            interval = Math.min(MAX_POLL, interval * 2);
+        }
+    }
+
+    /**
+     * Records how long the element matched by a locator took to appear, for later budgets.
+     *
+     * @param compiled The locator of the element.
+     * @param millis   How long the element took to appear.
+     */
+    static void learn(CompiledLocator compiled, long millis) {
+        HISTORY.merge(key(compiled), new long[]{1, millis},
+                (old, now) -> new long[]{old[0] + 1, Math.max(old[1], now[1])});
+    }
+
+    /**
+     * Writes the learned appearance times back to the history file.
+     */
+    public static void saveHistory() {
+        Properties props = new Properties();
+        for (Map.Entry<String, long[]> entry : HISTORY.entrySet()) {
+            props.setProperty(entry.getKey(), entry.getValue()[0] + "," + entry.getValue()[1]);
+        }
+        try {
+            if (HISTORY_FILE.getParent() != null) {
+                Files.createDirectories(HISTORY_FILE.getParent());
+            }
+            try (OutputStream out = Files.newOutputStream(HISTORY_FILE)) {
+                props.store(out, "Element appearance times: observations,slowest millis");
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Makes one lookup and returns the first displayed match.
+     */
+    private static AndroidElement firstDisplayed(AndroidDriver<AndroidElement> driver, CompiledLocator compiled) {
+        try {
+            List<AndroidElement> elements = find(driver, compiled);
+            for (AndroidElement element : elements) {
+                if (element.isDisplayed()) {
+                    return element;
+                }
+            }
+        } catch (NoSuchElementException | StaleElementReferenceException e) {
+            // The screen changed under the lookup; poll again.
+        }
+        return null;
+    }
+
+    /**
+     * Makes one timed lookup.
+     */
+    private static List<AndroidElement> find(AndroidDriver<AndroidElement> driver, CompiledLocator compiled) {
+        return CommandMetrics.time(CommandMetrics.Phase.FIND, compiled.getStrategy(),
+                () -> driver.findElements(compiled.getBy()));
+    }
+
+    private static String key(CompiledLocator compiled) {
+        return compiled.getSource() + ":" + compiled.getLocator();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for an element", e);
+        }
+    }
+
+    private static Map<String, long[]> loadHistory() {
+        Map<String, long[]> history = new ConcurrentHashMap<>();
+        if (Files.exists(HISTORY_FILE)) {
+            Properties props = new Properties();
+            try (InputStream in = Files.newInputStream(HISTORY_FILE)) {
+                props.load(in);
+                for (String key : props.stringPropertyNames()) {
+                    String[] parts = props.getProperty(key).split(",");
+                    history.put(key, new long[]{Long.parseLong(parts[0]), Long.parseLong(parts[1])});
+                }
+            } catch (IOException | RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+        return history;
+    }
+}
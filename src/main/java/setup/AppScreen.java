@@ -0,0 +1,36 @@
+package setup;
+
+import page.ScreenCatalog;
+
+/**
+ * The screens of the app under test, each recognized by an element only it shows.
+ */
+public enum AppScreen {
+    LOGIN("com.loginmodule.learning:id/appCompatButtonLogin"),
+    REGISTER("com.loginmodule.learning:id/appCompatButtonRegister"),
+    ACCOUNT("com.loginmodule.learning:id/textViewEmail");
+
+    static {
+        for (AppScreen screen : values()) {
+            ScreenCatalog.addMarker(screen.name(), screen.marker);
+        }
+    }
+
+    /** Resource id of an element shown only on this screen. */
+    private final String marker;
+
+    AppScreen(String marker) {
+        this.marker = marker;
+    }
+
+    public String getMarker() {
+        return marker;
+    }
+
+    /**
+     * @return The screen the app shows right after it is launched.
+     */
+    public static AppScreen launchScreen() {
+        return LOGIN;
+    }
+}
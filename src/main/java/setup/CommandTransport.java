@@ -0,0 +1,280 @@
+package setup;
+
+import io.github.cdimascio.dotenv.Dotenv;
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.ConnectionPool;
+import okhttp3.EventListener;
+import okhttp3.Headers;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.openqa.selenium.remote.http.HttpClient;
+import org.openqa.selenium.remote.http.HttpMethod;
+import org.openqa.selenium.remote.http.HttpRequest;
+import org.openqa.selenium.remote.http.HttpResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The HTTP transport every driver session sends its commands through.
+ * <p>
+ * By default each driver builds its own HTTP client, so every session opens its own connections. This transport is
+ * shared by all sessions in the JVM: commands reuse keep-alive connections from one pool, each command gets the read
+ * timeout configured for its kind (a new session or a page source may take much longer than a click), responses can
+ * be requested gzip-compressed, and response bodies are streamed into a buffer sized from their length instead of
+ * being grown copy by copy. Pool usage and bytes on the wire are counted for {@link #report()}.
+ * <p>
+ * Settings are read from the .env file: TRANSPORT_MAX_IDLE_CONNECTIONS, TRANSPORT_KEEP_ALIVE_SEC,
+ * TRANSPORT_CONNECT_TIMEOUT_MS, TRANSPORT_READ_TIMEOUT_MS, TRANSPORT_COMMAND_TIMEOUTS (e.g.
+ * {@code session=300000,source=30000}, keyed by the last segment of the command path) and TRANSPORT_COMPRESSION.
+ */
+public class CommandTransport implements HttpClient.Factory {
+
+    /** Content type of WebDriver command bodies. */
+    private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
+
+    /** Size of the buffer response bodies are read with. */
+    private static final int READ_BUFFER = 64 * 1024;
+
+    private final ConnectionPool pool;
+    private final OkHttpClient client;
+    private final long readTimeoutMs;
+    private final boolean compression;
+
+    /** Read timeouts by command, keyed by the last segment of the command path. */
+    private final Map<String, Long> commandTimeouts = new HashMap<>();
+
+    /** Clients derived from {@link #client} with another read timeout; they share its pool. */
+    private final Map<Long, OkHttpClient> byTimeout = new ConcurrentHashMap<>();
+
+    private final LongAdder commands = new LongAdder();
+    private final LongAdder connectionsOpened = new LongAdder();
+    private final LongAdder connectionsAcquired = new LongAdder();
+    private final LongAdder bytesSent = new LongAdder();
+    private final LongAdder bytesReceived = new LongAdder();
+    private final LongAdder bytesDecoded = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    /** Records every command and response when set. */
+    private volatile TrafficRecorder recorder;
+
+    /**
+     * Creates the transport from the .env file.
+     *
+     * @param dotenv The environment to read the TRANSPORT_* settings from.
+     */
+    public CommandTransport(Dotenv dotenv) {
+        this.pool = new ConnectionPool(Integer.parseInt(dotenv.get("TRANSPORT_MAX_IDLE_CONNECTIONS", "16")),
+                Long.parseLong(dotenv.get("TRANSPORT_KEEP_ALIVE_SEC", "300")), TimeUnit.SECONDS);
+        this.readTimeoutMs = Long.parseLong(dotenv.get("TRANSPORT_READ_TIMEOUT_MS", "120000"));
+        this.compression = Boolean.parseBoolean(dotenv.get("TRANSPORT_COMPRESSION", "true"));
+        for (String entry : dotenv.get("TRANSPORT_COMMAND_TIMEOUTS", "session=300000,source=30000,screenshot=30000")
+                .split(",")) {
+            String[] parts = entry.split("=");
+            if (parts.length == 2) {
+                commandTimeouts.put(parts[0].trim(), Long.parseLong(parts[1].trim()));
+            }
+        }
+        this.client = new OkHttpClient.Builder()
+                .connectionPool(pool)
+                .connectTimeout(Long.parseLong(dotenv.get("TRANSPORT_CONNECT_TIMEOUT_MS", "10000")), TimeUnit.MILLISECONDS)
+                .readTimeout(readTimeoutMs, TimeUnit.MILLISECONDS)
+                .writeTimeout(readTimeoutMs, TimeUnit.MILLISECONDS)
+                .followRedirects(false)
+                .eventListener(new Counters())
+                .build();
+    }
+
+    /**
+     * Returns a builder whose clients send commands through this transport. The builder's own timeouts are
+     * ignored in favour of the TRANSPORT_* settings.
+     *
+     * @return The client builder.
+     */
+    @Override
+    public HttpClient.Builder builder() {
+        return new HttpClient.Builder() {
+            @Override
+            public HttpClient createClient(URL url) {
+                return new Client(url);
+            }
+        };
+    }
+
+    /**
+     * Records every following command and its response.
+     *
+     * @param recorder The recorder, or {@code null} to stop recording.
+     * @return This transport.
+     */
+    public CommandTransport setRecorder(TrafficRecorder recorder) {
+        this.recorder = recorder;
+        return this;
+    }
+
+    /**
+     * Closes the pooled connections that are not in use.
+     */
+    @Override
+    public void cleanupIdleClients() {
+        pool.evictAll();
+    }
+
+    /**
+     * Summarizes connection reuse and traffic.
+     *
+     * @return A one-line, human-readable report.
+     */
+    public String report() {
+        long acquired = connectionsAcquired.sum();
+        long opened = connectionsOpened.sum();
+        return String.format("Command transport: %d commands, %d connections opened, %d reused, %d pooled (%d idle), "
+                        + "at most %d in flight, %d KB sent, %d KB received (%d KB decoded), %d timeouts",
+                commands.sum(), opened, Math.max(0, acquired - opened), pool.connectionCount(),
+                pool.idleConnectionCount(), maxInFlight.get(), bytesSent.sum() / 1024, bytesReceived.sum() / 1024,
+                bytesDecoded.sum() / 1024, timeouts.sum());
+    }
+
+    /**
+     * Sends one command and converts the response.
+     */
+    private HttpResponse execute(URL base, HttpRequest request) throws IOException {
+        String path = request.getUri();
+        Request.Builder builder = new Request.Builder()
+                .url(base.toString().replaceAll("/$", "") + path)
+                .method(request.getMethod().name(), request.getMethod() == HttpMethod.POST
+                        ? RequestBody.create(JSON, request.getContent() == null ? new byte[0] : request.getContent())
+                        : null);
+        for (String name : request.getHeaderNames()) {
+            if (!"Content-Type".equalsIgnoreCase(name) && !"Content-Length".equalsIgnoreCase(name)) {
+                for (String value : request.getHeaders(name)) {
+                    builder.addHeader(name, value);
+                }
+            }
+        }
+        if (!compression) {
+            builder.header("Accept-Encoding", "identity");
+        }
+
+        commands.increment();
+        int now = inFlight.incrementAndGet();
+        maxInFlight.accumulateAndGet(now, Math::max);
+        try (Response response = clientFor(path).newCall(builder.build()).execute()) {
+            HttpResponse converted = new HttpResponse();
+            converted.setStatus(response.code());
+            Headers headers = response.headers();
+            for (int i = 0; i < headers.size(); i++) {
+                converted.addHeader(headers.name(i), headers.value(i));
+            }
+            byte[] content = read(response.body());
+            bytesDecoded.add(content.length);
+            converted.setContent(content);
+            TrafficRecorder current = recorder;
+            if (current != null) {
+                current.record(request, converted);
+            }
+            return converted;
+        } catch (SocketTimeoutException e) {
+            timeouts.increment();
+            throw e;
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * Returns the client with the read timeout configured for a command.
+     */
+    private OkHttpClient clientFor(String path) {
+        String command = path.substring(path.lastIndexOf('/') + 1);
+        Long timeout = commandTimeouts.get(command);
+        if (timeout == null || timeout == readTimeoutMs) {
+            return client;
+        }
+        return byTimeout.computeIfAbsent(timeout, t -> client.newBuilder()
+                .readTimeout(t, TimeUnit.MILLISECONDS)
+                .writeTimeout(t, TimeUnit.MILLISECONDS)
+                .build());
+    }
+
+    /**
+     * Streams a response body into a buffer sized from its declared length, so that large page sources and
+     * screenshots are copied once.
+     */
+    private static byte[] read(ResponseBody body) throws IOException {
+        if (body == null) {
+            return new byte[0];
+        }
+        long length = body.contentLength();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(length > 0 && length < Integer.MAX_VALUE
+                ? (int) length : READ_BUFFER);
+        byte[] buffer = new byte[READ_BUFFER];
+        try (InputStream in = body.byteStream()) {
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                out.write(buffer, 0, n);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * A driver's view of the transport, bound to its server URL.
+     */
+    private final class Client implements HttpClient {
+        private final URL base;
+
+        private Client(URL base) {
+            this.base = base;
+        }
+
+        @Override
+        public HttpResponse execute(HttpRequest request) throws IOException {
+            return CommandTransport.this.execute(base, request);
+        }
+    }
+
+    /**
+     * Counts connections and bytes as the HTTP client reports them. Byte counts are taken on the wire, i.e.
+     * before responses are decompressed.
+     */
+    private final class Counters extends EventListener {
+        @Override
+        public void connectStart(Call call, InetSocketAddress address, Proxy proxy) {
+            connectionsOpened.increment();
+        }
+
+        @Override
+        public void connectionAcquired(Call call, Connection connection) {
+            connectionsAcquired.increment();
+        }
+
+        @Override
+        public void requestBodyEnd(Call call, long byteCount) {
+            bytesSent.add(byteCount);
+        }
+
+        @Override
+        public void responseBodyEnd(Call call, long byteCount) {
+            bytesReceived.add(byteCount);
+        }
+    }
+}
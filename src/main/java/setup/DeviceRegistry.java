@@ -0,0 +1,122 @@
+package setup;
+
+import io.github.cdimascio.dotenv.Dotenv;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Lists the devices available to the run and the ports each of them is driven through.
+ * Devices are read from DEVICE_NAMES (comma-separated) in the .env file, falling back to the single DEVICE_NAME.
+ * Device {@code i} is driven by the Appium server on APPIUM_BASE_PORT + i and uses SYSTEM_BASE_PORT + i
+ * for its UiAutomator2 server, so several devices never compete for the same port.
+ */
+public class DeviceRegistry {
+
+    /** Devices in the order they were declared. */
+    private final List<Device> devices;
+
+    /**
+     * Creates a registry from an explicit list of devices.
+     *
+     * @param devices The devices available to the run.
+     */
+    public DeviceRegistry(List<Device> devices) {
+        this.devices = Collections.unmodifiableList(new ArrayList<>(devices));
+    }
+
+    /**
+     * Builds the registry from the .env file.
+     *
+     * @param dotenv The environment to read DEVICE_NAMES, DEVICE_NAME, APPIUM_HOST, APPIUM_BASE_PORT and SYSTEM_BASE_PORT from.
+     * @return The device registry.
+     * @throws IllegalStateException If neither DEVICE_NAMES nor DEVICE_NAME names a device.
+     */
+    public static DeviceRegistry fromEnv(Dotenv dotenv) {
+        String names = dotenv.get("DEVICE_NAMES", dotenv.get("DEVICE_NAME"));
+        String host = dotenv.get("APPIUM_HOST", "127.0.0.1");
+        int appiumBasePort = Integer.parseInt(dotenv.get("APPIUM_BASE_PORT", "4723"));
+        int systemBasePort = Integer.parseInt(dotenv.get("SYSTEM_BASE_PORT", "8200"));
+
+        List<Device> devices = new ArrayList<>();
+        if (names != null) {
+            for (String name : names.split(",")) {
+                if (!name.trim().isEmpty()) {
+                    int index = devices.size();
+                    devices.add(new Device(name.trim(), host, appiumBasePort + index, systemBasePort + index));
+                }
+            }
+        }
+        if (devices.isEmpty()) {
+            throw new IllegalStateException("No devices configured: set DEVICE_NAMES or DEVICE_NAME in the .env file");
+        }
+        return new DeviceRegistry(devices);
+    }
+
+    /**
+     * @return The devices available to the run.
+     */
+    public List<Device> devices() {
+        return devices;
+    }
+
+    /**
+     * @return The number of devices, i.e. how many tests can run at the same time.
+     */
+    public int size() {
+        return devices.size();
+    }
+
+    /**
+     * A single device together with the ports used to drive it.
+     */
+    public static final class Device {
+        private final String name;
+        private final String host;
+        private final int appiumPort;
+        private final int systemPort;
+
+        /**
+         * Creates a device entry.
+         *
+         * @param name       The device name or UDID as reported by {@code adb devices}.
+         * @param host       The host the Appium server for this device runs on.
+         * @param appiumPort The port of the Appium server for this device.
+         * @param systemPort The UiAutomator2 system port for this device.
+         */
+        public Device(String name, String host, int appiumPort, int systemPort) {
+            this.name = name;
+            this.host = host;
+            this.appiumPort = appiumPort;
+            this.systemPort = systemPort;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getAppiumPort() {
+            return appiumPort;
+        }
+
+        public int getSystemPort() {
+            return systemPort;
+        }
+
+        /**
+         * @return The WebDriver endpoint of the Appium server driving this device.
+         * @throws MalformedURLException If the configured host is not a valid URL host.
+         */
+        public URL getServerUrl() throws MalformedURLException {
+            return new URL("http://" + host + ":" + appiumPort + "/wd/hub");
+        }
+
+        @Override
+        public String toString() {
+            return name + "@" + appiumPort;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package setup;
+
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands devices out to test worker threads so that every device runs at most one test at a time.
+ * A worker leases a device in its {@code @BeforeMethod}, keeps it confined to its thread for the test,
+ * and returns it afterwards; workers that find no free device block until one is released.
+ */
+public class DeviceScheduler {
+
+    /** Devices that are not running a test right now. */
+    private final BlockingQueue<DeviceRegistry.Device> free;
+
+    /** The device leased by the current worker thread, if any. */
+    private final ThreadLocal<DeviceRegistry.Device> current = new ThreadLocal<>();
+
+    /** Start time of the current lease per worker thread. */
+    private final ThreadLocal<Long> leasedAt = new ThreadLocal<>();
+
+    /** Accumulated time each device spent running tests, keyed by device name. */
+    private final Map<String, AtomicLong> busyNanos = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a scheduler over all devices in the registry.
+     *
+     * @param registry The devices available to the run.
+     */
+    public DeviceScheduler(DeviceRegistry registry) {
+        this.free = new LinkedBlockingQueue<>(registry.devices());
+        for (DeviceRegistry.Device device : registry.devices()) {
+            busyNanos.put(device.getName(), new AtomicLong());
+        }
+    }
+
+    /**
+     * Leases a device to the current thread, waiting for one to become free if necessary.
+     * Calling this again before {@link #release()} returns the device already leased.
+     *
+     * @return The device confined to the current thread.
+     */
+    public DeviceRegistry.Device lease() {
+        DeviceRegistry.Device device = current.get();
+        if (device != null) {
+            return device;
+        }
+        try {
+            device = free.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a free device", e);
+        }
+        current.set(device);
+        leasedAt.set(System.nanoTime());
+        return device;
+    }
+
+    /**
+     * @return The device leased by the current thread, or {@code null} if it holds none.
+     */
+    public DeviceRegistry.Device current() {
+        return current.get();
+    }
+
+    /**
+     * Returns the current thread's device so another worker can use it.
+     */
+    public void release() {
+        DeviceRegistry.Device device = current.get();
+        if (device == null) {
+            return;
+        }
+        busyNanos.get(device.getName()).addAndGet(System.nanoTime() - leasedAt.get());
+        current.remove();
+        leasedAt.remove();
+        free.offer(device);
+    }
+
+    /**
+     * Summarizes how long each device was busy, which shows how evenly tests were balanced.
+     *
+     * @return A one-line, human-readable report.
+     */
+    public String report() {
+        StringBuilder sb = new StringBuilder("Device utilization:");
+        for (Map.Entry<String, AtomicLong> entry : busyNanos.entrySet()) {
+            sb.append(' ').append(entry.getKey()).append('=')
+                    .append(entry.getValue().get() / 1_000_000).append("ms");
+        }
+        return sb.toString();
+    }
+}
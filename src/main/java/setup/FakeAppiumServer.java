@@ -0,0 +1,635 @@
+package setup;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.openqa.selenium.json.Json;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * An in-process stand-in for an Appium server driving a single device with the {@link FakeLoginApp} installed.
+ * It speaks the subset of the W3C WebDriver and Appium protocols the framework uses: sessions, element lookup by
+ * id, accessibility id, class name, simple XPath and UiSelector expressions, element text, clicks, typing,
+ * page source, screenshots and app lifecycle commands. Every command can be given an artificial latency to
+ * mimic a real device, and large responses are gzip-compressed for clients that accept it.
+ * Enable it for the suite with {@code FAKE_APPIUM=true} in the .env file.
+ */
+public class FakeAppiumServer {
+
+    /** W3C key under which element references are exchanged. */
+    private static final String ELEMENT_KEY = "element-6066-11e4-a52e-4f735466cecf";
+
+    /** Splits {@code /wd/hub/session/<id>/<command...>} into session id and command path. */
+    private static final Pattern SESSION_PATH = Pattern.compile("/wd/hub/session/([^/]+)(/.*)?");
+
+    /** Matches one step of a simple XPath: {@code //class[@attr='value' and ...]}. */
+    private static final Pattern XPATH = Pattern.compile("^(?:/hierarchy)?//([\\w.*]+)(?:\\[(.+)])?$");
+
+    /** Matches one predicate of a simple XPath: {@code @attr='value'} or {@code contains(@attr,'value')}. */
+    private static final Pattern XPATH_PREDICATE = Pattern.compile("(contains\\()?@([\\w-]+)\\s*,?\\s*=?\\s*['\"]([^'\"]*)['\"]\\)?");
+
+    /** Matches one call of a UiSelector chain: {@code .method("value")}. */
+    private static final Pattern UISELECTOR_CALL = Pattern.compile("\\.(\\w+)\\(\\s*\"((?:[^\"\\\\]|\\\\.)*)\"\\s*\\)");
+
+    /** Responses larger than this many bytes are compressed for clients that accept gzip, like page sources are. */
+    private static final int GZIP_THRESHOLD = 1024;
+
+    private final Json json = new Json();
+    private final FakeLoginApp app;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /** Open sessions; the app state is shared by all of them, as it is on a real device. */
+    private final Set<String> sessions = ConcurrentHashMap.newKeySet();
+
+    /** Artificial latency per command name, in milliseconds. */
+    private final Map<String, Long> commandLatency = new ConcurrentHashMap<>();
+
+    /** WebDriver errors the next call of a command fails with, keyed by command name. */
+    private final Map<String, String> failures = new ConcurrentHashMap<>();
+
+    /** Latency applied to commands without an entry in {@link #commandLatency}. */
+    private volatile long defaultLatency;
+
+    /**
+     * Creates a server for the given app; call {@link #start()} to begin serving.
+     *
+     * @param app  The app model to serve.
+     * @param port The port to listen on, or 0 for any free port.
+     * @throws IOException If the port cannot be bound.
+     */
+    public FakeAppiumServer(FakeLoginApp app, int port) throws IOException {
+        this.app = app;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        this.executor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "fake-appium-" + port);
+            t.setDaemon(true);
+            return t;
+        });
+        server.setExecutor(executor);
+        server.createContext("/wd/hub", this::handle);
+    }
+
+    /**
+     * Starts serving requests.
+     *
+     * @return This server, for chaining.
+     */
+    public FakeAppiumServer start() {
+        server.start();
+        return this;
+    }
+
+    /**
+     * Stops serving requests and releases the port.
+     */
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return The app model this server drives, for scripting its state.
+     */
+    public FakeLoginApp getApp() {
+        return app;
+    }
+
+    /**
+     * @return The WebDriver endpoint to pass to the driver.
+     */
+    public URL getUrl() {
+        try {
+            return new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/wd/hub");
+        } catch (MalformedURLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Sets the latency applied to every command without a specific latency.
+     *
+     * @param millis The latency in milliseconds.
+     * @return This server, for chaining.
+     */
+    public FakeAppiumServer setDefaultLatency(long millis) {
+        this.defaultLatency = millis;
+        return this;
+    }
+
+    /**
+     * Sets the latency of one command. Command names are {@code status}, {@code newSession}, {@code deleteSession},
+     * {@code findElement}, {@code findElements}, {@code getText}, {@code getAttribute}, {@code isDisplayed},
+     * {@code click}, {@code sendKeys}, {@code clear}, {@code source}, {@code screenshot}, {@code appLifecycle},
+     * {@code back}, {@code execute} and {@code other}.
+     *
+     * @param command The command name.
+     * @param millis  The latency in milliseconds.
+     * @return This server, for chaining.
+     */
+    public FakeAppiumServer setLatency(String command, long millis) {
+        commandLatency.put(command, millis);
+        return this;
+    }
+
+    /**
+     * Makes the next call of a command fail with a WebDriver error, after its latency, e.g. to check how a test
+     * copes with a click that fails halfway through a form. Command names are those of {@link #setLatency}.
+     *
+     * @param command The command name.
+     * @param error   The WebDriver error code, e.g. {@code stale element reference}.
+     * @return This server, for chaining.
+     */
+    public FakeAppiumServer failNext(String command, String error) {
+        failures.put(command, error);
+        return this;
+    }
+
+    /**
+     * Handles one HTTP request and writes the WebDriver response.
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        int status = 200;
+        Object value;
+        try {
+            Map<String, Object> body = readBody(exchange);
+            value = route(exchange.getRequestMethod(), exchange.getRequestURI().getPath(), body);
+        } catch (WebDriverError e) {
+            status = e.status;
+            Map<String, Object> error = new LinkedHashMap<>();
+            error.put("error", e.error);
+            error.put("message", e.getMessage());
+            error.put("stacktrace", "");
+            value = error;
+        } catch (RuntimeException e) {
+            status = 500;
+            Map<String, Object> error = new LinkedHashMap<>();
+            error.put("error", "unknown error");
+            error.put("message", String.valueOf(e));
+            error.put("stacktrace", "");
+            value = error;
+        }
+        byte[] response = json.toJson(Collections.singletonMap("value", value)).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        String accepted = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        if (accepted != null && accepted.contains("gzip") && response.length > GZIP_THRESHOLD) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(response.length / 4);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                gzip.write(response);
+            }
+            response = compressed.toByteArray();
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+        exchange.sendResponseHeaders(status, response.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(response);
+        }
+    }
+
+    /**
+     * Dispatches a request to the command it names and applies that command's latency.
+     */
+    private Object route(String method, String path, Map<String, Object> body) {
+        if (path.equals("/wd/hub/status")) {
+            delay("status");
+            return Collections.singletonMap("ready", true);
+        }
+        if (path.equals("/wd/hub/session") && method.equals("POST")) {
+            delay("newSession");
+            return newSession(body);
+        }
+        Matcher m = SESSION_PATH.matcher(path);
+        if (!m.matches()) {
+            throw new WebDriverError(404, "unknown command", path);
+        }
+        String sessionId = m.group(1);
+        String command = m.group(2) == null ? "" : m.group(2);
+        if (!sessions.contains(sessionId)) {
+            throw new WebDriverError(404, "invalid session id", "No session " + sessionId);
+        }
+        if (command.isEmpty() && method.equals("DELETE")) {
+            delay("deleteSession");
+            sessions.remove(sessionId);
+            return null;
+        }
+
+        String[] parts = command.substring(1).split("/");
+        switch (parts[0]) {
+            case "element":
+                return elementCommand(method, parts, body);
+            case "elements":
+                delay("findElements");
+                return references(find(null, body));
+            case "source":
+                delay("source");
+                return pageSource();
+            case "screenshot":
+                delay("screenshot");
+                return SCREENSHOT;
+            case "back":
+                delay("back");
+                app.back();
+                return null;
+            case "appium":
+                return appiumCommand(command, body);
+            case "execute":
+                delay("execute");
+                return null;
+            case "log":
+                delay("other");
+                return parts.length > 1 && parts[1].equals("types")
+                        ? Collections.singletonList("logcat") : Collections.emptyList();
+            default:
+                delay("other");
+                return null;
+        }
+    }
+
+    /**
+     * Handles {@code /element} and {@code /element/<id>/...} commands.
+     */
+    private Object elementCommand(String method, String[] parts, Map<String, Object> body) {
+        if (parts.length == 1) {
+            delay("findElement");
+            List<FakeLoginApp.Node> found = find(null, body);
+            if (found.isEmpty()) {
+                throw new WebDriverError(404, "no such element",
+                        "An element could not be located using " + body.get("using") + "=" + body.get("value"));
+            }
+            return reference(found.get(0));
+        }
+        FakeLoginApp.Node node = resolve(parts[1]);
+        String action = parts.length > 2 ? parts[2] : "";
+        switch (action) {
+            case "element":
+                delay("findElement");
+                List<FakeLoginApp.Node> found = find(node, body);
+                if (found.isEmpty()) {
+                    throw new WebDriverError(404, "no such element", "No child element matches");
+                }
+                return reference(found.get(0));
+            case "elements":
+                delay("findElements");
+                return references(find(node, body));
+            case "text":
+                delay("getText");
+                return node.getText();
+            case "name":
+                delay("getAttribute");
+                return node.getClassName();
+            case "attribute":
+                delay("getAttribute");
+                return node.attribute(parts[3]);
+            case "displayed":
+            case "enabled":
+                delay("isDisplayed");
+                return true;
+            case "selected":
+                delay("isDisplayed");
+                return false;
+            case "click":
+                delay("click");
+                app.click(node);
+                return null;
+            case "value":
+                delay("sendKeys");
+                app.type(node, typedText(body));
+                return null;
+            case "clear":
+                delay("clear");
+                app.type(node, "");
+                return null;
+            default:
+                delay("other");
+                return null;
+        }
+    }
+
+    /**
+     * Handles Appium-specific commands under {@code /appium/...}.
+     */
+    private Object appiumCommand(String command, Map<String, Object> body) {
+        if (command.matches("/appium/element/[^/]+/(value|replace_value)")) {
+            delay("sendKeys");
+            FakeLoginApp.Node node = resolve(command.split("/")[3]);
+            app.type(node, typedText(body));
+            return null;
+        }
+        switch (command) {
+            case "/appium/device/terminate_app":
+                delay("appLifecycle");
+                app.terminate();
+                return true;
+            case "/appium/device/activate_app":
+            case "/appium/app/launch":
+                delay("appLifecycle");
+                app.activate();
+                return null;
+            case "/appium/app/reset":
+                delay("appLifecycle");
+                app.reset();
+                return null;
+            case "/appium/app/close":
+                delay("appLifecycle");
+                app.terminate();
+                return null;
+            case "/appium/device/current_package":
+                delay("other");
+                return app.isRunning() ? FakeLoginApp.PACKAGE : "com.google.android.apps.nexuslauncher";
+            case "/appium/device/current_activity":
+                delay("other");
+                return app.isRunning() ? app.getScreen().getActivity() : ".NexusLauncherActivity";
+            case "/appium/device/hide_keyboard":
+                delay("other");
+                return null;
+            default:
+                delay("other");
+                return null;
+        }
+    }
+
+    /**
+     * Opens a session and echoes the requested capabilities back, W3C style.
+     */
+    @SuppressWarnings("unchecked")
+    private Object newSession(Map<String, Object> body) {
+        Map<String, Object> caps = new HashMap<>();
+        Object desired = body.get("desiredCapabilities");
+        if (desired instanceof Map) {
+            caps.putAll((Map<String, Object>) desired);
+        }
+        Object w3c = body.get("capabilities");
+        if (w3c instanceof Map) {
+            Object alwaysMatch = ((Map<String, Object>) w3c).get("alwaysMatch");
+            if (alwaysMatch instanceof Map) {
+                for (Map.Entry<String, Object> entry : ((Map<String, Object>) alwaysMatch).entrySet()) {
+                    caps.put(entry.getKey().replace("appium:", ""), entry.getValue());
+                }
+            }
+        }
+        caps.put("platformName", "Android");
+        caps.put("automationName", "UiAutomator2");
+        String id = UUID.randomUUID().toString();
+        sessions.add(id);
+        app.activate();
+
+        Map<String, Object> value = new LinkedHashMap<>();
+        value.put("sessionId", id);
+        value.put("capabilities", caps);
+        return value;
+    }
+
+    /**
+     * Finds the nodes matching the locator in the request body, in document order.
+     *
+     * @param scope The node to search below, or {@code null} to search the whole screen.
+     */
+    private List<FakeLoginApp.Node> find(FakeLoginApp.Node scope, Map<String, Object> body) {
+        String using = String.valueOf(body.get("using"));
+        String value = String.valueOf(body.get("value"));
+        FakeLoginApp.Node root = scope != null ? scope : app.hierarchy();
+        List<FakeLoginApp.Node> all = new ArrayList<>();
+        if (root != null) {
+            root.flatten(all);
+        }
+        if (scope != null && !all.isEmpty()) {
+            all.remove(0);
+        }
+        Map<String, String> predicates = predicates(using, value);
+        List<FakeLoginApp.Node> found = new ArrayList<>();
+        for (FakeLoginApp.Node node : all) {
+            if (matches(node, predicates)) {
+                found.add(node);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Translates a locator into attribute predicates. A predicate key ending in {@code ~} is a contains-match,
+     * one ending in {@code ^} a regular expression match.
+     */
+    private static Map<String, String> predicates(String using, String value) {
+        Map<String, String> predicates = new LinkedHashMap<>();
+        switch (using) {
+            case "id":
+                predicates.put("resource-id", value.contains(":id/") ? value : FakeLoginApp.PACKAGE + ":id/" + value);
+                return predicates;
+            case "accessibility id":
+                predicates.put("content-desc", value);
+                return predicates;
+            case "class name":
+                predicates.put("class", value);
+                return predicates;
+            case "css selector":
+                Matcher css = Pattern.compile("^(?:#|\\*\\[id=[\"'])(.+?)[\"']?]?$").matcher(value);
+                if (!css.matches()) {
+                    throw new WebDriverError(400, "invalid selector", "Unsupported CSS selector " + value);
+                }
+                return predicates("id", css.group(1).replace("\\:", ":").replace("\\/", "/"));
+            case "xpath":
+                Matcher xpath = XPATH.matcher(value.trim());
+                if (!xpath.matches()) {
+                    throw new WebDriverError(400, "invalid selector", "Unsupported XPath " + value);
+                }
+                if (!"*".equals(xpath.group(1))) {
+                    predicates.put("class", xpath.group(1));
+                }
+                if (xpath.group(2) != null) {
+                    for (String term : xpath.group(2).split("\\s+and\\s+")) {
+                        Matcher p = XPATH_PREDICATE.matcher(term.trim());
+                        if (!p.matches()) {
+                            throw new WebDriverError(400, "invalid selector", "Unsupported XPath predicate " + term);
+                        }
+                        predicates.put(p.group(2) + (p.group(1) != null ? "~" : ""), p.group(3));
+                    }
+                }
+                return predicates;
+            case "-android uiautomator":
+                Matcher call = UISELECTOR_CALL.matcher(value);
+                while (call.find()) {
+                    String arg = call.group(2).replace("\\\"", "\"").replace("\\\\", "\\");
+                    switch (call.group(1)) {
+                        case "resourceId":
+                            predicates.put("resource-id", arg);
+                            break;
+                        case "text":
+                            predicates.put("text", arg);
+                            break;
+                        case "textContains":
+                            predicates.put("text~", arg);
+                            break;
+                        case "resourceIdMatches":
+                            predicates.put("resource-id^", arg);
+                            break;
+                        case "className":
+                            predicates.put("class", arg);
+                            break;
+                        case "description":
+                            predicates.put("content-desc", arg);
+                            break;
+                        default:
+                            throw new WebDriverError(400, "invalid selector", "Unsupported UiSelector method " + call.group(1));
+                    }
+                }
+                if (predicates.isEmpty()) {
+                    throw new WebDriverError(400, "invalid selector", "Unsupported UiSelector " + value);
+                }
+                return predicates;
+            default:
+                throw new WebDriverError(400, "invalid selector", "Unsupported locator strategy " + using);
+        }
+    }
+
+    private static boolean matches(FakeLoginApp.Node node, Map<String, String> predicates) {
+        for (Map.Entry<String, String> p : predicates.entrySet()) {
+            boolean contains = p.getKey().endsWith("~");
+            boolean regex = p.getKey().endsWith("^");
+            String actual = node.attribute(contains || regex ? p.getKey().substring(0, p.getKey().length() - 1) : p.getKey());
+            if (actual == null) {
+                return false;
+            }
+            boolean matched = regex ? actual.matches(p.getValue())
+                    : contains ? actual.contains(p.getValue()) : actual.equals(p.getValue());
+            if (!matched) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Looks an element handle up on the current screen.
+     *
+     * @throws WebDriverError If the element belongs to a screen that is no longer shown.
+     */
+    private FakeLoginApp.Node resolve(String elementId) {
+        FakeLoginApp.Node root = app.hierarchy();
+        if (root != null) {
+            List<FakeLoginApp.Node> all = new ArrayList<>();
+            root.flatten(all);
+            for (FakeLoginApp.Node node : all) {
+                if (node.getElementId().equals(elementId)) {
+                    return node;
+                }
+            }
+        }
+        throw new WebDriverError(404, "stale element reference", "Element " + elementId + " is no longer attached");
+    }
+
+    private String pageSource() {
+        StringBuilder sb = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?><hierarchy index=\"0\" class=\"hierarchy\" rotation=\"0\">");
+        FakeLoginApp.Node root = app.hierarchy();
+        if (root != null) {
+            root.toXml(sb);
+        }
+        return sb.append("</hierarchy>").toString();
+    }
+
+    private static Map<String, Object> reference(FakeLoginApp.Node node) {
+        Map<String, Object> ref = new LinkedHashMap<>();
+        ref.put(ELEMENT_KEY, node.getElementId());
+        ref.put("ELEMENT", node.getElementId());
+        return ref;
+    }
+
+    private static List<Object> references(List<FakeLoginApp.Node> nodes) {
+        List<Object> refs = new ArrayList<>();
+        for (FakeLoginApp.Node node : nodes) {
+            refs.add(reference(node));
+        }
+        return refs;
+    }
+
+    /**
+     * Extracts the text to type from W3C ({@code text}) or legacy ({@code value} array) payloads.
+     */
+    private static String typedText(Map<String, Object> body) {
+        Object text = body.get("text");
+        if (text != null) {
+            return String.valueOf(text);
+        }
+        Object value = body.get("value");
+        if (value instanceof List) {
+            StringBuilder sb = new StringBuilder();
+            for (Object part : (List<?>) value) {
+                sb.append(part);
+            }
+            return sb.toString();
+        }
+        return value == null ? "" : String.valueOf(value);
+    }
+
+    private Map<String, Object> readBody(HttpExchange exchange) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] chunk = new byte[8192];
+            int n;
+            while ((n = in.read(chunk)) > 0) {
+                buffer.write(chunk, 0, n);
+            }
+        }
+        String content = new String(buffer.toByteArray(), StandardCharsets.UTF_8).trim();
+        if (content.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, Object> body = json.toType(content, Json.MAP_TYPE);
+        return body == null ? Collections.<String, Object>emptyMap() : body;
+    }
+
+    private void delay(String command) {
+        Long latency = commandLatency.get(command);
+        long millis = latency != null ? latency : defaultLatency;
+        if (millis > 0) {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        String error = failures.remove(command);
+        if (error != null) {
+            throw new WebDriverError(error.equals("unknown error") ? 500 : 404, error,
+                    "Injected failure of " + command);
+        }
+    }
+
+    /** A 1x1 transparent PNG, base64 encoded, returned for every screenshot. */
+    private static final String SCREENSHOT =
+            "iVBORw0KGgoAAAANSUhEUgAAAAEAAAABCAQAAAC1HAwCAAAAC0lEQVR42mNkYAAAAAYAAjCB0C8AAAAASUVORK5CYII=";
+
+    /**
+     * A WebDriver error to be returned to the client.
+     */
+    private static final class WebDriverError extends RuntimeException {
+        private final int status;
+        private final String error;
+
+        private WebDriverError(int status, String error, String message) {
+            super(message);
+            this.status = status;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,433 @@
+package setup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A scriptable in-memory model of the {@code com.loginmodule.learning} app, served by {@link FakeAppiumServer}.
+ * It reproduces the login, register and account screens with the resource ids and texts the page objects use,
+ * the field validation messages (shown as TextViews under the offending field) and the snackbar, so the
+ * whole suite can run without a device. Accounts can be scripted with {@link #addAccount(String, String, String)}.
+ */
+public class FakeLoginApp {
+
+    /** Package of the modelled app. */
+    public static final String PACKAGE = "com.loginmodule.learning";
+
+    /** Prefix of every resource id in the app. */
+    private static final String ID = PACKAGE + ":id/";
+
+    /** Close enough to {@code android.util.Patterns.EMAIL_ADDRESS} for validation purposes. */
+    private static final Pattern EMAIL = Pattern.compile("[a-zA-Z0-9+._%\\-]{1,256}@[a-zA-Z0-9][a-zA-Z0-9\\-]{0,64}(\\.[a-zA-Z0-9][a-zA-Z0-9\\-]{0,25})+");
+
+    /** Screens of the app. */
+    public enum Screen {
+        LOGIN(".activities.LoginActivity"),
+        REGISTER(".activities.RegisterActivity"),
+        ACCOUNT(".activities.UsersListActivity");
+
+        private final String activity;
+
+        Screen(String activity) {
+            this.activity = activity;
+        }
+
+        public String getActivity() {
+            return activity;
+        }
+    }
+
+    /** Accounts the app starts with after a data reset, keyed by email. */
+    private final Map<String, String[]> seededAccounts = new LinkedHashMap<>();
+
+    /** Registered accounts keyed by email; each value is {password, name}. */
+    private final Map<String, String[]> accounts = new LinkedHashMap<>();
+
+    /** Text typed into each input field of the current screen, keyed by resource id. */
+    private final Map<String, String> fields = new LinkedHashMap<>();
+
+    /** Validation message shown under an input field, keyed by the field's resource id. */
+    private final Map<String, String> fieldErrors = new LinkedHashMap<>();
+
+    private Screen screen = Screen.LOGIN;
+    private String snackbar;
+    private String loggedInEmail;
+    private boolean running = true;
+
+    /** Incremented whenever the screen is replaced, so element handles from the old screen go stale. */
+    private int generation;
+
+    /**
+     * Adds an account that exists from the start and survives data resets.
+     *
+     * @param email    The account email.
+     * @param password The account password.
+     * @param name     The account holder's name.
+     * @return This app, for chaining.
+     */
+    public synchronized FakeLoginApp addAccount(String email, String password, String name) {
+        if (email != null) {
+            seededAccounts.put(email, new String[]{password, name});
+            accounts.put(email, new String[]{password, name});
+        }
+        return this;
+    }
+
+    /**
+     * @return The screen currently shown.
+     */
+    public synchronized Screen getScreen() {
+        return screen;
+    }
+
+    /**
+     * Jumps straight to a screen, as if the user had navigated there.
+     *
+     * @param target The screen to show.
+     */
+    public synchronized void show(Screen target) {
+        screen = target;
+        fields.clear();
+        fieldErrors.clear();
+        snackbar = null;
+        generation++;
+    }
+
+    /**
+     * @return Whether the app is in the foreground.
+     */
+    public synchronized boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Kills the app, as {@code terminateApp} does.
+     */
+    public synchronized void terminate() {
+        running = false;
+        generation++;
+    }
+
+    /**
+     * Launches the app on its login screen, as {@code activateApp} does.
+     */
+    public synchronized void activate() {
+        running = true;
+        loggedInEmail = null;
+        show(Screen.LOGIN);
+    }
+
+    /**
+     * Clears app data back to the seeded accounts and relaunches it, as {@code resetApp} does.
+     */
+    public synchronized void reset() {
+        accounts.clear();
+        accounts.putAll(seededAccounts);
+        activate();
+    }
+
+    /**
+     * Navigates back: register and account screens return to the login screen.
+     */
+    public synchronized void back() {
+        if (screen != Screen.LOGIN) {
+            activate();
+        }
+    }
+
+    /**
+     * Builds the view hierarchy of the current screen.
+     *
+     * @return The root node, or {@code null} when the app is not running.
+     */
+    public synchronized Node hierarchy() {
+        if (!running) {
+            return null;
+        }
+        Node content = new Node("android.widget.LinearLayout", null, "");
+        switch (screen) {
+            case LOGIN:
+                content.add(field("textInputLayoutEmail", "textInputEditTextEmail"));
+                content.add(field("textInputLayoutPassword", "textInputEditTextPassword"));
+                content.add(button("appCompatButtonLogin", "LOGIN"));
+                content.add(text("textViewLinkRegister", "No account yet? Create one"));
+                break;
+            case REGISTER:
+                content.add(field("textInputLayoutName", "textInputEditTextName"));
+                content.add(field("textInputLayoutEmail", "textInputEditTextEmail"));
+                content.add(field("textInputLayoutPassword", "textInputEditTextPassword"));
+                content.add(field("textInputLayoutConfirmPassword", "textInputEditTextConfirmPassword"));
+                content.add(button("appCompatButtonRegister", "REGISTER"));
+                content.add(text("appCompatTextViewLoginLink", "Already a member? Login"));
+                break;
+            case ACCOUNT:
+                String[] account = accounts.get(loggedInEmail);
+                content.add(text("textViewName", account == null ? "" : account[1]));
+                content.add(text("textViewEmail", loggedInEmail));
+                break;
+        }
+        Node root = new Node("android.widget.FrameLayout", null, "");
+        root.add(content);
+        if (snackbar != null) {
+            Node bar = new Node("android.widget.LinearLayout", null, "");
+            bar.add(new Node("android.widget.TextView", ID + "snackbar_text", snackbar));
+            root.add(bar);
+        }
+        root.assignIds(screen.name() + generation, new int[]{0});
+        return root;
+    }
+
+    /**
+     * Types into an input field, replacing its content as UiAutomator2 does.
+     *
+     * @param node The field node.
+     * @param text The new content.
+     */
+    public synchronized void type(Node node, String text) {
+        if (node.resourceId != null && node.className.endsWith("EditText")) {
+            fields.put(node.resourceId, text);
+        }
+    }
+
+    /**
+     * Clicks a node, triggering validation, login, registration or navigation as the real app does.
+     *
+     * @param node The clicked node.
+     */
+    public synchronized void click(Node node) {
+        String id = node.resourceId == null ? "" : node.resourceId.substring(ID.length());
+        switch (id) {
+            case "appCompatButtonLogin":
+                submitLogin();
+                break;
+            case "appCompatButtonRegister":
+                submitRegistration();
+                break;
+            case "textViewLinkRegister":
+                show(Screen.REGISTER);
+                break;
+            case "appCompatTextViewLoginLink":
+                show(Screen.LOGIN);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Validates the login form and either opens the account screen or shows an error.
+     */
+    private void submitLogin() {
+        fieldErrors.clear();
+        snackbar = null;
+        String email = value("textInputEditTextEmail");
+        String password = value("textInputEditTextPassword");
+        if (!EMAIL.matcher(email).matches()) {
+            fieldErrors.put(ID + "textInputEditTextEmail", "Enter Valid Email");
+            return;
+        }
+        if (password.isEmpty()) {
+            fieldErrors.put(ID + "textInputEditTextPassword", "Enter Valid Password");
+            return;
+        }
+        String[] account = accounts.get(email);
+        if (account != null && account[0].equals(password)) {
+            show(Screen.ACCOUNT);
+            loggedInEmail = email;
+        } else {
+            snackbar = "Wrong Email or Password";
+        }
+    }
+
+    /**
+     * Validates the registration form and either registers the account or shows an error.
+     */
+    private void submitRegistration() {
+        fieldErrors.clear();
+        snackbar = null;
+        String name = value("textInputEditTextName");
+        String email = value("textInputEditTextEmail");
+        String password = value("textInputEditTextPassword");
+        String confirm = value("textInputEditTextConfirmPassword");
+        if (name.isEmpty()) {
+            fieldErrors.put(ID + "textInputEditTextName", "Enter Full Name");
+        } else if (!EMAIL.matcher(email).matches()) {
+            fieldErrors.put(ID + "textInputEditTextEmail", "Enter Valid Email");
+        } else if (password.isEmpty()) {
+            fieldErrors.put(ID + "textInputEditTextPassword", "Enter Password");
+        } else if (!password.equals(confirm)) {
+            fieldErrors.put(ID + "textInputEditTextConfirmPassword", "Password Does Not Matches");
+        } else if (accounts.containsKey(email)) {
+            snackbar = "Email Already Exists";
+        } else {
+            accounts.put(email, new String[]{password, name});
+            fields.clear();
+            snackbar = "Registration Successful";
+        }
+    }
+
+    private String value(String id) {
+        String value = fields.get(ID + id);
+        return value == null ? "" : value.trim();
+    }
+
+    private Node field(String layoutId, String editId) {
+        Node layout = new Node("android.widget.LinearLayout", ID + layoutId, "");
+        String value = fields.get(ID + editId);
+        layout.add(new Node("android.widget.EditText", ID + editId, value == null ? "" : value));
+        String error = fieldErrors.get(ID + editId);
+        if (error != null) {
+            layout.add(new Node("android.widget.TextView", ID + "textinput_error", error));
+        }
+        return layout;
+    }
+
+    private static Node button(String id, String label) {
+        return new Node("android.widget.Button", ID + id, label);
+    }
+
+    private static Node text(String id, String value) {
+        return new Node("android.widget.TextView", ID + id, value == null ? "" : value);
+    }
+
+    /**
+     * A node of the fake view hierarchy.
+     */
+    public static final class Node {
+        private final String className;
+        private final String resourceId;
+        private final String text;
+        private final List<Node> children = new ArrayList<>();
+        private String elementId;
+        private int index;
+
+        private Node(String className, String resourceId, String text) {
+            this.className = className;
+            this.resourceId = resourceId;
+            this.text = text;
+        }
+
+        private void add(Node child) {
+            child.index = children.size();
+            children.add(child);
+        }
+
+        /**
+         * Gives every node a handle that stays the same until the screen is replaced.
+         */
+        private void assignIds(String prefix, int[] counter) {
+            String key = resourceId != null && !"textinput_error".equals(resourceId.substring(resourceId.indexOf('/') + 1))
+                    ? resourceId : className + "#" + counter[0]++ + "#" + text;
+            elementId = prefix + "-" + Integer.toHexString(key.hashCode());
+            for (Node child : children) {
+                child.assignIds(prefix, counter);
+            }
+        }
+
+        public String getClassName() {
+            return className;
+        }
+
+        public String getResourceId() {
+            return resourceId;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public String getElementId() {
+            return elementId;
+        }
+
+        public List<Node> getChildren() {
+            return Collections.unmodifiableList(children);
+        }
+
+        /**
+         * Returns the value of a UiAutomator2 attribute of this node.
+         *
+         * @param name The attribute name, e.g. {@code resource-id} or {@code text}.
+         * @return The attribute value, or {@code null} if the node has none.
+         */
+        public String attribute(String name) {
+            switch (name) {
+                case "class":
+                case "className":
+                    return className;
+                case "resource-id":
+                case "resourceId":
+                    return resourceId;
+                case "text":
+                case "name":
+                    return text;
+                case "content-desc":
+                case "contentDescription":
+                    return "";
+                case "package":
+                    return PACKAGE;
+                case "displayed":
+                case "enabled":
+                    return "true";
+                case "clickable":
+                    return String.valueOf(className.endsWith("Button") || className.endsWith("EditText")
+                            || (resourceId != null && resourceId.contains("Link")));
+                default:
+                    return null;
+            }
+        }
+
+        /**
+         * Collects this node and all its descendants in document order.
+         *
+         * @param into The list to add the nodes to.
+         */
+        public void flatten(List<Node> into) {
+            into.add(this);
+            for (Node child : children) {
+                child.flatten(into);
+            }
+        }
+
+        /**
+         * Serializes this subtree in the format of UiAutomator2's page source.
+         *
+         * @param sb The builder to append to.
+         */
+        public void toXml(StringBuilder sb) {
+            sb.append('<').append(className)
+                    .append(" index=\"").append(index)
+                    .append("\" package=\"").append(PACKAGE)
+                    .append("\" class=\"").append(className)
+                    .append("\" text=\"").append(escape(text))
+                    .append("\" resource-id=\"").append(resourceId == null ? "" : resourceId)
+                    .append("\" content-desc=\"\" clickable=\"").append(attribute("clickable"))
+                    .append("\" enabled=\"true\" displayed=\"true\"");
+            if (children.isEmpty()) {
+                sb.append("/>");
+                return;
+            }
+            sb.append('>');
+            for (Node child : children) {
+                child.toXml(sb);
+            }
+            sb.append("</").append(className).append('>');
+        }
+
+        private static String escape(String value) {
+            Matcher m = Pattern.compile("[&<>\"]").matcher(value);
+            StringBuffer sb = new StringBuffer();
+            while (m.find()) {
+                String c = m.group();
+                m.appendReplacement(sb, "&".equals(c) ? "&amp;" : "<".equals(c) ? "&lt;" : ">".equals(c) ? "&gt;" : "&quot;");
+            }
+            m.appendTail(sb);
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package setup;
+
+/**
+ * A test user: the name, email and password entered when registering and logging in.
+ */
+public final class Identity {
+
+    private final String name;
+    private final String email;
+    private final String password;
+
+    /**
+     * Creates an identity.
+     *
+     * @param name     The full name.
+     * @param email    The email address.
+     * @param password The password.
+     */
+    public Identity(String name, String email, String password) {
+        this.name = name;
+        this.email = email;
+        this.password = password;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    @Override
+    public String toString() {
+        return name + " <" + email + ">";
+    }
+}
@@ -0,0 +1,160 @@
+package setup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An append-only record of the identities registered on each device, kept in a tab-separated file so that it
+ * survives {@code gradle clean}. Later runs use it to skip emails that are already registered and to log in with
+ * an existing account instead of registering a new one. Each record is written with a single append, so
+ * concurrent workers and JVMs never interleave lines. A replay of a recorded run uses an in-memory copy of the
+ * ledger the recording was made with, see {@link #inMemory(List)}.
+ */
+public class IdentityLedger {
+
+    /** File the ledger is kept in, or {@code null} for a ledger kept in memory only. */
+    private final Path file;
+
+    /** Every record, one line each as kept in the file. */
+    private final List<String> records = new CopyOnWriteArrayList<>();
+
+    /** Every email in the ledger, on any device. */
+    private final Set<String> emails = ConcurrentHashMap.newKeySet();
+
+    /** Registered identities keyed by device name. */
+    private final Map<String, List<Identity>> byDevice = new ConcurrentHashMap<>();
+
+    /** Round-robin position for handing out accounts, keyed by device name. */
+    private final Map<String, AtomicInteger> next = new ConcurrentHashMap<>();
+
+    /**
+     * Loads the ledger; a missing file starts an empty ledger and malformed lines are ignored.
+     *
+     * @param file The ledger file.
+     */
+    public IdentityLedger(Path file) {
+        this.file = file;
+        if (Files.exists(file)) {
+            try {
+                load(Files.readAllLines(file, StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private IdentityLedger(List<String> records) {
+        this.file = null;
+        load(records);
+    }
+
+    /**
+     * Creates a ledger holding the given records that is never written to a file, e.g. the ledger a recorded
+     * run was made with.
+     *
+     * @param records The records, as returned by {@link #records()}.
+     * @return The ledger.
+     */
+    public static IdentityLedger inMemory(List<String> records) {
+        return new IdentityLedger(records);
+    }
+
+    /**
+     * @return Every record of the ledger, one line each as kept in its file, oldest first.
+     */
+    public List<String> records() {
+        return new ArrayList<>(records);
+    }
+
+    /**
+     * @param email The email to look up.
+     * @return {@code true} if the email was registered on any device.
+     */
+    public boolean contains(String email) {
+        return emails.contains(email);
+    }
+
+    /**
+     * @return Every email in the ledger, on any device.
+     */
+    public Set<String> emails() {
+        return new HashSet<>(emails);
+    }
+
+    /**
+     * Appends a registered identity to the ledger.
+     *
+     * @param device   The device the identity was registered on.
+     * @param identity The registered identity.
+     */
+    public void record(String device, Identity identity) {
+        String record = System.currentTimeMillis() + "\t" + device + "\t" + identity.getEmail() + "\t"
+                + identity.getPassword() + "\t" + identity.getName();
+        remember(device, identity, record);
+        if (file == null) {
+            return;
+        }
+        String line = record + System.lineSeparator();
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            Files.write(file, line.getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Returns an account registered on a device, rotating through the device's known accounts so that repeated
+     * logins are spread over them. Each device rotates on its own, so the accounts a device's tests get do not
+     * depend on how the devices' tests interleave.
+     *
+     * @param device The device to log in on.
+     * @return A registered identity, or {@code null} if none is known for the device.
+     */
+    public Identity accountFor(String device) {
+        List<Identity> accounts = byDevice.getOrDefault(device, Collections.<Identity>emptyList());
+        if (accounts.isEmpty()) {
+            return null;
+        }
+        return accounts.get(Math.floorMod(next.computeIfAbsent(device, d -> new AtomicInteger()).getAndIncrement(),
+                accounts.size()));
+    }
+
+    /**
+     * @param device The device to look up.
+     * @return The identities registered on the device, oldest first.
+     */
+    public List<Identity> accounts(String device) {
+        return new ArrayList<>(byDevice.getOrDefault(device, Collections.<Identity>emptyList()));
+    }
+
+    private void load(List<String> lines) {
+        for (String line : lines) {
+            String[] parts = line.split("\t");
+            if (parts.length == 5) {
+                remember(parts[1], new Identity(parts[4], parts[2], parts[3]), line);
+            }
+        }
+    }
+
+    private void remember(String device, Identity identity, String record) {
+        records.add(record);
+        emails.add(identity.getEmail());
+        byDevice.computeIfAbsent(device, d -> new CopyOnWriteArrayList<>()).add(identity);
+    }
+}
@@ -0,0 +1,57 @@
+package setup;
+
+import io.appium.java_client.MobileElement;
+import io.appium.java_client.android.AndroidDriver;
+import org.openqa.selenium.Capabilities;
+import org.openqa.selenium.remote.http.HttpClient;
+
+import java.net.URL;
+
+/**
+ * An {@link AndroidDriver} whose session can be replaced by a new one when it dies. Tests and page objects keep the
+ * same driver object, so a session restarted by {@link SessionRecovery} in the middle of a page-object method is
+ * picked up by that method's remaining steps.
+ * <p>
+ * The new session is started by a new driver from the {@link SessionPool}'s factory, whose command executor this
+ * driver then takes over: an executor that has started one session rejects a second new-session command, so a
+ * session cannot be restarted on the driver's own executor.
+ */
+public class RecoverableDriver extends AndroidDriver<MobileElement> {
+
+    /**
+     * Starts a session whose commands go through the given transport.
+     *
+     * @param serverUrl The Appium server URL.
+     * @param transport The HTTP transport for the session's commands.
+     * @param desired   The desired capabilities.
+     */
+    public RecoverableDriver(URL serverUrl, HttpClient.Factory transport, Capabilities desired) {
+        super(serverUrl, transport, desired);
+    }
+
+    /**
+     * Starts a session with the driver's own HTTP client.
+     *
+     * @param serverUrl The Appium server URL.
+     * @param desired   The desired capabilities.
+     */
+    public RecoverableDriver(URL serverUrl, Capabilities desired) {
+        super(serverUrl, desired);
+    }
+
+    /**
+     * Abandons the current session and takes over the session of a newly created driver, along with its command
+     * executor. The new driver must not be used or quit afterwards, since its session now belongs to this driver.
+     *
+     * @param fresh A driver that has just started a session with the same capabilities.
+     */
+    void replaceSession(AndroidDriver<?> fresh) {
+        try {
+            quit();
+        } catch (Exception e) {
+            // The old session is usually gone already.
+        }
+        setCommandExecutor(fresh.getCommandExecutor());
+        setSessionId(fresh.getSessionId().toString());
+    }
+}
@@ -0,0 +1,356 @@
+package setup;
+
+import io.github.cdimascio.dotenv.Dotenv;
+import page.BasePage;
+import page.CommandMetrics;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Remembers which tests passed against which inputs, so that an unchanged build can skip them.
+ * <p>
+ * A test's fingerprint is a SHA-256 over the app under test, the .env inputs listed in RESULT_CACHE_ENV_KEYS, the
+ * test class, every {@code setup} class, the {@code page} framework classes, and the page objects the test issued
+ * commands through when it last passed. A test is skipped when its current fingerprint equals the one recorded with
+ * a pass younger than RESULT_CACHE_MAX_AGE_HOURS. Entries are kept in RESULT_CACHE_FILE and evicted by age and,
+ * beyond RESULT_CACHE_MAX_ENTRIES, oldest first. Each invocation of a data-driven test is cached on its own (see
+ * {@link #key}), so one failing row keeps its test method from being skipped.
+ * <p>
+ * The app is fingerprinted from APP_APK if it points to the APK file, from the fake app's classes when FAKE_APPIUM is
+ * enabled, and otherwise from the version and install time {@code adb} reports for APP_PACKAGE on the first device.
+ * If none of these works nothing is skipped.
+ */
+public class ResultCache {
+
+    /** The .env inputs that influence test results unless RESULT_CACHE_ENV_KEYS says otherwise. */
+    private static final String DEFAULT_ENV_KEYS = "PLATFORM_NAME,APP_PACKAGE,APP_ACTIVITY,NO_RESET,VALID_EMAIL,"
+            + "VALID_PASSWORD,INVALID_EMAIL_FORMAT,INCORRECT_EMAIL,NAME,INVALID_REINPUT_PASSWORD,FAKE_APPIUM,"
+            + "SNAPSHOT_MODE,DATA_REUSE_ACCOUNTS";
+
+    private final Dotenv dotenv;
+    private final Path file;
+    private final long maxAgeMillis;
+    private final int maxEntries;
+
+    /** Latest pass per test invocation key: {fingerprint, timestamp, touched classes}. */
+    private final Map<String, String[]> entries = new ConcurrentHashMap<>();
+
+    /** Hashes of the app and environment, computed once per run; {@code null} if the app cannot be fingerprinted. */
+    private volatile String runInputs;
+    private volatile boolean runInputsComputed;
+
+    /** SHA-256 of class files, keyed by class name. */
+    private final Map<String, String> classHashes = new ConcurrentHashMap<>();
+
+    /**
+     * Loads the cache from RESULT_CACHE_FILE (.test-data/result-cache.properties by default); a missing or
+     * unreadable file starts an empty cache.
+     *
+     * @param dotenv The environment to read settings and inputs from.
+     */
+    public ResultCache(Dotenv dotenv) {
+        this.dotenv = dotenv;
+        this.file = Paths.get(dotenv.get("RESULT_CACHE_FILE", ".test-data/result-cache.properties"));
+        this.maxAgeMillis = Long.parseLong(dotenv.get("RESULT_CACHE_MAX_AGE_HOURS", "168")) * 3_600_000L;
+        this.maxEntries = Integer.parseInt(dotenv.get("RESULT_CACHE_MAX_ENTRIES", "1000"));
+        if (Files.exists(file)) {
+            Properties props = new Properties();
+            try (InputStream in = Files.newInputStream(file)) {
+                props.load(in);
+                for (String test : props.stringPropertyNames()) {
+                    String[] parts = props.getProperty(test).split("\\|", -1);
+                    if (parts.length == 3) {
+                        entries.put(test, parts);
+                    }
+                }
+            } catch (IOException | NumberFormatException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Names a test invocation as the cache keys it: the test class followed by the invocation's name as its timings
+     * are tagged, e.g. {@code RunnerTests.login(a@example.com, secret)}.
+     *
+     * @param testClass  The class declaring the test.
+     * @param method     The test method name.
+     * @param parameters The invocation's parameters, or {@code null}.
+     * @return The cache key; for a test without parameters, its qualified name.
+     */
+    public static String key(Class<?> testClass, String method, Object[] parameters) {
+        return testClass.getName() + "." + CommandMetrics.testName(method, parameters);
+    }
+
+    /**
+     * @return {@code true} if RESULT_CACHE is enabled and RESULT_CACHE_FORCE does not ask for a full run.
+     */
+    public boolean isSkippingEnabled() {
+        return Boolean.parseBoolean(dotenv.get("RESULT_CACHE", "false"))
+                && !Boolean.parseBoolean(dotenv.get("RESULT_CACHE_FORCE", "false"));
+    }
+
+    /**
+     * Tells whether a test passed recently with exactly the current inputs.
+     *
+     * @param testName  The test invocation's key, see {@link #key}.
+     * @param testClass The class declaring the test.
+     * @return {@code true} if the test can be skipped.
+     */
+    public boolean isUnchanged(String testName, Class<?> testClass) {
+        String[] entry = entries.get(testName);
+        if (entry == null || System.currentTimeMillis() - Long.parseLong(entry[1]) > maxAgeMillis) {
+            return false;
+        }
+        Set<String> touched = new TreeSet<>();
+        if (!entry[2].isEmpty()) {
+            Collections.addAll(touched, entry[2].split(","));
+        }
+        String fingerprint = fingerprint(testClass, touched);
+        return fingerprint != null && fingerprint.equals(entry[0]);
+    }
+
+    /**
+     * Records that a test passed.
+     *
+     * @param testName  The test invocation's key, see {@link #key}.
+     * @param testClass The class declaring the test.
+     * @param touched   The page classes the test issued commands through.
+     */
+    public void recordPass(String testName, Class<?> testClass, Set<String> touched) {
+        String fingerprint = fingerprint(testClass, touched);
+        if (fingerprint != null) {
+            entries.put(testName, new String[]{fingerprint, Long.toString(System.currentTimeMillis()),
+                    String.join(",", touched)});
+        }
+    }
+
+    /**
+     * Forgets a test's pass, e.g. because it has now failed.
+     *
+     * @param testName The test invocation's key, see {@link #key}.
+     */
+    public void invalidate(String testName) {
+        entries.remove(testName);
+    }
+
+    /**
+     * Evicts expired and surplus entries and writes the cache back to its file.
+     */
+    public void save() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(entry -> now - Long.parseLong(entry[1]) > maxAgeMillis);
+        List<Map.Entry<String, String[]>> byAge = new ArrayList<>(entries.entrySet());
+        byAge.sort((a, b) -> Long.compare(Long.parseLong(b.getValue()[1]), Long.parseLong(a.getValue()[1])));
+        Properties props = new Properties();
+        for (Map.Entry<String, String[]> entry : byAge.subList(0, Math.min(maxEntries, byAge.size()))) {
+            props.setProperty(entry.getKey(), String.join("|", entry.getValue()));
+        }
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            try (OutputStream out = Files.newOutputStream(file)) {
+                props.store(out, "Passing tests: fingerprint|timestamp|touched page classes");
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Computes a test's fingerprint.
+     *
+     * @return The fingerprint, or {@code null} if the app or a class file could not be read.
+     */
+    private String fingerprint(Class<?> testClass, Set<String> touched) {
+        String inputs = runInputs();
+        if (inputs == null) {
+            return null;
+        }
+        Set<String> classes = new TreeSet<>();
+        classes.add(testClass.getName());
+        classes.addAll(classesIn("setup"));
+        for (String name : classesIn("page")) {
+            String outer = name.contains("$") ? name.substring(0, name.indexOf('$')) : name;
+            if (!isPageObject(outer) || touched.contains(outer)) {
+                classes.add(name);
+            }
+        }
+        StringBuilder sb = new StringBuilder(inputs);
+        for (String name : classes) {
+            String hash = classHash(name);
+            if (hash == null) {
+                return null;
+            }
+            sb.append('\n').append(name).append('=').append(hash);
+        }
+        return sha256(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Hashes the app under test and the environment inputs once per run.
+     */
+    private String runInputs() {
+        if (!runInputsComputed) {
+            synchronized (this) {
+                if (!runInputsComputed) {
+                    String app = appFingerprint();
+                    if (app == null) {
+                        System.out.println("Result cache: cannot fingerprint the app under test, running every test");
+                    } else {
+                        StringBuilder sb = new StringBuilder("app=").append(app);
+                        for (String key : dotenv.get("RESULT_CACHE_ENV_KEYS", DEFAULT_ENV_KEYS).split(",")) {
+                            sb.append('\n').append(key.trim()).append('=').append(dotenv.get(key.trim(), ""));
+                        }
+                        runInputs = sb.toString();
+                    }
+                    runInputsComputed = true;
+                }
+            }
+        }
+        return runInputs;
+    }
+
+    private String appFingerprint() {
+        String apk = dotenv.get("APP_APK");
+        if (apk != null && Files.isRegularFile(Paths.get(apk))) {
+            try {
+                return sha256(Files.readAllBytes(Paths.get(apk)));
+            } catch (IOException e) {
+                e.printStackTrace();
+                return null;
+            }
+        }
+        if (Boolean.parseBoolean(dotenv.get("FAKE_APPIUM", "false"))) {
+            return "fake:" + classHash(FakeLoginApp.class.getName());
+        }
+        List<DeviceRegistry.Device> devices = TestSetup.deviceRegistry().devices();
+        String appPackage = dotenv.get("APP_PACKAGE");
+        if (devices.isEmpty() || appPackage == null) {
+            return null;
+        }
+        try {
+            Process adb = new ProcessBuilder("adb", "-s", devices.get(0).getName(), "shell", "dumpsys", "package",
+                    appPackage).redirectErrorStream(true).start();
+            StringBuilder version = new StringBuilder();
+            try (BufferedReader out = new BufferedReader(new InputStreamReader(adb.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = out.readLine()) != null) {
+                    line = line.trim();
+                    if (line.startsWith("versionCode=") || line.startsWith("versionName=")
+                            || line.startsWith("lastUpdateTime=")) {
+                        version.append(line).append('\n');
+                    }
+                }
+            }
+            return adb.waitFor() == 0 && version.length() > 0 ? version.toString() : null;
+        } catch (IOException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private String classHash(String className) {
+        return classHashes.computeIfAbsent(className, name -> {
+            try (InputStream in = ResultCache.class.getClassLoader().getResourceAsStream(name.replace('.', '/') + ".class")) {
+                if (in == null) {
+                    return null;
+                }
+                byte[] buffer = new byte[8192];
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                int n;
+                while ((n = in.read(buffer)) > 0) {
+                    bytes.write(buffer, 0, n);
+                }
+                return sha256(bytes.toByteArray());
+            } catch (IOException e) {
+                e.printStackTrace();
+                return null;
+            }
+        });
+    }
+
+    private static boolean isPageObject(String className) {
+        try {
+            Class<?> type = Class.forName(className, false, ResultCache.class.getClassLoader());
+            return type != BasePage.class && BasePage.class.isAssignableFrom(type);
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Lists the classes of a package on the class path, from directories and jars.
+     */
+    private static Collection<String> classesIn(String packageName) {
+        Set<String> classes = new TreeSet<>();
+        try {
+            Enumeration<URL> roots = ResultCache.class.getClassLoader().getResources(packageName);
+            while (roots.hasMoreElements()) {
+                URL root = roots.nextElement();
+                if ("file".equals(root.getProtocol())) {
+                    try (DirectoryStream<Path> dir = Files.newDirectoryStream(Paths.get(root.toURI()), "*.class")) {
+                        for (Path classFile : dir) {
+                            String name = classFile.getFileName().toString();
+                            classes.add(packageName + "." + name.substring(0, name.length() - ".class".length()));
+                        }
+                    }
+                } else if ("jar".equals(root.getProtocol())) {
+                    JarFile jar = ((JarURLConnection) root.openConnection()).getJarFile();
+                    for (Enumeration<JarEntry> e = jar.entries(); e.hasMoreElements(); ) {
+                        String name = e.nextElement().getName();
+                        if (name.startsWith(packageName + "/") && name.endsWith(".class")
+                                && name.indexOf('/', packageName.length() + 1) < 0) {
+                            classes.add(name.substring(0, name.length() - ".class".length()).replace('/', '.'));
+                        }
+                    }
+                }
+            }
+        } catch (IOException | URISyntaxException e) {
+            e.printStackTrace();
+        }
+        return classes;
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            StringBuilder hex = new StringBuilder();
+            for (byte b : MessageDigest.getInstance("SHA-256").digest(bytes)) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
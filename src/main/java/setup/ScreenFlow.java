@@ -0,0 +1,26 @@
+package setup;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares the screen a test starts on and the screen it leaves the app on when it passes.
+ * Annotated tests get their session in whatever state the previous test left it and are navigated to their start
+ * screen in-app, instead of relaunching the app; see {@link ScreenNavigator}.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface ScreenFlow {
+
+    /**
+     * @return The screen the test expects to start on.
+     */
+    AppScreen start();
+
+    /**
+     * @return The screen the test leaves the app on when it passes.
+     */
+    AppScreen end();
+}
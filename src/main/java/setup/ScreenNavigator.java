@@ -0,0 +1,203 @@
+package setup;
+
+import io.appium.java_client.android.AndroidDriver;
+import page.BasePage;
+import page.ElementCache;
+import page.RegisterPage;
+import page.ScreenCatalog;
+import page.WaitEngine;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Moves a session between screens with in-app navigation instead of relaunching the app, and orders tests so that
+ * each one starts where the previous one ended.
+ * <p>
+ * A screen left behind by a test may still show that test's messages and input, so a test is only ever started on
+ * a screen that was freshly opened: either by navigating to it from another screen, or by a relaunch. Starting on
+ * the screen a test ended on therefore means leaving it and coming back, which is still much cheaper than a relaunch.
+ */
+public final class ScreenNavigator {
+
+    /** Cost of a relaunch, in navigation steps. */
+    public static final int RELAUNCH_COST = 5;
+
+    /** In-app navigation steps between screens. */
+    private static final Map<AppScreen, Map<AppScreen, Consumer<AndroidDriver>>> EDGES = new EnumMap<>(AppScreen.class);
+
+    static {
+        RegisterPage register = new RegisterPage();
+        edge(AppScreen.LOGIN, AppScreen.REGISTER, register::clickRegister);
+        edge(AppScreen.REGISTER, AppScreen.LOGIN, register::clickLoginLink);
+        edge(AppScreen.ACCOUNT, AppScreen.LOGIN, driver -> driver.navigate().back());
+    }
+
+    private static final AtomicInteger NAVIGATED = new AtomicInteger();
+    private static final AtomicInteger STEPS = new AtomicInteger();
+    private static final AtomicInteger RELAUNCHES = new AtomicInteger();
+
+    private ScreenNavigator() {
+    }
+
+    /**
+     * Returns the navigation steps needed to get a freshly opened {@code to} screen.
+     *
+     * @param from  The screen the session is on, or {@code null} if unknown.
+     * @param fresh Whether {@code from} was freshly opened and not used by any test yet.
+     * @param to    The screen wanted.
+     * @return The screens to pass through, ending with {@code to}; empty if nothing needs doing, {@code null} if
+     *         {@code to} cannot be reached from {@code from} in-app.
+     */
+    public static List<AppScreen> path(AppScreen from, boolean fresh, AppScreen to) {
+        if (from == null) {
+            return null;
+        }
+        if (fresh && from == to) {
+            return new ArrayList<>();
+        }
+        Map<AppScreen, AppScreen> previous = new EnumMap<>(AppScreen.class);
+        Deque<AppScreen> queue = new ArrayDeque<>();
+        for (AppScreen next : neighbors(from)) {
+            previous.put(next, from);
+            queue.add(next);
+        }
+        while (!queue.isEmpty()) {
+            AppScreen screen = queue.poll();
+            if (screen == to) {
+                List<AppScreen> path = new ArrayList<>();
+                AppScreen step = to;
+                do {
+                    path.add(0, step);
+                    step = previous.get(step);
+                } while (step != from);
+                return path;
+            }
+            for (AppScreen next : neighbors(screen)) {
+                if (!previous.containsKey(next)) {
+                    previous.put(next, screen);
+                    queue.add(next);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns how expensive it is to get a freshly opened {@code to} screen, counting a relaunch as
+     * {@link #RELAUNCH_COST} steps.
+     *
+     * @param from  The screen the session is on, or {@code null} if unknown.
+     * @param fresh Whether {@code from} was freshly opened and not used by any test yet.
+     * @param to    The screen wanted.
+     * @return The cost in navigation steps.
+     */
+    public static int cost(AppScreen from, boolean fresh, AppScreen to) {
+        List<AppScreen> path = path(from, fresh, to);
+        if (path != null) {
+            return path.size();
+        }
+        List<AppScreen> afterRelaunch = path(AppScreen.launchScreen(), true, to);
+        return RELAUNCH_COST + (afterRelaunch == null ? RELAUNCH_COST : afterRelaunch.size());
+    }
+
+    /**
+     * Navigates a session to a freshly opened screen and checks that it is shown, by its fingerprint if
+     * {@link ScreenCatalog} is enabled and by its marker element otherwise.
+     *
+     * @param driver The {@link AndroidDriver} instance used to interact with the app.
+     * @param from   The screen the session is on, or {@code null} if unknown.
+     * @param fresh  Whether {@code from} was freshly opened and not used by any test yet.
+     * @param to     The screen wanted.
+     * @return {@code true} if the session now shows {@code to}; {@code false} if the caller has to relaunch.
+     */
+    public static boolean navigate(AndroidDriver driver, AppScreen from, boolean fresh, AppScreen to) {
+        List<AppScreen> path = path(from, fresh, to);
+        if (path == null) {
+            RELAUNCHES.incrementAndGet();
+            return false;
+        }
+        AppScreen at = from;
+        for (AppScreen next : path) {
+            EDGES.get(at).get(next).accept(driver);
+            ElementCache.invalidate(driver);
+            STEPS.incrementAndGet();
+            at = next;
+        }
+        boolean shown = ScreenCatalog.isEnabled()
+                ? BasePage.awaitScreen(driver, to.name(), WaitEngine.defaultTimeout())
+                : BasePage.validateElementPresent(driver, BasePage.ByLocator.ID, to.getMarker());
+        if (!shown) {
+            RELAUNCHES.incrementAndGet();
+            return false;
+        }
+        NAVIGATED.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Orders tests into a chain where each starts as cheaply as possible from where the previous one ended,
+     * beginning at the launch screen. Among equally cheap candidates the longest test goes first.
+     * Tests without a {@link ScreenFlow} keep their relative order and run after the chain, since they relaunch.
+     *
+     * @param tests    The tests to order.
+     * @param flow     Returns a test's screen flow, or {@code null}.
+     * @param estimate Returns a test's estimated duration.
+     * @param <T>      The test type.
+     * @return The tests in chain order.
+     */
+    public static <T> List<T> chain(List<T> tests, Function<T, ScreenFlow> flow, ToDoubleFunction<T> estimate) {
+        List<T> remaining = new ArrayList<>();
+        List<T> unannotated = new ArrayList<>();
+        for (T test : tests) {
+            (flow.apply(test) != null ? remaining : unannotated).add(test);
+        }
+        List<T> ordered = new ArrayList<>(tests.size());
+        AppScreen at = AppScreen.launchScreen();
+        boolean fresh = true;
+        while (!remaining.isEmpty()) {
+            T best = null;
+            int bestCost = Integer.MAX_VALUE;
+            for (T test : remaining) {
+                int cost = cost(at, fresh, flow.apply(test).start());
+                if (cost < bestCost || cost == bestCost && estimate.applyAsDouble(test) > estimate.applyAsDouble(best)) {
+                    best = test;
+                    bestCost = cost;
+                }
+            }
+            remaining.remove(best);
+            ordered.add(best);
+            at = flow.apply(best).end();
+            fresh = false;
+        }
+        ordered.addAll(unannotated);
+        return ordered;
+    }
+
+    /**
+     * Summarizes how often sessions were navigated instead of relaunched.
+     *
+     * @return A one-line, human-readable report.
+     */
+    public static String report() {
+        return String.format("Screen chaining: %d tests started by navigation (%d steps), %d needed a relaunch",
+                NAVIGATED.get(), STEPS.get(), RELAUNCHES.get());
+    }
+
+    private static Iterable<AppScreen> neighbors(AppScreen screen) {
+        Map<AppScreen, Consumer<AndroidDriver>> edges = EDGES.get(screen);
+        return edges == null ? new ArrayList<>() : edges.keySet();
+    }
+
+    private static void edge(AppScreen from, AppScreen to, Consumer<AndroidDriver> step) {
+        EDGES.computeIfAbsent(from, k -> new EnumMap<>(AppScreen.class)).put(to, step);
+    }
+}
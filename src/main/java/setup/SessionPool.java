@@ -0,0 +1,348 @@
+package setup;
+
+import io.appium.java_client.MobileElement;
+import io.appium.java_client.android.AndroidDriver;
+import page.ElementCache;
+import page.SnapshotEngine;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Keeps warm Appium sessions around between test methods so that the UiAutomator2 server install,
+ * session handshake and app launch are paid once instead of once per test.
+ * Sessions are handed out by {@link #acquire()}, have their app state reset before reuse,
+ * are health-checked on the way out and evicted when they no longer respond.
+ * The pool also remembers which screen each session was left on, so that {@link #acquireAsLeft()} can hand a
+ * session out without a reset when its state is known.
+ */
+public class SessionPool {
+
+    /** Creates a brand-new session when the pool has no idle one to hand out. */
+    private final Supplier<AndroidDriver<MobileElement>> factory;
+
+    /** Package of the app under test, used to reset and health-check sessions. */
+    private final String appPackage;
+
+    /** Whether app data should be kept between tests (terminate/activate) or cleared (reset). */
+    private final boolean noReset;
+
+    /** Number of tests a session may serve before it is recycled. */
+    private final int maxUses;
+
+    /** Sessions that are currently not leased to any test. */
+    private final ConcurrentLinkedDeque<PooledSession> idle = new ConcurrentLinkedDeque<>();
+
+    /** Sessions currently leased to a test, keyed by driver. */
+    private final Map<AndroidDriver<MobileElement>, PooledSession> leased = new ConcurrentHashMap<>();
+
+    private final AtomicInteger created = new AtomicInteger();
+    private final AtomicInteger reused = new AtomicInteger();
+    private final AtomicInteger evicted = new AtomicInteger();
+    private final AtomicLong creationNanos = new AtomicLong();
+    private final AtomicLong resetNanos = new AtomicLong();
+
+    /**
+     * Creates a session pool.
+     *
+     * @param factory    Creates a new driver session when no warm one is available.
+     * @param appPackage The package of the app under test (APP_PACKAGE).
+     * @param noReset    {@code true} to relaunch the app between tests, {@code false} to clear its data.
+     * @param maxUses    How many tests a single session may serve before it is quit and replaced.
+     */
+    public SessionPool(Supplier<AndroidDriver<MobileElement>> factory, String appPackage, boolean noReset, int maxUses) {
+        this.factory = factory;
+        this.appPackage = appPackage;
+        this.noReset = noReset;
+        this.maxUses = maxUses;
+    }
+
+    /**
+     * Hands out a session whose app has been reset to its launch state.
+     * Idle sessions that fail their reset or health check are evicted and the next one is tried;
+     * a new session is only created when no idle session survives.
+     *
+     * @return A ready-to-use driver, or {@code null} if a new session could not be created.
+     */
+    public AndroidDriver<MobileElement> acquire() {
+        PooledSession session;
+        while ((session = idle.pollFirst()) != null) {
+            if (resetAndCheck(session)) {
+                session.uses++;
+                reused.incrementAndGet();
+                leased.put(session.driver, session);
+                return session.driver;
+            }
+            evict(session);
+        }
+
+        long start = System.nanoTime();
+        AndroidDriver<MobileElement> driver = factory.get();
+        if (driver == null) {
+            return null;
+        }
+        creationNanos.addAndGet(System.nanoTime() - start);
+        created.incrementAndGet();
+
+        session = new PooledSession(driver);
+        session.uses++;
+        leased.put(driver, session);
+        return driver;
+    }
+
+    /**
+     * Hands out a session in the state the previous test left it, preferring sessions whose screen is known.
+     * Sessions whose screen is unknown are reset as by {@link #acquire()}; known ones are only health-checked.
+     * Use {@link #getScreen} and {@link #isFresh} to find out where the session is.
+     *
+     * @return A ready-to-use driver, or {@code null} if a new session could not be created.
+     */
+    public AndroidDriver<MobileElement> acquireAsLeft() {
+        for (PooledSession session : idle) {
+            if (session.screen != null && idle.remove(session)) {
+                if (isAlive(session)) {
+                    session.uses++;
+                    reused.incrementAndGet();
+                    leased.put(session.driver, session);
+                    return session.driver;
+                }
+                evict(session);
+            }
+        }
+        return acquire();
+    }
+
+    /**
+     * Resets a leased session's app to its launch state, for when in-app navigation failed.
+     *
+     * @param driver The driver previously obtained from this pool.
+     * @return {@code true} if the session is usable again.
+     */
+    public boolean reset(AndroidDriver<MobileElement> driver) {
+        PooledSession session = leased.get(driver);
+        return session != null && resetAndCheck(session);
+    }
+
+    /**
+     * Gives a leased driver whose session died a new session from the factory, e.g. in the middle of a test. The
+     * driver object stays the same, so the test and its page objects carry on with it; the new session starts on the
+     * app's launch screen and counts as created.
+     *
+     * @param driver The driver previously obtained from this pool; only a {@link RecoverableDriver} can be restarted.
+     * @return {@code true} if the driver has a new session; {@code false} if it is not leased from this pool, cannot
+     *         be restarted or no new session could be created.
+     */
+    public boolean restart(AndroidDriver<?> driver) {
+        PooledSession session = leased.get(driver);
+        if (session == null || !(driver instanceof RecoverableDriver)) {
+            return false;
+        }
+        long start = System.nanoTime();
+        AndroidDriver<MobileElement> fresh = factory.get();
+        if (fresh == null) {
+            return false;
+        }
+        creationNanos.addAndGet(System.nanoTime() - start);
+        created.incrementAndGet();
+        ((RecoverableDriver) driver).replaceSession(fresh);
+        ElementCache.invalidate(driver);
+        SnapshotEngine.invalidate(driver);
+        session.uses = 1;
+        session.screen = AppScreen.launchScreen();
+        session.fresh = true;
+        return true;
+    }
+
+    /**
+     * @param driver A driver obtained from this pool.
+     * @return The screen the session's app is on, or {@code null} if unknown.
+     */
+    public AppScreen getScreen(AndroidDriver<MobileElement> driver) {
+        PooledSession session = leased.get(driver);
+        return session == null ? null : session.screen;
+    }
+
+    /**
+     * @param driver A driver obtained from this pool.
+     * @return Whether the session's screen was freshly opened and not used by any test yet.
+     */
+    public boolean isFresh(AndroidDriver<MobileElement> driver) {
+        PooledSession session = leased.get(driver);
+        return session != null && session.fresh;
+    }
+
+    /**
+     * Records the screen a test left a leased session on.
+     *
+     * @param driver A driver obtained from this pool.
+     * @param screen The screen the app is on, or {@code null} if unknown, e.g. because the test failed.
+     */
+    public void markScreen(AndroidDriver<MobileElement> driver, AppScreen screen) {
+        PooledSession session = leased.get(driver);
+        if (session != null) {
+            session.screen = screen;
+            session.fresh = false;
+        }
+    }
+
+    /**
+     * Returns a session to the pool once a test is done with it.
+     * Sessions that have served {@link #maxUses} tests are quit instead of being kept warm.
+     *
+     * @param driver The driver previously obtained from {@link #acquire()}.
+     */
+    public void release(AndroidDriver<MobileElement> driver) {
+        if (driver == null) {
+            return;
+        }
+        PooledSession session = leased.remove(driver);
+        if (session == null) {
+            quietQuit(driver);
+            return;
+        }
+        if (session.uses >= maxUses) {
+            evict(session);
+        } else {
+            idle.offerFirst(session);
+        }
+    }
+
+    /**
+     * Drops a leased session without returning it to the pool, e.g. after the session has died.
+     *
+     * @param driver The driver previously obtained from {@link #acquire()}.
+     */
+    public void discard(AndroidDriver<MobileElement> driver) {
+        PooledSession session = leased.remove(driver);
+        if (session != null) {
+            evict(session);
+        } else if (driver != null) {
+            quietQuit(driver);
+        }
+    }
+
+    /**
+     * Quits every session the pool still holds.
+     */
+    public void shutdown() {
+        PooledSession session;
+        while ((session = idle.pollFirst()) != null) {
+            quietQuit(session.driver);
+        }
+        for (AndroidDriver<MobileElement> driver : leased.keySet()) {
+            quietQuit(driver);
+        }
+        leased.clear();
+    }
+
+    /**
+     * Summarizes how many sessions were created, reused and evicted and how much setup time reuse saved.
+     * The saving is estimated as the average session creation time for every reuse, minus the time spent
+     * resetting the app between tests.
+     *
+     * @return A one-line, human-readable report.
+     */
+    public String report() {
+        int createdCount = created.get();
+        int reusedCount = reused.get();
+        long avgCreateMillis = createdCount == 0 ? 0 : creationNanos.get() / createdCount / 1_000_000;
+        long resetMillis = resetNanos.get() / 1_000_000;
+        long savedMillis = Math.max(0, avgCreateMillis * reusedCount - resetMillis);
+        return String.format("Session pool: %d created (avg %d ms), %d reused, %d evicted, %d ms spent resetting, ~%d ms setup saved",
+                createdCount, avgCreateMillis, reusedCount, evicted.get(), resetMillis, savedMillis);
+    }
+
+    /**
+     * Brings the app back to its launch state and verifies the session still answers.
+     *
+     * @param session The idle session to prepare.
+     * @return {@code true} if the session is usable, {@code false} if it should be evicted.
+     */
+    private boolean resetAndCheck(PooledSession session) {
+        long start = System.nanoTime();
+        try {
+            AndroidDriver<MobileElement> driver = session.driver;
+            if (driver.getSessionId() == null) {
+                return false;
+            }
+            session.screen = null;
+            ElementCache.invalidate(driver);
+            SnapshotEngine.invalidate(driver);
+            if (noReset) {
+                driver.terminateApp(appPackage);
+                driver.activateApp(appPackage);
+            } else {
+                driver.resetApp();
+            }
+            session.screen = AppScreen.launchScreen();
+            session.fresh = true;
+            return appPackage == null || appPackage.equals(driver.getCurrentPackage());
+        } catch (Exception e) {
+            e.printStackTrace();
+            return false;
+        } finally {
+            resetNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Verifies an idle session still answers and still shows the app under test, without touching the app.
+     *
+     * @param session The idle session to check.
+     * @return {@code true} if the session is usable, {@code false} if it should be evicted.
+     */
+    private boolean isAlive(PooledSession session) {
+        try {
+            return session.driver.getSessionId() != null
+                    && (appPackage == null || appPackage.equals(session.driver.getCurrentPackage()));
+        } catch (Exception e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Quits a session and counts it as evicted.
+     *
+     * @param session The session to evict.
+     */
+    private void evict(PooledSession session) {
+        evicted.incrementAndGet();
+        quietQuit(session.driver);
+    }
+
+    /**
+     * Quits a driver, ignoring errors from sessions that are already gone.
+     *
+     * @param driver The driver to quit.
+     */
+    private static void quietQuit(AndroidDriver<MobileElement> driver) {
+        try {
+            driver.quit();
+        } catch (Exception ignored) {
+            // The session is being thrown away; a dead session cannot be quit any further.
+        }
+    }
+
+    /**
+     * A driver session together with its usage bookkeeping.
+     */
+    private static final class PooledSession {
+        private final AndroidDriver<MobileElement> driver;
+        private int uses;
+
+        /** The screen the app is on, or {@code null} if unknown. */
+        private AppScreen screen = AppScreen.launchScreen();
+
+        /** Whether {@link #screen} was freshly opened and not used by any test yet. */
+        private boolean fresh = true;
+
+        private PooledSession(AndroidDriver<MobileElement> driver) {
+            this.driver = driver;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package setup;
+
+import io.appium.java_client.android.AndroidDriver;
+import io.appium.java_client.android.AndroidElement;
+import page.ElementCache;
+import page.SnapshotEngine;
+import page.StepJournal;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Repairs the session of a test whose step failed because the Appium session died or the app crashed, and brings
+ * the test back to the step it failed at, so that one transient device hiccup does not cost the whole test.
+ * <p>
+ * A dead session is replaced by a new one from the session pool, in the same {@link RecoverableDriver}; a crashed or
+ * backgrounded app is relaunched.
+ * The test is then returned to its last {@link StepJournal} checkpoint: by in-app navigation if the checkpoint's
+ * screen can be reached that way, otherwise by navigating to the test's start screen and replaying every journaled
+ * step up to the checkpoint. Finally the steps made since the checkpoint are replayed. A failure on a healthy
+ * session, such as a missing element, is left alone. A test that would have to replay a submit step is not restored
+ * but fails, since the app may already have acted on the submit, e.g. stored the account a registration created.
+ */
+public class SessionRecovery implements StepJournal.Recovery {
+
+    /** Package of the app under test, or {@code null} to skip the foreground check. */
+    private final String appPackage;
+
+    /** Gives a driver whose session died a new session, e.g. {@link SessionPool#restart}. */
+    private final Predicate<AndroidDriver<?>> restarter;
+
+    private final AtomicInteger recovered = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicInteger stepsReplayed = new AtomicInteger();
+    private final AtomicLong recoveryNanos = new AtomicLong();
+
+    /**
+     * Creates the recovery.
+     *
+     * @param appPackage The package of the app under test, or {@code null}.
+     * @param restarter  Gives a driver whose session died a new session, returning {@code false} if it cannot.
+     */
+    public SessionRecovery(String appPackage, Predicate<AndroidDriver<?>> restarter) {
+        this.appPackage = appPackage;
+        this.restarter = restarter;
+    }
+
+    @Override
+    public boolean repair(AndroidDriver<AndroidElement> driver, Throwable cause) {
+        long start = System.nanoTime();
+        try {
+            return repair(driver);
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            failed.incrementAndGet();
+            return false;
+        } finally {
+            recoveryNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public boolean restore(AndroidDriver<AndroidElement> driver, StepJournal journal, Throwable cause) {
+        long start = System.nanoTime();
+        try {
+            ElementCache.invalidate(driver);
+            SnapshotEngine.invalidate(driver);
+
+            AppScreen launch = AppScreen.launchScreen();
+            AppScreen checkpoint = AppScreen.valueOf(journal.getCheckpoint());
+            boolean reachable = ScreenNavigator.path(launch, true, checkpoint) != null;
+            List<StepJournal.Step> replay = reachable ? journal.sinceCheckpoint() : journal.all();
+            for (StepJournal.Step step : replay) {
+                if (step.isSubmit()) {
+                    throw new IllegalStateException("Not replaying " + step + " of " + journal.getTest()
+                            + ": the app may already have acted on it");
+                }
+            }
+            navigate(driver, launch, reachable ? checkpoint : AppScreen.valueOf(journal.getStartScreen()));
+            journal.replay(driver, replay);
+            stepsReplayed.addAndGet(replay.size());
+            recovered.incrementAndGet();
+            return true;
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            failed.incrementAndGet();
+            return false;
+        } finally {
+            recoveryNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Summarizes how many tests were recovered and what it cost.
+     *
+     * @return A one-line, human-readable report.
+     */
+    public String report() {
+        return String.format("Session recovery: %d recovered (%d steps replayed, %d ms), %d could not be recovered",
+                recovered.get(), stepsReplayed.get(), TimeUnit.NANOSECONDS.toMillis(recoveryNanos.get()), failed.get());
+    }
+
+    /**
+     * Restarts a dead session or relaunches an app that is no longer in the foreground.
+     *
+     * @return {@code true} if something was repaired; {@code false} if the session was healthy or cannot be
+     *         restarted.
+     */
+    private boolean repair(AndroidDriver<?> driver) {
+        String foreground;
+        try {
+            foreground = driver.getCurrentPackage();
+        } catch (RuntimeException dead) {
+            return restarter.test(driver);
+        }
+        if (appPackage == null || appPackage.equals(foreground)) {
+            return false;
+        }
+        driver.terminateApp(appPackage);
+        driver.activateApp(appPackage);
+        return true;
+    }
+
+    /**
+     * Navigates a freshly launched app to a screen, failing if the screen is not shown afterwards.
+     */
+    private static void navigate(AndroidDriver<AndroidElement> driver, AppScreen launch, AppScreen to) {
+        if (!ScreenNavigator.navigate(driver, launch, true, to)) {
+            throw new IllegalStateException("Could not navigate back to " + to);
+        }
+    }
+}
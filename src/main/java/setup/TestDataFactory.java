@@ -0,0 +1,139 @@
+package setup;
+
+import java.security.SecureRandom;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Generates test identities that never collide, without locks, across worker threads, parallel JVMs and runs.
+ * <p>
+ * Every email is built from three parts: a run id derived from the seed, the index of the worker that generated it,
+ * and that worker's own sequence number, e.g. {@code qa.k3x9d2mf.2.1f@example.com}. The worker index is passed in
+ * by the caller and must be stable across runs, e.g. the index of the device the worker has leased, so that the
+ * same seed reproduces the same identities however the threads are scheduled. Workers never share a counter, and
+ * the run id keeps runs apart. Names and passwords are derived from the same three parts by a SplitMix64 hash.
+ */
+public class TestDataFactory {
+
+    private static final String[] FIRST_NAMES = {
+            "Ava", "Ben", "Chloe", "Dev", "Elif", "Femi", "Grace", "Hugo", "Isla", "Jon",
+            "Kenji", "Lena", "Mateo", "Nia", "Omar", "Priya", "Quinn", "Rosa", "Sami", "Tara"};
+
+    private static final String[] LAST_NAMES = {
+            "Adams", "Baker", "Chen", "Diaz", "Evans", "Fischer", "Garcia", "Haddad", "Ito", "Jensen",
+            "Khan", "Lopez", "Moreau", "Novak", "Okafor", "Petrov", "Rossi", "Silva", "Tanaka", "Weber"};
+
+    private static final String LOWER = "abcdefghijkmnopqrstuvwxyz";
+    private static final String UPPER = "ABCDEFGHJKLMNPQRSTUVWXYZ";
+    private static final String DIGITS = "23456789";
+
+    /** The seed this factory's identities are derived from. */
+    private final long seed;
+
+    /** Identifies the run in every email. */
+    private final String runId;
+
+    /** Domain of every email. */
+    private final String domain;
+
+    /** Tells whether an email has been handed out before, e.g. by an earlier run; such emails are skipped. */
+    private final Predicate<String> taken;
+
+    /** Next sequence number of each worker, keyed by worker index. */
+    private final Map<Integer, AtomicLong> sequences = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a factory.
+     *
+     * @param seed   The seed identities are derived from; the same seed reproduces the same identities.
+     * @param domain The email domain.
+     * @param taken  Tells whether an email is already in use; such emails are skipped.
+     */
+    public TestDataFactory(long seed, String domain, Predicate<String> taken) {
+        this.seed = seed;
+        this.runId = Long.toString(mix(seed) >>> 24, 36);
+        this.domain = domain;
+        this.taken = taken;
+    }
+
+    /**
+     * Creates a factory with a fresh random seed.
+     *
+     * @param domain The email domain.
+     * @param taken  Tells whether an email is already in use; such emails are skipped.
+     * @return The factory.
+     */
+    public static TestDataFactory randomlySeeded(String domain, Predicate<String> taken) {
+        return new TestDataFactory(new SecureRandom().nextLong(), domain, taken);
+    }
+
+    /**
+     * @return The seed; pass it back in to reproduce this factory's identities.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @return The run id every email of this factory contains.
+     */
+    public String getRunId() {
+        return runId;
+    }
+
+    /**
+     * @param email An email.
+     * @return {@code true} if this factory may generate the email, i.e. it is of this factory's run id and domain.
+     */
+    public boolean generates(String email) {
+        return email.startsWith("qa." + runId + ".") && email.endsWith("@" + domain);
+    }
+
+    /**
+     * Generates a worker's next identity.
+     *
+     * @param worker The worker's stable index, e.g. the index of its device in the {@link DeviceRegistry}.
+     * @return An identity whose email no other call, worker or earlier run has produced.
+     */
+    public Identity next(int worker) {
+        AtomicLong next = sequences.computeIfAbsent(worker, w -> new AtomicLong());
+        while (true) {
+            long sequence = next.getAndIncrement();
+            String email = "qa." + runId + "." + Integer.toString(worker, 36) + "." + Long.toString(sequence, 36)
+                    + "@" + domain;
+            if (!taken.test(email)) {
+                long hash = mix(seed ^ mix(worker * 0x9E3779B97F4A7C15L + sequence));
+                return new Identity(name(hash), email, password(hash));
+            }
+        }
+    }
+
+    private static String name(long hash) {
+        return FIRST_NAMES[(int) ((hash >>> 8) % FIRST_NAMES.length)] + " "
+                + LAST_NAMES[(int) ((hash >>> 24) % LAST_NAMES.length)];
+    }
+
+    /**
+     * Builds a 12-character password with at least one upper-case letter, one lower-case letter and one digit.
+     */
+    private static String password(long hash) {
+        StringBuilder sb = new StringBuilder(12);
+        long bits = mix(hash);
+        for (int i = 0; i < 12; i++) {
+            String alphabet = i % 3 == 0 ? UPPER : i % 3 == 1 ? LOWER : DIGITS;
+            sb.append(alphabet.charAt((int) ((bits >>> (i * 5)) & 0x1F) % alphabet.length()));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * SplitMix64 finalizer.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
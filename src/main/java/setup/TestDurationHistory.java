@@ -0,0 +1,91 @@
+package setup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers how long each test took in earlier runs so that the longest tests can be scheduled first.
+ * Durations are smoothed with an exponentially weighted moving average and stored as a properties file.
+ */
+public class TestDurationHistory {
+
+    /** Weight of the newest observation in the moving average. */
+    private static final double ALPHA = 0.3;
+
+    /** File the history is loaded from and saved to. */
+    private final Path file;
+
+    /** Smoothed duration in milliseconds, keyed by qualified test name. */
+    private final Map<String, Double> durations = new ConcurrentHashMap<>();
+
+    /**
+     * Loads the history from the given file; a missing or unreadable file starts an empty history.
+     *
+     * @param file The properties file holding earlier durations.
+     */
+    public TestDurationHistory(Path file) {
+        this.file = file;
+        if (Files.exists(file)) {
+            Properties props = new Properties();
+            try (InputStream in = Files.newInputStream(file)) {
+                props.load(in);
+                for (String name : props.stringPropertyNames()) {
+                    durations.put(name, Double.parseDouble(props.getProperty(name)));
+                }
+            } catch (IOException | NumberFormatException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Records the duration of a finished test.
+     *
+     * @param testName The qualified test name.
+     * @param millis   How long the test took.
+     */
+    public void record(String testName, long millis) {
+        durations.merge(testName, (double) millis, (old, now) -> old + ALPHA * (now - old));
+    }
+
+    /**
+     * Estimates how long a test will take. Tests never seen before are estimated at the average of all known
+     * tests, so that they are neither starved nor assumed to be the longest.
+     *
+     * @param testName The qualified test name.
+     * @return The expected duration in milliseconds.
+     */
+    public double estimate(String testName) {
+        Double known = durations.get(testName);
+        if (known != null) {
+            return known;
+        }
+        return durations.values().stream().mapToDouble(Double::doubleValue).average().orElse(0);
+    }
+
+    /**
+     * Writes the history back to its file.
+     */
+    public void save() {
+        Properties props = new Properties();
+        for (Map.Entry<String, Double> entry : durations.entrySet()) {
+            props.setProperty(entry.getKey(), String.valueOf(Math.round(entry.getValue())));
+        }
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            try (OutputStream out = Files.newOutputStream(file)) {
+                props.store(out, "Smoothed test durations in milliseconds");
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
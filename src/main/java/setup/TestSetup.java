@@ -4,47 +4,507 @@ import io.appium.java_client.MobileElement;
 import io.appium.java_client.android.AndroidDriver;
 import io.github.cdimascio.dotenv.Dotenv;
 import org.openqa.selenium.remote.DesiredCapabilities;
+import page.CommandMetrics;
+import page.StepJournal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.util.Random;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Sets up and tears down the Appium test environment.
+ * Each test worker thread leases its own device from the {@link DeviceScheduler} and its own driver from that
+ * device's {@link SessionPool}, so tests can run in parallel with one test per device at a time.
  */
 public class TestSetup {
 
-    /** The Appium AndroidDriver instance. */
-    protected AndroidDriver<MobileElement> driver;
+    /** Environment shared by the whole run; loaded once. */
+    private static final Dotenv ENV = Dotenv.configure().load();
+
+    /** The Appium AndroidDriver confined to the current test worker thread. */
+    private static final ThreadLocal<AndroidDriver<MobileElement>> DRIVER = new ThreadLocal<>();
+
+    /** The screen flow of the test running on the current worker thread, if it declares one. */
+    private static final ThreadLocal<ScreenFlow> FLOW = new ThreadLocal<>();
 
     /** Dotenv instance for loading environment variables. */
-    protected final Dotenv dotenv = Dotenv.configure().load();
+    protected final Dotenv dotenv = ENV;
+
+    /** Devices available to the run. */
+    private static DeviceRegistry deviceRegistry;
+
+    /** Hands devices out to worker threads. */
+    private static DeviceScheduler deviceScheduler;
+
+    /** Durations of earlier test runs, used to schedule the longest tests first. */
+    private static TestDurationHistory durationHistory;
+
+    /** Repairs sessions that break in the middle of a test. */
+    private static SessionRecovery sessionRecovery;
+
+    /** HTTP transport shared by every driver session in the run. */
+    private static CommandTransport commandTransport;
+
+    /** Records the run's driver commands when TRAFFIC_MODE is record. */
+    private static TrafficRecorder trafficRecorder;
+
+    /** Serves the run's driver commands from a recording when TRAFFIC_MODE is replay. */
+    private static TrafficReplay trafficReplay;
+
+    /** Tests that passed in earlier runs, with the inputs they passed against. */
+    private static ResultCache resultCache;
+
+    /** Identities registered on each device in this and earlier runs. */
+    private static IdentityLedger identityLedger;
+
+    /** Source of unique registration identities for the run. */
+    private static TestDataFactory dataFactory;
+
+    /** Pools of warm sessions, one per device, shared by every test class in the run. */
+    private static final Map<String, SessionPool> sessionPools = new ConcurrentHashMap<>();
+
+    /** In-process stand-in servers, one per device, used when FAKE_APPIUM is enabled. */
+    private static final Map<String, FakeAppiumServer> fakeServers = new ConcurrentHashMap<>();
 
     /**
-     * Initializes the Appium driver with desired capabilities.
+     * Leases a device for the current thread and takes a warm Appium session for it from the session pool,
+     * creating one only when none is idle. The time this takes is recorded as the test's session start.
      */
     public void setup() {
+        long start = System.nanoTime();
+        DeviceRegistry.Device device = deviceScheduler().lease();
+        DRIVER.set(sessionPool(device).acquire());
+        beginJournal(AppScreen.launchScreen());
+        CommandMetrics.record(CommandMetrics.Phase.SESSION_START, null, System.nanoTime() - start);
+    }
+
+    /**
+     * Leases a device and a warm session for a test that declares its screen flow. The session is taken in the
+     * state the previous test left it and navigated in-app to the test's start screen; it is relaunched only when
+     * its state is unknown or navigation fails. The time this takes is recorded as the test's session start.
+     *
+     * @param flow The test's screen flow, or {@code null} to start from a relaunched app as {@link #setup()} does.
+     */
+    public void setup(ScreenFlow flow) {
+        if (flow == null) {
+            setup();
+            return;
+        }
+        long start = System.nanoTime();
+        DeviceRegistry.Device device = deviceScheduler().lease();
+        SessionPool pool = sessionPool(device);
+        AndroidDriver<MobileElement> driver = pool.acquireAsLeft();
+        DRIVER.set(driver);
+        FLOW.set(flow);
+        if (driver != null
+                && !ScreenNavigator.navigate(driver, pool.getScreen(driver), pool.isFresh(driver), flow.start())
+                && pool.reset(driver)) {
+            ScreenNavigator.navigate(driver, pool.getScreen(driver), pool.isFresh(driver), flow.start());
+        }
+        beginJournal(flow.start());
+        CommandMetrics.record(CommandMetrics.Phase.SESSION_START, null, System.nanoTime() - start);
+    }
+
+    /**
+     * Starts the journal of the test's steps, used to recover its session if it breaks halfway.
+     *
+     * @param start The screen the test starts on.
+     */
+    private static void beginJournal(AppScreen start) {
+        sessionRecovery();
+        StepJournal.begin(start.name());
+    }
+
+    /**
+     * @return The driver confined to the current test worker thread.
+     */
+    protected AndroidDriver<MobileElement> driver() {
+        return DRIVER.get();
+    }
+
+    /**
+     * Returns the devices available to the run, reading them from the .env file on first use.
+     *
+     * @return The device registry.
+     */
+    public static synchronized DeviceRegistry deviceRegistry() {
+        if (deviceRegistry == null) {
+            deviceRegistry = DeviceRegistry.fromEnv(ENV);
+        }
+        return deviceRegistry;
+    }
+
+    /**
+     * @return The scheduler that confines devices to worker threads.
+     */
+    public static synchronized DeviceScheduler deviceScheduler() {
+        if (deviceScheduler == null) {
+            deviceScheduler = new DeviceScheduler(deviceRegistry());
+        }
+        return deviceScheduler;
+    }
+
+    /**
+     * Returns the durations of earlier runs, stored in TEST_HISTORY_FILE (build/test-durations.properties by default).
+     *
+     * @return The test duration history.
+     */
+    public static synchronized TestDurationHistory durationHistory() {
+        if (durationHistory == null) {
+            durationHistory = new TestDurationHistory(
+                    Paths.get(ENV.get("TEST_HISTORY_FILE", "build/test-durations.properties")));
+        }
+        return durationHistory;
+    }
+
+    /**
+     * Returns the recovery that restarts a dead session or relaunches a crashed app in the middle of a test and
+     * replays the test's steps since its last checkpoint. Registered with {@link StepJournal} on first use unless
+     * RECOVERY is false.
+     *
+     * @return The session recovery.
+     */
+    public static synchronized SessionRecovery sessionRecovery() {
+        if (sessionRecovery == null) {
+            sessionRecovery = new SessionRecovery(ENV.get("APP_PACKAGE"), TestSetup::restartSession);
+            if (Boolean.parseBoolean(ENV.get("RECOVERY", "true"))) {
+                StepJournal.setRecovery(sessionRecovery);
+            }
+        }
+        return sessionRecovery;
+    }
+
+    /**
+     * Gives a driver whose session died a new session from the pool that leased it.
+     *
+     * @param driver The driver, which may be used on a thread other than the one that leased it.
+     * @return {@code true} if the driver has a new session.
+     */
+    private static boolean restartSession(AndroidDriver<?> driver) {
+        for (SessionPool pool : sessionPools.values()) {
+            if (pool.restart(driver)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the HTTP transport driver sessions send their commands through, with one keep-alive connection pool
+     * for the whole run.
+     *
+     * @return The command transport.
+     */
+    public static synchronized CommandTransport commandTransport() {
+        if (commandTransport == null) {
+            commandTransport = new CommandTransport(ENV);
+            if ("record".equalsIgnoreCase(ENV.get("TRAFFIC_MODE", "off"))) {
+                commandTransport.setRecorder(trafficRecorder());
+            }
+        }
+        return commandTransport;
+    }
+
+    /**
+     * Returns the recorder that writes every driver command and response of the run to TRAFFIC_FILE
+     * (.test-data/traffic.rec by default) for a later replay. The recording keeps the test data seed, the emails of
+     * that seed the ledger already holds and, when DATA_REUSE_ACCOUNTS is enabled, the whole identity ledger, so
+     * that the replay types the same identities.
+     *
+     * @return The traffic recorder.
+     */
+    public static synchronized TrafficRecorder trafficRecorder() {
+        if (trafficRecorder == null) {
+            Map<String, String> settings = new LinkedHashMap<>();
+            TestDataFactory factory = dataFactory();
+            List<String> taken = new ArrayList<>();
+            for (String email : identityLedger().emails()) {
+                if (factory.generates(email)) {
+                    taken.add(email);
+                }
+            }
+            settings.put("DATA_SEED", Long.toString(factory.getSeed()));
+            settings.put("DATA_TAKEN", String.join("\n", taken));
+            settings.put("DATA_REUSE_ACCOUNTS", Boolean.toString(reusesAccounts()));
+            if (reusesAccounts()) {
+                settings.put("IDENTITY_LEDGER", String.join("\n", identityLedger().records()));
+            }
+            try {
+                trafficRecorder = new TrafficRecorder(Paths.get(ENV.get("TRAFFIC_FILE", ".test-data/traffic.rec")),
+                        settings);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return trafficRecorder;
+    }
+
+    /**
+     * Returns the replay that answers driver commands from the recording in TRAFFIC_FILE, used instead of a server
+     * when TRAFFIC_MODE is replay.
+     *
+     * @return The traffic replay.
+     */
+    public static synchronized TrafficReplay trafficReplay() {
+        if (trafficReplay == null) {
+            try {
+                trafficReplay = new TrafficReplay(Paths.get(ENV.get("TRAFFIC_FILE", ".test-data/traffic.rec")));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return trafficReplay;
+    }
+
+    /**
+     * @return {@code true} if TRAFFIC_MODE is replay, i.e. no command reaches a device.
+     */
+    public static boolean isReplaying() {
+        return "replay".equalsIgnoreCase(ENV.get("TRAFFIC_MODE", "off"));
+    }
+
+    /**
+     * Returns the cache of earlier passing results, used to skip tests whose inputs have not changed.
+     *
+     * @return The result cache.
+     */
+    public static synchronized ResultCache resultCache() {
+        if (resultCache == null) {
+            resultCache = new ResultCache(ENV);
+        }
+        return resultCache;
+    }
+
+    /**
+     * Returns the ledger of registered identities, stored in IDENTITY_LEDGER_FILE
+     * (.test-data/identity-ledger.tsv by default, outside build/ so that it survives a clean). A replay uses the
+     * ledger stored in the recording instead, and leaves the file alone.
+     *
+     * @return The identity ledger.
+     */
+    public static synchronized IdentityLedger identityLedger() {
+        if (identityLedger == null) {
+            if (isReplaying()) {
+                String records = trafficReplay().setting("IDENTITY_LEDGER");
+                identityLedger = IdentityLedger.inMemory(records == null || records.isEmpty()
+                        ? Collections.<String>emptyList() : Arrays.asList(records.split("\n")));
+            } else {
+                identityLedger = new IdentityLedger(
+                        Paths.get(ENV.get("IDENTITY_LEDGER_FILE", ".test-data/identity-ledger.tsv")));
+            }
+        }
+        return identityLedger;
+    }
+
+    /**
+     * Returns the run's source of unique identities, with emails in the domain of VALID_EMAIL. Set DATA_SEED in
+     * the .env file to reproduce the identities of an earlier run; the seed in use is printed on first use.
+     * Emails already in the {@link #identityLedger()} are never handed out again. A replay does not consult the
+     * ledger: it uses the recorded seed and skips the emails the recorded run found taken, so it generates exactly
+     * the recorded run's identities.
+     *
+     * @return The test data factory.
+     */
+    public static synchronized TestDataFactory dataFactory() {
+        if (dataFactory == null) {
+            String validEmail = ENV.get("VALID_EMAIL", "");
+            String domain = validEmail.contains("@") ? validEmail.substring(validEmail.indexOf('@') + 1) : "example.com";
+            if (isReplaying()) {
+                Set<String> taken = new HashSet<>(Arrays.asList(trafficReplay().setting("DATA_TAKEN").split("\n")));
+                dataFactory = new TestDataFactory(Long.parseLong(trafficReplay().setting("DATA_SEED")), domain,
+                        taken::contains);
+            } else {
+                String seed = ENV.get("DATA_SEED");
+                IdentityLedger ledger = identityLedger();
+                dataFactory = seed != null
+                        ? new TestDataFactory(Long.parseLong(seed), domain, ledger::contains)
+                        : TestDataFactory.randomlySeeded(domain, ledger::contains);
+            }
+            System.out.println("Test data seed: " + dataFactory.getSeed() + " (run " + dataFactory.getRunId() + ")");
+        }
+        return dataFactory;
+    }
+
+    /**
+     * Returns the current thread's worker index for {@link TestDataFactory#next(int)}: the index of the device it
+     * has leased, which does not depend on how threads are scheduled.
+     *
+     * @return The index of the current thread's device in the {@link #deviceRegistry()}, or 0 if it holds none.
+     */
+    public static int workerIndex() {
+        return Math.max(0, deviceRegistry().devices().indexOf(deviceScheduler().current()));
+    }
+
+    /**
+     * Returns an account registered on the current thread's device in an earlier test or run, so that login tests
+     * can use it instead of registering a new one. Only used when DATA_REUSE_ACCOUNTS is enabled, since accounts
+     * survive only if the app's data is not reset between runs.
+     *
+     * @return A registered identity, or {@code null} if reuse is disabled or none is known for the device.
+     */
+    protected Identity registeredAccount() {
+        DeviceRegistry.Device device = deviceScheduler().current();
+        if (device == null || !reusesAccounts()) {
+            return null;
+        }
+        return identityLedger().accountFor(device.getName());
+    }
+
+    /**
+     * @return Whether DATA_REUSE_ACCOUNTS is enabled, or was enabled in the recorded run when replaying.
+     */
+    private static boolean reusesAccounts() {
+        String reuse = isReplaying() ? trafficReplay().setting("DATA_REUSE_ACCOUNTS") : ENV.get("DATA_REUSE_ACCOUNTS");
+        return Boolean.parseBoolean(reuse);
+    }
+
+    /**
+     * Adds an identity that was just registered on the current thread's device to the ledger.
+     *
+     * @param identity The registered identity.
+     */
+    public static void recordRegistration(Identity identity) {
+        DeviceRegistry.Device device = deviceScheduler().current();
+        if (device != null && !isReplaying()) {
+            identityLedger().record(device.getName(), identity);
+        }
+    }
+
+    /**
+     * Returns the session pool of a device, creating it on first use.
+     * Set MAX_SESSION_USES in the .env file to control how many tests one session serves before it is recycled.
+     *
+     * @param device The device whose sessions are pooled.
+     * @return The session pool for the device.
+     */
+    protected SessionPool sessionPool(DeviceRegistry.Device device) {
+        return sessionPools.computeIfAbsent(device.getName(), name -> new SessionPool(() -> createDriver(device),
+                dotenv.get("APP_PACKAGE"),
+                Boolean.parseBoolean(dotenv.get("NO_RESET")),
+                Integer.parseInt(dotenv.get("MAX_SESSION_USES", "50"))));
+    }
+
+    /**
+     * Quits all pooled sessions, saves the test duration history and result cache, closes the traffic recording and
+     * prints how much setup time session reuse saved and how busy each device was. Call once at the end of the run.
+     */
+    public static synchronized void shutdownSessions() {
+        for (Map.Entry<String, SessionPool> entry : sessionPools.entrySet()) {
+            System.out.println(entry.getKey() + ": " + entry.getValue().report());
+            entry.getValue().shutdown();
+        }
+        sessionPools.clear();
+        for (FakeAppiumServer server : fakeServers.values()) {
+            server.stop();
+        }
+        fakeServers.clear();
+        if (deviceScheduler != null) {
+            System.out.println(deviceScheduler.report());
+        }
+        System.out.println(ScreenNavigator.report());
+        if (sessionRecovery != null) {
+            System.out.println(sessionRecovery.report());
+        }
+        if (commandTransport != null) {
+            System.out.println(commandTransport.report());
+            commandTransport.cleanupIdleClients();
+        }
+        if (trafficRecorder != null) {
+            trafficRecorder.close();
+            System.out.println(trafficRecorder.report());
+        }
+        if (trafficReplay != null) {
+            System.out.println(trafficReplay.report());
+        }
+        if (durationHistory != null) {
+            durationHistory.save();
+        }
+        if (resultCache != null) {
+            resultCache.save();
+        }
+    }
+
+    /**
+     * Creates a new Appium driver session for a device with desired capabilities. If the session dies, the driver can
+     * take over a new one ({@link RecoverableDriver}, {@link SessionPool#restart}). Commands go through the shared
+     * {@link #commandTransport()} unless TRANSPORT_POOLED is false, in which case the driver builds its own client,
+     * and are answered by {@link #trafficReplay()} without any server when TRAFFIC_MODE is replay.
+     *
+     * @param device The device to start the session on.
+     * @return The new driver, or {@code null} if the server URL is malformed.
+     */
+    protected AndroidDriver<MobileElement> createDriver(DeviceRegistry.Device device) {
         DesiredCapabilities caps = new DesiredCapabilities();
-        caps.setCapability("deviceName", dotenv.get("DEVICE_NAME"));
+        caps.setCapability("deviceName", device.getName());
+        caps.setCapability("udid", device.getName());
+        caps.setCapability("systemPort", device.getSystemPort());
         caps.setCapability("platformName", dotenv.get("PLATFORM_NAME"));
         caps.setCapability("appPackage", dotenv.get("APP_PACKAGE"));
         caps.setCapability("appActivity", dotenv.get("APP_ACTIVITY"));
         caps.setCapability("noReset", dotenv.get("NO_RESET"));
 
         try {
-            driver = new AndroidDriver<MobileElement>(
-                    new URL("http://127.0.0.1:4723/wd/hub"), caps);
+            if (isReplaying()) {
+                return new RecoverableDriver(device.getServerUrl(), trafficReplay(), caps);
+            }
+            URL serverUrl = Boolean.parseBoolean(dotenv.get("FAKE_APPIUM", "false"))
+                    ? fakeServer(device).getUrl() : device.getServerUrl();
+            // Commands are recorded by the shared transport.
+            return Boolean.parseBoolean(dotenv.get("TRANSPORT_POOLED", "true"))
+                    || "record".equalsIgnoreCase(dotenv.get("TRAFFIC_MODE", "off"))
+                    ? new RecoverableDriver(serverUrl, commandTransport(), caps)
+                    : new RecoverableDriver(serverUrl, caps);
         } catch (MalformedURLException e) {
             e.printStackTrace();
+            return null;
         }
     }
 
+    /**
+     * Returns the in-process stand-in server for a device, starting it on first use.
+     * The fake app knows the VALID_EMAIL/VALID_PASSWORD account and, like a device whose app data is kept between
+     * runs, every account the ledger has recorded for the device. Every command is delayed by
+     * FAKE_APPIUM_LATENCY_MS (0 by default).
+     *
+     * @param device The device the server stands in for.
+     * @return The running fake server.
+     */
+    protected FakeAppiumServer fakeServer(DeviceRegistry.Device device) {
+        return fakeServers.computeIfAbsent(device.getName(), name -> {
+            FakeLoginApp app = new FakeLoginApp()
+                    .addAccount(dotenv.get("VALID_EMAIL"), dotenv.get("VALID_PASSWORD"), dotenv.get("NAME"));
+            for (Identity account : identityLedger().accounts(name)) {
+                app.addAccount(account.getEmail(), account.getPassword(), account.getName());
+            }
+            try {
+                return new FakeAppiumServer(app, 0)
+                        .setDefaultLatency(Long.parseLong(dotenv.get("FAKE_APPIUM_LATENCY_MS", "0")))
+                        .start();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
     /**
      * Quits the Appium driver.
      */
     public static String generateRandomString(int length) {
         // Define the set of characters you want to use
         String characters = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ";
-        Random random = new Random();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
         StringBuilder sb = new StringBuilder(length);
 
         for (int i = 0; i < length; i++) {
@@ -55,9 +515,33 @@ public class TestSetup {
         return sb.toString();
     }
 
+    /**
+     * Returns the Appium driver to its device's session pool and frees the device for the next test.
+     * The next test relaunches the app.
+     */
     public void tearDown() {
-        if (driver != null) {
-            driver.quit();
+        tearDown(false);
+    }
+
+    /**
+     * Returns the Appium driver to its device's session pool and frees the device for the next test.
+     * If the test passed and declared a {@link ScreenFlow}, the pool remembers the screen it ended on so the next
+     * test can start from there; otherwise the next test relaunches the app.
+     *
+     * @param passed Whether the test passed.
+     */
+    public void tearDown(boolean passed) {
+        DeviceRegistry.Device device = deviceScheduler().current();
+        AndroidDriver<MobileElement> driver = DRIVER.get();
+        ScreenFlow flow = FLOW.get();
+        DRIVER.remove();
+        FLOW.remove();
+        StepJournal.end();
+        if (device != null) {
+            SessionPool pool = sessionPool(device);
+            pool.markScreen(driver, passed && flow != null ? flow.end() : null);
+            pool.release(driver);
+            deviceScheduler().release();
         }
     }
 }
@@ -0,0 +1,214 @@
+package setup;
+
+import org.openqa.selenium.remote.http.HttpMethod;
+import org.openqa.selenium.remote.http.HttpRequest;
+import org.openqa.selenium.remote.http.HttpResponse;
+import page.CommandMetrics;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+/**
+ * Records every driver command and its response during a run, so that the run can be replayed without a device or
+ * an Appium server by {@link TrafficReplay}.
+ * <p>
+ * Commands are grouped into streams: one per test, named as its timings are tagged, holding the commands the test
+ * issued in order, and one shared stream for session creation and deletion and for commands issued outside a test.
+ * The file starts with a small header, holding the run settings a replay needs to send the same commands, such as
+ * the test data seed, followed by the commands one after another and an index of each stream's
+ * command offsets; the last eight bytes hold the index's offset. Response bodies larger than 512 bytes, mostly page
+ * sources and screenshots, are stored deflated. The file is written under a temporary name and moved into place by
+ * {@link #close()}, so an interrupted run leaves the previous recording intact.
+ * <p>
+ * Layout of a command: method, path, request body, response status, a flag telling whether the response body is
+ * deflated, the response body's decoded length and the stored response body. Strings are stored as a two-byte
+ * length followed by UTF-8, bodies as a four-byte length followed by the bytes. The header's settings are stored as
+ * a four-byte count followed by name and value of each, the values as bodies.
+ */
+public class TrafficRecorder {
+
+    /** First four bytes of a recording: "ACRT". */
+    static final int MAGIC = 0x41435254;
+
+    /** Version of the file layout. */
+    static final int VERSION = 2;
+
+    /** Stream of the commands that do not belong to a test. */
+    static final String SESSION_STREAM = "session";
+
+    /** Prefix of the streams holding a test's commands. */
+    static final String TEST_STREAM = "test:";
+
+    /** Response bodies up to this size are stored as they are. */
+    private static final int DEFLATE_ABOVE = 512;
+
+    private final Path file;
+    private final Path partial;
+    private final DataOutputStream out;
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+
+    /** Offsets of each stream's commands, by stream in the order of their first command. */
+    private final Map<String, List<Long>> index = new LinkedHashMap<>();
+
+    private long position;
+    private long decodedBytes;
+    private int commands;
+    private boolean closed;
+
+    /**
+     * Starts a recording.
+     *
+     * @param file     The file to write the recording to on {@link #close()}.
+     * @param settings The run settings a replay needs, by name; see {@link TrafficReplay#setting(String)}.
+     * @throws IOException If the temporary file cannot be created.
+     */
+    public TrafficRecorder(Path file, Map<String, String> settings) throws IOException {
+        this.file = file;
+        this.partial = file.resolveSibling(file.getFileName() + ".partial");
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(partial), 64 * 1024));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(settings.size());
+        position = 12;
+        for (Map.Entry<String, String> setting : settings.entrySet()) {
+            byte[] name = setting.getKey().getBytes(StandardCharsets.UTF_8);
+            byte[] value = setting.getValue().getBytes(StandardCharsets.UTF_8);
+            out.writeShort(name.length);
+            out.write(name);
+            out.writeInt(value.length);
+            out.write(value);
+            position += 2 + name.length + 4 + value.length;
+        }
+    }
+
+    /**
+     * Names the stream a command belongs to.
+     *
+     * @param request The command.
+     * @return {@link #SESSION_STREAM} for session creation, deletion and status and for commands issued outside a
+     *         test; otherwise the current test's stream.
+     */
+    static String streamOf(HttpRequest request) {
+        String uri = request.getUri();
+        HttpMethod method = request.getMethod();
+        if ((method == HttpMethod.POST && uri.endsWith("/session"))
+                || (method == HttpMethod.DELETE && uri.matches(".*/session/[^/]+"))
+                || uri.endsWith("/status")) {
+            return SESSION_STREAM;
+        }
+        String test = CommandMetrics.currentTest();
+        return test != null ? TEST_STREAM + test : SESSION_STREAM;
+    }
+
+    /**
+     * Appends a command and its response to the recording. A write error is reported once and ends the
+     * recording.
+     *
+     * @param request  The command sent.
+     * @param response The response received.
+     */
+    public synchronized void record(HttpRequest request, HttpResponse response) {
+        if (closed) {
+            return;
+        }
+        byte[] method = request.getMethod().name().getBytes(StandardCharsets.UTF_8);
+        byte[] path = request.getUri().getBytes(StandardCharsets.UTF_8);
+        byte[] body = request.getContent() == null ? new byte[0] : request.getContent();
+        byte[] content = response.getContent() == null ? new byte[0] : response.getContent();
+        byte[] stored = content.length > DEFLATE_ABOVE ? deflate(content) : content;
+        boolean deflated = stored != content;
+        try {
+            index.computeIfAbsent(streamOf(request), s -> new ArrayList<>()).add(position);
+            out.writeShort(method.length);
+            out.write(method);
+            out.writeShort(path.length);
+            out.write(path);
+            out.writeInt(body.length);
+            out.write(body);
+            out.writeShort(response.getStatus());
+            out.writeBoolean(deflated);
+            out.writeInt(content.length);
+            out.writeInt(stored.length);
+            out.write(stored);
+        } catch (IOException e) {
+            e.printStackTrace();
+            closed = true;
+            return;
+        }
+        position += 2 + method.length + 2 + path.length + 4 + body.length + 2 + 1 + 4 + 4 + stored.length;
+        decodedBytes += content.length;
+        commands++;
+    }
+
+    /**
+     * Writes the index and moves the recording into place. Commands recorded afterwards are ignored.
+     */
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            long indexOffset = position;
+            out.writeInt(index.size());
+            for (Map.Entry<String, List<Long>> stream : index.entrySet()) {
+                byte[] name = stream.getKey().getBytes(StandardCharsets.UTF_8);
+                out.writeShort(name.length);
+                out.write(name);
+                out.writeInt(stream.getValue().size());
+                for (long offset : stream.getValue()) {
+                    out.writeLong(offset);
+                }
+            }
+            out.writeLong(indexOffset);
+            out.close();
+            Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        deflater.end();
+    }
+
+    /**
+     * Summarizes the recording.
+     *
+     * @return A one-line, human-readable report.
+     */
+    public synchronized String report() {
+        return String.format("Traffic recording: %d commands in %d streams, %d KB (%d KB of responses decoded) to %s",
+                commands, index.size(), position / 1024, decodedBytes / 1024, file);
+    }
+
+    /**
+     * Deflates a response body, returning the body itself if that does not make it smaller.
+     */
+    private byte[] deflate(byte[] content) {
+        deflater.reset();
+        deflater.setInput(content);
+        deflater.finish();
+        byte[] buffer = new byte[content.length];
+        int length = 0;
+        while (!deflater.finished() && length < buffer.length) {
+            length += deflater.deflate(buffer, length, buffer.length - length);
+        }
+        if (!deflater.finished()) {
+            return content;
+        }
+        byte[] stored = new byte[length];
+        System.arraycopy(buffer, 0, stored, 0, length);
+        return stored;
+    }
+}
@@ -0,0 +1,392 @@
+package setup;
+
+import org.openqa.selenium.json.Json;
+import org.openqa.selenium.remote.http.HttpClient;
+import org.openqa.selenium.remote.http.HttpRequest;
+import org.openqa.selenium.remote.http.HttpResponse;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Serves driver commands from a recording made by {@link TrafficRecorder} instead of sending them to a server, so
+ * that the suite can be rerun without a device or an Appium server, for instance after refactoring the page objects.
+ * <p>
+ * The recording is memory-mapped and commands are decoded only when they are served. Each command is answered with
+ * the next recorded response of its stream if that was recorded for the same method and path. Since the recording
+ * already decided every response, the run is deterministic; whatever it does differently from the recorded run is a
+ * change in the framework's command sequence and is reported by {@link #report()}:
+ * <ul>
+ *     <li>a command the recording does not hold at this point fails with a WebDriver error,</li>
+ *     <li>recorded commands that were skipped to reach the command sent, or that were never sent, are counted as
+ *     missing,</li>
+ *     <li>a command sent with another body than recorded, e.g. a changed locator, is served but counted.</li>
+ * </ul>
+ * Repeated polls are tolerated: replayed responses come back faster than the device answered, so a wait may poll
+ * more or fewer times than it did in the recorded run. Session ids are ignored when paths are compared, since a test
+ * may be replayed on another device's session than it was recorded on.
+ */
+public class TrafficReplay implements HttpClient.Factory {
+
+    /** How many recorded commands are searched ahead for a command that does not come next. */
+    private static final int SEARCH_AHEAD = 64;
+
+    /** Most divergences listed in the report. */
+    private static final int MAX_LISTED = 20;
+
+    /** The session id in a command path. */
+    private static final Pattern SESSION_ID = Pattern.compile("/session/[^/]+");
+
+    private final Path file;
+    private final MappedByteBuffer recording;
+    private final Json json = new Json();
+
+    /** Run settings stored by the recorder. */
+    private final Map<String, String> settings = new HashMap<>();
+
+    /** Streams by name, in the order of their first recorded command. */
+    private final Map<String, Stream> streams = new LinkedHashMap<>();
+
+    private final AtomicInteger served = new AtomicInteger();
+    private final AtomicInteger repeated = new AtomicInteger();
+    private final AtomicInteger collapsed = new AtomicInteger();
+    private final AtomicInteger skipped = new AtomicInteger();
+    private final AtomicInteger unexpected = new AtomicInteger();
+    private final AtomicInteger changedBodies = new AtomicInteger();
+    private final List<String> divergences = Collections.synchronizedList(new ArrayList<>());
+
+    /**
+     * Maps a recording and reads its index.
+     *
+     * @param file The recording.
+     * @throws IOException If the file cannot be read or is not a recording.
+     */
+    public TrafficReplay(Path file) throws IOException {
+        this.file = file;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            this.recording = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        ByteBuffer in = recording.duplicate();
+        if (in.limit() < 24 || in.getInt() != TrafficRecorder.MAGIC) {
+            throw new IOException(file + " is not a command recording");
+        }
+        if (in.getInt() != TrafficRecorder.VERSION) {
+            throw new IOException(file + " was recorded by another version; record it again");
+        }
+        int settingCount = in.getInt();
+        for (int i = 0; i < settingCount; i++) {
+            String name = string(in);
+            byte[] value = new byte[in.getInt()];
+            in.get(value);
+            settings.put(name, new String(value, StandardCharsets.UTF_8));
+        }
+        in.position((int) in.getLong(in.limit() - 8));
+        int count = in.getInt();
+        for (int i = 0; i < count; i++) {
+            String name = string(in);
+            int[] offsets = new int[in.getInt()];
+            for (int j = 0; j < offsets.length; j++) {
+                offsets[j] = (int) in.getLong();
+            }
+            streams.put(name, new Stream(name, offsets));
+        }
+    }
+
+    /**
+     * Returns a builder whose clients answer from the recording whatever server URL they are created for.
+     *
+     * @return The client builder.
+     */
+    @Override
+    public HttpClient.Builder builder() {
+        return new HttpClient.Builder() {
+            @Override
+            public HttpClient createClient(URL url) {
+                return new Client();
+            }
+        };
+    }
+
+    @Override
+    public void cleanupIdleClients() {
+        // Nothing is connected.
+    }
+
+    /**
+     * Returns a setting of the recorded run, so that the replay can send the same commands, e.g. type the same
+     * test data.
+     *
+     * @param name The setting's name.
+     * @return The recorded value, or {@code null} if the recording does not hold the setting.
+     */
+    public String setting(String name) {
+        return settings.get(name);
+    }
+
+    /**
+     * Orders tests as they ran in the recorded run, so that each test starts from the state it was recorded in.
+     * Tests the recording does not know run last, in their given order.
+     *
+     * @param tests The tests about to run.
+     * @param name  Returns a test's method name.
+     * @param <T>   The type of the tests.
+     * @return The tests in recorded order.
+     */
+    public <T> List<T> inRecordedOrder(List<T> tests, Function<T, String> name) {
+        Map<String, Integer> position = new HashMap<>();
+        for (String stream : streams.keySet()) {
+            if (stream.startsWith(TrafficRecorder.TEST_STREAM)) {
+                // Streams of data-driven tests are named with their parameters; order by the first invocation.
+                String test = stream.substring(TrafficRecorder.TEST_STREAM.length());
+                int parameters = test.indexOf('(');
+                position.putIfAbsent(parameters < 0 ? test : test.substring(0, parameters), position.size());
+            }
+        }
+        List<T> ordered = new ArrayList<>(tests);
+        ordered.sort(Comparator.comparingInt(t -> position.getOrDefault(name.apply(t), Integer.MAX_VALUE)));
+        return ordered;
+    }
+
+    /**
+     * Summarizes how closely the run followed the recording, listing the first divergences.
+     *
+     * @return A human-readable report; its first line reads "no divergences" if the run sent exactly the
+     *         recorded commands.
+     */
+    public String report() {
+        int missing = skipped.get();
+        int total = 0;
+        for (Stream stream : streams.values()) {
+            missing += stream.remaining();
+            total += stream.offsets.length;
+        }
+        StringBuilder sb = new StringBuilder(String.format("Command replay from %s: %d of %d recorded commands "
+                        + "served (%d repeated polls, %d recorded polls not needed), ", file, served.get(), total,
+                repeated.get(), collapsed.get()));
+        if (unexpected.get() == 0 && missing == 0 && changedBodies.get() == 0) {
+            sb.append("no divergences");
+        } else {
+            sb.append(String.format("%d unexpected, %d missing, %d with changed bodies",
+                    unexpected.get(), missing, changedBodies.get()));
+        }
+        int listed = 0;
+        synchronized (divergences) {
+            for (String divergence : divergences) {
+                sb.append(System.lineSeparator()).append("  ").append(divergence);
+                listed++;
+            }
+        }
+        for (Stream stream : streams.values()) {
+            if (stream.remaining() > 0 && listed++ < MAX_LISTED) {
+                sb.append(System.lineSeparator()).append(String.format("  %s: %d recorded commands not sent, "
+                        + "starting with %s", stream.name, stream.remaining(), stream.entry(stream.next)));
+            }
+        }
+        return sb.toString();
+    }
+
+    private void diverged(String stream, String what) {
+        if (divergences.size() < MAX_LISTED) {
+            divergences.add(stream + ": " + what);
+        }
+    }
+
+    /**
+     * Replaces the session id in a command path, e.g. {@code /session/1f3a/element} becomes {@code /session/-/element}.
+     */
+    private static String withoutSession(String path) {
+        return SESSION_ID.matcher(path).replaceFirst("/session/-");
+    }
+
+    private static String string(ByteBuffer in) {
+        byte[] bytes = new byte[in.getShort() & 0xFFFF];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A driver's view of the replay.
+     */
+    private final class Client implements HttpClient {
+        @Override
+        public HttpResponse execute(HttpRequest request) {
+            Stream stream;
+            synchronized (streams) {
+                stream = streams.computeIfAbsent(TrafficRecorder.streamOf(request), s -> new Stream(s, new int[0]));
+            }
+            return stream.serve(request);
+        }
+    }
+
+    /**
+     * The recorded commands of one stream and how far they have been served.
+     */
+    private final class Stream {
+        private final String name;
+        private final int[] offsets;
+        private int next;
+        private Entry last;
+
+        private Stream(String name, int[] offsets) {
+            this.name = name;
+            this.offsets = offsets;
+        }
+
+        private synchronized HttpResponse serve(HttpRequest request) {
+            String method = request.getMethod().name();
+            String path = withoutSession(request.getUri());
+            byte[] body = request.getContent() == null ? new byte[0] : request.getContent();
+
+            if (next < offsets.length && entry(next).isFor(method, path)) {
+                return serve(entry(next++), body);
+            }
+            if (last != null && last.isFor(method, path)) {
+                repeated.incrementAndGet();
+                return last.response();
+            }
+            // Polls the recorded run needed and this one did not.
+            int from = next;
+            while (last != null && from < offsets.length && entry(from).isFor(last.method, last.path)) {
+                from++;
+            }
+            collapsed.addAndGet(from - next);
+            for (int i = from; i < offsets.length && i < from + SEARCH_AHEAD; i++) {
+                if (entry(i).isFor(method, path)) {
+                    if (i > from) {
+                        skipped.addAndGet(i - from);
+                        diverged(name, String.format("%d recorded commands not sent before %s %s, starting with %s",
+                                i - from, method, path, entry(from)));
+                    }
+                    next = i + 1;
+                    return serve(entry(i), body);
+                }
+            }
+            next = from;
+            unexpected.incrementAndGet();
+            String expected = next < offsets.length ? String.valueOf(entry(next)) : "the end of the recording";
+            diverged(name, "unexpected " + method + " " + path + " where the recording has " + expected);
+            return error("Replay: " + method + " " + path + " was not recorded here; the recording has " + expected);
+        }
+
+        private HttpResponse serve(Entry entry, byte[] body) {
+            if (!entry.hasBody(body)) {
+                changedBodies.incrementAndGet();
+                diverged(name, "changed body for " + entry + ": " + new String(body, StandardCharsets.UTF_8));
+            }
+            served.incrementAndGet();
+            last = entry;
+            return entry.response();
+        }
+
+        private Entry entry(int index) {
+            return new Entry(offsets[index]);
+        }
+
+        private synchronized int remaining() {
+            return offsets.length - next;
+        }
+    }
+
+    /**
+     * One recorded command, decoded from the mapped recording.
+     */
+    private final class Entry {
+        private final String method;
+        private final String path;
+        private final int bodyAt;
+        private final int bodyLength;
+        private final int responseAt;
+
+        private Entry(int offset) {
+            ByteBuffer in = recording.duplicate();
+            in.position(offset);
+            this.method = string(in);
+            this.path = withoutSession(string(in));
+            this.bodyLength = in.getInt();
+            this.bodyAt = in.position();
+            this.responseAt = bodyAt + bodyLength;
+        }
+
+        private boolean isFor(String method, String path) {
+            return this.method.equals(method) && this.path.equals(path);
+        }
+
+        private boolean hasBody(byte[] body) {
+            if (body.length != bodyLength) {
+                return false;
+            }
+            for (int i = 0; i < bodyLength; i++) {
+                if (recording.get(bodyAt + i) != body[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private HttpResponse response() {
+            ByteBuffer in = recording.duplicate();
+            in.position(responseAt);
+            int status = in.getShort() & 0xFFFF;
+            boolean deflated = in.get() != 0;
+            byte[] content = new byte[in.getInt()];
+            byte[] stored = new byte[in.getInt()];
+            in.get(stored);
+            if (deflated) {
+                Inflater inflater = new Inflater();
+                try {
+                    inflater.setInput(stored);
+                    inflater.inflate(content);
+                } catch (DataFormatException e) {
+                    throw new IllegalStateException("Corrupt response in " + file, e);
+                } finally {
+                    inflater.end();
+                }
+            } else {
+                content = stored;
+            }
+            HttpResponse response = new HttpResponse();
+            response.setStatus(status);
+            response.addHeader("Content-Type", "application/json; charset=utf-8");
+            response.setContent(content);
+            return response;
+        }
+
+        @Override
+        public String toString() {
+            return method + " " + path;
+        }
+    }
+
+    /**
+     * Builds the W3C error response a server sends for a failed command.
+     */
+    private HttpResponse error(String message) {
+        Map<String, Object> value = new LinkedHashMap<>();
+        value.put("error", "unknown error");
+        value.put("message", message);
+        value.put("stacktrace", "");
+        HttpResponse response = new HttpResponse();
+        response.setStatus(500);
+        response.addHeader("Content-Type", "application/json; charset=utf-8");
+        response.setContent(json.toJson(Collections.singletonMap("value", value)).getBytes(StandardCharsets.UTF_8));
+        return response;
+    }
+}
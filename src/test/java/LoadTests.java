@@ -0,0 +1,41 @@
+import io.github.cdimascio.dotenv.Dotenv;
+import load.LoadRunner;
+import org.testng.Assert;
+import org.testng.SkipException;
+import org.testng.annotations.AfterSuite;
+import org.testng.annotations.Test;
+import setup.TestSetup;
+
+
+/**
+ * Replays the login and registration flows at a target rate with {@link LoadRunner}.
+ * Skipped unless LOAD_MODE=true in the .env file, so the regular suite is unaffected.
+ */
+public class LoadTests {
+
+    /** Dotenv instance for loading environment variables. */
+    private final Dotenv dotenv = Dotenv.configure().load();
+
+    /**
+     * Runs the configured load profile and fails if more than LOAD_MAX_ERROR_RATE (1% by default)
+     * of the scheduled flow runs failed or were dropped.
+     */
+    @Test
+    public void soak() {
+        if (!Boolean.parseBoolean(dotenv.get("LOAD_MODE", "false"))) {
+            throw new SkipException("LOAD_MODE is not enabled");
+        }
+        LoadRunner runner = LoadRunner.fromEnv();
+        runner.run();
+        Assert.assertTrue(runner.errorRate() <= Double.parseDouble(dotenv.get("LOAD_MAX_ERROR_RATE", "0.01")),
+                "Error rate " + runner.errorRate() + " is above the limit");
+    }
+
+    /**
+     * Quits the pooled Appium sessions once all tests have run.
+     */
+    @AfterSuite(alwaysRun = true)
+    public void shutdown() {
+        TestSetup.shutdownSessions();
+    }
+}
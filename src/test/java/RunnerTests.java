@@ -1,28 +1,49 @@
 import io.github.cdimascio.dotenv.Dotenv;
+import listener.StreamingReporter;
 import org.testng.Assert;
+import org.testng.ITestResult;
+import org.testng.SkipException;
 import org.testng.annotations.AfterMethod;
+import org.testng.annotations.AfterSuite;
 import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Listeners;
 import org.testng.annotations.Test;
+import page.CommandMetrics;
+import page.ElementCache;
+import page.FailureArtifacts;
+import page.FormFillReport;
+import page.LocatorCompiler;
 import page.LoginPage;
 import page.RegisterPage;
+import page.ScreenCatalog;
+import page.SnapshotEngine;
+import page.WaitEngine;
+import setup.AppScreen;
+import setup.Identity;
+import setup.ResultCache;
+import setup.ScreenFlow;
 import setup.TestSetup;
 
+import java.lang.reflect.Method;
+
 
 /**
  * Contains test cases for login and registration functionalities.
  * Extends {@link TestSetup} to initialize and manage the Appium test environment.
  * Uses TestNG annotations for setting up, executing, and tearing down tests.
+ * Results are streamed while the suite runs by {@link StreamingReporter}.
  */
+@Listeners(StreamingReporter.class)
 public class RunnerTests extends TestSetup {
 
     /** Dotenv instance for loading environment variables. */
     private final Dotenv dotenv = Dotenv.configure().load();
 
-    /** Page object for login functionality. */
-    private LoginPage log;
+    /** Page object for login functionality; stateless, so shared by all worker threads. */
+    private final LoginPage log = new LoginPage();
 
-    /** Page object for registration functionality. */
-    private RegisterPage reg;
+    /** Page object for registration functionality; stateless, so shared by all worker threads. */
+    private final RegisterPage reg = new RegisterPage();
 
     /** Valid email for login and registration tests. */
     protected String validEmail = dotenv.get("VALID_EMAIL");
@@ -42,123 +63,148 @@ public class RunnerTests extends TestSetup {
     /** Invalid reinput password for testing password confirmation. */
     protected String invalidReinputPassword = dotenv.get("INVALID_REINPUT_PASSWORD");
 
-    /** Randomly generated string for testing unique email registration. */
-    private final String randomString = generateRandomString(3);
-
     /**
-     * Initializes the test setup and page objects before each test method.
+     * Leases a device and a driver for the current worker thread before each test method, already on the screen
+     * the test's {@link ScreenFlow} starts on, and tags the thread's command timings with the test about to run.
+     * A test whose cached result still holds is skipped before any device is leased.
+     *
+     * @param method     The test method about to run.
+     * @param parameters The parameters it runs with, if it is data-driven.
+     * @throws SkipException If the test passed recently against unchanged inputs.
      */
     @BeforeMethod
-    public void init() {
-        setup();
-        log = new LoginPage();
-        reg = new RegisterPage();
+    public void init(Method method, Object[] parameters) {
+        ResultCache cache = resultCache();
+        if (!isReplaying() && cache.isSkippingEnabled()
+                && cache.isUnchanged(ResultCache.key(getClass(), method.getName(), parameters), getClass())) {
+            throw new SkipException("Result cache: unchanged since it passed");
+        }
+        CommandMetrics.startTest(CommandMetrics.testName(method.getName(), parameters));
+        setup(method.getAnnotation(ScreenFlow.class));
     }
 
     /**
-     * Tests login with valid email and password.
+     * Tests login with valid email and password, using an account registered in an earlier run when
+     * DATA_REUSE_ACCOUNTS is enabled.
      */
     @Test
+    @ScreenFlow(start = AppScreen.LOGIN, end = AppScreen.ACCOUNT)
     public void testLoginWithValidData() {
-        log.sendEmailToLogin(driver, validEmail);
-        log.sendPasswordToLogin(driver, validPassword);
-        log.buttonLogin(driver);
-        Assert.assertTrue(log.verifyAccountAfterLogin(driver));
+        Identity account = registeredAccount();
+        if (account != null) {
+            log.login(driver(), account.getEmail(), account.getPassword());
+        } else {
+            log.login(driver(), validEmail, validPassword);
+        }
+        Assert.assertEquals(log.getLoginResult(driver()), LoginPage.LoginResult.ACCOUNT);
     }
 
     /**
      * Tests login with incorrect email and valid password.
      */
     @Test
+    @ScreenFlow(start = AppScreen.LOGIN, end = AppScreen.LOGIN)
     public void testLoginWithInvalidData() {
-        log.sendEmailToLogin(driver, incorrectEmail);
-        log.sendPasswordToLogin(driver, validPassword);
-        log.buttonLogin(driver);
-        Assert.assertTrue(log.getErrorMessageLogin(driver));
+        log.login(driver(), incorrectEmail, validPassword);
+        Assert.assertEquals(log.getLoginResult(driver()), LoginPage.LoginResult.LOGIN_ERROR);
     }
 
     /**
      * Tests login with invalid email format and valid password.
      */
     @Test
+    @ScreenFlow(start = AppScreen.LOGIN, end = AppScreen.LOGIN)
     public void testLoginWithInvalidFormatEmail() {
-        log.sendEmailToLogin(driver, invalidEmailFormat);
-        log.sendPasswordToLogin(driver, validPassword);
-        log.buttonLogin(driver);
-        Assert.assertTrue(log.getErrorMessageInvalidEmailFormat(driver));
+        log.login(driver(), invalidEmailFormat, validPassword);
+        Assert.assertEquals(log.getLoginResult(driver()), LoginPage.LoginResult.INVALID_EMAIL);
     }
 
     /**
      * Tests registration with incorrect reinput password.
      */
     @Test
+    @ScreenFlow(start = AppScreen.REGISTER, end = AppScreen.REGISTER)
     public void invalidRegisterWrongReinputPassword() {
-        reg.clickRegister(driver);
-        reg.inputEmail(driver, validEmail);
-        reg.inputName(driver, name);
-        reg.inputPassword(driver, validPassword);
-        reg.reinputPassword(driver, invalidReinputPassword);
-        reg.clickButtonRegister(driver);
-        Assert.assertTrue(reg.getErrorMessageFieldGlobal(driver, "Password Does Not Matches"));
+        reg.fillRegistration(driver(), name, validEmail, validPassword, invalidReinputPassword, true);
+        Assert.assertEquals(reg.getRegisterResult(driver()), RegisterPage.RegisterResult.PASSWORD_MISMATCH);
     }
 
     /**
      * Tests registration with blank fields.
      */
     @Test
+    @ScreenFlow(start = AppScreen.REGISTER, end = AppScreen.REGISTER)
     public void invalidRegisterBlankField() {
-        reg.clickRegister(driver);
-        reg.clickButtonRegister(driver);
-        Assert.assertTrue(reg.getErrorMessageFieldGlobal(driver, "Enter Full Name"));
+        reg.clickButtonRegister(driver());
+        Assert.assertEquals(reg.getRegisterResult(driver()), RegisterPage.RegisterResult.BLANK_NAME);
     }
 
     /**
      * Tests registration with a duplicate email address.
      */
     @Test
+    @ScreenFlow(start = AppScreen.REGISTER, end = AppScreen.REGISTER)
     public void invalidRegisterDuplicateEmail() {
-        reg.clickRegister(driver);
-        reg.inputEmail(driver, validEmail);
-        reg.inputName(driver, name);
-        reg.inputPassword(driver, validPassword);
-        reg.reinputPassword(driver, validPassword);
-        reg.clickButtonRegister(driver);
-        Assert.assertTrue(reg.getErrorMessageFieldGlobal(driver, "Email Already Exists"));
+        reg.fillRegistration(driver(), name, validEmail, validPassword, validPassword, true);
+        Assert.assertEquals(reg.getRegisterResult(driver()), RegisterPage.RegisterResult.EMAIL_EXISTS);
     }
 
     /**
-     * Tests registration with valid data.
+     * Tests registration with valid data, using a fresh identity that no earlier run has registered.
+     * The registered identity is added to the ledger for later login tests.
      */
     @Test
+    @ScreenFlow(start = AppScreen.REGISTER, end = AppScreen.REGISTER)
     public void registerWithValidData() {
-        reg.clickRegister(driver);
-        reg.inputEmail(driver, randomString + validEmail);
-        reg.inputName(driver, name);
-        reg.inputPassword(driver, validPassword);
-        reg.reinputPassword(driver, validPassword);
-        reg.clickButtonRegister(driver);
-        Assert.assertTrue(reg.getErrorMessageFieldGlobal(driver, "Registration Successful"));
+        Identity identity = dataFactory().next(workerIndex());
+        reg.fillRegistration(driver(), identity.getName(), identity.getEmail(), identity.getPassword(),
+                identity.getPassword(), true);
+        Assert.assertEquals(reg.getRegisterResult(driver()), RegisterPage.RegisterResult.SUCCESS);
+        recordRegistration(identity);
     }
 
     /**
      * Tests registration with an invalid email format and mismatched password confirmation.
      */
     @Test
+    @ScreenFlow(start = AppScreen.REGISTER, end = AppScreen.REGISTER)
     public void registerWithInvalidData() {
-        reg.clickRegister(driver);
-        reg.inputEmail(driver, invalidEmailFormat);
-        reg.inputName(driver, name);
-        reg.inputPassword(driver, validPassword);
-        reg.reinputPassword(driver, invalidReinputPassword);
-        reg.clickButtonRegister(driver);
-        Assert.assertTrue(reg.validateErrorInvalidEmail(driver));
+        reg.fillRegistration(driver(), name, invalidEmailFormat, validPassword, invalidReinputPassword, true);
+        Assert.assertEquals(reg.getRegisterResult(driver()), RegisterPage.RegisterResult.INVALID_EMAIL);
     }
 
     /**
-     * Cleans up the test environment after each test method.
+     * Cleans up the test environment after each test method, remembering the screen a passing test ended on.
+     * A failed test first has the device state it failed in captured, while its session is still leased.
+     *
+     * @param result The result of the test method.
      */
     @AfterMethod
-    public void cleanup() {
-        tearDown();
+    public void cleanup(ITestResult result) {
+        if (result.getStatus() == ITestResult.FAILURE) {
+            FailureArtifacts.capture(driver(), "test failure", result.getThrowable());
+        }
+        tearDown(result.isSuccess());
+        CommandMetrics.endTest();
+    }
+
+    /**
+     * Prints the run's performance reports, writes the command latency report and quits the pooled
+     * Appium sessions once all tests have run.
+     */
+    @AfterSuite(alwaysRun = true)
+    public void shutdown() {
+        System.out.println(LocatorCompiler.lookupReport());
+        System.out.println(FormFillReport.totals());
+        System.out.println(SnapshotEngine.report());
+        System.out.println(ElementCache.report());
+        System.out.println(CommandMetrics.slowestStepsReport());
+        CommandMetrics.writeReport();
+        FailureArtifacts.flush(10_000);
+        System.out.println(FailureArtifacts.report());
+        System.out.println(ScreenCatalog.report());
+        WaitEngine.saveHistory();
+        ScreenCatalog.save();
+        shutdownSessions();
     }
 }
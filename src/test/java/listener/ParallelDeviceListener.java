@@ -0,0 +1,189 @@
+package listener;
+
+import org.testng.IAlterSuiteListener;
+import org.testng.IMethodInstance;
+import org.testng.IMethodInterceptor;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+import org.testng.ITestContext;
+import org.testng.ITestListener;
+import org.testng.ITestResult;
+import org.testng.Reporter;
+import org.testng.xml.XmlSuite;
+import page.CommandMetrics;
+import page.FailureArtifacts;
+import setup.ResultCache;
+import setup.ScreenFlow;
+import setup.ScreenNavigator;
+import setup.TestDurationHistory;
+import setup.TestSetup;
+import setup.TrafficReplay;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Runs the suite in parallel with one TestNG worker per registered device and balances the work across them.
+ * Tests are ordered longest-first using the durations recorded in earlier runs; since each worker takes the
+ * next test as soon as it is free, this keeps all devices busy until the end of the run.
+ * With a single device, consecutive tests share one session, so tests are instead chained by their
+ * {@link ScreenFlow} so that each starts where the previous one ended (see {@link ScreenNavigator#chain}).
+ * When RESULT_CACHE is enabled, tests that passed recently against unchanged inputs are scheduled first, since they
+ * are skipped as soon as they start (see {@link ResultCache}), and take no part in the ordering.
+ * When replaying a recording ({@link TrafficReplay}), every test runs on one thread in the recorded order, and
+ * durations and results are not kept since no device was involved.
+ * Registered through {@code META-INF/services/org.testng.ITestNGListener} because suite alteration
+ * happens before {@code @Listeners} annotations are read.
+ */
+public class ParallelDeviceListener implements IAlterSuiteListener, IMethodInterceptor, ITestListener, ISuiteListener {
+
+    /**
+     * Switches every suite to method-level parallelism with one thread per device, or to a single thread when
+     * replaying, so that tests are served in the recorded order.
+     *
+     * @param suites The suites about to run.
+     */
+    @Override
+    public void alter(List<XmlSuite> suites) {
+        int devices = TestSetup.isReplaying() ? 1 : Math.max(1, TestSetup.deviceRegistry().size());
+        for (XmlSuite suite : suites) {
+            suite.setParallel(XmlSuite.ParallelMode.METHODS);
+            suite.setThreadCount(devices);
+        }
+    }
+
+    /**
+     * Schedules tests whose cached result still holds first and orders the rest so that the longest ones, according
+     * to earlier runs, start first, or with a single device into a chain of screen flows.
+     *
+     * @param methods The tests about to run.
+     * @param context The test context.
+     * @return The tests in scheduling order.
+     */
+    @Override
+    public List<IMethodInstance> intercept(List<IMethodInstance> methods, ITestContext context) {
+        if (TestSetup.isReplaying()) {
+            return TestSetup.trafficReplay().inRecordedOrder(methods, m -> m.getMethod().getMethodName());
+        }
+        List<IMethodInstance> ordered = unchanged(methods);
+        List<IMethodInstance> remaining = new ArrayList<>(methods);
+        remaining.removeAll(ordered);
+        TestDurationHistory history = TestSetup.durationHistory();
+        if (TestSetup.deviceRegistry().size() == 1) {
+            ordered.addAll(ScreenNavigator.chain(remaining,
+                    m -> m.getMethod().getConstructorOrMethod().getMethod().getAnnotation(ScreenFlow.class),
+                    m -> history.estimate(m.getMethod().getQualifiedName())));
+            return ordered;
+        }
+        remaining.sort(Comparator.comparingDouble(
+                (IMethodInstance m) -> history.estimate(m.getMethod().getQualifiedName())).reversed());
+        ordered.addAll(remaining);
+        return ordered;
+    }
+
+    /**
+     * Records the duration of a passed test and caches its result together with the page classes it used.
+     *
+     * @param result The passed test.
+     */
+    @Override
+    public void onTestSuccess(ITestResult result) {
+        Set<String> touched = CommandMetrics.drainTouchedClasses(testName(result));
+        if (TestSetup.isReplaying()) {
+            return;
+        }
+        recordDuration(result);
+        TestSetup.resultCache().recordPass(cacheKey(result), result.getMethod().getRealClass(), touched);
+    }
+
+    /**
+     * Records the duration of a failed test and links every artifact captured during the test from the TestNG
+     * report, including the device state the test class's {@code @AfterMethod} captured before releasing the session.
+     *
+     * @param result The failed test.
+     */
+    @Override
+    public void onTestFailure(ITestResult result) {
+        CommandMetrics.drainTouchedClasses(testName(result));
+        if (!TestSetup.isReplaying()) {
+            recordDuration(result);
+            TestSetup.resultCache().invalidate(cacheKey(result));
+        }
+        Reporter.setCurrentTestResult(result);
+        for (Path artifact : FailureArtifacts.artifactsFor(testName(result))) {
+            Reporter.log("<a href=\"" + artifact.toAbsolutePath().toUri() + "\">" + artifact.getFileName() + "</a>");
+        }
+    }
+
+    /**
+     * Forgets the page classes a skipped test used, since only passes are cached.
+     *
+     * @param result The skipped test.
+     */
+    @Override
+    public void onTestSkipped(ITestResult result) {
+        CommandMetrics.drainTouchedClasses(testName(result));
+    }
+
+    @Override
+    public void onFinish(ISuite suite) {
+        TestSetup.durationHistory().save();
+        TestSetup.resultCache().save();
+    }
+
+    /**
+     * Finds the tests that passed recently against the same app, environment and code. They stay in the run and
+     * are reported as skipped by the test class's {@code @BeforeMethod}, so the results still list every test.
+     * The parameters of data-driven tests are not known yet, so those are scheduled as usual and skipped row by row.
+     *
+     * @param methods The tests about to run.
+     * @return The tests whose cached result holds.
+     */
+    private List<IMethodInstance> unchanged(List<IMethodInstance> methods) {
+        ResultCache cache = TestSetup.resultCache();
+        List<IMethodInstance> unchanged = new ArrayList<>();
+        if (cache.isSkippingEnabled()) {
+            for (IMethodInstance m : methods) {
+                if (cache.isUnchanged(ResultCache.key(m.getMethod().getRealClass(), m.getMethod().getMethodName(), null),
+                        m.getMethod().getRealClass())) {
+                    unchanged.add(m);
+                }
+            }
+        }
+        return unchanged;
+    }
+
+    /**
+     * Feeds a finished test's duration back into the history used for the next run's ordering.
+     *
+     * @param result The finished test.
+     */
+    private void recordDuration(ITestResult result) {
+        TestSetup.durationHistory().record(result.getMethod().getQualifiedName(),
+                result.getEndMillis() - result.getStartMillis());
+    }
+
+    /**
+     * Keys a finished test invocation in the result cache.
+     *
+     * @param result The finished test.
+     * @return The test class and method name, with the parameters of a data-driven invocation.
+     */
+    private static String cacheKey(ITestResult result) {
+        return ResultCache.key(result.getMethod().getRealClass(), result.getMethod().getMethodName(),
+                result.getParameters());
+    }
+
+    /**
+     * Names a finished test as its timings and artifacts are tagged.
+     *
+     * @param result The finished test.
+     * @return The method name, with the parameters of a data-driven invocation.
+     */
+    private static String testName(ITestResult result) {
+        return CommandMetrics.testName(result.getMethod().getMethodName(), result.getParameters());
+    }
+}
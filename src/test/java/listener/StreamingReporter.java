@@ -0,0 +1,312 @@
+package listener;
+
+import io.github.cdimascio.dotenv.Dotenv;
+import org.openqa.selenium.json.Json;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+import org.testng.ITestListener;
+import org.testng.ITestResult;
+import page.CommandMetrics;
+import page.FailureArtifacts;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streams test results while the suite runs instead of collecting them for a report at the end, so that dashboards
+ * can follow a long run and a JVM that dies late in the run keeps everything reported up to then.
+ * <p>
+ * Every test start, every step timed by {@link CommandMetrics} and every test end (with its failure and artifact
+ * links) is appended as one JSON object per line to {@code events.ndjson} under REPORT_STREAM_DIR/&lt;run&gt;/.
+ * Finished tests are also written as JUnit XML, one partition file per REPORT_PARTITION_SIZE tests or every
+ * REPORT_PARTITION_SEC seconds, whichever comes first. Only the current partition is kept in memory, so memory use
+ * does not grow with the size of the suite: once a test's end is streamed, its artifacts and per-test timings are
+ * drained from {@link FailureArtifacts} and {@link CommandMetrics}. The page classes a test touched are left for
+ * {@link ParallelDeviceListener}, which drains them once it has cached the result, so the two listeners may see a
+ * test end in either order.
+ */
+public class StreamingReporter implements ITestListener, ISuiteListener, CommandMetrics.StepListener {
+
+    /** Environment holding the report settings; the .env file is optional here. */
+    private static final Dotenv ENV = Dotenv.configure().ignoreIfMissing().load();
+
+    /** Whether results are streamed at all. */
+    private static final boolean ENABLED = Boolean.parseBoolean(ENV.get("REPORT_STREAM", "true"));
+
+    /** Most tests per JUnit XML partition. */
+    private static final int PARTITION_SIZE = Integer.parseInt(ENV.get("REPORT_PARTITION_SIZE", "500"));
+
+    /** Longest time a finished test waits to be written to a partition, in milliseconds. */
+    private static final long PARTITION_MILLIS =
+            TimeUnit.SECONDS.toMillis(Long.parseLong(ENV.get("REPORT_PARTITION_SEC", "60")));
+
+    private final Json json = new Json();
+    private Path runDir;
+    private Writer events;
+    private String suiteName;
+
+    /** Finished tests not yet written to a partition. */
+    private final List<ITestResult> partition = new ArrayList<>();
+
+    /** Artifact files of the tests in the partition. */
+    private final Map<ITestResult, List<Path>> partitionArtifacts = new IdentityHashMap<>();
+    private int partitions;
+    private long partitionStarted;
+
+    /**
+     * Opens the event stream and starts listening to step timings.
+     *
+     * @param suite The suite about to run.
+     */
+    @Override
+    public synchronized void onStart(ISuite suite) {
+        if (!ENABLED || events != null) {
+            return;
+        }
+        suiteName = suite.getName();
+        runDir = Paths.get(ENV.get("REPORT_STREAM_DIR", "build/test-stream"))
+                .resolve(new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()));
+        try {
+            Files.createDirectories(runDir.resolve("junit"));
+            events = Files.newBufferedWriter(runDir.resolve("events.ndjson"), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        partitionStarted = System.currentTimeMillis();
+        Map<String, Object> event = event("suiteStart");
+        event.put("suite", suiteName);
+        write(event, true);
+        CommandMetrics.addListener(this);
+    }
+
+    @Override
+    public void onTestStart(ITestResult result) {
+        Map<String, Object> event = event("testStart");
+        event.put("test", name(result));
+        event.put("class", result.getMethod().getRealClass().getName());
+        event.put("thread", Thread.currentThread().getName());
+        write(event, true);
+    }
+
+    @Override
+    public void onStep(CommandMetrics.Phase phase, String test, String pageMethod, String strategy, long nanos) {
+        Map<String, Object> event = event("step");
+        event.put("test", test);
+        event.put("phase", phase.name());
+        event.put("pageMethod", pageMethod);
+        event.put("strategy", strategy);
+        event.put("ms", nanos / 1e6);
+        write(event, false);
+    }
+
+    @Override
+    public void onTestSuccess(ITestResult result) {
+        finished(result, "passed");
+    }
+
+    @Override
+    public void onTestFailure(ITestResult result) {
+        finished(result, "failed");
+    }
+
+    @Override
+    public void onTestSkipped(ITestResult result) {
+        finished(result, "skipped");
+    }
+
+    /**
+     * Writes the last partition, closes the event stream and stops listening to step timings.
+     *
+     * @param suite The suite that ran.
+     */
+    @Override
+    public synchronized void onFinish(ISuite suite) {
+        if (events == null) {
+            return;
+        }
+        CommandMetrics.removeListener(this);
+        writePartition();
+        Map<String, Object> event = event("suiteEnd");
+        event.put("suite", suiteName);
+        event.put("partitions", partitions);
+        write(event, true);
+        try {
+            events.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        events = null;
+        System.out.println("Streamed test results to " + runDir);
+    }
+
+    /**
+     * Streams a test's end, adds it to the current partition and drains what was kept for it per test.
+     */
+    private void finished(ITestResult result, String status) {
+        String name = name(result);
+        Map<String, Object> event = event("testEnd");
+        event.put("test", name);
+        event.put("status", status);
+        event.put("ms", result.getEndMillis() - result.getStartMillis());
+        if (result.getThrowable() != null) {
+            event.put("error", String.valueOf(result.getThrowable()));
+        }
+        synchronized (this) {
+            if (events == null) {
+                return;
+            }
+            List<Path> files = FailureArtifacts.drain(name);
+            CommandMetrics.drainTest(name);
+            List<String> artifacts = new ArrayList<>();
+            for (Path artifact : files) {
+                artifacts.add(artifact.toAbsolutePath().toUri().toString());
+            }
+            if (!artifacts.isEmpty()) {
+                event.put("artifacts", artifacts);
+            }
+            write(event, true);
+            partition.add(result);
+            partitionArtifacts.put(result, files);
+            if (partition.size() >= PARTITION_SIZE
+                    || System.currentTimeMillis() - partitionStarted >= PARTITION_MILLIS) {
+                writePartition();
+            }
+        }
+    }
+
+    /**
+     * Appends one event as a single line; test boundaries are flushed at once so the stream can be tailed.
+     */
+    private synchronized void write(Map<String, Object> event, boolean flush) {
+        if (events == null) {
+            return;
+        }
+        try {
+            // Structural line breaks only: line breaks inside strings are escaped by the encoder.
+            events.write(json.toJson(event).replaceAll("\\R\\s*", ""));
+            events.write('\n');
+            if (flush) {
+                events.flush();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Writes the current partition as a JUnit XML file and starts a new one. The file is written under a temporary
+     * name and moved into place, so readers never see a partial partition.
+     */
+    private synchronized void writePartition() {
+        partitionStarted = System.currentTimeMillis();
+        if (partition.isEmpty()) {
+            return;
+        }
+        partitions++;
+        String name = String.format("TEST-%s-%04d", suiteName.replaceAll("[^A-Za-z0-9._-]+", "_"), partitions);
+        String title = String.format("%s-%04d", suiteName, partitions);
+        int failures = 0;
+        int skipped = 0;
+        long millis = 0;
+        for (ITestResult result : partition) {
+            failures += result.getStatus() == ITestResult.FAILURE ? 1 : 0;
+            skipped += result.getStatus() == ITestResult.SKIP ? 1 : 0;
+            millis += result.getEndMillis() - result.getStartMillis();
+        }
+        Path file = runDir.resolve("junit").resolve(name + ".xml");
+        Path partial = runDir.resolve("junit").resolve(name + ".xml.partial");
+        try (Writer out = Files.newBufferedWriter(partial, StandardCharsets.UTF_8)) {
+            out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+            out.write(String.format("<testsuite name=\"%s\" tests=\"%d\" failures=\"%d\" errors=\"0\" skipped=\"%d\" "
+                    + "time=\"%.3f\">%n", xml(title), partition.size(), failures, skipped, millis / 1000.0));
+            for (ITestResult result : partition) {
+                out.write(String.format("  <testcase classname=\"%s\" name=\"%s\" time=\"%.3f\"",
+                        xml(result.getMethod().getRealClass().getName()), xml(name(result)),
+                        (result.getEndMillis() - result.getStartMillis()) / 1000.0));
+                if (result.getStatus() == ITestResult.SUCCESS) {
+                    out.write("/>\n");
+                    continue;
+                }
+                out.write(">\n");
+                if (result.getStatus() == ITestResult.SKIP) {
+                    out.write("    <skipped/>\n");
+                } else {
+                    Throwable error = result.getThrowable();
+                    StringWriter trace = new StringWriter();
+                    if (error != null) {
+                        error.printStackTrace(new PrintWriter(trace));
+                    }
+                    out.write(String.format("    <failure message=\"%s\" type=\"%s\">%s</failure>%n",
+                            xml(error == null ? "" : String.valueOf(error.getMessage())),
+                            error == null ? "" : error.getClass().getName(), xml(trace.toString())));
+                }
+                StringBuilder links = new StringBuilder();
+                for (Path artifact : partitionArtifacts.get(result)) {
+                    links.append(artifact.toAbsolutePath()).append('\n');
+                }
+                if (links.length() > 0) {
+                    out.write("    <system-out>" + xml(links.toString()) + "</system-out>\n");
+                }
+                out.write("  </testcase>\n");
+            }
+            out.write("</testsuite>\n");
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        try {
+            Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        partition.clear();
+        partitionArtifacts.clear();
+    }
+
+    private static Map<String, Object> event(String type) {
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("event", type);
+        event.put("time", System.currentTimeMillis());
+        return event;
+    }
+
+    /**
+     * Names a test by its method and, for data-driven tests, its parameters, as its timings are tagged.
+     */
+    private static String name(ITestResult result) {
+        return CommandMetrics.testName(result.getMethod().getMethodName(), result.getParameters());
+    }
+
+    private static String xml(String text) {
+        StringBuilder sb = new StringBuilder(text.length());
+        for (char c : text.toCharArray()) {
+            switch (c) {
+                case '<': sb.append("&lt;"); break;
+                case '>': sb.append("&gt;"); break;
+                case '&': sb.append("&amp;"); break;
+                case '"': sb.append("&quot;"); break;
+                default:
+                    if (c >= 0x20 || c == '\n' || c == '\r' || c == '\t') {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,61 @@
+package load;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Map;
+
+/**
+ * Checks the counts and the histogram-based response time percentiles {@link FlowStats} reports.
+ */
+public class FlowStatsTest {
+
+    /**
+     * Tests that percentiles are the upper bound of their power-of-two bucket, capped at the maximum.
+     */
+    @Test
+    public void testPercentilesComeFromBuckets() {
+        FlowStats stats = new FlowStats();
+        for (long millis = 1; millis <= 100; millis++) {
+            stats.record(millis, true);
+        }
+
+        Map<String, Object> summary = stats.summary(10);
+        Assert.assertEquals(summary.get("p50Ms"), 63L);
+        Assert.assertEquals(summary.get("p90Ms"), 100L);
+        Assert.assertEquals(summary.get("p99Ms"), 100L);
+        Assert.assertEquals(summary.get("maxMs"), 100L);
+        Assert.assertEquals(summary.get("throughputPerSec"), 10.0);
+    }
+
+    /**
+     * Tests that a response time of 0 ms shares the first bucket and that one far beyond the last bucket is still
+     * counted and reported as the maximum.
+     */
+    @Test
+    public void testVeryLongResponseTimesLandInLastBucket() {
+        FlowStats stats = new FlowStats();
+        stats.record(0, true);
+        stats.record(Long.MAX_VALUE, false);
+
+        Map<String, Object> summary = stats.summary(1);
+        Assert.assertEquals(summary.get("p50Ms"), 1L);
+        Assert.assertEquals(summary.get("p99Ms"), Long.MAX_VALUE);
+        Assert.assertEquals(summary.get("failed"), 1L);
+    }
+
+    /**
+     * Tests that dropped runs count as errors and that an empty flow reports zeros.
+     */
+    @Test
+    public void testDroppedRunsAreErrors() {
+        FlowStats stats = new FlowStats();
+        Assert.assertEquals(stats.summary(1).get("p50Ms"), 0L);
+
+        stats.record(5, true);
+        stats.drop();
+        Assert.assertEquals(stats.attempts(), 2L);
+        Assert.assertEquals(stats.errors(), 1L);
+        Assert.assertEquals(stats.errorRate(), 0.5);
+    }
+}
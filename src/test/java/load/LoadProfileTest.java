@@ -0,0 +1,111 @@
+package load;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Checks that {@link LoadProfile} schedules arrivals along its ramp-up and target rate and picks flows in
+ * proportion to their weights.
+ */
+public class LoadProfileTest {
+
+    /**
+     * Tests that during the ramp-up the arrival times invert the expected arrival count {@code rate * t^2 /
+     * (2 * rampUp)}, so the gaps shrink as the rate grows, and that the ramp ends exactly at the ramp-up time.
+     */
+    @Test
+    public void testRampUpInvertsExpectedArrivals() {
+        LoadProfile profile = new LoadProfile(2, 10, 60, 100, mix(1, 0, 0, 0));
+
+        Assert.assertEquals(profile.arrivalTime(0), 0.0);
+        double previousGap = Double.MAX_VALUE;
+        for (long index = 1; index < 10; index++) {
+            double t = profile.arrivalTime(index);
+            Assert.assertEquals(2 * t * t / (2 * 10), (double) index, 1e-9);
+            double gap = t - profile.arrivalTime(index - 1);
+            Assert.assertTrue(gap < previousGap, "Gap before arrival " + index + " did not shrink");
+            previousGap = gap;
+        }
+        Assert.assertEquals(profile.arrivalTime(10), 10.0, 1e-9);
+    }
+
+    /**
+     * Tests that after the ramp-up arrivals are spaced evenly at the target rate and run past the duration.
+     */
+    @Test
+    public void testArrivalsAreLinearAfterRampUp() {
+        LoadProfile profile = new LoadProfile(2, 10, 60, 100, mix(1, 0, 0, 0));
+
+        Assert.assertEquals(profile.arrivalTime(12), 11.0, 1e-9);
+        Assert.assertEquals(profile.arrivalTime(13) - profile.arrivalTime(12), 0.5, 1e-9);
+        Assert.assertEquals(profile.arrivalTime(110), 60.0, 1e-9);
+        Assert.assertTrue(profile.arrivalTime(111) > profile.getDurationSeconds());
+    }
+
+    /**
+     * Tests that without a ramp-up arrivals start at the target rate, and that a ramp-up longer than the run is cut
+     * to its duration.
+     */
+    @Test
+    public void testRampUpBounds() {
+        LoadProfile flat = new LoadProfile(4, 0, 60, 100, mix(1, 0, 0, 0));
+        Assert.assertEquals(flat.arrivalTime(0), 0.0);
+        Assert.assertEquals(flat.arrivalTime(8), 2.0, 1e-9);
+
+        LoadProfile longRamp = new LoadProfile(4, 120, 60, 100, mix(1, 0, 0, 0));
+        Assert.assertEquals(longRamp.getRampUpSeconds(), 60.0);
+    }
+
+    /**
+     * Tests that flows are picked in proportion to their weights, that flows with weight 0 or no weight are never
+     * picked, and that the same seed picks the same sequence.
+     */
+    @Test
+    public void testPickFollowsWeightedMix() {
+        LoadProfile profile = new LoadProfile(1, 0, 60, 100, mix(3, 1, 0, null));
+        Map<Flow, Integer> counts = new EnumMap<>(Flow.class);
+        Random random = new Random(7);
+        int picks = 40_000;
+        for (int i = 0; i < picks; i++) {
+            counts.merge(profile.pick(random), 1, Integer::sum);
+        }
+
+        Assert.assertEquals(counts.get(Flow.VALID_LOGIN) / (double) picks, 0.75, 0.02);
+        Assert.assertEquals(counts.get(Flow.INVALID_LOGIN) / (double) picks, 0.25, 0.02);
+        Assert.assertFalse(counts.containsKey(Flow.VALID_REGISTRATION));
+        Assert.assertFalse(counts.containsKey(Flow.DUPLICATE_REGISTRATION));
+
+        Random first = new Random(11);
+        Random second = new Random(11);
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals(profile.pick(second), profile.pick(first));
+        }
+    }
+
+    /**
+     * Tests that a mix without a positive weight is rejected.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testMixWithoutPositiveWeightIsRejected() {
+        new LoadProfile(1, 0, 60, 100, mix(0, 0, 0, 0));
+    }
+
+    /**
+     * Builds a mix of the four flows; a {@code null} weight leaves the flow out.
+     */
+    private static Map<Flow, Integer> mix(Integer validLogin, Integer invalidLogin, Integer validRegistration,
+                                          Integer duplicateRegistration) {
+        Map<Flow, Integer> mix = new EnumMap<>(Flow.class);
+        Integer[] weights = {validLogin, invalidLogin, validRegistration, duplicateRegistration};
+        for (Flow flow : Flow.values()) {
+            if (weights[flow.ordinal()] != null) {
+                mix.put(flow, weights[flow.ordinal()]);
+            }
+        }
+        return mix;
+    }
+}
@@ -0,0 +1,121 @@
+package page;
+
+import io.appium.java_client.android.AndroidDriver;
+import io.appium.java_client.android.AndroidElement;
+import org.openqa.selenium.remote.DesiredCapabilities;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import setup.FakeAppiumServer;
+import setup.FakeLoginApp;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Drives a {@link FakeAppiumServer} with injected latency through an {@link AsyncSession}, checking that reads
+ * overlap, that actions wait for the reads submitted before them, and that a failed form fill fails its outcome.
+ */
+public class AsyncSessionTest {
+
+    /** How long every text read takes on the server, in milliseconds. */
+    private static final long READ_LATENCY = 500;
+
+    private FakeAppiumServer server;
+    private AndroidDriver<AndroidElement> driver;
+    private AsyncSession session;
+
+    /**
+     * Starts a fake server and a session on it.
+     *
+     * @throws IOException If the server cannot be started.
+     */
+    @BeforeMethod
+    public void start() throws IOException {
+        server = new FakeAppiumServer(new FakeLoginApp(), 0).start();
+        DesiredCapabilities caps = new DesiredCapabilities();
+        caps.setCapability("platformName", "Android");
+        caps.setCapability("appPackage", FakeLoginApp.PACKAGE);
+        driver = new AndroidDriver<>(server.getUrl(), caps);
+        session = new AsyncSession(driver);
+    }
+
+    /**
+     * Quits the session and stops the server.
+     */
+    @AfterMethod
+    public void stop() {
+        driver.quit();
+        server.stop();
+    }
+
+    /**
+     * Tests that two slow reads run at the same time, that an action submitted after them starts only once both
+     * have finished, and that a read submitted after the action sees its effect.
+     */
+    @Test
+    public void testReadsOverlapAndActionsWaitForThem() {
+        server.setLatency("getText", READ_LATENCY);
+        List<Long> readsDone = new CopyOnWriteArrayList<>();
+        long[] actionStarted = new long[1];
+        long start = System.nanoTime();
+
+        CompletableFuture<String> email = session.read(d -> {
+            String text = BasePage.waitAndThenGetText(d, LoginScreen.EMAIL);
+            readsDone.add(System.nanoTime());
+            return text;
+        });
+        CompletableFuture<String> password = session.read(d -> {
+            String text = BasePage.waitAndThenGetText(d, LoginScreen.PASSWORD);
+            readsDone.add(System.nanoTime());
+            return text;
+        });
+        CompletableFuture<Void> typed = session.act(d -> {
+            actionStarted[0] = System.nanoTime();
+            BasePage.waitAndThenEnterData(d, LoginScreen.EMAIL, "user@example.com");
+            return null;
+        });
+        CompletableFuture<String> after = session.getText(BasePage.ByLocator.ID, LoginScreen.EMAIL.getQuery());
+
+        Assert.assertEquals(email.join(), "");
+        Assert.assertEquals(password.join(), "");
+        typed.join();
+        Assert.assertEquals(after.join(), "user@example.com");
+        long bothReadMillis = (Collections.max(readsDone) - start) / 1_000_000;
+        Assert.assertTrue(bothReadMillis < 2 * READ_LATENCY, "Reads took " + bothReadMillis + " ms");
+        Assert.assertTrue(actionStarted[0] >= Collections.max(readsDone));
+    }
+
+    /**
+     * Tests that an asynchronous login completes with the outcome the app shows once the form is submitted.
+     */
+    @Test
+    public void testLoginAsyncReportsOutcome() {
+        LoginPage.LoginResult result = new LoginPage().loginAsync(session, "nobody@example.com", "Secret123").join();
+
+        Assert.assertEquals(result, LoginPage.LoginResult.LOGIN_ERROR);
+    }
+
+    /**
+     * Tests that an asynchronous login whose form could not be submitted fails with the fill's error instead of
+     * reporting that no outcome appeared.
+     */
+    @Test
+    public void testLoginAsyncFailsWhenFillFails() {
+        server.failNext("click", "stale element reference");
+        CompletableFuture<LoginPage.LoginResult> result = new LoginPage().loginAsync(session, "nobody@example.com",
+                "Secret123");
+
+        try {
+            result.join();
+            Assert.fail("Expected the login to fail");
+        } catch (CompletionException e) {
+            Assert.assertNotNull(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package page;
+
+import io.github.cdimascio.dotenv.Dotenv;
+import org.openqa.selenium.json.Json;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Checks how {@link CommandMetrics} names test invocations, tags and reports its measurements, and what it keeps per
+ * test once a test has finished.
+ */
+public class CommandMetricsTest {
+
+    /**
+     * Forgets the measurements of the test that just ran.
+     */
+    @AfterMethod
+    public void reset() {
+        CommandMetrics.endTest();
+        CommandMetrics.reset();
+    }
+
+    /**
+     * Tests that data-driven invocations are named by their parameters and other tests by their method.
+     */
+    @Test
+    public void testNamesInvocationsByParameters() {
+        Assert.assertEquals(CommandMetrics.testName("login", null), "login");
+        Assert.assertEquals(CommandMetrics.testName("login", new Object[0]), "login");
+        Assert.assertEquals(CommandMetrics.testName("login", new Object[]{"a@example.com", 3}),
+                "login(a@example.com, 3)");
+    }
+
+    /**
+     * Tests that draining a test's histograms, as the reporter does, leaves its touched page classes for the result
+     * cache, whichever listener sees the test end first.
+     */
+    @Test
+    public void testDrainTestKeepsTouchedClasses() {
+        CommandMetrics.startTest("drained");
+        CommandMetrics.record(CommandMetrics.Phase.CLICK, CompiledLocator.Strategy.ID, 1_000_000);
+        CommandMetrics.endTest();
+
+        CommandMetrics.drainTest("drained");
+
+        Assert.assertEquals(CommandMetrics.touchedClasses("drained"),
+                Collections.singleton("page.CommandMetricsTest"));
+        Assert.assertEquals(CommandMetrics.drainTouchedClasses("drained"),
+                Collections.singleton("page.CommandMetricsTest"));
+        Assert.assertTrue(CommandMetrics.touchedClasses("drained").isEmpty());
+        Assert.assertTrue(CommandMetrics.drainTouchedClasses("drained").isEmpty());
+    }
+
+    /**
+     * Tests that steps measured outside of a test are not attributed to any test.
+     */
+    @Test
+    public void testUntaggedStepsTouchNothing() {
+        CommandMetrics.record(CommandMetrics.Phase.FIND, CompiledLocator.Strategy.ID, 1_000_000);
+
+        Assert.assertTrue(CommandMetrics.touchedClasses("-").isEmpty());
+    }
+
+    /**
+     * Tests that a step is tagged with the running test, the page-object method that made it and its strategy.
+     */
+    @Test
+    public void testStepsAreTaggedByTestAndStrategy() {
+        List<String> steps = new ArrayList<>();
+        CommandMetrics.StepListener listener = (phase, test, pageMethod, strategy, nanos) ->
+                steps.add(phase + " " + test + " " + pageMethod + " " + strategy + " " + nanos);
+        CommandMetrics.addListener(listener);
+        try {
+            CommandMetrics.startTest("tagged");
+            CommandMetrics.record(CommandMetrics.Phase.CLICK, CompiledLocator.Strategy.ID, 2_000_000);
+            CommandMetrics.record(CommandMetrics.Phase.SESSION_START, null, 5_000_000);
+        } finally {
+            CommandMetrics.removeListener(listener);
+        }
+
+        Assert.assertEquals(steps.size(), 2);
+        Assert.assertEquals(steps.get(0),
+                "CLICK tagged CommandMetricsTest.testStepsAreTaggedByTestAndStrategy ID 2000000");
+        Assert.assertTrue(steps.get(1).endsWith(" - 5000000"), steps.get(1));
+    }
+
+    /**
+     * Tests that the slowest steps are listed slowest first.
+     */
+    @Test
+    public void testSlowestStepsComeFirst() {
+        CommandMetrics.record(CommandMetrics.Phase.FIND, CompiledLocator.Strategy.ID, 1_000_000);
+        CommandMetrics.record(CommandMetrics.Phase.FIND, CompiledLocator.Strategy.XPATH, 3_000_000);
+        CommandMetrics.record(CommandMetrics.Phase.FIND, CompiledLocator.Strategy.UIAUTOMATOR, 2_000_000);
+
+        String[] lines = CommandMetrics.slowestStepsReport().split("\\R");
+        Assert.assertEquals(lines.length, 4);
+        Assert.assertTrue(lines[1].contains("3.0 ms") && lines[1].endsWith("[XPATH]"), lines[1]);
+        Assert.assertTrue(lines[2].contains("2.0 ms") && lines[2].endsWith("[UIAUTOMATOR]"), lines[2]);
+        Assert.assertTrue(lines[3].contains("1.0 ms") && lines[3].endsWith("[ID]"), lines[3]);
+    }
+
+    /**
+     * Tests that the JSON report holds per-phase totals and a histogram per tag whose percentiles are the upper
+     * bounds of their power-of-two buckets, capped at the maximum.
+     *
+     * @throws IOException If the report cannot be read.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testReportHasHistogramsAndPhaseTotals() throws IOException {
+        CommandMetrics.startTest("reported");
+        for (long millis : new long[]{1, 2, 4}) {
+            CommandMetrics.record(CommandMetrics.Phase.GET_TEXT, CompiledLocator.Strategy.ID, millis * 1_000_000);
+        }
+
+        CommandMetrics.writeReport();
+
+        String file = Dotenv.configure().ignoreIfMissing().load().get("PERF_REPORT_FILE", "build/perf-report.json");
+        Map<String, Object> report = new Json().toType(
+                new String(Files.readAllBytes(Paths.get(file)), StandardCharsets.UTF_8), Json.MAP_TYPE);
+        Map<String, Object> phase = (Map<String, Object>) ((Map<String, Object>) report.get("phases")).get("GET_TEXT");
+        Assert.assertEquals(phase.get("count"), 3L);
+        Assert.assertEquals(phase.get("totalMs"), 7.0);
+        List<Map<String, Object>> histograms = (List<Map<String, Object>>) report.get("histograms");
+        Assert.assertEquals(histograms.size(), 1);
+        Map<String, Object> histogram = histograms.get(0);
+        Assert.assertEquals(histogram.get("test"), "reported");
+        Assert.assertEquals(histogram.get("p50Ms"), 2.05);
+        Assert.assertEquals(histogram.get("p99Ms"), 4.0);
+        Assert.assertEquals(histogram.get("maxMs"), 4.0);
+        Assert.assertEquals(((List<?>) report.get("slowestSteps")).size(), 3);
+    }
+}
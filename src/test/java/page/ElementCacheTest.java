@@ -0,0 +1,96 @@
+package page;
+
+import io.appium.java_client.android.AndroidDriver;
+import io.appium.java_client.android.AndroidElement;
+import org.openqa.selenium.remote.DesiredCapabilities;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import setup.FakeAppiumServer;
+import setup.FakeLoginApp;
+
+import java.io.IOException;
+
+/**
+ * Reads the login screen of a {@link FakeAppiumServer} through {@link BasePage} and checks that {@link ElementCache}
+ * reuses handles, re-resolves stale ones transparently and forgets them after a click. The counters are shared by
+ * the whole run, so every test compares them before and after.
+ */
+public class ElementCacheTest {
+
+    private FakeAppiumServer server;
+    private AndroidDriver<AndroidElement> driver;
+    private boolean snapshots;
+
+    /**
+     * Starts a fake server and a session on it, with the element cache on and snapshot mode off so that every
+     * lookup goes through the cache.
+     *
+     * @throws IOException If the server cannot be started.
+     */
+    @BeforeMethod
+    public void start() throws IOException {
+        server = new FakeAppiumServer(new FakeLoginApp(), 0).start();
+        DesiredCapabilities caps = new DesiredCapabilities();
+        caps.setCapability("platformName", "Android");
+        caps.setCapability("appPackage", FakeLoginApp.PACKAGE);
+        driver = new AndroidDriver<>(server.getUrl(), caps);
+        snapshots = SnapshotEngine.isEnabled();
+        SnapshotEngine.setEnabled(false);
+        ElementCache.setEnabled(true);
+    }
+
+    /**
+     * Quits the session, stops the server and restores snapshot mode.
+     */
+    @AfterMethod
+    public void stop() {
+        driver.quit();
+        server.stop();
+        SnapshotEngine.setEnabled(snapshots);
+    }
+
+    /**
+     * Tests that the second read of a field reuses the handle the first one looked up.
+     */
+    @Test
+    public void testRepeatedLookupHitsCache() {
+        long hits = ElementCache.hits();
+        long misses = ElementCache.misses();
+
+        Assert.assertEquals(BasePage.waitAndThenGetText(driver, LoginScreen.EMAIL), "");
+        Assert.assertEquals(BasePage.waitAndThenGetText(driver, LoginScreen.EMAIL), "");
+
+        Assert.assertEquals(ElementCache.misses() - misses, 1L);
+        Assert.assertEquals(ElementCache.hits() - hits, 1L);
+    }
+
+    /**
+     * Tests that a handle the app has replaced is dropped and looked up again, so the caller still gets the text.
+     */
+    @Test
+    public void testStaleHandleIsReResolved() {
+        BasePage.waitAndThenEnterData(driver, LoginScreen.EMAIL, "user@example.com");
+        long stale = ElementCache.stale();
+
+        server.getApp().show(FakeLoginApp.Screen.LOGIN);
+
+        Assert.assertEquals(BasePage.waitAndThenGetText(driver, LoginScreen.EMAIL), "");
+        Assert.assertEquals(ElementCache.stale() - stale, 1L);
+    }
+
+    /**
+     * Tests that a click drops the session's handles, since the screen may have changed.
+     */
+    @Test
+    public void testClickInvalidatesHandles() {
+        BasePage.waitAndThenGetText(driver, LoginScreen.EMAIL);
+        BasePage.waitAndThenClick(driver, LoginScreen.LOGIN_BUTTON);
+        long misses = ElementCache.misses();
+
+        BasePage.waitAndThenGetText(driver, LoginScreen.EMAIL);
+
+        Assert.assertEquals(ElementCache.misses() - misses, 1L);
+    }
+}
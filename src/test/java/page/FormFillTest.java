@@ -0,0 +1,106 @@
+package page;
+
+import io.appium.java_client.android.AndroidDriver;
+import io.appium.java_client.android.AndroidElement;
+import org.openqa.selenium.remote.DesiredCapabilities;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import setup.FakeAppiumServer;
+import setup.FakeLoginApp;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fills the forms of a {@link FakeLoginApp} through {@link BasePage#fillForm}, covering the batched path, the
+ * per-field fallback and a failure after the first value was set, which must not fill and submit the form again.
+ */
+public class FormFillTest {
+
+    private FakeAppiumServer server;
+    private AndroidDriver<AndroidElement> driver;
+
+    /**
+     * Starts a fake server and a session on it.
+     *
+     * @throws IOException If the server cannot be started.
+     */
+    @BeforeMethod
+    public void start() throws IOException {
+        server = new FakeAppiumServer(new FakeLoginApp(), 0).start();
+        DesiredCapabilities caps = new DesiredCapabilities();
+        caps.setCapability("platformName", "Android");
+        caps.setCapability("appPackage", FakeLoginApp.PACKAGE);
+        driver = new AndroidDriver<>(server.getUrl(), caps);
+    }
+
+    /**
+     * Quits the session and stops the server.
+     */
+    @AfterMethod
+    public void stop() {
+        driver.quit();
+        server.stop();
+    }
+
+    /**
+     * Tests that a form whose fields are all on screen is filled and submitted from one lookup.
+     */
+    @Test
+    public void testBatchedFillSubmitsOnce() {
+        server.getApp().show(FakeLoginApp.Screen.REGISTER);
+        FormFillReport report = new RegisterPage().fillRegistration(driver, "Jane Doe", "jane@example.com",
+                "Secret123", "Secret123", true);
+
+        Assert.assertTrue(report.isBatched());
+        Assert.assertTrue(report.getRoundTrips() < report.getBaselineRoundTrips(), report.toString());
+        Assert.assertEquals(text("snackbar_text"), "Registration Successful");
+    }
+
+    /**
+     * Tests that a form the batched lookup does not find in time is filled field by field.
+     */
+    @Test
+    public void testSlowLookupFallsBackToPerFieldPath() {
+        server.setLatency("findElements", WaitEngine.batchTimeoutFor(LoginScreen.EMAIL) + 100);
+        FormFillReport report = new LoginPage().login(driver, "nobody@example.com", "Secret123");
+
+        Assert.assertFalse(report.isBatched());
+        Assert.assertEquals(text("snackbar_text"), "Wrong Email or Password");
+    }
+
+    /**
+     * Tests that a submit click failing after the values were set is not followed by the per-field path, which would
+     * set the fields and submit the form a second time.
+     */
+    @Test
+    public void testFailureAfterFirstValueDoesNotRefill() {
+        server.getApp().show(FakeLoginApp.Screen.REGISTER);
+        server.failNext("click", "stale element reference");
+        FormFillReport report = new RegisterPage().fillRegistration(driver, "Jane Doe", "jane@example.com",
+                "Secret123", "Secret123", true);
+
+        Assert.assertTrue(report.isBatched());
+        Assert.assertEquals(text("textInputEditTextEmail"), "jane@example.com");
+        Assert.assertNull(text("snackbar_text"));
+    }
+
+    /**
+     * Reads the text of a view of the fake app's current screen.
+     *
+     * @return The text, or {@code null} if no view has the resource id.
+     */
+    private String text(String id) {
+        List<FakeLoginApp.Node> nodes = new ArrayList<>();
+        server.getApp().hierarchy().flatten(nodes);
+        for (FakeLoginApp.Node node : nodes) {
+            if ((FakeLoginApp.PACKAGE + ":id/" + id).equals(node.getResourceId())) {
+                return node.getText();
+            }
+        }
+        return null;
+    }
+}
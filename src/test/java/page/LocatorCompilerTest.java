@@ -0,0 +1,118 @@
+package page;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Checks that {@link LocatorCompiler} rewrites simple XPath and UiSelector locators into the fastest equivalent
+ * strategy and passes everything else through unchanged.
+ */
+public class LocatorCompilerTest {
+
+    private static final String EMAIL = "com.loginmodule.learning:id/textInputEditTextEmail";
+
+    /**
+     * Tests that a resource-id XPath becomes an id lookup, dropping its class filter.
+     */
+    @Test
+    public void testResourceIdXPathBecomesId() {
+        CompiledLocator compiled = LocatorCompiler.compile(BasePage.ByLocator.XPATH,
+                "//android.widget.EditText[@resource-id='" + EMAIL + "']");
+        Assert.assertEquals(compiled.getStrategy(), CompiledLocator.Strategy.ID);
+        Assert.assertEquals(compiled.getQuery(), EMAIL);
+    }
+
+    /**
+     * Tests that a resourceId UiSelector becomes an id lookup.
+     */
+    @Test
+    public void testResourceIdSelectorBecomesId() {
+        CompiledLocator compiled = LocatorCompiler.compile(BasePage.ByLocator.UISELECTOR,
+                "new UiSelector().resourceId(\"" + EMAIL + "\")");
+        Assert.assertEquals(compiled.getStrategy(), CompiledLocator.Strategy.ID);
+        Assert.assertEquals(compiled.getQuery(), EMAIL);
+    }
+
+    /**
+     * Tests that content-desc XPaths and description UiSelectors become accessibility id lookups.
+     */
+    @Test
+    public void testDescriptionBecomesAccessibilityId() {
+        CompiledLocator xpath = LocatorCompiler.compile(BasePage.ByLocator.XPATH, "//*[@content-desc='Login']");
+        Assert.assertEquals(xpath.getStrategy(), CompiledLocator.Strategy.ACCESSIBILITY_ID);
+        Assert.assertEquals(xpath.getQuery(), "Login");
+
+        CompiledLocator selector = LocatorCompiler.compile(BasePage.ByLocator.UISELECTOR, ".description(\"Login\")");
+        Assert.assertEquals(selector.getStrategy(), CompiledLocator.Strategy.ACCESSIBILITY_ID);
+        Assert.assertEquals(selector.getQuery(), "Login");
+    }
+
+    /**
+     * Tests that a text XPath becomes a UiSelector, escaping quotes in the text.
+     */
+    @Test
+    public void testTextXPathBecomesUiSelector() {
+        CompiledLocator compiled = LocatorCompiler.compile(BasePage.ByLocator.XPATH,
+                "//android.widget.TextView[@text='Say \"hi\"']");
+        Assert.assertEquals(compiled.getStrategy(), CompiledLocator.Strategy.UIAUTOMATOR);
+        Assert.assertEquals(compiled.getQuery(),
+                "new UiSelector().className(\"android.widget.TextView\").text(\"Say \\\"hi\\\"\")");
+    }
+
+    /**
+     * Tests that a bare class XPath becomes a class name lookup.
+     */
+    @Test
+    public void testClassXPathBecomesClassName() {
+        CompiledLocator compiled = LocatorCompiler.compile(BasePage.ByLocator.XPATH, "/hierarchy//android.widget.Button");
+        Assert.assertEquals(compiled.getStrategy(), CompiledLocator.Strategy.CLASS_NAME);
+        Assert.assertEquals(compiled.getQuery(), "android.widget.Button");
+    }
+
+    /**
+     * Tests that locators the compiler does not understand are passed through unchanged.
+     */
+    @Test
+    public void testUnknownLocatorsPassThrough() {
+        String xpath = "//android.widget.LinearLayout/android.widget.Button[2]";
+        CompiledLocator compiledXPath = LocatorCompiler.compile(BasePage.ByLocator.XPATH, xpath);
+        Assert.assertEquals(compiledXPath.getStrategy(), CompiledLocator.Strategy.XPATH);
+        Assert.assertEquals(compiledXPath.getQuery(), xpath);
+
+        String selector = "new UiSelector().resourceIdMatches(\".*:id/email\")";
+        CompiledLocator compiledSelector = LocatorCompiler.compile(BasePage.ByLocator.UISELECTOR, selector);
+        Assert.assertEquals(compiledSelector.getStrategy(), CompiledLocator.Strategy.UIAUTOMATOR);
+        Assert.assertEquals(compiledSelector.getQuery(), selector);
+    }
+
+    /**
+     * Tests that a locator is compiled once and shared by every lookup of it.
+     */
+    @Test
+    public void testCompiledLocatorsAreShared() {
+        String xpath = "//android.widget.Button[@resource-id='com.loginmodule.learning:id/appCompatButtonLogin']";
+        Assert.assertSame(LocatorCompiler.compile(BasePage.ByLocator.XPATH, xpath),
+                LocatorCompiler.compile(BasePage.ByLocator.XPATH, xpath));
+    }
+
+    /**
+     * Tests that screens declaring the same locator share one compiled locator, which string lookups also get.
+     */
+    @Test
+    public void testScreensShareRegisteredLocators() {
+        Assert.assertSame(LoginScreen.EMAIL, RegisterScreen.EMAIL);
+        Assert.assertSame(LoginScreen.PASSWORD, RegisterScreen.PASSWORD);
+        Assert.assertSame(LocatorCompiler.compile(BasePage.ByLocator.ID, EMAIL), LoginScreen.EMAIL);
+    }
+
+    /**
+     * Tests that malformed locators are reported without contacting a device.
+     */
+    @Test
+    public void testValidateRejectsMalformedLocators() {
+        Assert.assertNull(LocatorCompiler.validate(BasePage.ByLocator.ID, EMAIL));
+        Assert.assertNotNull(LocatorCompiler.validate(BasePage.ByLocator.ID, "textInputEditTextEmail"));
+        Assert.assertNotNull(LocatorCompiler.validate(BasePage.ByLocator.XPATH, "//android.widget.Button[@text='x'"));
+        Assert.assertNotNull(LocatorCompiler.validate(BasePage.ByLocator.UISELECTOR, ".childSelector(\"x\")"));
+    }
+}
@@ -0,0 +1,99 @@
+package page;
+
+import io.appium.java_client.android.AndroidDriver;
+import io.appium.java_client.android.AndroidElement;
+import org.openqa.selenium.remote.DesiredCapabilities;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import setup.FakeAppiumServer;
+import setup.FakeLoginApp;
+
+import java.io.IOException;
+
+/**
+ * Submits the login and registration forms of a {@link FakeAppiumServer} and checks that
+ * {@link BasePage#waitForFirstOutcome} names the result the app actually shows, without waiting for the others.
+ */
+public class OutcomeRaceTest {
+
+    private FakeAppiumServer server;
+    private AndroidDriver<AndroidElement> driver;
+
+    /**
+     * Starts a fake server with one account and a session on it.
+     *
+     * @throws IOException If the server cannot be started.
+     */
+    @BeforeMethod
+    public void start() throws IOException {
+        server = new FakeAppiumServer(new FakeLoginApp().addAccount("user@example.com", "Secret123", "User"), 0)
+                .start();
+        DesiredCapabilities caps = new DesiredCapabilities();
+        caps.setCapability("platformName", "Android");
+        caps.setCapability("appPackage", FakeLoginApp.PACKAGE);
+        driver = new AndroidDriver<>(server.getUrl(), caps);
+    }
+
+    /**
+     * Quits the session and stops the server.
+     */
+    @AfterMethod
+    public void stop() {
+        driver.quit();
+        server.stop();
+    }
+
+    /**
+     * Tests that each login result is recognised from the screen the app shows.
+     */
+    @Test
+    public void testLoginResults() {
+        LoginPage page = new LoginPage();
+
+        page.login(driver, "not-an-email", "Secret123");
+        Assert.assertEquals(page.getLoginResult(driver), LoginPage.LoginResult.INVALID_EMAIL);
+
+        page.login(driver, "user@example.com", "Wrong123");
+        Assert.assertEquals(page.getLoginResult(driver), LoginPage.LoginResult.LOGIN_ERROR);
+
+        page.login(driver, "user@example.com", "Secret123");
+        Assert.assertEquals(page.getLoginResult(driver), LoginPage.LoginResult.ACCOUNT);
+    }
+
+    /**
+     * Tests that each registration result is recognised from the message the app shows.
+     */
+    @Test
+    public void testRegisterResults() {
+        RegisterPage page = new RegisterPage();
+        server.getApp().show(FakeLoginApp.Screen.REGISTER);
+
+        page.fillRegistration(driver, "New User", "new@example.com", "Secret123", "Other123", true);
+        Assert.assertEquals(page.getRegisterResult(driver), RegisterPage.RegisterResult.PASSWORD_MISMATCH);
+
+        page.fillRegistration(driver, "User", "user@example.com", "Secret123", "Secret123", true);
+        Assert.assertEquals(page.getRegisterResult(driver), RegisterPage.RegisterResult.EMAIL_EXISTS);
+
+        page.fillRegistration(driver, "New User", "new@example.com", "Secret123", "Secret123", true);
+        Assert.assertEquals(page.getRegisterResult(driver), RegisterPage.RegisterResult.SUCCESS);
+    }
+
+    /**
+     * Tests that an unexpected result is reported as soon as it appears instead of after the expected result's
+     * timeout.
+     */
+    @Test
+    public void testRaceReturnsBeforeOtherOutcomesTimeOut() {
+        LoginPage page = new LoginPage();
+        page.login(driver, "user@example.com", "Wrong123");
+
+        long start = System.nanoTime();
+        LoginPage.LoginResult result = page.getLoginResult(driver);
+        long millis = (System.nanoTime() - start) / 1_000_000;
+
+        Assert.assertEquals(result, LoginPage.LoginResult.LOGIN_ERROR);
+        Assert.assertTrue(millis < WaitEngine.timeoutFor(LoginScreen.ACCOUNT_EMAIL), millis + " ms");
+    }
+}
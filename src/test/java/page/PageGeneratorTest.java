@@ -0,0 +1,130 @@
+package page;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Runs {@link PageGenerator} over the checked-in locator catalogs and over broken ones, so that a catalog edited
+ * without regenerating its screen class, or a catalog the generator would reject, fails the tests.
+ */
+public class PageGeneratorTest {
+
+    /** The catalogs the screen classes are generated from. */
+    private static final Path CATALOGS = Paths.get("src/main/resources/locators");
+
+    /** The source root the screen classes are checked in under. */
+    private static final Path SOURCES = Paths.get("src/main/java");
+
+    private Path catalogs;
+    private Path sources;
+
+    /**
+     * Creates empty catalog and source directories for the broken catalogs.
+     *
+     * @throws IOException If the directories cannot be created.
+     */
+    @BeforeMethod
+    public void start() throws IOException {
+        catalogs = Files.createTempDirectory("catalogs");
+        sources = Files.createTempDirectory("sources");
+    }
+
+    /**
+     * Tests that the checked-in LoginScreen and RegisterScreen are what their catalogs generate.
+     *
+     * @throws IOException If a catalog cannot be read.
+     */
+    @Test
+    public void testCheckedInScreenClassesAreCurrent() throws IOException {
+        List<String> errors = PageGenerator.run(CATALOGS, SOURCES, true);
+        Assert.assertTrue(errors.isEmpty(), errors.toString());
+        Assert.assertTrue(Files.exists(SOURCES.resolve("page/LoginScreen.java")));
+        Assert.assertTrue(Files.exists(SOURCES.resolve("page/RegisterScreen.java")));
+    }
+
+    /**
+     * Tests that check mode reports screen classes that were never generated, and that generating them makes the
+     * check pass.
+     *
+     * @throws IOException If a catalog cannot be read or a class cannot be written.
+     */
+    @Test
+    public void testCheckReportsStaleScreenClasses() throws IOException {
+        Files.copy(CATALOGS.resolve("login.json"), catalogs.resolve("login.json"));
+
+        List<String> errors = PageGenerator.run(catalogs, sources, true);
+        Assert.assertEquals(errors.size(), 1, errors.toString());
+        Assert.assertTrue(errors.get(0).endsWith("is out of date; run PageGenerator"), errors.get(0));
+
+        Assert.assertTrue(PageGenerator.run(catalogs, sources, false).isEmpty());
+        Assert.assertTrue(PageGenerator.run(catalogs, sources, true).isEmpty());
+    }
+
+    /**
+     * Tests that an XPath with an unclosed predicate is rejected and nothing is generated.
+     *
+     * @throws IOException If a catalog cannot be read.
+     */
+    @Test
+    public void testInvalidXPathIsRejected() throws IOException {
+        catalog("{\"name\": \"brokenButton\", \"kind\": \"button\", "
+                + "\"xpath\": \"//android.widget.Button[@text='Login'\"}");
+
+        assertRejected("broken.json: brokenButton: ");
+    }
+
+    /**
+     * Tests that a UiSelector the compiler cannot parse is rejected and nothing is generated.
+     *
+     * @throws IOException If a catalog cannot be read.
+     */
+    @Test
+    public void testMalformedUiSelectorIsRejected() throws IOException {
+        catalog("{\"name\": \"brokenLabel\", \"kind\": \"label\", "
+                + "\"uiselector\": \".childSelector(\\\"x\\\")\"}");
+
+        assertRejected("broken.json: brokenLabel: ");
+    }
+
+    /**
+     * Tests that two elements with the same name are rejected and nothing is generated.
+     *
+     * @throws IOException If a catalog cannot be read.
+     */
+    @Test
+    public void testDuplicateNamesAreRejected() throws IOException {
+        catalog("{\"name\": \"email\", \"kind\": \"input\", "
+                + "\"id\": \"com.loginmodule.learning:id/textInputEditTextEmail\"},"
+                + "{\"name\": \"email\", \"kind\": \"label\", \"id\": \"com.loginmodule.learning:id/textViewEmail\"}");
+
+        assertRejected("broken.json: email is defined twice");
+    }
+
+    /**
+     * Writes a catalog named broken.json with the given elements.
+     */
+    private void catalog(String elements) throws IOException {
+        String json = "{\"screen\": \"LOGIN\", \"class\": \"BrokenScreen\", \"elements\": [" + elements + "]}";
+        Files.write(catalogs.resolve("broken.json"), json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Checks that both modes report exactly one error starting with the given text and that no class is written.
+     */
+    private void assertRejected(String error) throws IOException {
+        for (boolean check : new boolean[]{true, false}) {
+            List<String> errors = PageGenerator.run(catalogs, sources, check);
+            Assert.assertEquals(errors.size(), 1, errors.toString());
+            Assert.assertTrue(errors.get(0).startsWith(error), errors.get(0));
+        }
+        Assert.assertFalse(Files.exists(sources.resolve("page/BrokenScreen.java")));
+    }
+}
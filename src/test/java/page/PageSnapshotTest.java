@@ -0,0 +1,105 @@
+package page;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+/**
+ * Parses a small UiAutomator2 page source into a {@link PageSnapshot} and evaluates compiled locators against it
+ * locally.
+ */
+public class PageSnapshotTest {
+
+    private static final String ID = "com.loginmodule.learning:id/";
+
+    private static final String SOURCE = "<?xml version=\"1.0\" encoding=\"UTF-8\"?><hierarchy>"
+            + "<android.widget.LinearLayout class=\"android.widget.LinearLayout\" displayed=\"true\">"
+            + "<android.widget.EditText class=\"android.widget.EditText\" resource-id=\"" + ID
+            + "textInputEditTextEmail\" text=\"user@example.com\" displayed=\"true\"/>"
+            + "<android.widget.TextView class=\"android.widget.TextView\" resource-id=\"" + ID
+            + "textinput_error\" text=\"Enter Valid Email\" displayed=\"true\"/>"
+            + "<android.widget.Button class=\"android.widget.Button\" resource-id=\"" + ID
+            + "appCompatButtonLogin\" text=\"LOGIN\" content-desc=\"Login\" displayed=\"true\"/>"
+            + "<android.widget.TextView class=\"android.widget.TextView\" resource-id=\"" + ID
+            + "snackbar_text\" text=\"Wrong Email or Password\" displayed=\"false\"/>"
+            + "</android.widget.LinearLayout></hierarchy>";
+
+    /**
+     * Tests that every view is kept in document order with its depth and attributes.
+     */
+    @Test
+    public void testParseKeepsViewsInDocumentOrder() {
+        List<PageSnapshot.Node> nodes = PageSnapshot.parse(SOURCE).nodes();
+
+        Assert.assertEquals(nodes.size(), 5);
+        Assert.assertEquals(nodes.get(0).getDepth(), 1);
+        Assert.assertEquals(nodes.get(1).getDepth(), 2);
+        PageSnapshot.Node button = nodes.get(3);
+        Assert.assertEquals(button.getClassName(), "android.widget.Button");
+        Assert.assertEquals(button.getResourceId(), ID + "appCompatButtonLogin");
+        Assert.assertEquals(button.getText(), "LOGIN");
+        Assert.assertEquals(button.getContentDesc(), "Login");
+        Assert.assertFalse(nodes.get(4).isDisplayed());
+    }
+
+    /**
+     * Tests that id, XPath and UiSelector locators, including contains-matches, find their views locally.
+     */
+    @Test
+    public void testFindEvaluatesLocatorsLocally() {
+        PageSnapshot snapshot = PageSnapshot.parse(SOURCE);
+
+        assertFinds(snapshot, BasePage.ByLocator.ID, ID + "textInputEditTextEmail", "user@example.com");
+        assertFinds(snapshot, BasePage.ByLocator.XPATH,
+                "//android.widget.TextView[@text='Enter Valid Email']", "Enter Valid Email");
+        assertFinds(snapshot, BasePage.ByLocator.XPATH,
+                "//android.widget.Button[contains(@text, 'LOG')]", "LOGIN");
+        assertFinds(snapshot, BasePage.ByLocator.UISELECTOR,
+                "new UiSelector().textContains(\"Valid\")", "Enter Valid Email");
+        Assert.assertTrue(snapshot.find(LocatorCompiler.compile(BasePage.ByLocator.XPATH,
+                "//android.widget.TextView[@text='LOGIN']")).isEmpty());
+    }
+
+    /**
+     * Tests that views which are not displayed are never found.
+     */
+    @Test
+    public void testHiddenViewsAreNotFound() {
+        PageSnapshot snapshot = PageSnapshot.parse(SOURCE);
+
+        Assert.assertTrue(snapshot.find(LocatorCompiler.compile(BasePage.ByLocator.ID, ID + "snackbar_text"))
+                .isEmpty());
+    }
+
+    /**
+     * Tests that a locator whose predicates the compiler did not understand is left to the device.
+     */
+    @Test
+    public void testUnknownLocatorIsNotAnswered() {
+        PageSnapshot snapshot = PageSnapshot.parse(SOURCE);
+        CompiledLocator positional = LocatorCompiler.compile(BasePage.ByLocator.XPATH,
+                "//android.widget.LinearLayout/android.widget.Button[2]");
+
+        Assert.assertNull(snapshot.find(positional));
+        Assert.assertFalse(SnapshotEngine.canAnswer(positional));
+    }
+
+    /**
+     * Tests that a page source which is not well-formed XML is rejected.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testMalformedSourceIsRejected() {
+        PageSnapshot.parse("<hierarchy><android.widget.Button>");
+    }
+
+    /**
+     * Checks that the locator finds exactly one displayed view, with the given text.
+     */
+    private static void assertFinds(PageSnapshot snapshot, BasePage.ByLocator loc, String locator, String text) {
+        List<PageSnapshot.Node> found = snapshot.find(LocatorCompiler.compile(loc, locator));
+        Assert.assertNotNull(found, locator);
+        Assert.assertEquals(found.size(), 1, locator);
+        Assert.assertEquals(found.get(0).getText(), text);
+    }
+}
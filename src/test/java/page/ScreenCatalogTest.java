@@ -0,0 +1,116 @@
+package page;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.UUID;
+
+/**
+ * Checks how {@link ScreenCatalog} fingerprints view hierarchies and identifies screens from them. Every test uses
+ * resource ids and screen names of its own, since the catalog is shared by the whole run.
+ */
+public class ScreenCatalogTest {
+
+    /** Prefix of the resource ids and screen names of the current test. */
+    private String prefix;
+
+    /**
+     * Picks resource ids and screen names no other test uses.
+     */
+    @BeforeMethod
+    public void start() {
+        prefix = "test." + UUID.randomUUID() + ":id/";
+    }
+
+    /**
+     * Tests that a fingerprint covers the resource ids of the displayed views only, in any order, and not their
+     * texts.
+     */
+    @Test
+    public void testFingerprintCoversDisplayedResourceIds() {
+        long fingerprint = ScreenCatalog.fingerprint(snapshot(null, "a", "b"));
+
+        Assert.assertEquals(ScreenCatalog.fingerprint(snapshot(null, "b", "a")), fingerprint);
+        Assert.assertEquals(ScreenCatalog.fingerprint(snapshot("c", "a", "b")), fingerprint);
+        Assert.assertEquals(ScreenCatalog.fingerprint(PageSnapshot.parse("<hierarchy>"
+                + node("a", "typed", true) + node("b", "", true) + "</hierarchy>")), fingerprint);
+        Assert.assertNotEquals(ScreenCatalog.fingerprint(snapshot(null, "a", "b", "c")), fingerprint);
+    }
+
+    /**
+     * Tests that a hierarchy showing a screen's marker is identified by it and remembered, so that a variant without
+     * the marker is identified by its similarity to it.
+     */
+    @Test
+    public void testMarkerMatchIsRemembered() {
+        String screen = prefix + "MARKED";
+        ScreenCatalog.addMarker(screen, prefix + "m");
+
+        Assert.assertEquals(ScreenCatalog.identify(snapshot(null, "m", "a", "b", "c", "d", "e", "f", "g", "h", "i")),
+                screen);
+        Assert.assertEquals(ScreenCatalog.identify(snapshot(null, "a", "b", "c", "d", "e", "f", "g", "h", "i")),
+                screen);
+    }
+
+    /**
+     * Tests that a hierarchy showing the markers of two screens is not identified by either of them.
+     */
+    @Test
+    public void testConflictingMarkersIdentifyNothing() {
+        ScreenCatalog.addMarker(prefix + "ONE", prefix + "one");
+        ScreenCatalog.addMarker(prefix + "TWO", prefix + "two");
+
+        Assert.assertNull(ScreenCatalog.identify(snapshot(null, "one", "two")));
+    }
+
+    /**
+     * Tests that a similarity match is not remembered by identifying it, and is learned once a wait accepted it and
+     * the screen's marker is in the hierarchy, even hidden.
+     */
+    @Test
+    public void testSimilarityMatchIsOnlyLearnedWithMarker() {
+        String screen = prefix + "SIMILAR";
+        ScreenCatalog.addMarker(screen, prefix + "m");
+        Assert.assertEquals(ScreenCatalog.identify(snapshot(null, "m", "a", "b", "c", "d", "e", "f", "g", "h", "i")),
+                screen);
+
+        PageSnapshot similar = snapshot("m", "a", "b", "c", "d", "e", "f", "g", "h", "i", "j");
+        PageSnapshot further = snapshot(null, "b", "c", "d", "e", "f", "g", "h", "i", "j", "k", "l");
+        Assert.assertEquals(ScreenCatalog.identify(similar), screen);
+        Assert.assertNull(ScreenCatalog.identify(further));
+
+        Assert.assertFalse(ScreenCatalog.learn(screen, further));
+        Assert.assertFalse(ScreenCatalog.learn(prefix + "OTHER", similar));
+        Assert.assertTrue(ScreenCatalog.learn(screen, similar));
+        Assert.assertEquals(ScreenCatalog.identify(further), screen);
+    }
+
+    /**
+     * Tests that a hierarchy unlike any known one is not identified.
+     */
+    @Test
+    public void testUnknownHierarchyIsNotIdentified() {
+        Assert.assertNull(ScreenCatalog.identify(snapshot(null, "x", "y", "z")));
+        Assert.assertFalse(ScreenCatalog.knows(prefix + "UNKNOWN"));
+    }
+
+    /**
+     * Builds a snapshot of displayed views with the given resource ids, plus optionally one hidden view.
+     */
+    private PageSnapshot snapshot(String hidden, String... shown) {
+        StringBuilder xml = new StringBuilder("<hierarchy>");
+        for (String id : shown) {
+            xml.append(node(id, id, true));
+        }
+        if (hidden != null) {
+            xml.append(node(hidden, hidden, false));
+        }
+        return PageSnapshot.parse(xml.append("</hierarchy>").toString());
+    }
+
+    private String node(String id, String text, boolean displayed) {
+        return "<android.widget.TextView class=\"android.widget.TextView\" resource-id=\"" + prefix + id
+                + "\" text=\"" + text + "\" displayed=\"" + displayed + "\"/>";
+    }
+}
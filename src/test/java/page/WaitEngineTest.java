@@ -0,0 +1,103 @@
+package page;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Checks the polling, backoff and learned budgets of {@link WaitEngine} with the default wait settings.
+ */
+public class WaitEngineTest {
+
+    /**
+     * Tests that a probe is called once and its result returned at once when it already has an answer, even with no
+     * time to wait.
+     */
+    @Test
+    public void testPollReturnsFirstResult() {
+        int[] calls = new int[1];
+        Assert.assertEquals(WaitEngine.poll(() -> ++calls[0], 0), Integer.valueOf(1));
+        Assert.assertEquals(calls[0], 1);
+    }
+
+    /**
+     * Tests that polling stops once time runs out, without overshooting by more than one poll interval.
+     */
+    @Test
+    public void testPollGivesUpAtTimeout() {
+        long start = System.nanoTime();
+        Assert.assertNull(WaitEngine.poll(() -> null, 300));
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        Assert.assertTrue(millis >= 300 && millis < 800, millis + " ms");
+    }
+
+    /**
+     * Tests that the interval between polls doubles from WAIT_POLL_MS up to WAIT_MAX_POLL_MS.
+     */
+    @Test
+    public void testPollBacksOff() {
+        List<Long> calls = new ArrayList<>();
+        WaitEngine.poll(() -> {
+            calls.add(System.nanoTime() / 1_000_000);
+            return calls.size() == 7 ? Boolean.TRUE : null;
+        }, 10_000);
+
+        long[] expected = {50, 100, 200, 400, 500, 500};
+        for (int i = 0; i < expected.length; i++) {
+            long gap = calls.get(i + 1) - calls.get(i);
+            Assert.assertTrue(gap >= expected[i] && gap < expected[i] + 100, "Gap " + i + ": " + gap + " ms");
+        }
+    }
+
+    /**
+     * Tests that a locator keeps its full timeout until it has been seen three times, and then gets three times its
+     * slowest appearance, within WAIT_MIN_BUDGET_MS and its full timeout.
+     */
+    @Test
+    public void testBudgetIsLearnedFromAppearances() {
+        CompiledLocator compiled = uniqueLocator();
+        WaitEngine.learn(compiled, 100);
+        WaitEngine.learn(compiled, 100);
+        Assert.assertEquals(WaitEngine.budgetFor(compiled), WaitEngine.timeoutFor(compiled));
+
+        WaitEngine.learn(compiled, 100);
+        Assert.assertEquals(WaitEngine.budgetFor(compiled), 500L);
+
+        WaitEngine.learn(compiled, 1000);
+        Assert.assertEquals(WaitEngine.budgetFor(compiled), 3000L);
+
+        WaitEngine.learn(compiled, 5000);
+        Assert.assertEquals(WaitEngine.budgetFor(compiled), WaitEngine.timeoutFor(compiled));
+    }
+
+    /**
+     * Tests that a race waits for the longest budget of its locators, and for the full timeout while any of them has
+     * not been learned yet.
+     */
+    @Test
+    public void testRaceWaitsForSlowestOutcome() {
+        CompiledLocator fast = uniqueLocator();
+        CompiledLocator slow = uniqueLocator();
+        for (int i = 0; i < 3; i++) {
+            WaitEngine.learn(fast, 100);
+        }
+        Assert.assertEquals(WaitEngine.raceTimeoutFor(Arrays.asList(fast, slow)), WaitEngine.timeoutFor(slow));
+
+        for (int i = 0; i < 3; i++) {
+            WaitEngine.learn(slow, 800);
+        }
+        Assert.assertEquals(WaitEngine.raceTimeoutFor(Arrays.asList(fast, slow)), 2400L);
+        Assert.assertEquals(WaitEngine.batchTimeoutFor(slow), 1500L);
+    }
+
+    /**
+     * Compiles a locator no earlier run has learned anything about.
+     */
+    private static CompiledLocator uniqueLocator() {
+        return LocatorCompiler.compile(BasePage.ByLocator.ID, "com.loginmodule.learning:id/" + UUID.randomUUID());
+    }
+}
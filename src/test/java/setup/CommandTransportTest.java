@@ -0,0 +1,157 @@
+package setup;
+
+import io.github.cdimascio.dotenv.Dotenv;
+import org.openqa.selenium.json.Json;
+import org.openqa.selenium.remote.http.HttpClient;
+import org.openqa.selenium.remote.http.HttpMethod;
+import org.openqa.selenium.remote.http.HttpRequest;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Sends commands to a {@link FakeAppiumServer} through a {@link CommandTransport} and checks from its report that
+ * connections are reused, that large responses travel compressed and that per-command read timeouts apply.
+ */
+public class CommandTransportTest {
+
+    /** Body of the session request. */
+    private static final String CAPABILITIES = "{\"capabilities\":{\"alwaysMatch\":{\"platformName\":\"Android\"}}}";
+
+    /** Picks the kilobytes received and decoded out of a report. */
+    private static final Pattern TRAFFIC = Pattern.compile("(\\d+) KB received \\((\\d+) KB decoded\\)");
+
+    private final Json json = new Json();
+    private FakeAppiumServer server;
+
+    /**
+     * Starts a fake server.
+     *
+     * @throws IOException If the server cannot be started.
+     */
+    @BeforeMethod
+    public void start() throws IOException {
+        server = new FakeAppiumServer(new FakeLoginApp(), 0).start();
+    }
+
+    /**
+     * Stops the fake server.
+     */
+    @AfterMethod
+    public void stop() {
+        server.stop();
+    }
+
+    /**
+     * Tests that commands sent one after another share one keep-alive connection.
+     *
+     * @throws IOException If a command fails.
+     */
+    @Test
+    public void testConnectionIsReused() throws IOException {
+        CommandTransport transport = new CommandTransport(env(""));
+        HttpClient client = transport.createClient(server.getUrl());
+
+        String session = newSession(client);
+        for (int i = 0; i < 3; i++) {
+            send(client, HttpMethod.GET, "/session/" + session + "/appium/device/current_package");
+        }
+        send(client, HttpMethod.DELETE, "/session/" + session);
+
+        Assert.assertTrue(transport.report().startsWith(
+                "Command transport: 5 commands, 1 connections opened, 4 reused"), transport.report());
+    }
+
+    /**
+     * Tests that page sources are received gzip-compressed and decoded to the same content as without compression.
+     *
+     * @throws IOException If a command fails.
+     */
+    @Test
+    public void testLargeResponsesAreCompressed() throws IOException {
+        CommandTransport compressed = new CommandTransport(env(""));
+        CommandTransport plain = new CommandTransport(env("TRANSPORT_COMPRESSION=false\n"));
+        HttpClient compressedClient = compressed.createClient(server.getUrl());
+        HttpClient plainClient = plain.createClient(server.getUrl());
+        String session = newSession(compressedClient);
+
+        for (int i = 0; i < 20; i++) {
+            Assert.assertEquals(send(compressedClient, HttpMethod.GET, "/session/" + session + "/source"),
+                    send(plainClient, HttpMethod.GET, "/session/" + session + "/source"));
+        }
+
+        long[] onWire = traffic(compressed);
+        long[] uncompressed = traffic(plain);
+        Assert.assertTrue(onWire[0] * 2 < onWire[1], compressed.report());
+        Assert.assertEquals(uncompressed[0], uncompressed[1], plain.report());
+    }
+
+    /**
+     * Tests that a command with its own read timeout times out after it while other commands keep the default.
+     *
+     * @throws IOException If a command other than the slow one fails.
+     */
+    @Test
+    public void testCommandTimeoutAppliesPerCommand() throws IOException {
+        CommandTransport transport = new CommandTransport(env("TRANSPORT_COMMAND_TIMEOUTS=source=200\n"));
+        HttpClient client = transport.createClient(server.getUrl());
+        String session = newSession(client);
+        server.setLatency("source", 1000);
+
+        try {
+            send(client, HttpMethod.GET, "/session/" + session + "/source");
+            Assert.fail("Expected the page source to time out");
+        } catch (SocketTimeoutException expected) {
+            // The source command's 200 ms read timeout applied.
+        }
+        Assert.assertTrue(send(client, HttpMethod.GET, "/session/" + session + "/appium/device/current_package")
+                .contains(FakeLoginApp.PACKAGE));
+
+        Assert.assertTrue(transport.report().endsWith(", 1 timeouts"), transport.report());
+    }
+
+    /**
+     * Opens a session and returns its id.
+     */
+    @SuppressWarnings("unchecked")
+    private String newSession(HttpClient client) throws IOException {
+        HttpRequest request = new HttpRequest(HttpMethod.POST, "/session");
+        request.setContent(CAPABILITIES.getBytes(StandardCharsets.UTF_8));
+        String response = client.execute(request).getContentString();
+        Map<String, Object> value = (Map<String, Object>) json.<Map<String, Object>>toType(response, Json.MAP_TYPE)
+                .get("value");
+        return (String) value.get("sessionId");
+    }
+
+    private static String send(HttpClient client, HttpMethod method, String path) throws IOException {
+        return client.execute(new HttpRequest(method, path)).getContentString();
+    }
+
+    /**
+     * Returns the kilobytes a transport received on the wire and decoded, from its report.
+     */
+    private static long[] traffic(CommandTransport transport) {
+        Matcher m = TRAFFIC.matcher(transport.report());
+        Assert.assertTrue(m.find(), transport.report());
+        return new long[]{Long.parseLong(m.group(1)), Long.parseLong(m.group(2))};
+    }
+
+    /**
+     * Loads an environment from a .env file with the given content.
+     */
+    private static Dotenv env(String content) throws IOException {
+        Path dir = Files.createTempDirectory("transport");
+        Files.write(dir.resolve(".env"), content.getBytes(StandardCharsets.UTF_8));
+        return Dotenv.configure().directory(dir.toString()).load();
+    }
+}
@@ -0,0 +1,129 @@
+package setup;
+
+import io.github.cdimascio.dotenv.Dotenv;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Checks that {@link DeviceRegistry} gives every device its own ports and that {@link DeviceScheduler} confines each
+ * device to one worker thread at a time.
+ */
+public class DeviceSchedulerTest {
+
+    /**
+     * Tests that the devices listed in DEVICE_NAMES get consecutive Appium and system ports in declaration order.
+     *
+     * @throws IOException If the .env file cannot be written.
+     */
+    @Test
+    public void testRegistryAssignsPortsPerDevice() throws IOException {
+        DeviceRegistry registry = DeviceRegistry.fromEnv(env("DEVICE_NAMES=emulator-5554, ,emulator-5556\n"
+                + "APPIUM_BASE_PORT=5000\nSYSTEM_BASE_PORT=9000\n"));
+
+        Assert.assertEquals(registry.size(), 2);
+        DeviceRegistry.Device second = registry.devices().get(1);
+        Assert.assertEquals(second.getName(), "emulator-5556");
+        Assert.assertEquals(second.getAppiumPort(), 5001);
+        Assert.assertEquals(second.getSystemPort(), 9001);
+        Assert.assertEquals(second.getServerUrl().toString(), "http://127.0.0.1:5001/wd/hub");
+    }
+
+    /**
+     * Tests that the registry falls back to DEVICE_NAME and fails when no device is configured.
+     *
+     * @throws IOException If the .env file cannot be written.
+     */
+    @Test
+    public void testRegistryFallsBackToDeviceName() throws IOException {
+        DeviceRegistry single = DeviceRegistry.fromEnv(env("DEVICE_NAME=Pixel\n"));
+        Assert.assertEquals(single.size(), 1);
+        Assert.assertEquals(single.devices().get(0).getAppiumPort(), 4723);
+
+        try {
+            DeviceRegistry.fromEnv(env("DEVICE_NAMES=\n"));
+            Assert.fail("Expected an empty device list to be rejected");
+        } catch (IllegalStateException expected) {
+            Assert.assertTrue(expected.getMessage().startsWith("No devices configured"), expected.getMessage());
+        }
+    }
+
+    /**
+     * Tests that a thread keeps the device it leased until it releases it, and that two threads never hold the same
+     * device.
+     *
+     * @throws Exception If the other worker fails.
+     */
+    @Test
+    public void testLeaseIsConfinedToThread() throws Exception {
+        DeviceScheduler scheduler = new DeviceScheduler(registry("a", "b"));
+
+        DeviceRegistry.Device mine = scheduler.lease();
+        Assert.assertSame(scheduler.lease(), mine);
+        Assert.assertSame(scheduler.current(), mine);
+        DeviceRegistry.Device other = CompletableFuture.supplyAsync(() -> {
+            DeviceRegistry.Device leased = scheduler.lease();
+            scheduler.release();
+            return leased;
+        }).get(5, TimeUnit.SECONDS);
+
+        Assert.assertNotSame(other, mine);
+        scheduler.release();
+        Assert.assertNull(scheduler.current());
+    }
+
+    /**
+     * Tests that a worker finding every device busy waits until one is released.
+     *
+     * @throws Exception If the waiting worker fails.
+     */
+    @Test
+    public void testLeaseWaitsForFreeDevice() throws Exception {
+        DeviceScheduler scheduler = new DeviceScheduler(registry("only"));
+        DeviceRegistry.Device mine = scheduler.lease();
+        CompletableFuture<DeviceRegistry.Device> waiting = CompletableFuture.supplyAsync(() -> {
+            DeviceRegistry.Device leased = scheduler.lease();
+            scheduler.release();
+            return leased;
+        });
+
+        try {
+            waiting.get(200, TimeUnit.MILLISECONDS);
+            Assert.fail("Expected the second worker to wait for the device");
+        } catch (TimeoutException expected) {
+            scheduler.release();
+        }
+
+        Assert.assertSame(waiting.get(5, TimeUnit.SECONDS), mine);
+        Assert.assertTrue(scheduler.report().startsWith("Device utilization: only="), scheduler.report());
+    }
+
+    /**
+     * Builds a registry of devices with the given names.
+     */
+    private static DeviceRegistry registry(String... names) {
+        List<DeviceRegistry.Device> devices = new ArrayList<>();
+        for (String name : names) {
+            devices.add(new DeviceRegistry.Device(name, "127.0.0.1", 4723 + devices.size(), 8200 + devices.size()));
+        }
+        return new DeviceRegistry(devices);
+    }
+
+    /**
+     * Loads an environment from a .env file with the given content.
+     */
+    private static Dotenv env(String content) throws IOException {
+        Path dir = Files.createTempDirectory("devices");
+        Files.write(dir.resolve(".env"), content.getBytes(StandardCharsets.UTF_8));
+        return Dotenv.configure().directory(dir.toString()).load();
+    }
+}
@@ -0,0 +1,64 @@
+package setup;
+
+import io.github.cdimascio.dotenv.Dotenv;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Checks that {@link ResultCache} keeps one entry per test invocation, against the fake app so that the app under
+ * test can be fingerprinted without a device.
+ */
+public class ResultCacheTest {
+
+    private ResultCache cache;
+
+    /**
+     * Creates an empty cache whose file lives in a temporary directory.
+     *
+     * @throws IOException If the temporary .env file cannot be written.
+     */
+    @BeforeMethod
+    public void start() throws IOException {
+        Path dir = Files.createTempDirectory("result-cache");
+        Files.write(dir.resolve(".env"), Arrays.asList("FAKE_APPIUM=true",
+                "RESULT_CACHE_FILE=" + dir.resolve("result-cache.properties")), StandardCharsets.UTF_8);
+        cache = new ResultCache(Dotenv.configure().directory(dir.toString()).load());
+    }
+
+    /**
+     * Tests that a test without parameters is keyed by its qualified name and a data-driven one by its row.
+     */
+    @Test
+    public void testKeysInvocationsByParameters() {
+        Assert.assertEquals(ResultCache.key(ResultCacheTest.class, "login", null), "setup.ResultCacheTest.login");
+        Assert.assertEquals(ResultCache.key(ResultCacheTest.class, "login", new Object[]{"a@example.com", "secret"}),
+                "setup.ResultCacheTest.login(a@example.com, secret)");
+    }
+
+    /**
+     * Tests that a passing row of a data-driven test is skipped while a failing row of the same method is not, and
+     * that the failing row does not invalidate the passing one.
+     */
+    @Test
+    public void testRowsOfDataDrivenTestAreCachedApart() {
+        String passing = ResultCache.key(ResultCacheTest.class, "login", new Object[]{"a@example.com"});
+        String failing = ResultCache.key(ResultCacheTest.class, "login", new Object[]{"b@example.com"});
+
+        cache.recordPass(passing, ResultCacheTest.class, Collections.singleton("page.LoginPage"));
+        cache.recordPass(failing, ResultCacheTest.class, Collections.singleton("page.LoginPage"));
+        cache.invalidate(failing);
+
+        Assert.assertTrue(cache.isUnchanged(passing, ResultCacheTest.class));
+        Assert.assertFalse(cache.isUnchanged(failing, ResultCacheTest.class));
+        Assert.assertFalse(cache.isUnchanged(ResultCache.key(ResultCacheTest.class, "login", null),
+                ResultCacheTest.class));
+    }
+}
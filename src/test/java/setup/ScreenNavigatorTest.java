@@ -0,0 +1,97 @@
+package setup;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Checks the navigation paths and costs {@link ScreenNavigator} plans between screens and the order it chains tests
+ * in. The tests are stood in for by the flow-annotated methods at the end of this class.
+ */
+public class ScreenNavigatorTest {
+
+    /**
+     * Tests that a freshly opened screen needs no navigation, while a used one is left and opened again.
+     */
+    @Test
+    public void testPathReopensUsedScreen() {
+        Assert.assertEquals(ScreenNavigator.path(AppScreen.LOGIN, true, AppScreen.LOGIN), Collections.emptyList());
+        Assert.assertEquals(ScreenNavigator.path(AppScreen.LOGIN, false, AppScreen.LOGIN),
+                Arrays.asList(AppScreen.REGISTER, AppScreen.LOGIN));
+        Assert.assertEquals(ScreenNavigator.path(AppScreen.ACCOUNT, false, AppScreen.REGISTER),
+                Arrays.asList(AppScreen.LOGIN, AppScreen.REGISTER));
+    }
+
+    /**
+     * Tests that an unknown or unreachable screen costs a relaunch plus the steps from the launch screen.
+     */
+    @Test
+    public void testUnreachableScreenCostsRelaunch() {
+        Assert.assertNull(ScreenNavigator.path(null, false, AppScreen.REGISTER));
+        Assert.assertEquals(ScreenNavigator.cost(null, false, AppScreen.REGISTER), ScreenNavigator.RELAUNCH_COST + 1);
+
+        Assert.assertNull(ScreenNavigator.path(AppScreen.REGISTER, false, AppScreen.ACCOUNT));
+        Assert.assertEquals(ScreenNavigator.cost(AppScreen.REGISTER, false, AppScreen.ACCOUNT),
+                2 * ScreenNavigator.RELAUNCH_COST);
+        Assert.assertEquals(ScreenNavigator.cost(AppScreen.ACCOUNT, false, AppScreen.LOGIN), 1);
+    }
+
+    /**
+     * Tests that tests are chained so each starts where the previous one ended, that the longer of two equally cheap
+     * tests goes first, and that tests without a screen flow run last in their original order.
+     *
+     * @throws NoSuchMethodException If a stand-in test is missing.
+     */
+    @Test
+    public void testChainFollowsScreensAndPrefersLongTests() throws NoSuchMethodException {
+        Method validLogin = flow("validLogin");
+        Method invalidLogin = flow("invalidLogin");
+        Method registration = flow("registration");
+        Method relaunching = flow("relaunching");
+        List<Method> tests = Arrays.asList(relaunching, registration, invalidLogin, validLogin);
+        Map<Method, Double> estimates = new HashMap<>();
+        estimates.put(validLogin, 100.0);
+        estimates.put(invalidLogin, 50.0);
+
+        Assert.assertEquals(ScreenNavigator.chain(tests, m -> m.getAnnotation(ScreenFlow.class),
+                        m -> estimates.getOrDefault(m, 0.0)),
+                Arrays.asList(validLogin, invalidLogin, registration, relaunching));
+
+        estimates.put(invalidLogin, 200.0);
+        Assert.assertEquals(ScreenNavigator.chain(tests, m -> m.getAnnotation(ScreenFlow.class),
+                        m -> estimates.getOrDefault(m, 0.0)),
+                Arrays.asList(invalidLogin, registration, validLogin, relaunching));
+    }
+
+    /**
+     * Looks up one of the stand-in tests below.
+     */
+    private static Method flow(String name) throws NoSuchMethodException {
+        return ScreenNavigatorTest.class.getDeclaredMethod(name);
+    }
+
+    /** Stands in for a valid login, which ends on the account screen. */
+    @ScreenFlow(start = AppScreen.LOGIN, end = AppScreen.ACCOUNT)
+    private static void validLogin() {
+    }
+
+    /** Stands in for a rejected login, which stays on the login screen. */
+    @ScreenFlow(start = AppScreen.LOGIN, end = AppScreen.LOGIN)
+    private static void invalidLogin() {
+    }
+
+    /** Stands in for a registration, which stays on the registration screen. */
+    @ScreenFlow(start = AppScreen.REGISTER, end = AppScreen.REGISTER)
+    private static void registration() {
+    }
+
+    /** Stands in for a test without a screen flow, which relaunches the app. */
+    private static void relaunching() {
+    }
+}
@@ -0,0 +1,157 @@
+package setup;
+
+import io.appium.java_client.MobileElement;
+import io.appium.java_client.android.AndroidDriver;
+import org.openqa.selenium.remote.DesiredCapabilities;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Leases sessions on a {@link FakeAppiumServer} from a {@link SessionPool} and checks when they are reused, recycled
+ * and evicted, and which screen the pool reports for them.
+ */
+public class SessionPoolTest {
+
+    /** How many tests a session serves before the pool replaces it. */
+    private static final int MAX_USES = 3;
+
+    private FakeAppiumServer server;
+    private SessionPool pool;
+
+    /** Every session the pool's factory created, in order. */
+    private final List<AndroidDriver<MobileElement>> created = new ArrayList<>();
+
+    /**
+     * Starts a fake server and a pool whose factory opens sessions on it.
+     *
+     * @throws IOException If the server cannot be started.
+     */
+    @BeforeMethod
+    public void start() throws IOException {
+        server = new FakeAppiumServer(new FakeLoginApp(), 0).start();
+        DesiredCapabilities caps = new DesiredCapabilities();
+        caps.setCapability("platformName", "Android");
+        caps.setCapability("appPackage", FakeLoginApp.PACKAGE);
+        pool = new SessionPool(() -> {
+            AndroidDriver<MobileElement> driver = new AndroidDriver<>(server.getUrl(), caps);
+            created.add(driver);
+            return driver;
+        }, FakeLoginApp.PACKAGE, true, MAX_USES);
+    }
+
+    /**
+     * Stops the sessions and the server.
+     */
+    @AfterMethod
+    public void stop() {
+        pool.shutdown();
+        server.stop();
+    }
+
+    /**
+     * Tests that a released session is handed out again, relaunched on the launch screen, instead of a new one.
+     */
+    @Test
+    public void testReleasedSessionIsReused() {
+        AndroidDriver<MobileElement> first = pool.acquire();
+        server.getApp().show(FakeLoginApp.Screen.REGISTER);
+        pool.markScreen(first, AppScreen.REGISTER);
+        pool.release(first);
+
+        AndroidDriver<MobileElement> second = pool.acquire();
+
+        Assert.assertSame(second, first);
+        Assert.assertEquals(created.size(), 1);
+        Assert.assertEquals(server.getApp().getScreen(), FakeLoginApp.Screen.LOGIN);
+        Assert.assertEquals(pool.getScreen(second), AppScreen.LOGIN);
+        Assert.assertTrue(pool.isFresh(second));
+        Assert.assertTrue(pool.report().startsWith("Session pool: 1 created"), pool.report());
+        Assert.assertTrue(pool.report().contains("1 reused, 0 evicted"), pool.report());
+    }
+
+    /**
+     * Tests that a session which has served {@link #MAX_USES} tests is quit on release and replaced by a new one.
+     */
+    @Test
+    public void testSessionIsRecycledAtMaxUses() {
+        AndroidDriver<MobileElement> first = pool.acquire();
+        pool.release(first);
+        for (int use = 2; use <= MAX_USES; use++) {
+            Assert.assertSame(pool.acquire(), first);
+            pool.release(first);
+        }
+
+        AndroidDriver<MobileElement> second = pool.acquire();
+
+        Assert.assertNotSame(second, first);
+        Assert.assertNull(first.getSessionId());
+        Assert.assertEquals(created.size(), 2);
+        Assert.assertTrue(pool.report().contains((MAX_USES - 1) + " reused, 1 evicted"), pool.report());
+    }
+
+    /**
+     * Tests that an idle session whose server side has gone fails its health check and is evicted in favour of a
+     * new session.
+     *
+     * @throws IOException If the session cannot be deleted.
+     */
+    @Test
+    public void testDeadSessionIsEvicted() throws IOException {
+        AndroidDriver<MobileElement> first = pool.acquire();
+        pool.release(first);
+        deleteSession(first.getSessionId().toString());
+
+        AndroidDriver<MobileElement> second = pool.acquire();
+
+        Assert.assertNotSame(second, first);
+        Assert.assertEquals(created.size(), 2);
+        Assert.assertTrue(pool.report().startsWith("Session pool: 2 created"), pool.report());
+        Assert.assertTrue(pool.report().contains("0 reused, 1 evicted"), pool.report());
+    }
+
+    /**
+     * Tests that a session left on a known screen is handed out as left, without relaunching its app, and that one
+     * left on an unknown screen is relaunched first.
+     */
+    @Test
+    public void testAcquireAsLeftKeepsKnownScreen() {
+        AndroidDriver<MobileElement> driver = pool.acquireAsLeft();
+        Assert.assertEquals(pool.getScreen(driver), AppScreen.LOGIN);
+        Assert.assertTrue(pool.isFresh(driver));
+        server.getApp().show(FakeLoginApp.Screen.REGISTER);
+        pool.markScreen(driver, AppScreen.REGISTER);
+        pool.release(driver);
+
+        Assert.assertSame(pool.acquireAsLeft(), driver);
+        Assert.assertEquals(pool.getScreen(driver), AppScreen.REGISTER);
+        Assert.assertFalse(pool.isFresh(driver));
+        Assert.assertEquals(server.getApp().getScreen(), FakeLoginApp.Screen.REGISTER);
+        pool.markScreen(driver, null);
+        pool.release(driver);
+
+        Assert.assertSame(pool.acquireAsLeft(), driver);
+        Assert.assertEquals(pool.getScreen(driver), AppScreen.LOGIN);
+        Assert.assertTrue(pool.isFresh(driver));
+        Assert.assertEquals(server.getApp().getScreen(), FakeLoginApp.Screen.LOGIN);
+        Assert.assertEquals(created.size(), 1);
+    }
+
+    /**
+     * Deletes a session on the server behind the driver's back, as an Appium server does when a session times out.
+     */
+    private void deleteSession(String session) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(server.getUrl() + "/session/" + session)
+                .openConnection();
+        connection.setRequestMethod("DELETE");
+        Assert.assertEquals(connection.getResponseCode(), 200);
+        connection.disconnect();
+    }
+}
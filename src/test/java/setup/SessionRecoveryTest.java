@@ -0,0 +1,132 @@
+package setup;
+
+import io.appium.java_client.MobileElement;
+import io.appium.java_client.android.AndroidDriver;
+import org.openqa.selenium.remote.DesiredCapabilities;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import page.CommandMetrics;
+import page.LoginPage;
+import page.StepJournal;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Kills the session of a test running against a {@link FakeAppiumServer} between two of its steps and checks that
+ * {@link SessionRecovery} gives the driver a new session from its {@link SessionPool}, replays the test's steps and
+ * retries the step that failed.
+ */
+public class SessionRecoveryTest {
+
+    private FakeAppiumServer server;
+    private SessionPool pool;
+    private SessionRecovery recovery;
+
+    /**
+     * Starts a fake server, a pool of sessions on it and a recovery that restarts sessions through the pool.
+     *
+     * @throws IOException If the server cannot be started.
+     */
+    @BeforeMethod
+    public void start() throws IOException {
+        server = new FakeAppiumServer(new FakeLoginApp(), 0).start();
+        DesiredCapabilities caps = new DesiredCapabilities();
+        caps.setCapability("platformName", "Android");
+        caps.setCapability("appPackage", FakeLoginApp.PACKAGE);
+        pool = new SessionPool(() -> new RecoverableDriver(server.getUrl(), caps), FakeLoginApp.PACKAGE, true, 10);
+        recovery = new SessionRecovery(FakeLoginApp.PACKAGE, pool::restart);
+        StepJournal.setRecovery(recovery);
+        CommandMetrics.startTest("recovery");
+        StepJournal.begin(AppScreen.LOGIN.name());
+    }
+
+    /**
+     * Unregisters the recovery and stops the sessions and the server.
+     */
+    @AfterMethod
+    public void stop() {
+        StepJournal.setRecovery(null);
+        StepJournal.end();
+        CommandMetrics.endTest();
+        pool.shutdown();
+        server.stop();
+    }
+
+    /**
+     * Tests that a step failing on a deleted session runs again on a new session of the same driver, after the
+     * steps before it were replayed.
+     *
+     * @throws IOException If the session cannot be deleted.
+     */
+    @Test
+    public void testDeadSessionIsRestartedAndFailedStepRetried() throws IOException {
+        AndroidDriver<MobileElement> driver = pool.acquire();
+        String dead = driver.getSessionId().toString();
+        LoginPage page = new LoginPage();
+        page.sendEmailToLogin(driver, "user@example.com");
+
+        deleteSession(dead);
+        page.sendPasswordToLogin(driver, "Secret123");
+
+        Assert.assertNotEquals(driver.getSessionId().toString(), dead);
+        Assert.assertEquals(field("textInputEditTextEmail"), "user@example.com");
+        Assert.assertEquals(field("textInputEditTextPassword"), "Secret123");
+        Assert.assertEquals(StepJournal.current().getRecoveries(), 1);
+        Assert.assertTrue(recovery.report().startsWith("Session recovery: 1 recovered (1 steps replayed"),
+                recovery.report());
+        Assert.assertTrue(pool.report().startsWith("Session pool: 2 created"), pool.report());
+    }
+
+    /**
+     * Tests that a test which submitted a form since its last checkpoint is not recovered by submitting it again.
+     *
+     * @throws IOException If the session cannot be deleted.
+     */
+    @Test
+    public void testSubmitIsNotReplayed() throws IOException {
+        AndroidDriver<MobileElement> driver = pool.acquire();
+        LoginPage page = new LoginPage();
+        page.sendEmailToLogin(driver, "user@example.com");
+        page.sendPasswordToLogin(driver, "Secret123");
+        page.buttonLogin(driver);
+        Assert.assertTrue(page.getErrorMessageLogin(driver));
+
+        deleteSession(driver.getSessionId().toString());
+
+        Assert.assertFalse(page.getErrorMessageLogin(driver));
+        Assert.assertEquals(field("textInputEditTextEmail"), "");
+        Assert.assertTrue(recovery.report().startsWith("Session recovery: 0 recovered"), recovery.report());
+        Assert.assertTrue(recovery.report().endsWith("1 could not be recovered"), recovery.report());
+    }
+
+    /**
+     * Deletes a session on the server behind the driver's back, as an Appium server does when a session times out.
+     */
+    private void deleteSession(String session) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(server.getUrl() + "/session/" + session)
+                .openConnection();
+        connection.setRequestMethod("DELETE");
+        Assert.assertEquals(connection.getResponseCode(), 200);
+        connection.disconnect();
+    }
+
+    /**
+     * Reads the text of an input field of the fake app's current screen.
+     */
+    private String field(String id) {
+        List<FakeLoginApp.Node> nodes = new ArrayList<>();
+        server.getApp().hierarchy().flatten(nodes);
+        for (FakeLoginApp.Node node : nodes) {
+            if ((FakeLoginApp.PACKAGE + ":id/" + id).equals(node.getResourceId())) {
+                return node.getText();
+            }
+        }
+        return null;
+    }
+}
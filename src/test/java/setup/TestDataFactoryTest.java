@@ -0,0 +1,117 @@
+package setup;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Checks that {@link TestDataFactory} reproduces its identities from the seed and the worker index, never hands out
+ * an email twice and only generates valid passwords.
+ */
+public class TestDataFactoryTest {
+
+    private static final String DOMAIN = "example.com";
+
+    /**
+     * Tests that the same seed and worker produce the same identities, and another seed other ones.
+     */
+    @Test
+    public void testSameSeedReproducesIdentities() {
+        TestDataFactory first = new TestDataFactory(42, DOMAIN, email -> false);
+        TestDataFactory second = new TestDataFactory(42, DOMAIN, email -> false);
+        TestDataFactory other = new TestDataFactory(43, DOMAIN, email -> false);
+        for (int i = 0; i < 5; i++) {
+            Identity expected = first.next(1);
+            Identity actual = second.next(1);
+            Assert.assertEquals(actual.getEmail(), expected.getEmail());
+            Assert.assertEquals(actual.getName(), expected.getName());
+            Assert.assertEquals(actual.getPassword(), expected.getPassword());
+            Assert.assertNotEquals(other.next(1).getEmail(), expected.getEmail());
+        }
+    }
+
+    /**
+     * Tests that a worker's identities do not depend on what other workers generated before.
+     */
+    @Test
+    public void testWorkersAreIndependent() {
+        TestDataFactory alone = new TestDataFactory(7, DOMAIN, email -> false);
+        TestDataFactory shared = new TestDataFactory(7, DOMAIN, email -> false);
+        shared.next(0);
+        shared.next(0);
+        Assert.assertEquals(shared.next(1).getEmail(), alone.next(1).getEmail());
+    }
+
+    /**
+     * Tests that emails already taken, e.g. by an earlier run with the same seed, are skipped.
+     */
+    @Test
+    public void testTakenEmailsAreSkipped() {
+        TestDataFactory earlier = new TestDataFactory(42, DOMAIN, email -> false);
+        Set<String> taken = new HashSet<>();
+        taken.add(earlier.next(0).getEmail());
+        taken.add(earlier.next(0).getEmail());
+        Identity third = earlier.next(0);
+
+        TestDataFactory factory = new TestDataFactory(42, DOMAIN, taken::contains);
+        Assert.assertEquals(factory.next(0).getEmail(), third.getEmail());
+    }
+
+    /**
+     * Tests that concurrent workers never generate the same email.
+     *
+     * @throws Exception If a worker fails.
+     */
+    @Test
+    public void testConcurrentWorkersNeverCollide() throws Exception {
+        TestDataFactory factory = TestDataFactory.randomlySeeded(DOMAIN, email -> false);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<String>>> workers = new ArrayList<>();
+            for (int worker = 0; worker < 4; worker++) {
+                int index = worker;
+                workers.add(executor.submit(() -> {
+                    List<String> emails = new ArrayList<>();
+                    for (int i = 0; i < 500; i++) {
+                        emails.add(factory.next(index).getEmail());
+                    }
+                    return emails;
+                }));
+            }
+            Set<String> emails = new HashSet<>();
+            for (Future<List<String>> worker : workers) {
+                emails.addAll(worker.get());
+            }
+            Assert.assertEquals(emails.size(), 2000);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Tests that every password has 12 characters with an upper-case letter, a lower-case letter and a digit, and
+     * that every email belongs to the factory's run and domain.
+     */
+    @Test
+    public void testIdentitiesAreWellFormed() {
+        TestDataFactory factory = TestDataFactory.randomlySeeded(DOMAIN, email -> false);
+        for (int i = 0; i < 200; i++) {
+            Identity identity = factory.next(i % 3);
+            String password = identity.getPassword();
+            Assert.assertEquals(password.length(), 12, password);
+            Assert.assertTrue(password.matches(".*[A-Z].*"), password);
+            Assert.assertTrue(password.matches(".*[a-z].*"), password);
+            Assert.assertTrue(password.matches(".*[0-9].*"), password);
+            Assert.assertTrue(identity.getName().matches("[A-Z][a-z]+ [A-Z][a-z]+"), identity.getName());
+            Assert.assertTrue(factory.generates(identity.getEmail()), identity.getEmail());
+        }
+        Assert.assertFalse(factory.generates("qa.other.0.0@" + DOMAIN));
+    }
+}
@@ -0,0 +1,65 @@
+package setup;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Checks how {@link TestDurationHistory} smooths, estimates and persists test durations.
+ */
+public class TestDurationHistoryTest {
+
+    private Path file;
+
+    /**
+     * Picks a history file in a new temporary directory.
+     *
+     * @throws IOException If the directory cannot be created.
+     */
+    @BeforeMethod
+    public void start() throws IOException {
+        file = Files.createTempDirectory("durations").resolve("history/durations.properties");
+    }
+
+    /**
+     * Tests that later durations move the estimate by the weight of the newest observation.
+     */
+    @Test
+    public void testDurationsAreSmoothed() {
+        TestDurationHistory history = new TestDurationHistory(file);
+        history.record("RunnerTests.login", 1000);
+        history.record("RunnerTests.login", 2000);
+
+        Assert.assertEquals(history.estimate("RunnerTests.login"), 1300.0, 1e-9);
+    }
+
+    /**
+     * Tests that a test never seen before is estimated at the average of the known tests.
+     */
+    @Test
+    public void testUnknownTestIsEstimatedAtAverage() {
+        TestDurationHistory history = new TestDurationHistory(file);
+        Assert.assertEquals(history.estimate("RunnerTests.new"), 0.0, 1e-9);
+
+        history.record("RunnerTests.login", 1000);
+        history.record("RunnerTests.register", 3000);
+
+        Assert.assertEquals(history.estimate("RunnerTests.new"), 2000.0, 1e-9);
+    }
+
+    /**
+     * Tests that a saved history is loaded again by the next run, creating missing directories.
+     */
+    @Test
+    public void testHistorySurvivesRuns() {
+        TestDurationHistory history = new TestDurationHistory(file);
+        history.record("RunnerTests.login", 1234);
+        history.save();
+
+        Assert.assertEquals(new TestDurationHistory(file).estimate("RunnerTests.login"), 1234.0, 1e-9);
+    }
+}
@@ -0,0 +1,222 @@
+package setup;
+
+import io.github.cdimascio.dotenv.Dotenv;
+import org.openqa.selenium.json.Json;
+import org.openqa.selenium.remote.http.HttpClient;
+import org.openqa.selenium.remote.http.HttpMethod;
+import org.openqa.selenium.remote.http.HttpRequest;
+import org.openqa.selenium.remote.http.HttpResponse;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import page.CommandMetrics;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records commands sent to a {@link FakeAppiumServer} with a {@link TrafficRecorder} and serves them again from a
+ * {@link TrafficReplay}, covering the file layout, the stream index, deflated responses and how the replay matches
+ * repeated, collapsed, skipped and unexpected commands.
+ */
+public class TrafficReplayTest {
+
+    /** The test whose stream the recorded commands go to. */
+    private static final String TEST = "login";
+
+    /** Body of the session request. */
+    private static final String CAPABILITIES = "{\"capabilities\":{\"alwaysMatch\":{\"platformName\":\"Android\"}}}";
+
+    private final Json json = new Json();
+    private FakeAppiumServer server;
+    private Path file;
+
+    /** Responses received while recording, in command order. */
+    private final List<String> recorded = new ArrayList<>();
+
+    /**
+     * Starts a fake server and records a short session against it: two polls for the email field, the page source,
+     * which is large enough to be stored deflated, and the foreground package.
+     *
+     * @throws IOException If the server or the recording cannot be started.
+     */
+    @BeforeMethod
+    public void record() throws IOException {
+        server = new FakeAppiumServer(new FakeLoginApp(), 0).start();
+        file = Files.createTempDirectory("traffic").resolve("traffic.rec");
+        TrafficRecorder recorder = new TrafficRecorder(file, Collections.singletonMap("DATA_SEED", "42"));
+        HttpClient client = new CommandTransport(Dotenv.configure().ignoreIfMissing().load())
+                .setRecorder(recorder)
+                .createClient(server.getUrl());
+        recorded.clear();
+        recorded.add(send(client, HttpMethod.POST, "/session", CAPABILITIES));
+        String session = sessionId(recorded.get(0));
+        CommandMetrics.startTest(TEST);
+        try {
+            recorded.add(send(client, HttpMethod.POST, "/session/" + session + "/element",
+                    "{\"using\":\"id\",\"value\":\"email\"}"));
+            recorded.add(send(client, HttpMethod.POST, "/session/" + session + "/element",
+                    "{\"using\":\"id\",\"value\":\"email\"}"));
+            recorded.add(send(client, HttpMethod.GET, "/session/" + session + "/source", null));
+            recorded.add(send(client, HttpMethod.GET, "/session/" + session + "/appium/device/current_package", null));
+        } finally {
+            CommandMetrics.endTest();
+        }
+        recorded.add(send(client, HttpMethod.DELETE, "/session/" + session, null));
+        recorder.close();
+    }
+
+    /**
+     * Stops the fake server.
+     */
+    @AfterMethod
+    public void stopServer() {
+        server.stop();
+    }
+
+    /**
+     * Tests that sending the recorded commands again is answered with the recorded responses, the deflated page
+     * source included, without any divergence.
+     *
+     * @throws IOException If the recording cannot be read.
+     */
+    @Test
+    public void testReplayServesRecordedResponses() throws IOException {
+        TrafficReplay replay = new TrafficReplay(file);
+        HttpClient client = replay.createClient(server.getUrl());
+        List<String> replayed = new ArrayList<>();
+        replayed.add(send(client, HttpMethod.POST, "/session", CAPABILITIES));
+        String session = sessionId(replayed.get(0));
+        CommandMetrics.startTest(TEST);
+        try {
+            replayed.add(send(client, HttpMethod.POST, "/session/" + session + "/element",
+                    "{\"using\":\"id\",\"value\":\"email\"}"));
+            replayed.add(send(client, HttpMethod.POST, "/session/" + session + "/element",
+                    "{\"using\":\"id\",\"value\":\"email\"}"));
+            replayed.add(send(client, HttpMethod.GET, "/session/" + session + "/source", null));
+            replayed.add(send(client, HttpMethod.GET, "/session/" + session + "/appium/device/current_package", null));
+        } finally {
+            CommandMetrics.endTest();
+        }
+        replayed.add(send(client, HttpMethod.DELETE, "/session/" + session, null));
+
+        Assert.assertTrue(recorded.get(3).length() > 512, "Page source too small to be stored deflated");
+        Assert.assertEquals(replayed, recorded.subList(0, replayed.size()));
+        Assert.assertTrue(replay.report().contains("6 of 6 recorded commands served"), replay.report());
+        Assert.assertTrue(replay.report().contains("no divergences"), replay.report());
+    }
+
+    /**
+     * Tests that a poll sent more often than recorded is answered again, and that recorded polls the replay does not
+     * need are passed over without counting as a divergence.
+     *
+     * @throws IOException If the recording cannot be read.
+     */
+    @Test
+    public void testReplayToleratesPollCounts() throws IOException {
+        TrafficReplay replay = new TrafficReplay(file);
+        HttpClient client = replay.createClient(server.getUrl());
+        String session = sessionId(send(client, HttpMethod.POST, "/session", CAPABILITIES));
+        CommandMetrics.startTest(TEST);
+        try {
+            send(client, HttpMethod.POST, "/session/" + session + "/element", "{\"using\":\"id\",\"value\":\"email\"}");
+            send(client, HttpMethod.GET, "/session/" + session + "/source", null);
+            send(client, HttpMethod.GET, "/session/" + session + "/appium/device/current_package", null);
+            String again = send(client, HttpMethod.GET, "/session/" + session + "/appium/device/current_package", null);
+            Assert.assertEquals(again, recorded.get(4));
+        } finally {
+            CommandMetrics.endTest();
+        }
+        send(client, HttpMethod.DELETE, "/session/" + session, null);
+
+        Assert.assertTrue(replay.report().contains("(1 repeated polls, 1 recorded polls not needed)"), replay.report());
+        Assert.assertTrue(replay.report().contains("no divergences"), replay.report());
+    }
+
+    /**
+     * Tests that a recorded command the replay skips is counted as missing, that a command the recording does not
+     * hold fails with a WebDriver error, and that a changed request body is served but counted.
+     *
+     * @throws IOException If the recording cannot be read.
+     */
+    @Test
+    public void testReplayReportsDivergences() throws IOException {
+        TrafficReplay replay = new TrafficReplay(file);
+        HttpClient client = replay.createClient(server.getUrl());
+        String session = sessionId(send(client, HttpMethod.POST, "/session", CAPABILITIES));
+        CommandMetrics.startTest(TEST);
+        try {
+            send(client, HttpMethod.POST, "/session/" + session + "/element", "{\"using\":\"id\",\"value\":\"email\"}");
+            send(client, HttpMethod.POST, "/session/" + session + "/element", "{\"using\":\"id\",\"value\":\"name\"}");
+            send(client, HttpMethod.GET, "/session/" + session + "/appium/device/current_package", null);
+            HttpResponse unexpected = client.execute(new HttpRequest(HttpMethod.GET, "/session/" + session + "/screenshot"));
+            Assert.assertEquals(unexpected.getStatus(), 500);
+        } finally {
+            CommandMetrics.endTest();
+        }
+        send(client, HttpMethod.DELETE, "/session/" + session, null);
+
+        Assert.assertTrue(replay.report().contains("1 unexpected, 1 missing, 1 with changed bodies"), replay.report());
+    }
+
+    /**
+     * Tests that a test recorded on one session is replayed on another, as happens when the recording was made on
+     * several devices.
+     *
+     * @throws IOException If the recording cannot be read.
+     */
+    @Test
+    public void testReplayIgnoresSessionIds() throws IOException {
+        TrafficReplay replay = new TrafficReplay(file);
+        HttpClient client = replay.createClient(server.getUrl());
+        CommandMetrics.startTest(TEST);
+        try {
+            String found = send(client, HttpMethod.POST, "/session/another-session/element",
+                    "{\"using\":\"id\",\"value\":\"email\"}");
+            Assert.assertEquals(found, recorded.get(1));
+        } finally {
+            CommandMetrics.endTest();
+        }
+    }
+
+    /**
+     * Tests that the settings and the stream index survive the round trip: tests are ordered as they were recorded,
+     * with tests the recording does not know last.
+     *
+     * @throws IOException If the recording cannot be read.
+     */
+    @Test
+    public void testReplayReadsSettingsAndIndex() throws IOException {
+        TrafficReplay replay = new TrafficReplay(file);
+        Assert.assertEquals(replay.setting("DATA_SEED"), "42");
+        Assert.assertEquals(replay.setting("DATA_TAKEN"), null);
+        Assert.assertEquals(replay.inRecordedOrder(Arrays.asList("unknown", TEST), name -> name),
+                Arrays.asList(TEST, "unknown"));
+    }
+
+    /**
+     * Sends a command and returns its response body.
+     */
+    private static String send(HttpClient client, HttpMethod method, String path, String body) throws IOException {
+        HttpRequest request = new HttpRequest(method, path);
+        if (body != null) {
+            request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        }
+        return client.execute(request).getContentString();
+    }
+
+    @SuppressWarnings("unchecked")
+    private String sessionId(String response) {
+        Map<String, Object> value = (Map<String, Object>) json.<Map<String, Object>>toType(response, Json.MAP_TYPE)
+                .get("value");
+        return (String) value.get("sessionId");
+    }
+}